@@ -0,0 +1,199 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Transitive parent / child relations of the places of a world. The
+ * relation may contain cycles and places with many parents, so the closures
+ * are cached per place instead of labelling a tree. New child connections
+ * extend the cached closures, removed ones drop the closures that might
+ * have contained them
+ * @author neop
+ */
+public class HierarchyIndex {
+
+    final HashMap<Place, HashSet<Place>> descendants = new HashMap<>();
+    final HashMap<Place, HashSet<Place>> ancestors = new HashMap<>();
+    final HashMap<Place, Integer> depths = new HashMap<>();
+
+    /**
+     * Gets all places that can be reached by following child connections
+     * @param place a place
+     * @return read-only set of descendants, it contains the place itself
+     * only if the place is its own descendant
+     */
+    public Set<Place> getDescendants(final Place place){
+        return Collections.unmodifiableSet(getClosure(place, true));
+    }
+
+    /**
+     * Gets all places that can be reached by following parent connections
+     * @param place a place
+     * @return read-only set of ancestors, it contains the place itself only
+     * if the place is its own ancestor
+     */
+    public Set<Place> getAncestors(final Place place){
+        return Collections.unmodifiableSet(getClosure(place, false));
+    }
+
+    /**
+     * Checks whether a place is a direct or indirect child of another one
+     * @param place possible descendant
+     * @param ancestor possible ancestor
+     * @return true, if place is under ancestor
+     */
+    public boolean isDescendant(final Place place, final Place ancestor){
+        if(ancestor.getChildren().isEmpty() || place.getParents().isEmpty()){
+            return false;
+        }
+        return getClosure(ancestor, true).contains(place);
+    }
+
+    /**
+     * Gets the number of parent connections to the nearest place without
+     * parents
+     * @param place a place
+     * @return depth, 0 if the place has no parents or no ancestor without
+     * parents
+     */
+    public int getDepth(final Place place){
+        if(place.getParents().isEmpty()) return 0;
+        Integer ret = depths.get(place);
+        if(ret == null){
+            ret = 0;
+            // breadth search to the nearest root
+            final HashMap<Place, Integer> distances = new HashMap<>();
+            final ArrayDeque<Place> queue = new ArrayDeque<>();
+            distances.put(place, 0);
+            queue.add(place);
+            while(!queue.isEmpty()){
+                final Place v = queue.poll();
+                if(v.getParents().isEmpty()){
+                    ret = distances.get(v);
+                    break;
+                }
+                for(Place parent: v.getParents()){
+                    if(!distances.containsKey(parent)){
+                        distances.put(parent, distances.get(v) + 1);
+                        queue.add(parent);
+                    }
+                }
+            }
+            depths.put(place, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the cached closure of a place or computes it
+     * @param place a place
+     * @param down descendants, else ancestors
+     * @return closure
+     */
+    private HashSet<Place> getClosure(final Place place, final boolean down){
+        final HashMap<Place, HashSet<Place>> cache = down ? descendants : ancestors;
+        HashSet<Place> ret = cache.get(place);
+        if(ret == null){
+            ret = new HashSet<>();
+            final ArrayDeque<Place> queue = new ArrayDeque<>();
+            queue.add(place);
+            while(!queue.isEmpty()){
+                final Place v = queue.poll();
+                for(Place next: down ? v.getChildren() : v.getParents()){
+                    if(ret.add(next)){
+                        queue.add(next);
+                    }
+                }
+            }
+            cache.put(place, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Updates the cached closures after a child was connected
+     * @param parent parent place
+     * @param child new child place
+     */
+    void childConnected(final Place parent, final Place child){
+        depths.clear();
+        if(!descendants.isEmpty()){
+            final HashSet<Place> childDescendants = getClosure(child, true);
+            for(Entry<Place, HashSet<Place>> entry: descendants.entrySet()){
+                final HashSet<Place> set = entry.getValue();
+                if(entry.getKey() == parent || set.contains(parent)){
+                    set.add(child);
+                    if(set != childDescendants){
+                        set.addAll(childDescendants);
+                    }
+                }
+            }
+        }
+        if(!ancestors.isEmpty()){
+            final HashSet<Place> parentAncestors = getClosure(parent, false);
+            for(Entry<Place, HashSet<Place>> entry: ancestors.entrySet()){
+                final HashSet<Place> set = entry.getValue();
+                if(entry.getKey() == child || set.contains(child)){
+                    set.add(parent);
+                    if(set != parentAncestors){
+                        set.addAll(parentAncestors);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cached closures that might have changed after a child
+     * connection was removed
+     * @param parent parent place
+     * @param child removed child place
+     */
+    void childRemoved(final Place parent, final Place child){
+        depths.clear();
+        for(Iterator<Entry<Place, HashSet<Place>>> it = descendants.entrySet().iterator(); it.hasNext();){
+            final Entry<Place, HashSet<Place>> entry = it.next();
+            if(entry.getKey() == parent || entry.getValue().contains(parent)){
+                it.remove();
+            }
+        }
+        for(Iterator<Entry<Place, HashSet<Place>>> it = ancestors.entrySet().iterator(); it.hasNext();){
+            final Entry<Place, HashSet<Place>> entry = it.next();
+            if(entry.getKey() == child || entry.getValue().contains(child)){
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached closures
+     */
+    void clear(){
+        descendants.clear();
+        ancestors.clear();
+        depths.clear();
+    }
+
+}
@@ -24,16 +24,33 @@
 package mudmap2.backend;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
-
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import mudmap2.backend.prquadtree.PersistentQuadtree;
+import mudmap2.backend.prquadtree.PooledQuadtree;
 import mudmap2.backend.prquadtree.Quadtree;
+import mudmap2.backend.spatialindex.HashGrid;
+import mudmap2.backend.spatialindex.SpatialIndex;
 import mudmap2.utils.Pair;
 
 /**
@@ -42,23 +59,38 @@ import mudmap2.utils.Pair;
  *
  * @author neop
  */
-public class Layer implements WorldChangeListener {
+public class Layer implements WorldEventListener, Iterable<Place> {
 
     World world;
     Integer id;
     String name;
-    Quadtree<LayerElement> elements = new Quadtree<>();
+    SpatialIndex<LayerElement> elements;
+
+    // position of an element for bulk insertion and the hash grid
+    static final ToIntFunction<LayerElement> X_FUNCTION = new ToIntFunction<LayerElement>() {
+        @Override
+        public int applyAsInt(final LayerElement element) {
+            return element.getX();
+        }
+    };
+    static final ToIntFunction<LayerElement> Y_FUNCTION = new ToIntFunction<LayerElement>() {
+        @Override
+        public int applyAsInt(final LayerElement element) {
+            return element.getY();
+        }
+    };
 
-    // for quadtree optimization
-    int maxX = 0;
-    int minX = 0;
-    int maxY = 0;
-    int minY = 0;
+    // accepts places only
+    static final Predicate<LayerElement> PLACE_FILTER = new Predicate<LayerElement>() {
+        @Override
+        public boolean test(final LayerElement element) {
+            return element instanceof Place;
+        }
+    };
 
     // place name cache for unique check
     HashMap<String, Integer> placeNameCache = new HashMap<>();
     boolean placeNameCacheNeedsUpdate = true;
-    boolean sizeCacheNeedsUpdated = true;
 
     /**
      * Constructor, sets layer id
@@ -72,6 +104,7 @@ public class Layer implements WorldChangeListener {
 
         this.id = id;
         this.world = world;
+        elements = createSpatialIndex();
 
         if (id > world.getNextLayerID() + 1) {
             world.setNextLayerID(id + 1);
@@ -89,6 +122,7 @@ public class Layer implements WorldChangeListener {
 
         id = world.getNextLayerID();
         this.world = world;
+        elements = createSpatialIndex();
     }
 
     /**
@@ -107,7 +141,12 @@ public class Layer implements WorldChangeListener {
      * @param name
      */
     public void setName(final String name) {
+        final String oldName = this.name;
         this.name = name;
+        if(world != null){
+            world.callListeners(WorldChangeEvent.layerChanged(this,
+                    WorldChangeEvent.PROPERTY_NAME, oldName, name));
+        }
     }
 
     /**
@@ -119,30 +158,151 @@ public class Layer implements WorldChangeListener {
     }
 
     /**
-     * Use this only to set an optimized quadtree after construction
+     * Use this only to set an optimized quadtree after construction, the
+     * center is ignored if the world doesn't use quadtrees
      * @param center_x
      * @param center_y
      */
     public void setQuadtree(final int center_x, final int center_y) {
-        elements = new Quadtree<>(center_x, center_y);
+        switch(world.getSpatialIndexType()){
+            case QUADTREE:
+                elements = new Quadtree<>(center_x, center_y);
+                break;
+            case POOLED_QUADTREE:
+                elements = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION, center_x, center_y);
+                break;
+            case PERSISTENT_QUADTREE:
+                elements = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, center_x, center_y);
+                break;
+            default:
+                elements = createSpatialIndex();
+        }
+    }
+
+    /**
+     * Creates an empty data structure of the world's type for the elements
+     * @return new spatial index
+     */
+    private SpatialIndex<LayerElement> createSpatialIndex() {
+        switch(world.getSpatialIndexType()){
+            case POOLED_QUADTREE:
+                return new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+            case HASH_GRID:
+                return new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+            case PERSISTENT_QUADTREE:
+                return new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+            case QUADTREE:
+            default:
+                return new Quadtree<>();
+        }
+    }
+
+    /**
+     * Creates an empty data structure of a type for the elements, quadtrees
+     * are centered at the current elements
+     * @param type spatial index type
+     * @return new spatial index
+     */
+    private SpatialIndex<LayerElement> createSpatialIndex(final World.SpatialIndexType type) {
+        final int centerX = getCenterX();
+        final int centerY = getCenterY();
+        switch(type){
+            case POOLED_QUADTREE:
+                return new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION, centerX, centerY);
+            case HASH_GRID:
+                return new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+            case PERSISTENT_QUADTREE:
+                return new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, centerX, centerY);
+            case QUADTREE:
+            default:
+                return new Quadtree<>(centerX, centerY);
+        }
+    }
+
+    /**
+     * Copies the elements to a new data structure, the layer isn't changed
+     * until the new data structure is set with setSpatialIndex()
+     * @param type spatial index type
+     * @return new spatial index with all elements of this layer
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException with the
+     * position of an element that can't be stored in the new data structure
+     */
+    SpatialIndex<LayerElement> buildSpatialIndex(final World.SpatialIndexType type) throws PlaceNotInsertedException {
+        final ArrayList<LayerElement> list = new ArrayList<>(elements.size());
+        for(final LayerElement element: elements){
+            list.add(element);
+        }
+        SpatialIndex<LayerElement> newElements = createSpatialIndex(type);
+        try {
+            newElements.insertAll(list, X_FUNCTION, Y_FUNCTION);
+        } catch (final Exception ex) {
+            // insertAll doesn't tell which element failed, insert them one
+            // by one to find it
+            newElements = createSpatialIndex(type);
+            for(final LayerElement element: list){
+                try {
+                    newElements.insert(element, element.getX(), element.getY());
+                } catch (final Exception ex2) {
+                    throw new PlaceNotInsertedException(element.getX(), element.getY());
+                }
+            }
+        }
+        return newElements;
+    }
+
+    /**
+     * Replaces the data structure of the elements
+     * @param newElements data structure from buildSpatialIndex()
+     */
+    void setSpatialIndex(final SpatialIndex<LayerElement> newElements) {
+        if(newElements == null){
+            throw new NullPointerException();
+        }
+        elements = newElements;
+    }
+
+    /**
+     * Gets a read-only view of the current places, it won't change if the
+     * layer is modified later, so it can be read by other threads. This takes
+     * constant time, if the world uses PERSISTENT_QUADTREE, else the places
+     * are copied
+     * @return snapshot
+     */
+    public LayerSnapshot snapshot() {
+        PersistentQuadtree<LayerElement> tree;
+        if(elements instanceof PersistentQuadtree) {
+            tree = ((PersistentQuadtree<LayerElement>) elements).snapshot();
+        } else {
+            tree = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, getCenterX(), getCenterY());
+            final ArrayList<LayerElement> list = new ArrayList<>(elements.size());
+            for(final LayerElement element: elements){
+                list.add(element);
+            }
+            try {
+                tree.insertAll(list, X_FUNCTION, Y_FUNCTION);
+            } catch (final Exception ex) {
+                // the elements were stored at unique positions before
+                throw new IllegalStateException(ex);
+            }
+            tree = tree.snapshot();
+        }
+        return new LayerSnapshot(this, tree);
     }
 
     /**
      * Gets the center x coordinate (estimation)
-     * @return
+     * @return center x coordinate or 0, if the layer is empty
      */
     public int getCenterX(){
-        updateSizeCache();
-        return (maxX + minX) / 2;
+        return (getXMax() + getXMin()) / 2;
     }
 
     /**
      * Gets the center y coordinate (estimation)
-     * @return
+     * @return center y coordinate or 0, if the layer is empty
      */
     public int getCenterY(){
-        updateSizeCache();
-        return (maxY + minY) / 2;
+        return (getYMax() + getYMin()) / 2;
     }
 
     /**
@@ -150,46 +310,41 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public Pair<Double, Double> getExactCenter(){
-        updateSizeCache();
-        double centerX = (double) (maxX + minX) / 2.0;
-        double centerY = (double) (maxY + minY) / 2.0;
+        double centerX = (double) (getXMax() + getXMin()) / 2.0;
+        double centerY = (double) (getYMax() + getYMin()) / 2.0;
         return new Pair<>(centerX, centerY);
     }
 
     /**
      * Gets the max x coordinate
-     * @return
+     * @return max x coordinate or 0, if the layer is empty (see isEmpty())
      */
     public int getXMax(){
-        updateSizeCache();
-        return maxX;
+        return elements.getXMax();
     }
 
     /**
      * Gets the min x coordinate
-     * @return
+     * @return min x coordinate or 0, if the layer is empty (see isEmpty())
      */
     public int getXMin() {
-        updateSizeCache();
-        return minX;
+        return elements.getXMin();
     }
 
     /**
      * Gets the max y coordinate
-     * @return
+     * @return max y coordinate or 0, if the layer is empty (see isEmpty())
      */
     public int getYMax() {
-        updateSizeCache();
-        return maxY;
+        return elements.getYMax();
     }
 
     /**
      * Gets the min y coordinate
-     * @return
+     * @return min y coordinate or 0, if the layer is empty (see isEmpty())
      */
     public int getYMin() {
-        updateSizeCache();
-        return minY;
+        return elements.getYMin();
     }
 
     /**
@@ -208,6 +363,152 @@ public class Layer implements WorldChangeListener {
         put(element);
     }
 
+    /**
+     * Adds many elements to the layer at once, removes them from their old
+     * layers. Elements keep their positions
+     * @param newElements elements to be added
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException
+     */
+    public void putAll(final Collection<? extends LayerElement> newElements) throws PlaceNotInsertedException {
+        putAll(newElements, 0, 0);
+    }
+
+    /**
+     * Adds many elements to the layer at once, removes them from their old
+     * layers. The elements will be moved by dx, dy. Nothing will be changed,
+     * if one of the elements can't be placed. Elements of this layer may be
+     * moved onto positions of other moved elements
+     * @param newElements elements to be added
+     * @param dx x offset
+     * @param dy y offset
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException
+     */
+    public void putAll(final Collection<? extends LayerElement> newElements, final int dx, final int dy) throws PlaceNotInsertedException {
+        final Set<LayerElement> moved = Collections.newSetFromMap(new IdentityHashMap<LayerElement, Boolean>());
+        moved.addAll(newElements);
+        if(moved.isEmpty()){
+            return;
+        }
+
+        // check new positions before changing anything
+        final HashSet<Long> positions = new HashSet<>();
+        for(final LayerElement element: moved){
+            final int x, y;
+            try {
+                x = Math.addExact(element.getX(), dx);
+                y = Math.addExact(element.getY(), dy);
+            } catch (final ArithmeticException ex) {
+                throw new PlaceNotInsertedException(element.getX(), element.getY());
+            }
+            final LayerElement collision = elements.get(x, y);
+            if(collision != null && !moved.contains(collision)
+                    || !positions.add(((long) x << 32) | (y & 0xffffffffL))){
+                throw new PlaceNotInsertedException(x, y);
+            }
+        }
+
+        // remove elements from their old layers, keep the old state for
+        // the case the spatial index rejects a position
+        final LayerElement[] order = moved.toArray(new LayerElement[moved.size()]);
+        final Layer[] oldLayers = new Layer[order.length];
+        final int[] oldX = new int[order.length];
+        final int[] oldY = new int[order.length];
+        final boolean[] wasInserted = new boolean[order.length];
+        final ArrayList<WorldChangeEvent> events = new ArrayList<>();
+        for(int i = 0; i < order.length; ++i){
+            final LayerElement element = order[i];
+            final Layer oldLayer = element.getLayer();
+            oldLayers[i] = oldLayer;
+            oldX[i] = element.getX();
+            oldY[i] = element.getY();
+            if(oldLayer != null && oldLayer.elements.contains(element)){
+                wasInserted[i] = true;
+                if(element instanceof Place){
+                    events.add(WorldChangeEvent.placeRemoved(oldLayer, (Place) element));
+                }
+                oldLayer.elements.remove(element);
+                if(element instanceof Place){
+                    oldLayer.world.placeRemoved((Place) element);
+                    if(!((Place) element).getPaths().isEmpty()){
+                        oldLayer.world.layerPathsChanged(oldLayer);
+                    }
+                }
+            }
+            element.setPosition(element.getX() + dx, element.getY() + dy, this);
+        }
+
+        try {
+            insertMoved(order);
+        } catch (final PlaceNotInsertedException ex) {
+            // put everything back
+            for(int i = 0; i < order.length; ++i){
+                final LayerElement element = order[i];
+                element.setPosition(oldX[i], oldY[i], oldLayers[i]);
+                if(wasInserted[i]){
+                    try {
+                        oldLayers[i].elements.insert(element, oldX[i], oldY[i]);
+                    } catch (final Exception ex2) {
+                        Logger.getLogger(Layer.class.getName()).log(Level.SEVERE, "Couldn't restore element", ex2);
+                        continue;
+                    }
+                    if(element instanceof Place){
+                        oldLayers[i].world.placeAdded((Place) element);
+                        if(!((Place) element).getPaths().isEmpty()){
+                            oldLayers[i].world.layerPathsChanged(oldLayers[i]);
+                        }
+                    }
+                }
+            }
+            throw ex;
+        }
+
+        for(final LayerElement element: order){
+            if(element instanceof Place){
+                world.placeAdded((Place) element);
+                events.add(WorldChangeEvent.placeAdded((Place) element));
+            }
+        }
+
+        // one update for the events of this world
+        world.beginUpdate();
+        try {
+            for(final WorldChangeEvent event: events){
+                event.getLayer().world.callListeners(event);
+            }
+        } finally {
+            world.endUpdate();
+        }
+    }
+
+    /**
+     * Inserts elements at their positions into the spatial index. Nothing
+     * will be inserted, if one of them can't be inserted
+     * @param newElements elements to insert
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException with the
+     * position of the element that couldn't be inserted
+     */
+    private void insertMoved(final LayerElement[] newElements) throws PlaceNotInsertedException {
+        try {
+            elements.insertAll(Arrays.asList(newElements), X_FUNCTION, Y_FUNCTION);
+        } catch (final Exception ex) {
+            // insertAll doesn't tell which element failed, insert them one
+            // by one to find it
+            int inserted = 0;
+            try {
+                for(; inserted < newElements.length; ++inserted){
+                    final LayerElement element = newElements[inserted];
+                    elements.insert(element, element.getX(), element.getY());
+                }
+            } catch (final Exception ex2) {
+                for(int i = 0; i < inserted; ++i){
+                    elements.remove(newElements[i]);
+                }
+                final LayerElement element = newElements[inserted];
+                throw new PlaceNotInsertedException(element.getX(), element.getY());
+            }
+        }
+    }
+
     /**
      * Adds an element to the layer, removes it from it's old layer
      * of the element
@@ -222,8 +523,12 @@ public class Layer implements WorldChangeListener {
             }
 
             elements.insert(element, element.getX(), element.getY());
-            sizeCacheNeedsUpdated = true;
-            world.callListeners(element);
+            if(element instanceof Place){
+                world.placeAdded((Place) element);
+                world.callListeners(WorldChangeEvent.placeAdded((Place) element));
+            } else {
+                world.callListeners(element);
+            }
         } catch (final Exception ex) {
             throw new PlaceNotInsertedException(element.getX(), element.getY());
         }
@@ -253,19 +558,119 @@ public class Layer implements WorldChangeListener {
     public LinkedList<Place> getNeighbors(final int x, final int y, int distance) {
         final LinkedList<Place> ret = new LinkedList<>();
         distance = Math.abs(distance);
-        for (int xi = -distance; xi <= distance; ++xi) {
-            for (int yi = -distance; yi <= distance; ++yi) {
-                if (!(xi == 0 && yi == 0)) { // if not center place
-                    final Place el = get(x + xi, y + yi);
-                    if (el != null) {
-                        ret.add(el);
-                    }
+        elements.query((int) Math.max((long) x - distance, Integer.MIN_VALUE),
+                (int) Math.max((long) y - distance, Integer.MIN_VALUE),
+                (int) Math.min((long) x + distance, Integer.MAX_VALUE),
+                (int) Math.min((long) y + distance, Integer.MAX_VALUE),
+                new Consumer<LayerElement>() {
+            @Override
+            public void accept(LayerElement element) {
+                // if not center place
+                if(element instanceof Place && !(element.getX() == x && element.getY() == y)) {
+                    ret.add((Place) element);
                 }
             }
+        });
+        return ret;
+    }
+
+    /**
+     * Gets the places closest to a position, including the place at that
+     * position. Places with the same distance are ordered by x and y
+     * coordinate
+     * @param x position
+     * @param y position
+     * @param k max number of places
+     * @return up to k places, closest first
+     */
+    public List<Place> nearest(final int x, final int y, final int k) {
+        final ArrayList<Place> ret = new ArrayList<>();
+        for(LayerElement element: elements.nearest(x, y, k,
+                Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                PLACE_FILTER)) {
+            ret.add((Place) element);
         }
         return ret;
     }
 
+    /**
+     * Gets the closest place in a direction. A place is in a direction, if
+     * it is inside of the 45° sector around the direction (positions on the
+     * border between a diagonal and a straight direction belong to the
+     * straight one, like (2, 1) belongs to "e")
+     * @param x position
+     * @param y position
+     * @param dir cardinal direction (n, ne, e, se, s, sw, w, nw)
+     * @return closest place or null, if there is none or dir is invalid
+     */
+    public Place nearestInDirection(final int x, final int y, final String dir) {
+        final int num = Path.getDirNum(dir);
+        if(num < 1 || num == 5) {
+            return null;
+        }
+        final int ux = (num - 1) % 3 - 1;
+        final int uy = (num - 1) / 3 - 1;
+
+        // half-plane or quadrant that contains the sector
+        int xMin = Integer.MIN_VALUE, xMax = Integer.MAX_VALUE;
+        int yMin = Integer.MIN_VALUE, yMax = Integer.MAX_VALUE;
+        if(ux > 0) {
+            if(x == Integer.MAX_VALUE) return null;
+            xMin = x + 1;
+        } else if(ux < 0) {
+            if(x == Integer.MIN_VALUE) return null;
+            xMax = x - 1;
+        }
+        if(uy > 0) {
+            if(y == Integer.MAX_VALUE) return null;
+            yMin = y + 1;
+        } else if(uy < 0) {
+            if(y == Integer.MIN_VALUE) return null;
+            yMax = y - 1;
+        }
+
+        List<LayerElement> found = elements.nearest(x, y, 1, xMin, yMin, xMax, yMax,
+                new Predicate<LayerElement>() {
+            @Override
+            public boolean test(LayerElement element) {
+                if(!(element instanceof Place)) {
+                    return false;
+                }
+                long dx = (long) element.getX() - x;
+                long dy = (long) element.getY() - y;
+                int sx = Long.signum(dx), sy = Long.signum(dy);
+                if(2 * Math.abs(dx) <= Math.abs(dy)) {
+                    sx = 0;
+                } else if(2 * Math.abs(dy) <= Math.abs(dx)) {
+                    sy = 0;
+                }
+                return sx == ux && sy == uy;
+            }
+        });
+        return found.isEmpty() ? null : (Place) found.get(0);
+    }
+
+    /**
+     * Gets all places inside a rectangular region
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @return places inside the region or empty list
+     */
+    public ArrayList<Place> getPlacesInRect(final int xMin, final int yMin, final int xMax, final int yMax) {
+        final ArrayList<Place> ret = new ArrayList<>();
+        elements.query(xMin, yMin, xMax, yMax, new Consumer<LayerElement>() {
+            @Override
+            public void accept(LayerElement element) {
+                if(element instanceof Place) {
+                    ret.add((Place) element);
+                }
+            }
+        });
+        return ret;
+    }
+
     /**
      * Gets the id of the layer
      * @return layer id
@@ -287,8 +692,21 @@ public class Layer implements WorldChangeListener {
      * @param element
      */
     public void remove(final LayerElement element) {
+        if(!elements.contains(element)){
+            return;
+        }
+        // the event takes the position before the removal
+        final WorldChangeEvent event = element instanceof Place
+                ? WorldChangeEvent.placeRemoved(this, (Place) element)
+                : WorldChangeEvent.of(this);
         elements.remove(element);
-        world.callListeners(this);
+        if(element instanceof Place){
+            world.placeRemoved((Place) element);
+            if(!((Place) element).getPaths().isEmpty()){
+                world.layerPathsChanged(this);
+            }
+        }
+        world.callListeners(event);
     }
 
     /**
@@ -309,12 +727,24 @@ public class Layer implements WorldChangeListener {
         return elements.isEmpty();
     }
 
+    /**
+     * Gets the number of elements on this layer
+     * @return number of elements
+     */
+    public int size() {
+        return elements.size();
+    }
+
     /**
      * Gets a collection of all places
      * @return set of all elements or empty set
      */
     public HashSet<Place> getPlaces(){
-        return new HashSet(elements.values());
+        final HashSet<Place> ret = new HashSet<>();
+        for(Place place: this){
+            ret.add(place);
+        }
+        return ret;
     }
 
     /**
@@ -325,6 +755,44 @@ public class Layer implements WorldChangeListener {
         return elements.values();
     }
 
+    /**
+     * Calls visitor for each place without copying the places into a
+     * collection. The layer must not be modified by the visitor
+     * @param visitor
+     */
+    public void forEachPlace(final Consumer<? super Place> visitor) {
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        elements.forEach(new Consumer<LayerElement>() {
+            @Override
+            public void accept(LayerElement element) {
+                if(element instanceof Place) {
+                    visitor.accept((Place) element);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets an iterator over the places of this layer. The iterator walks the
+     * live data structure, it must not be used after the layer was modified
+     * @return place iterator
+     */
+    @Override
+    public Iterator<Place> iterator() {
+        return new PlaceIterator(elements.iterator());
+    }
+
+    /**
+     * Gets a spliterator over the live places of this layer
+     * @return place spliterator
+     */
+    @Override
+    public Spliterator<Place> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
     /**
      * Gets a sorted set of all elements
      * @param comparator The comparator to use
@@ -332,7 +800,9 @@ public class Layer implements WorldChangeListener {
      */
     public SortedSet<Place> getPlaces(final Comparator<Place> comparator) {
         final SortedSet<Place> set = new TreeSet<>(comparator);
-        set.addAll(getPlaces());
+        for(Place place: this){
+            set.add(place);
+        }
         return set;
     }
 
@@ -341,9 +811,10 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public List<Place> getPlacesList() {
-        final Set<Place> set = getPlaces();
-        final List<Place> list = new ArrayList<>(set.size());
-        list.addAll(set);
+        final List<Place> list = new ArrayList<>();
+        for(Place place: this){
+            list.add(place);
+        }
         return list;
     }
 
@@ -388,59 +859,86 @@ public class Layer implements WorldChangeListener {
         if(placeNameCacheNeedsUpdate) {
             placeNameCache.clear();
 
-            for(LayerElement element: getPlaces()) {
-                if(element instanceof Place) {
-                    Place place = (Place) element;
-                    Integer value = placeNameCache.get(place.getName());
-                    if(value == null) {
-                        value = 1;
-                    } else {
-                        value += 1;
-                    }
-                    placeNameCache.put(place.getName(), value);
+            for(Place place: this) {
+                Integer value = placeNameCache.get(place.getName());
+                if(value == null) {
+                    value = 1;
+                } else {
+                    value += 1;
                 }
+                placeNameCache.put(place.getName(), value);
             }
 
             placeNameCacheNeedsUpdate = false;
         }
     }
 
-    private void updateSizeCache(){
-        if(sizeCacheNeedsUpdated){
-            maxX = Integer.MIN_VALUE;
-            minX = Integer.MAX_VALUE;
-            maxY = Integer.MIN_VALUE;
-            minY = Integer.MAX_VALUE;
-
-            for(LayerElement element: getLayerElements()){
-                maxX = Math.max(maxX, element.getX());
-                minX = Math.min(minX, element.getX());
-                maxY = Math.max(maxY, element.getY());
-                minY = Math.min(minY, element.getY());
+    @Override
+    public void worldChanged(final WorldChangeEvent event) {
+        if(placeNameCacheNeedsUpdate || event.getLayer() != this && event.getLayer() != null) {
+            return;
+        }
+        for(final WorldChangeEvent change: event.getEvents()) {
+            if(change.getLayer() != this) continue;
+            switch(change.getKind()) {
+                case PLACE_ADDED:
+                case PLACE_REMOVED:
+                case LAYER_CHANGED:
+                    placeNameCacheNeedsUpdate = true;
+                    return;
+                case PLACE_CHANGED:
+                    // the cache counts names only
+                    if(change.mayAffect(WorldChangeEvent.PROPERTY_NAME)) {
+                        placeNameCacheNeedsUpdate = true;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
             }
+        }
+    }
 
-            if(maxX == Integer.MIN_VALUE){
-                maxX = 0;
-            }
-            if(minX == Integer.MAX_VALUE){
-                minX = 0;
-            }
-            if(maxY == Integer.MIN_VALUE){
-                maxY = 0;
-            }
-            if(minY == Integer.MAX_VALUE){
-                minY = 0;
+    /**
+     * Iterates over the places of a layer element iterator
+     */
+    static class PlaceIterator implements Iterator<Place> {
+
+        private final Iterator<LayerElement> iterator;
+        private Place next;
+
+        public PlaceIterator(final Iterator<LayerElement> iterator) {
+            this.iterator = iterator;
+            next = findNext();
+        }
+
+        /**
+         * Gets the next element that is a place
+         * @return next place or null
+         */
+        private Place findNext() {
+            while(iterator.hasNext()) {
+                LayerElement element = iterator.next();
+                if(element instanceof Place) {
+                    return (Place) element;
+                }
             }
+            return null;
+        }
 
-            sizeCacheNeedsUpdated = false;
+        @Override
+        public boolean hasNext() {
+            return next != null;
         }
-    }
 
-    @Override
-    public void worldChanged(final Object source) {
-        // if source is a place on this layer
-        if (source instanceof Place && elements.contains((Place) source) || source instanceof Layer && source == this) {
-            placeNameCacheNeedsUpdate = true;
+        @Override
+        public Place next() {
+            if(next == null) {
+                throw new NoSuchElementException();
+            }
+            Place ret = next;
+            next = findNext();
+            return ret;
         }
     }
 
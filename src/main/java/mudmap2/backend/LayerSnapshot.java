@@ -0,0 +1,188 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import mudmap2.backend.prquadtree.PersistentQuadtree;
+
+/**
+ * A read-only view of the places of a layer at a certain time, see
+ * Layer.snapshot(). Places that were added, removed or moved later won't
+ * change the snapshot, so it can be read by other threads while the layer is
+ * modified. Only the positions are part of the snapshot, not the other
+ * properties of the places (name, paths, ...)
+ * @author neop
+ */
+public class LayerSnapshot implements Iterable<Place> {
+
+    final Layer layer;
+    final PersistentQuadtree<LayerElement> elements;
+
+    /**
+     * Constructs a snapshot
+     * @param layer snapshot of this layer
+     * @param elements read-only quadtree
+     */
+    LayerSnapshot(final Layer layer, final PersistentQuadtree<LayerElement> elements) {
+        this.layer = layer;
+        this.elements = elements;
+    }
+
+    /**
+     * Gets the layer of this snapshot
+     * @return layer
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Gets the place at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return place at that position or null
+     */
+    public Place get(final int x, final int y) {
+        LayerElement layerElement = elements.get(x, y);
+        if(layerElement instanceof Place) {
+            return (Place) layerElement;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a position is occupied
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true, if there is an element at that position
+     */
+    public boolean exist(final int x, final int y) {
+        return elements.exist(x, y);
+    }
+
+    /**
+     * Checks whether the snapshot is empty
+     * @return true, if empty
+     */
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Gets the min x coordinate
+     * @return min x coordinate or 0, if the snapshot is empty
+     */
+    public int getXMin() {
+        return elements.getXMin();
+    }
+
+    /**
+     * Gets the max x coordinate
+     * @return max x coordinate or 0, if the snapshot is empty
+     */
+    public int getXMax() {
+        return elements.getXMax();
+    }
+
+    /**
+     * Gets the min y coordinate
+     * @return min y coordinate or 0, if the snapshot is empty
+     */
+    public int getYMin() {
+        return elements.getYMin();
+    }
+
+    /**
+     * Gets the max y coordinate
+     * @return max y coordinate or 0, if the snapshot is empty
+     */
+    public int getYMax() {
+        return elements.getYMax();
+    }
+
+    /**
+     * Gets all places inside a rectangular region
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @return places inside the region or empty list
+     */
+    public ArrayList<Place> getPlacesInRect(final int xMin, final int yMin, final int xMax, final int yMax) {
+        final ArrayList<Place> ret = new ArrayList<>();
+        elements.query(xMin, yMin, xMax, yMax, new Consumer<LayerElement>() {
+            @Override
+            public void accept(LayerElement element) {
+                if(element instanceof Place) {
+                    ret.add((Place) element);
+                }
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Gets the places closest to a position, see Layer.nearest()
+     * @param x position
+     * @param y position
+     * @param k max number of places
+     * @return up to k places, closest first
+     */
+    public List<Place> nearest(final int x, final int y, final int k) {
+        final ArrayList<Place> ret = new ArrayList<>();
+        for(LayerElement element: elements.nearest(x, y, k,
+                Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Layer.PLACE_FILTER)) {
+            ret.add((Place) element);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets all places
+     * @return new set of places
+     */
+    public HashSet<Place> getPlaces() {
+        final HashSet<Place> ret = new HashSet<>();
+        for(Place place: this){
+            ret.add(place);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets an iterator over the places of this snapshot
+     * @return place iterator
+     */
+    @Override
+    public Iterator<Place> iterator() {
+        return new Layer.PlaceIterator(elements.iterator());
+    }
+
+}
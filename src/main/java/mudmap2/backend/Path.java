@@ -31,6 +31,8 @@ package mudmap2.backend;
 public class Path {
 
     public static final String[] directions = {"n", "ne", "e", "se", "s", "sw", "w", "nw", "u", "d", "-"};
+    // directions on the map plane
+    public static final String[] planeDirections = {"n", "ne", "e", "se", "s", "sw", "w", "nw"};
 
     private final Place[] places;
     private final String[] exitdirections;
@@ -22,10 +22,13 @@
 
 package mudmap2.backend;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.TreeMap;
 
 import mudmap2.backend.sssp.BreadthSearch;
+import mudmap2.utils.Pair;
 
 /**
  * A place in the world
@@ -35,8 +38,8 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
 
     public static final String PLACEHOLDER_NAME = "?";
 
-    // next id to be assigned
-    static int nextID;
+    // id of places that weren't added to a world yet
+    public static final int NO_ID = -1;
 
     int id;
     String name;
@@ -51,14 +54,20 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     HashSet<Path> paths = new HashSet<>();
     TreeMap<String, Boolean> flags = new TreeMap<>();
 
+    // paths by exit: plane directions by Path.getDirNum(), other exits by name
+    final ExitSet[] exitTable = new ExitSet[10];
+    HashMap<String, ExitSet> otherExits = null;
+    // paths by the other place
+    HashMap<Place, ExitSet> neighbors = null;
+
     BreadthSearchData breadthSearchData = null;
 
     public Place(final int id, final String name, final int posX, final int posY, final Layer l) {
         super(posX, posY, l);
         this.name = name;
         this.id = id;
-        if (id >= nextID) {
-            nextID = id + 1;
+        if (l != null && l.getWorld() != null) {
+            l.getWorld().reservePlaceId(id);
         }
     }
 
@@ -72,12 +81,16 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     public Place(final String name, final int posX, final int posY, final Layer l) {
         super(posX, posY, l);
         this.name = name;
-        id = nextID++;
+        if (l != null && l.getWorld() != null) {
+            id = l.getWorld().allocatePlaceId();
+        } else {
+            id = NO_ID;
+        }
     }
 
     /**
-     * Gets the place id
-     * @return place id
+     * Gets the place id, it is unique within the world of the place
+     * @return place id or NO_ID, if the place wasn't added to a world yet
      */
     public int getId() {
         return id;
@@ -96,8 +109,10 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param name new name
      */
     public void setName(final String name) {
+        final String oldName = this.name;
         this.name = name;
-        callWorldChangeListeners();
+        callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                WorldChangeEvent.PROPERTY_NAME, oldName, name));
     }
 
     /**
@@ -121,11 +136,13 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param placeGroup
      */
     public void setPlaceGroup(final PlaceGroup placeGroup) {
+        final PlaceGroup oldPlaceGroup = this.placeGroup;
         this.placeGroup = placeGroup;
         if (placeGroup != null && getLayer() != null && getLayer().getWorld() != null) {
             getLayer().getWorld().addPlaceGroup(placeGroup);
         }
-        callWorldChangeListeners();
+        callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                WorldChangeEvent.PROPERTY_PLACE_GROUP, oldPlaceGroup, placeGroup));
     }
 
     /**
@@ -141,8 +158,10 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param recLevelMin
      */
     public void setRecLevelMin(final int recLevelMin) {
+        final int old = this.recLevelMin;
         this.recLevelMin = recLevelMin;
-        callWorldChangeListeners();
+        callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                WorldChangeEvent.PROPERTY_REC_LEVEL_MIN, old, recLevelMin));
     }
 
     /**
@@ -158,8 +177,10 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param recLevelMax
      */
     public void setRecLevelMax(final int recLevelMax) {
+        final int old = this.recLevelMax;
         this.recLevelMax = recLevelMax;
-        callWorldChangeListeners();
+        callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                WorldChangeEvent.PROPERTY_REC_LEVEL_MAX, old, recLevelMax));
     }
 
     /**
@@ -175,8 +196,10 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param infoRing
      */
     public void setInfoRing(final InformationColor infoRing) {
+        final InformationColor old = this.infoRing;
         this.infoRing = infoRing;
-        callWorldChangeListeners();
+        callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                WorldChangeEvent.PROPERTY_INFO_RING, old, infoRing));
     }
 
     /**
@@ -198,31 +221,22 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     /**
      * Gets the paths connected to an exit
      * @param dir exit direction
-     * @return set of paths connected to that exit
+     * @return read-only set of paths connected to that exit
      */
     public HashSet<Path> getExit(final String dir) {
-        HashSet<Path> ret = new HashSet<>();
-        for (final Path path : paths) {
-            if (path.getExit(this).equals(dir)) {
-                ret.add(path);
-            }
-        }
-        return ret;
+        final ExitSet ret = getExitSet(dir, false);
+        return ret == null ? ExitSet.EMPTY : ret;
     }
 
     /**
      * Gets the paths to a place
      * @param place a place that this place is connected to
-     * @return paths to place
+     * @return read-only set of paths to place, paths from this place to
+     * itself if place is this place
      */
     public HashSet<Path> getPaths(final Place place) {
-        final HashSet<Path> ret = new HashSet<>();
-        for (final Path path : paths) {
-            if (path.hasPlace(place)) {
-                ret.add(path);
-            }
-        }
-        return ret;
+        final ExitSet ret = neighbors == null ? null : neighbors.get(place);
+        return ret == null ? ExitSet.EMPTY : ret;
     }
 
     /**
@@ -238,9 +252,19 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param path
      */
     public void removePath(final Path path) {
-        paths.remove(path);
-        path.getOtherPlace(this).paths.remove(path);
-        callWorldChangeListeners();
+        final Place other = path.getOtherPlace(this);
+        final boolean removed = paths.remove(path);
+        if (removed) {
+            unindexPath(path);
+            if (other != this) {
+                other.paths.remove(path);
+                other.unindexPath(path);
+            }
+        }
+        pathsChanged(other);
+        if (removed) {
+            callPathListeners(path, other, false);
+        }
     }
 
     /**
@@ -248,11 +272,26 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param paths set of paths
      */
     public void removePaths(final HashSet<Path> paths){
-        this.paths.removeAll(paths);
-        for(Path path: paths){
-            path.getOtherPlace(this).paths.remove(path);
+        // the set might be an exit of this place, which will be modified
+        final Path[] buffer = paths.toArray(new Path[paths.size()]);
+        final World world = getLayer() != null ? getLayer().getWorld() : null;
+        if(world != null) world.beginUpdate();
+        try {
+            for(Path path: buffer){
+                final Place other = path.getOtherPlace(this);
+                if(this.paths.remove(path)){
+                    unindexPath(path);
+                    if(other != this){
+                        other.paths.remove(path);
+                        other.unindexPath(path);
+                    }
+                    callPathListeners(path, other, false);
+                }
+                pathsChanged(other);
+            }
+        } finally {
+            if(world != null) world.endUpdate();
         }
-        callWorldChangeListeners();
     }
 
     /**
@@ -282,25 +321,24 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
             throw new RuntimeException("Can not connect path to the same exit of one place");
         }
 
-        paths.add(path);
-        other.paths.add(path);
+        if (paths.add(path)) {
+            indexPath(path);
+        }
+        if (other != this && other.paths.add(path)) {
+            other.indexPath(path);
+        }
 
-        callWorldChangeListeners();
+        pathConnected(path, other);
+        callPathListeners(path, other, true);
     }
 
     /**
      * Get a set of paths connected to exit
      * @param dir exit direction
-     * @return set of paths or empty set
+     * @return read-only set of paths or empty set
      */
     public HashSet<Path> getPathsTo(final String dir) {
-        HashSet<Path> ret = new HashSet<>();
-        for (final Path pa : paths) {
-            if (pa.getExit(this).equals(dir)) {
-                ret.add(pa);
-            }
-        }
-        return ret;
+        return getExit(dir);
     }
 
     /**
@@ -322,8 +360,10 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      */
     public void setFlag(final String key, final boolean state) {
         if (key != null) {
-            flags.put(key, state);
-            callWorldChangeListeners();
+            final Boolean old = flags.put(key, state);
+            callWorldChangeListeners(WorldChangeEvent.placeChanged(this,
+                    WorldChangeEvent.PROPERTY_FLAG,
+                    new Pair<>(key, old), new Pair<>(key, state)));
         }
     }
 
@@ -343,7 +383,8 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         if (place != null) {
             children.add(place);
             place.parents.add(this);
-            callWorldChangeListeners();
+            childrenChanged(place, true);
+            callChildListeners(this, place, true);
         } else {
             throw new NullPointerException();
         }
@@ -355,9 +396,11 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      */
     public void removeChild(final Place place) {
         if (place != null) {
-            children.remove(place);
-            place.parents.remove(this);
-            callWorldChangeListeners();
+            if (children.remove(place)) {
+                place.parents.remove(this);
+                childrenChanged(place, false);
+                callChildListeners(this, place, false);
+            }
         } // don't throw
     }
 
@@ -403,22 +446,34 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * Removes all connections to other places (paths, child-connections)
      */
     public void removeConnections() {
-        // remove place paths (buffer, since connected_places will be modified)
-        final HashSet<Path> cp_buffer = (HashSet<Path>) paths.clone();
-        for (final Path p : cp_buffer) {
-            p.remove();
-        }
-        // remove place connection to children / parents
-        for (final Place pl : children) {
-            pl.parents.remove(this);
+        final World world = getLayer() != null ? getLayer().getWorld() : null;
+        if (world != null) {
+            world.beginUpdate();
         }
-        children.clear();
-        for (final Place pl : parents) {
-            pl.children.remove(this);
+        try {
+            // remove place paths (buffer, since connected_places will be modified)
+            final HashSet<Path> cp_buffer = (HashSet<Path>) paths.clone();
+            for (final Path p : cp_buffer) {
+                p.remove();
+            }
+            // remove place connection to children / parents
+            for (final Place pl : children.toArray(new Place[children.size()])) {
+                children.remove(pl);
+                pl.parents.remove(this);
+                childrenChanged(pl, false);
+                callChildListeners(this, pl, false);
+            }
+            for (final Place pl : parents.toArray(new Place[parents.size()])) {
+                pl.children.remove(this);
+                parents.remove(pl);
+                pl.childrenChanged(this, false);
+                callChildListeners(pl, this, false);
+            }
+        } finally {
+            if (world != null) {
+                world.endUpdate();
+            }
         }
-        parents.clear();
-
-        callWorldChangeListeners();
     }
 
     /**
@@ -458,7 +513,8 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
 
     /**
      * Creates a new place from this place
-     * a new id will be created and connections to other places not copied
+     * the id will be assigned by the world it's added to and connections to
+     * other places not copied
      * @return
      */
     public Place duplicate() {
@@ -494,12 +550,237 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         return breadthSearchData;
     }
 
+    /**
+     * Gets the index entry of an exit
+     * @param dir exit direction
+     * @param create create the entry, if it doesn't exist
+     * @return paths of the exit or null
+     */
+    private ExitSet getExitSet(final String dir, final boolean create) {
+        if (dir == null) {
+            return null;
+        }
+        final int num = Path.getDirNum(dir);
+        ExitSet ret;
+        if (num >= 0) {
+            ret = exitTable[num];
+            if (ret == null && create) {
+                ret = exitTable[num] = new ExitSet();
+            }
+        } else {
+            if (otherExits == null) {
+                if (!create) {
+                    return null;
+                }
+                otherExits = new HashMap<>();
+            }
+            ret = otherExits.get(dir);
+            if (ret == null && create) {
+                otherExits.put(dir, ret = new ExitSet());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds a path of this place to the exit and neighbor index
+     * @param path new path
+     */
+    private void indexPath(final Path path) {
+        final Place[] pp = path.getPlaces();
+        final String[] exits = path.getExitDirections();
+        for (int i = 0; i < 2; ++i) {
+            if (pp[i] == this) {
+                getExitSet(exits[i], true).put(path);
+            }
+        }
+        if (neighbors == null) {
+            neighbors = new HashMap<>();
+        }
+        final Place other = path.getOtherPlace(this);
+        ExitSet set = neighbors.get(other);
+        if (set == null) {
+            neighbors.put(other, set = new ExitSet());
+        }
+        set.put(path);
+    }
+
+    /**
+     * Removes a path of this place from the exit and neighbor index
+     * @param path removed path
+     */
+    private void unindexPath(final Path path) {
+        final Place[] pp = path.getPlaces();
+        final String[] exits = path.getExitDirections();
+        for (int i = 0; i < 2; ++i) {
+            if (pp[i] == this) {
+                final ExitSet set = getExitSet(exits[i], false);
+                if (set != null) {
+                    set.take(path);
+                    if (set.isEmpty()) {
+                        final int num = Path.getDirNum(exits[i]);
+                        if (num >= 0) {
+                            exitTable[num] = null;
+                        } else {
+                            otherExits.remove(exits[i]);
+                        }
+                    }
+                }
+            }
+        }
+        final Place other = path.getOtherPlace(this);
+        final ExitSet set = neighbors == null ? null : neighbors.get(other);
+        if (set != null) {
+            set.take(path);
+            if (set.isEmpty()) {
+                neighbors.remove(other);
+            }
+        }
+    }
+
+    /**
+     * Tells the worlds of this and another place that their paths were
+     * changed, so the path graph will be rebuilt
+     * @param other other place of the changed paths
+     */
+    private void pathsChanged(final Place other) {
+        if (getLayer() != null && getLayer().getWorld() != null) {
+            getLayer().getWorld().invalidateGraph(getLayer());
+        }
+        if (other.getLayer() != null && other.getLayer().getWorld() != null) {
+            other.getLayer().getWorld().invalidateGraph(other.getLayer());
+        }
+    }
+
+    /**
+     * Tells the worlds of this and another place that a path was connected
+     * @param path new path
+     * @param other other place of the path
+     */
+    private void pathConnected(final Path path, final Place other) {
+        World world = null;
+        if (getLayer() != null && getLayer().getWorld() != null) {
+            world = getLayer().getWorld();
+            world.pathConnected(path);
+        }
+        if (other.getLayer() != null && other.getLayer().getWorld() != null
+                && other.getLayer().getWorld() != world) {
+            other.getLayer().getWorld().pathConnected(path);
+        }
+    }
+
+    /**
+     * Tells the worlds of this place and a child that the child connection
+     * was changed, so the hierarchy index will be updated
+     * @param child child place
+     * @param connected true, if the child was connected, else removed
+     */
+    private void childrenChanged(final Place child, final boolean connected) {
+        World world = null;
+        if (getLayer() != null && getLayer().getWorld() != null) {
+            world = getLayer().getWorld();
+            world.childrenChanged(this, child, connected);
+        }
+        if (child.getLayer() != null && child.getLayer().getWorld() != null
+                && child.getLayer().getWorld() != world) {
+            child.getLayer().getWorld().childrenChanged(this, child, connected);
+        }
+    }
+
     /**
      * Call world change listeners on place changes
+     * @param event change event
      */
-    private void callWorldChangeListeners() {
+    private void callWorldChangeListeners(final WorldChangeEvent event) {
         if (getLayer() != null && getLayer().getWorld() != null) {
-            getLayer().getWorld().callListeners(this);
+            getLayer().getWorld().callListeners(event);
+        }
+    }
+
+    /**
+     * Call world change listeners on path changes, a place on another layer
+     * gets an event on its own
+     * @param path changed path
+     * @param other other place of the path
+     * @param added true, if the path was added, else removed
+     */
+    private void callPathListeners(final Path path, final Place other, final boolean added) {
+        callWorldChangeListeners(WorldChangeEvent.pathChanged(this, path, added));
+        if (other.getLayer() != getLayer()) {
+            other.callWorldChangeListeners(WorldChangeEvent.pathChanged(other, path, added));
+        }
+    }
+
+    /**
+     * Call world change listeners on child connection changes, a place on
+     * another layer gets an event on its own
+     * @param parent parent place
+     * @param child child place
+     * @param added true, if the child was connected, else removed
+     */
+    private static void callChildListeners(final Place parent, final Place child, final boolean added) {
+        parent.callWorldChangeListeners(WorldChangeEvent.childChanged(parent, parent, child, added));
+        if (child.getLayer() != parent.getLayer()) {
+            child.callWorldChangeListeners(WorldChangeEvent.childChanged(child, parent, child, added));
+        }
+    }
+
+    /**
+     * Path set of the exit index, only its place can modify it. Copies
+     * (clone()) can be modified
+     */
+    static final class ExitSet extends HashSet<Path> {
+
+        private static final long serialVersionUID = 1L;
+
+        static final ExitSet EMPTY = new ExitSet();
+
+        ExitSet() {
+            super(4);
+        }
+
+        void put(final Path path) {
+            super.add(path);
+        }
+
+        void take(final Path path) {
+            super.remove(path);
+        }
+
+        @Override
+        public boolean add(final Path path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Path> iterator() {
+            final Iterator<Path> iterator = super.iterator();
+            return new Iterator<Path>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Path next() {
+                    return iterator.next();
+                }
+            };
+        }
+
+        @Override
+        public Object clone() {
+            return new HashSet<>(this);
         }
     }
 
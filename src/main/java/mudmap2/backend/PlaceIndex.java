@@ -0,0 +1,157 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.Arrays;
+
+/**
+ * Places of a world by their id. Open addressing hash table with linear
+ * probing on a primitive int array, so lookups don't box the ids
+ * @author neop
+ */
+final class PlaceIndex {
+
+    static final int INITIAL_CAPACITY = 64;
+
+    int[] keys;
+    Place[] values;
+    int size = 0;
+
+    /**
+     * Constructs an empty index
+     */
+    PlaceIndex(){
+        keys = new int[INITIAL_CAPACITY];
+        values = new Place[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Gets the slot of an id
+     * @param id place id
+     * @param mask capacity - 1
+     * @return first slot to probe
+     */
+    private static int hash(final int id, final int mask){
+        final int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Gets a place by its id
+     * @param id place id
+     * @return place or null
+     */
+    Place get(final int id){
+        final int mask = keys.length - 1;
+        for(int i = hash(id, mask); values[i] != null; i = (i + 1) & mask){
+            if(keys[i] == id) return values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Adds a place by its current id, replaces a place with the same id
+     * @param place place to add
+     */
+    void put(final Place place){
+        if(2 * (size + 1) > keys.length){
+            resize(2 * keys.length);
+        }
+        final int id = place.getId();
+        final int mask = keys.length - 1;
+        int i = hash(id, mask);
+        for(; values[i] != null; i = (i + 1) & mask){
+            if(keys[i] == id){
+                values[i] = place;
+                return;
+            }
+        }
+        keys[i] = id;
+        values[i] = place;
+        ++size;
+    }
+
+    /**
+     * Removes a place, other places with the same id aren't removed
+     * @param place place to remove
+     * @return true, if the place was removed
+     */
+    boolean remove(final Place place){
+        final int mask = keys.length - 1;
+        int i = hash(place.getId(), mask);
+        for(; values[i] != null; i = (i + 1) & mask){
+            if(keys[i] == place.getId()){
+                if(values[i] != place) return false;
+                break;
+            }
+        }
+        if(values[i] == null) return false;
+
+        // move later entries of the probe sequence into the gap
+        int gap = i;
+        for(int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask){
+            final int home = hash(keys[j], mask);
+            // entry j may move, if its home isn't cyclically in (gap, j]
+            if(((j - home) & mask) >= ((j - gap) & mask)){
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+        --size;
+        return true;
+    }
+
+    /**
+     * Removes all places
+     */
+    void clear(){
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the number of places
+     * @return number of places
+     */
+    int size(){
+        return size;
+    }
+
+    /**
+     * Rehashes all places into new arrays
+     * @param capacity new capacity, power of two
+     */
+    private void resize(final int capacity){
+        final int[] oldKeys = keys;
+        final Place[] oldValues = values;
+        keys = new int[capacity];
+        values = new Place[capacity];
+        final int mask = capacity - 1;
+        for(int j = 0; j < oldValues.length; ++j){
+            if(oldValues[j] == null) continue;
+            int i = hash(oldKeys[j], mask);
+            while(values[i] != null){
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+}
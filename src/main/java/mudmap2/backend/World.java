@@ -30,12 +30,30 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import mudmap2.backend.Layer.PlaceNotInsertedException;
 import mudmap2.backend.WorldFileReader.WorldFile;
+import mudmap2.backend.spatialindex.SpatialIndex;
+import mudmap2.backend.sssp.BreadthSearch;
 import mudmap2.backend.sssp.BreadthSearchGraph;
+import mudmap2.backend.sssp.ComponentIndex;
+import mudmap2.backend.sssp.LandmarkOracle;
+import mudmap2.backend.sssp.NearestPlaceSearch;
+import mudmap2.backend.sssp.PathCost;
+import mudmap2.backend.sssp.PathFinder;
+import mudmap2.backend.sssp.PortalGraph;
+import mudmap2.backend.sssp.RoutePlanner;
+import mudmap2.backend.sssp.Speedwalk;
+import mudmap2.backend.sssp.WorldGraph;
 import org.json.JSONObject;
 
 /**
@@ -65,16 +83,56 @@ public class World implements BreadthSearchGraph {
 
     // For creating world-unique layer ids
     Integer nextLayerID = 1;
+    // next place id and the places of all layers by id
+    final AtomicInteger nextPlaceID = new AtomicInteger(0);
+    final PlaceIndex placeIndex = new PlaceIndex();
+    // transitive parent / child relations
+    final HierarchyIndex hierarchy = new HierarchyIndex();
 
     // Preferences
     ShowPlaceID showPlaceID = ShowPlaceID.UNIQUE;
+    SpatialIndexType spatialIndexType = SpatialIndexType.QUADTREE;
 
     // World-related preferences for dialogs etc.
     JSONObject preferences = new JSONObject();
     public final static String PREFERENCES_KEY_DIALOG = "dialog";
+    public final static String PREFERENCES_KEY_SPEEDWALK = "speedwalk";
+
+    // Path graph, null if it has to be rebuilt
+    volatile WorldGraph graph = null;
+    // Landmark distances, may belong to an older graph while they are
+    // rebuilt, the paths that were connected since then are added to them
+    volatile LandmarkOracle landmarks = null;
+    // Connected components, null if it has to be rebuilt
+    ComponentIndex componentIndex = null;
+    // Cached distances between the portals of each layer
+    final PortalGraph portalGraph = new PortalGraph();
+    // guards landmarks, landmarkBuild and landmarkAddedPaths
+    final Object landmarkLock = new Object();
+    // number of the last started build of the landmark distances
+    int landmarkBuild = 0;
+    // paths connected while a background build is running, else null
+    ArrayList<Path> landmarkAddedPaths = null;
+    public static final int LANDMARK_COUNT = 16;
+
+    // Builds the landmark distances of all worlds
+    private static final ExecutorService LANDMARK_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "landmarks");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // places marked by the last breadthSearch()
+    List<Place> lastBreadthSearchPath = null;
 
     // Listeners
-    final LinkedList<WorldChangeListener> changeListeners = new LinkedList<>();
+    final LinkedList<WorldEventListener> changeListeners = new LinkedList<>();
+    // nesting depth of updates and the changes during the update
+    int updateDepth = 0;
+    ArrayList<WorldChangeEvent> pendingChanges = null;
 
     /**
      * Creates an empty world
@@ -217,8 +275,8 @@ public class World implements BreadthSearchGraph {
         if(!layers.containsKey(layer.getId()))
             layers.put(layer.getId(), layer);
 
-        addChangeListener(layer);
-        callListeners(layer);
+        addEventListener(layer);
+        callListeners(WorldChangeEvent.layerAdded(layer));
     }
     
     /**
@@ -231,7 +289,8 @@ public class World implements BreadthSearchGraph {
             layer.remove(elem);
         }
         layers.remove(layer.id);
-        callListeners(null);
+        removeEventListener(layer);
+        callListeners(WorldChangeEvent.layerRemoved(layer));
     }
 
     /**
@@ -244,7 +303,6 @@ public class World implements BreadthSearchGraph {
         if(name != null && !name.isEmpty()){
             layer.setName(name);
         }
-        callListeners(layer);
         return layer;
     }
 
@@ -266,6 +324,50 @@ public class World implements BreadthSearchGraph {
         return nextLayerID++;
     }
 
+    /**
+     * Gets a new place id
+     * @return unused place id
+     */
+    int allocatePlaceId(){
+        return nextPlaceID.getAndIncrement();
+    }
+
+    /**
+     * Makes sure that an id won't be assigned to new places
+     * @param id place id that is used by a place
+     */
+    void reservePlaceId(int id){
+        int next = nextPlaceID.get();
+        while(id >= next && !nextPlaceID.compareAndSet(next, id + 1)){
+            next = nextPlaceID.get();
+        }
+    }
+
+    /**
+     * Gets a place of this world by its id
+     * @param id place id
+     * @return place or null
+     */
+    public Place getPlace(int id){
+        return placeIndex.get(id);
+    }
+
+    /**
+     * Gets the transitive parent / child relations of the places
+     * @return hierarchy index
+     */
+    public HierarchyIndex getHierarchy(){
+        return hierarchy;
+    }
+
+    /**
+     * Gets the number of places on all layers
+     * @return number of places
+     */
+    public int getPlaceCount(){
+        return placeIndex.size();
+    }
+
     /**
      * Sets the next layer id
      * @param id
@@ -432,6 +534,48 @@ public class World implements BreadthSearchGraph {
         return showPlaceID;
     }
 
+    public enum SpatialIndexType {
+        QUADTREE, // point-region quadtree, for sparse maps
+        POOLED_QUADTREE, // quadtree stored in arrays, for large maps
+        HASH_GRID, // hash map of positions, for dense maps
+        PERSISTENT_QUADTREE // quadtree with shared nodes, for layer snapshots
+    }
+
+    /**
+     * Sets the data structure that stores the places of each layer, the
+     * places of existing layers will be moved to the new data structure.
+     * Nothing will be changed, if a place can't be moved
+     * @param type
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException if a place
+     * can't be stored in the new data structure
+     */
+    public void setSpatialIndexType(SpatialIndexType type) throws PlaceNotInsertedException {
+        if(type == null){
+            throw new NullPointerException();
+        }
+        if(type != spatialIndexType){
+            // build all indexes first, so that no layer is switched if one
+            // of them fails
+            HashMap<Layer, SpatialIndex<LayerElement>> indexes = new HashMap<>();
+            for(Layer layer: layers.values()){
+                indexes.put(layer, layer.buildSpatialIndex(type));
+            }
+            spatialIndexType = type;
+            for(Map.Entry<Layer, SpatialIndex<LayerElement>> entry: indexes.entrySet()){
+                entry.getKey().setSpatialIndex(entry.getValue());
+            }
+            callListeners(this);
+        }
+    }
+
+    /**
+     * Gets the data structure that stores the places of each layer
+     * @return
+     */
+    public SpatialIndexType getSpatialIndexType(){
+        return spatialIndexType;
+    }
+
     // --------- PlaceGroupss ---------------------------------------------------------
     /**
      * Gets all PlaceGroupss (eg. for lists)
@@ -464,7 +608,7 @@ public class World implements BreadthSearchGraph {
      */
     public void removePlaceGroup(PlaceGroup placeGroup){
         for(Layer layer: getLayers()){
-            for(Place p: layer.getPlaces()){
+            for(Place p: layer){
                 if(p.getPlaceGroup() == placeGroup) p.setPlaceGroup(null);
             }
         }
@@ -530,7 +674,7 @@ public class World implements BreadthSearchGraph {
             informationColors.remove(ic.getId());
             // removePlace from places
             for(Layer layer: getLayers()){
-                for(Place place: layer.getPlaces()){
+                for(Place place: layer){
                     if(place.getInfoRing() == ic) place.setInfoRing(null);
                 }
             }
@@ -556,66 +700,575 @@ public class World implements BreadthSearchGraph {
         this.preferences = preferences;
     }
 
+    /**
+     * Creates an empty speedwalk builder in the format of the preferences
+     * @return speedwalk builder
+     */
+    public Speedwalk getSpeedwalk() {
+        Speedwalk.Dialect dialect = Speedwalk.Dialect.COMPACT;
+        String separator = ";";
+        JSONObject speedwalk = preferences.optJSONObject(PREFERENCES_KEY_SPEEDWALK);
+        if(speedwalk != null){
+            try {
+                dialect = Speedwalk.Dialect.valueOf(speedwalk.optString("dialect", dialect.name()));
+            } catch (IllegalArgumentException ex) {
+                Logger.getLogger(World.class.getName()).log(Level.WARNING, "Unknown speedwalk dialect", ex);
+            }
+            separator = speedwalk.optString("separator", separator);
+        }
+        return new Speedwalk(dialect, separator);
+    }
+
+    /**
+     * Sets the speedwalk format
+     * @param dialect speedwalk dialect
+     * @param separator command separator
+     */
+    public void setSpeedwalk(Speedwalk.Dialect dialect, String separator) {
+        JSONObject speedwalk = new JSONObject();
+        speedwalk.put("dialect", dialect.name());
+        speedwalk.put("separator", separator);
+        preferences.put(PREFERENCES_KEY_SPEEDWALK, speedwalk);
+    }
+
     // --------- path finding --------------------------------------------------
     /**
      * does a breadth search
      * @param start start place
      * @param end end place
      * @return end place or null. Following the predecessors of this path leads
-     * to the start place
+     * to the start place, only the places on the path are marked. The marks
+     * of the previous search are cleared
+     * @deprecated the result is stored in the places, use
+     * breadthSearchPath(start, end) instead
      */
+    @Deprecated
     @Override
-    public Place breadthSearch(Place start, Place end) {
-        for(Layer layer: getLayers()){
-            for(Place place: layer.getPlaces()){
+    public synchronized Place breadthSearch(Place start, Place end) {
+        if(lastBreadthSearchPath != null){
+            for(Place place: lastBreadthSearchPath){
                 place.breadthSearchReset();
             }
+            lastBreadthSearchPath = null;
+        }
+
+        List<Place> path = breadthSearchPath(start, end);
+        if(path == null) return null;
+
+        // store the path in the places for callers that follow predecessors
+        lastBreadthSearchPath = path;
+        Place predecessor = null;
+        for(Place place: path){
+            BreadthSearch.BreadthSearchData data = place.getBreadthSearchData();
+            data.marked = true;
+            data.predecessor = predecessor;
+            predecessor = place;
+        }
+        return end;
+    }
+
+    /**
+     * does a breadth search, a bidirectional search (see
+     * breadthSearchPath(start, end, bidirectional)) if both places are on
+     * the same layer, else a search on the portal graph of the layers (see
+     * breadthSearchPathLayers())
+     * @param start start place
+     * @param end end place
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     */
+    @Override
+    public List<Place> breadthSearchPath(Place start, Place end) {
+        if(start != null && end != null && start.getLayer() != end.getLayer()
+                && isOnLayer(start) && isOnLayer(end)){
+            return breadthSearchPathLayers(start, end);
         }
-        start.getBreadthSearchData().marked = true;
+        return breadthSearchPath(start, end, true);
+    }
+
+    /**
+     * does a breadth search on the layer level: it searches the shortest
+     * sequence of paths between layers with cached distances within the
+     * layers first and then the paths within the layers, so long routes
+     * across many layers don't visit all places on the way. The result has
+     * the same length as breadthSearchPath(start, end, false)
+     * @param start start place
+     * @param end end place
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     */
+    public List<Place> breadthSearchPathLayers(Place start, Place end) {
+        if(start == null || end == null) return null;
+        if(!isReachable(start, end)) return null;
+        return portalGraph.breadthSearchPath(start, end);
+    }
+
+    /**
+     * Gets the portal graph of the layers with its cached distances
+     * @return portal graph
+     */
+    public PortalGraph getPortalGraph() {
+        return portalGraph;
+    }
+
+    /**
+     * Checks whether a place is on a layer of this world
+     * @param place
+     * @return true, if the place was put on one of the layers
+     */
+    private boolean isOnLayer(Place place) {
+        Layer layer = place.getLayer();
+        return layer != null && layers.get(layer.getId()) == layer
+                && layer.get(place.getX(), place.getY()) == place;
+    }
+
+    /**
+     * does a breadth search on the path graph, see getGraph(). The visited
+     * places are stored in the search only, so it doesn't depend on or
+     * modify the places. A bidirectional search grows from both places and
+     * stops when they meet, so it usually visits far less places on long
+     * paths
+     * @param start start place
+     * @param end end place
+     * @param bidirectional search from start and end at the same time
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     */
+    @Override
+    public List<Place> breadthSearchPath(Place start, Place end, boolean bidirectional) {
+        if(start == null || end == null) return null;
+        if(!isReachable(start, end)) return null;
+        return getGraph(start).breadthSearchPath(start, end, bidirectional);
+    }
+
+    /**
+     * Finds the nearest place that matches a filter, see NearestPlaceSearch
+     * @param start start place
+     * @param filter target filter
+     * @return places of the shortest path from start to the nearest matching
+     * place (both included) or null, if no matching place can be reached
+     */
+    public List<Place> breadthSearchNearest(Place start, Predicate<? super Place> filter) {
+        if(start == null) return null;
+        return NearestPlaceSearch.findNearest(getGraph(start), start, filter);
+    }
+
+    /**
+     * Plans a short route that visits many places, see RoutePlanner
+     * @param start start place
+     * @param waypoints places to visit, in any order
+     * @param returnToStart end the route at the start place
+     * @return places of the route or null, if a place can't be reached
+     */
+    public List<Place> planRoute(Place start, Collection<Place> waypoints, boolean returnToStart) {
+        if(start == null) return null;
+        RoutePlanner planner = new RoutePlanner(getGraph(start));
+        planner.setReturnToStart(returnToStart);
+        return planner.planRoute(start, waypoints);
+    }
+
+    /**
+     * Gets the places of a place group
+     * @param placeGroup
+     * @return places on the layers that belong to the place group
+     */
+    public List<Place> getPlaces(PlaceGroup placeGroup) {
+        ArrayList<Place> ret = new ArrayList<>();
+        for(Place place: getPlaces()){
+            if(place.getPlaceGroup() == placeGroup) ret.add(place);
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the cheapest route between two places, see PathFinder
+     * @param start start place
+     * @param end end place
+     * @param cost path costs, eg. DefaultPathCost
+     * @return paths from start to end (empty if start == end) or null, if
+     * end can't be reached
+     */
+    public List<Path> findPath(Place start, Place end, PathCost cost) {
+        if(start == null || end == null) return null;
+        if(!isReachable(start, end)) return null;
+        PathFinder pathFinder = new PathFinder(cost);
+        pathFinder.setLandmarks(getLandmarks());
+        return pathFinder.findPath(getGraph(start), start, end);
+    }
+
+    /**
+     * Gets the graph of the paths between the places of this world. The
+     * graph is created on the first call after paths were changed
+     * @return path graph
+     */
+    public WorldGraph getGraph() {
+        WorldGraph ret = graph;
+        if(ret == null){
+            ret = graph = new WorldGraph(getLayers());
+        }
+        return ret;
+    }
 
-        LinkedList<Place> queue = new LinkedList<>();
-        queue.add(start);
+    /**
+     * Gets a path graph that contains a place, usually the graph of this
+     * world. Places that aren't on a layer of this world get a graph of the
+     * places that are connected to them
+     * @param place
+     * @return path graph
+     */
+    public WorldGraph getGraph(Place place) {
+        WorldGraph ret = getGraph();
+        if(ret.getIndex(place) < 0 && !place.getPaths().isEmpty()){
+            ret = new WorldGraph(Collections.singletonList(place));
+        }
+        return ret;
+    }
 
-        while(!queue.isEmpty()){
-            Place v = queue.pollFirst();
-            if(v == end) return v;
+    /**
+     * Gets the landmark distances of the path graph, see LandmarkOracle.
+     * After paths were changed the old distances are returned until the new
+     * ones are built in the background, they are still lower bounds since
+     * the connected paths are added to them. The build is started when paths
+     * are changed, after the first call of this method
+     * @return landmark distances
+     */
+    public LandmarkOracle getLandmarks() {
+        return getLandmarks(false);
+    }
+
+    /**
+     * Gets the landmark distances of the path graph
+     * @param wait build outdated distances now instead of in the background
+     * @return landmark distances
+     */
+    public LandmarkOracle getLandmarks(boolean wait) {
+        final WorldGraph current = getGraph();
+        LandmarkOracle ret = landmarks;
+        if(ret == null || (wait && ret.getGraph() != current)){
+            ret = new LandmarkOracle(current, LANDMARK_COUNT);
+            synchronized(landmarkLock){
+                // a running background build is outdated
+                ++landmarkBuild;
+                landmarkAddedPaths = null;
+                landmarks = ret;
+            }
+        } else if(ret.getGraph() != current){
+            updateLandmarks();
+        }
+        return ret;
+    }
 
-            for(Path pa: v.getPaths()){
-                Place vi = pa.getOtherPlace(v);
-                if(!vi.getBreadthSearchData().marked && vi != v && !pa.getExit(v).equals("-")){
-                    vi.getBreadthSearchData().marked = true;
-                    vi.getBreadthSearchData().predecessor = v;
-                    queue.addLast(vi);
+    /**
+     * Starts building the landmark distances of the current graph in the
+     * background, if they were used before and no build is running. Paths
+     * that are connected meanwhile are added to the result
+     */
+    void updateLandmarks() {
+        if(landmarks == null || updateDepth > 0) return;
+        final int build;
+        synchronized(landmarkLock){
+            if(landmarkAddedPaths != null) return;
+            build = ++landmarkBuild;
+            landmarkAddedPaths = new ArrayList<>();
+        }
+        final WorldGraph current = getGraph();
+        if(landmarks.getGraph() == current){
+            synchronized(landmarkLock){
+                if(landmarkBuild == build) landmarkAddedPaths = null;
+            }
+            return;
+        }
+        LANDMARK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                LandmarkOracle oracle = null;
+                try {
+                    oracle = new LandmarkOracle(current, LANDMARK_COUNT);
+                } finally {
+                    synchronized(landmarkLock){
+                        // don't replace newer distances
+                        if(landmarkBuild == build){
+                            if(oracle != null){
+                                landmarks = oracle.addPaths(landmarkAddedPaths);
+                            }
+                            landmarkAddedPaths = null;
+                        }
+                    }
                 }
             }
+        });
+    }
+
+    /**
+     * Drops the path graph and the component index after paths were removed
+     * @param layer layer of a place whose paths were removed
+     */
+    void invalidateGraph(Layer layer) {
+        graph = null;
+        componentIndex = null;
+        portalGraph.invalidate(layer);
+        updateLandmarks();
+    }
+
+    /**
+     * Drops the cached portals of a layer after a place with paths was moved
+     * to or from the layer
+     * @param layer
+     */
+    void layerPathsChanged(Layer layer) {
+        portalGraph.invalidate(layer);
+    }
+
+    /**
+     * Drops the path graph and updates the component index after a path was
+     * connected
+     * @param path new path
+     */
+    void pathConnected(Path path) {
+        graph = null;
+        portalGraph.invalidate(path.getPlaces()[0].getLayer());
+        portalGraph.invalidate(path.getPlaces()[1].getLayer());
+        if(componentIndex != null){
+            componentIndex.union(path);
+        }
+        synchronized(landmarkLock){
+            if(landmarks != null){
+                landmarks = landmarks.addPaths(Collections.singletonList(path));
+            }
+            if(landmarkAddedPaths != null){
+                landmarkAddedPaths.add(path);
+            }
         }
-        return null;
+        updateLandmarks();
+    }
+
+    /**
+     * Gets the connected components of the places, see ComponentIndex. New
+     * paths update the index, it is rebuilt on the next call after paths
+     * were removed
+     * @return component index
+     */
+    public ComponentIndex getComponentIndex() {
+        if(componentIndex == null){
+            componentIndex = new ComponentIndex(getPlaces());
+        }
+        return componentIndex;
+    }
+
+    /**
+     * Checks whether two places are connected by paths, one-way paths count
+     * in both directions. If this is false, no search will find a path
+     * between them
+     * @param place1
+     * @param place2
+     * @return true, if the places are in the same component
+     */
+    public boolean isReachable(Place place1, Place place2) {
+        return getComponentIndex().isConnected(place1, place2);
+    }
+
+    /**
+     * Gets the groups of places that are connected by paths, eg. to find
+     * places that were left unconnected
+     * @return components of the places on the layers, largest first
+     */
+    public List<List<Place>> getComponents() {
+        return getComponentIndex().getComponents(getPlaces());
+    }
+
+    /**
+     * Gets the places of all layers
+     * @return places
+     */
+    private List<Place> getPlaces() {
+        ArrayList<Place> ret = new ArrayList<>();
+        for(Layer layer: getLayers()){
+            for(Place place: layer){
+                ret.add(place);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds a place to the id index and drops the path graph if a place with
+     * paths was added that isn't in it
+     * @param place added place
+     */
+    void placeAdded(Place place) {
+        // places without id and places whose id is used by another place of
+        // this world get a new one
+        final Place other = place.id == Place.NO_ID ? null : placeIndex.get(place.id);
+        if(place.id == Place.NO_ID || (other != null && other != place)){
+            place.id = allocatePlaceId();
+        } else {
+            reservePlaceId(place.id);
+        }
+        placeIndex.put(place);
+
+        if(!place.getPaths().isEmpty()){
+            portalGraph.invalidate(place.getLayer());
+        }
+        WorldGraph current = graph;
+        if(current != null && !place.getPaths().isEmpty() && current.getIndex(place) < 0){
+            graph = null;
+        }
+    }
+
+    /**
+     * Updates the hierarchy index after a child connection was changed
+     * @param parent parent place
+     * @param child child place
+     * @param connected true, if the child was connected, else removed
+     */
+    void childrenChanged(Place parent, Place child, boolean connected) {
+        if(connected){
+            hierarchy.childConnected(parent, child);
+        } else {
+            hierarchy.childRemoved(parent, child);
+        }
+    }
+
+    /**
+     * Removes a place from the id index, called when a place was removed
+     * from a layer
+     * @param place removed place
+     */
+    void placeRemoved(Place place) {
+        placeIndex.remove(place);
     }
 
     // --------- listeners -----------------------------------------------------
     /**
-     * Add change listener
+     * Add change event listener
      * @param listener listener to add
      */
-    public void addChangeListener(WorldChangeListener listener){
+    public void addEventListener(WorldEventListener listener){
         if(!changeListeners.contains(listener)) changeListeners.add(listener);
     }
 
+    /**
+     * Add change listener that gets the changed object only, see
+     * WorldChangeEvent.getSource()
+     * @param listener listener to add
+     */
+    public void addChangeListener(WorldChangeListener listener){
+        if(listener instanceof WorldEventListener){
+            addEventListener((WorldEventListener) listener);
+        } else if(findAdapter(listener) == null){
+            changeListeners.add(new WorldChangeListenerAdapter(listener));
+        }
+    }
+
+    /**
+     * Remove change event listener
+     * @param listener listener to remove
+     */
+    public void removeEventListener(WorldEventListener listener){
+        changeListeners.remove(listener);
+    }
+
     /**
      * Remove change listener
      * @param listener listener to remove
      */
     public void removeChangeListener(WorldChangeListener listener){
-        changeListeners.remove(listener);
+        if(listener instanceof WorldEventListener){
+            removeEventListener((WorldEventListener) listener);
+        } else {
+            changeListeners.remove(findAdapter(listener));
+        }
     }
 
     /**
-     * Call listeners
+     * Finds the adapter of a listener
+     * @param listener wrapped listener
+     * @return adapter or null
+     */
+    private WorldChangeListenerAdapter findAdapter(WorldChangeListener listener){
+        for(WorldEventListener l: changeListeners){
+            if(l instanceof WorldChangeListenerAdapter
+                    && ((WorldChangeListenerAdapter) l).getListener() == listener){
+                return (WorldChangeListenerAdapter) l;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Call listeners, the kind of change is derived from the changed object
+     * (see WorldChangeEvent.of()), prefer callListeners(WorldChangeEvent)
      * @param source changed object
      */
     public void callListeners(Object source){
-        for(WorldChangeListener listener: changeListeners){
-            listener.worldChanged(source);
+        callListeners(WorldChangeEvent.of(source));
+    }
+
+    /**
+     * Call listeners
+     * @param event change event
+     */
+    public void callListeners(WorldChangeEvent event){
+        if(updateDepth > 0){
+            pendingChanges.addAll(event.getEvents());
+            return;
+        }
+        // listeners may remove themselves
+        for(WorldEventListener listener: changeListeners.toArray(new WorldEventListener[changeListeners.size()])){
+            listener.worldChanged(event);
+        }
+    }
+
+    /**
+     * Starts an update, listeners won't be called until the matching call
+     * of endUpdate(). Updates can be nested
+     */
+    public void beginUpdate(){
+        if(updateDepth++ == 0){
+            pendingChanges = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Ends an update, after the outermost update the listeners are called
+     * once. A single event is passed as it is, many are passed as a
+     * batch event (WorldChangeEvent.Kind.BATCH)
+     */
+    public void endUpdate(){
+        if(updateDepth == 0){
+            throw new IllegalStateException("endUpdate() without beginUpdate()");
+        }
+        if(--updateDepth == 0){
+            final ArrayList<WorldChangeEvent> changes = pendingChanges;
+            pendingChanges = null;
+            if(changes.size() == 1){
+                callListeners(changes.get(0));
+            } else if(!changes.isEmpty()){
+                callListeners(WorldChangeEvent.batch(changes));
+            }
+            // path changes during the update
+            if(graph == null) updateLandmarks();
+        }
+    }
+
+    /**
+     * Checks whether an update is running, see beginUpdate()
+     * @return true, if the listeners are suspended
+     */
+    public boolean isUpdating(){
+        return updateDepth > 0;
+    }
+
+    /**
+     * Runs a modification as one update, see beginUpdate()
+     * @param modification modification of the world
+     */
+    public void batch(Runnable modification){
+        beginUpdate();
+        try {
+            modification.run();
+        } finally {
+            endUpdate();
         }
     }
 }
@@ -0,0 +1,92 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Source object of the change notification after World.endUpdate(), it
+ * contains the source objects of all changes during the update
+ * @author neop
+ */
+public class WorldChangeBatch implements Iterable<Object> {
+
+    final Set<Object> changed;
+
+    /**
+     * Constructs a batch
+     * @param changed changed objects, the set must not be modified later
+     */
+    WorldChangeBatch(final Set<Object> changed) {
+        this.changed = Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Creates an empty set for changed objects, objects are compared by
+     * identity and null is allowed (eg. a removed layer)
+     * @return new set
+     */
+    static Set<Object> newChangeSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    }
+
+    /**
+     * Gets the changed objects
+     * @return read-only set of changed objects
+     */
+    public Set<Object> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Checks whether an object was changed
+     * @param source changed object
+     * @return true, if it was changed
+     */
+    public boolean contains(final Object source) {
+        return changed.contains(source);
+    }
+
+    /**
+     * Checks whether an object of a type was changed
+     * @param type type
+     * @return true, if an object of the type was changed
+     */
+    public boolean containsInstanceOf(final Class<?> type) {
+        for(Object source: changed){
+            if(type.isInstance(source)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of changed objects
+     * @return number of changed objects
+     */
+    public int size() {
+        return changed.size();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return changed.iterator();
+    }
+
+}
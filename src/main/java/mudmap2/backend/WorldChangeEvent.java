@@ -0,0 +1,405 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes a change of a world: what kind of change it was, which layer and
+ * which part of the layer are affected and the old and new value of a changed
+ * property. Listeners can use it to update only the affected parts of their
+ * caches and views. The changes during World.beginUpdate() / endUpdate() are
+ * passed as one event of kind BATCH
+ * @author neop
+ */
+public class WorldChangeEvent {
+
+    public enum Kind {
+        PLACE_ADDED,
+        PLACE_REMOVED,
+        PLACE_CHANGED,
+        PATH_ADDED,
+        PATH_REMOVED,
+        CHILD_ADDED,
+        CHILD_REMOVED,
+        LAYER_ADDED,
+        LAYER_REMOVED,
+        LAYER_CHANGED,
+        WORLD_CHANGED,
+        BATCH
+    }
+
+    // property names of PLACE_CHANGED and LAYER_CHANGED events
+    public static final String PROPERTY_NAME = "name";
+    public static final String PROPERTY_PLACE_GROUP = "placeGroup";
+    public static final String PROPERTY_REC_LEVEL_MIN = "recLevelMin";
+    public static final String PROPERTY_REC_LEVEL_MAX = "recLevelMax";
+    public static final String PROPERTY_INFO_RING = "infoRing";
+    // old and new value are Pair<String, Boolean> of key and state
+    public static final String PROPERTY_FLAG = "flag";
+
+    final Kind kind;
+    final Object source;
+    final Layer layer;
+
+    final boolean hasBounds;
+    int xMin, yMin, xMax, yMax;
+
+    final String property;
+    final Object oldValue;
+    final Object newValue;
+
+    final List<WorldChangeEvent> events;
+
+    /**
+     * Constructs an event without bounds
+     * @param kind kind of change
+     * @param source changed object, passed to WorldChangeListeners
+     * @param layer affected layer or null
+     * @param property changed property or null
+     * @param oldValue old value or null
+     * @param newValue new value or null
+     */
+    WorldChangeEvent(final Kind kind, final Object source, final Layer layer,
+            final String property, final Object oldValue, final Object newValue) {
+        this.kind = kind;
+        this.source = source;
+        this.layer = layer;
+        this.hasBounds = false;
+        this.property = property;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.events = Collections.singletonList(this);
+    }
+
+    /**
+     * Constructs an event, the bounds are the current positions of the
+     * places on the affected layer
+     * @param kind kind of change
+     * @param source changed object, passed to WorldChangeListeners
+     * @param layer affected layer
+     * @param places affected places, places on other layers are ignored
+     * @param property changed property or null
+     * @param oldValue old value or null
+     * @param newValue new value or null
+     */
+    WorldChangeEvent(final Kind kind, final Object source, final Layer layer,
+            final Place[] places,
+            final String property, final Object oldValue, final Object newValue) {
+        this.kind = kind;
+        this.source = source;
+        this.layer = layer;
+        this.property = property;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.events = Collections.singletonList(this);
+
+        boolean found = false;
+        for(Place place: places){
+            if(place == null || place.getLayer() != layer) continue;
+            if(!found){
+                xMin = xMax = place.getX();
+                yMin = yMax = place.getY();
+                found = true;
+            } else {
+                xMin = Math.min(xMin, place.getX());
+                xMax = Math.max(xMax, place.getX());
+                yMin = Math.min(yMin, place.getY());
+                yMax = Math.max(yMax, place.getY());
+            }
+        }
+        hasBounds = found;
+    }
+
+    /**
+     * Constructs a batch event
+     * @param events events of the batch, not modified later
+     */
+    WorldChangeEvent(final List<WorldChangeEvent> events) {
+        this.kind = Kind.BATCH;
+        this.property = null;
+        this.oldValue = null;
+        this.newValue = null;
+        this.events = Collections.unmodifiableList(events);
+
+        // a batch with a single changed object passes the object itself
+        final Set<Object> sources = WorldChangeBatch.newChangeSet();
+        Layer commonLayer = events.isEmpty() ? null : events.get(0).getLayer();
+        boolean bounds = !events.isEmpty();
+        for(WorldChangeEvent event: events){
+            sources.add(event.getSource());
+            if(event.getLayer() != commonLayer) commonLayer = null;
+            bounds &= event.hasBounds();
+        }
+        source = sources.size() == 1 ? sources.iterator().next() : new WorldChangeBatch(sources);
+        layer = commonLayer;
+
+        // bounds only if all events are restricted to the same layer
+        hasBounds = bounds && commonLayer != null;
+        if(hasBounds){
+            xMin = yMin = Integer.MAX_VALUE;
+            xMax = yMax = Integer.MIN_VALUE;
+            for(WorldChangeEvent event: events){
+                xMin = Math.min(xMin, event.getXMin());
+                xMax = Math.max(xMax, event.getXMax());
+                yMin = Math.min(yMin, event.getYMin());
+                yMax = Math.max(yMax, event.getYMax());
+            }
+        }
+    }
+
+    /**
+     * Creates an event for a place that was added to a layer
+     * @param place new place, already on the layer
+     * @return event
+     */
+    public static WorldChangeEvent placeAdded(final Place place) {
+        return new WorldChangeEvent(Kind.PLACE_ADDED, place, place.getLayer(),
+                new Place[]{place}, null, null, place);
+    }
+
+    /**
+     * Creates an event for a place that will be removed from a layer, create
+     * it before the place is removed to get the bounds
+     * @param layer layer of the place
+     * @param place removed place
+     * @return event
+     */
+    public static WorldChangeEvent placeRemoved(final Layer layer, final Place place) {
+        return new WorldChangeEvent(Kind.PLACE_REMOVED, layer, layer,
+                new Place[]{place}, null, place, null);
+    }
+
+    /**
+     * Creates an event for a changed property of a place
+     * @param place changed place
+     * @param property property name, eg. PROPERTY_NAME
+     * @param oldValue old value
+     * @param newValue new value
+     * @return event
+     */
+    public static WorldChangeEvent placeChanged(final Place place, final String property,
+            final Object oldValue, final Object newValue) {
+        return new WorldChangeEvent(Kind.PLACE_CHANGED, place, place.getLayer(),
+                new Place[]{place}, property, oldValue, newValue);
+    }
+
+    /**
+     * Creates an event for an added or removed path, the event is about
+     * the layer of place. If the other place of the path is on another layer
+     * it needs an event on its own
+     * @param place changed place
+     * @param path changed path
+     * @param added true, if the path was added, else removed
+     * @return event
+     */
+    public static WorldChangeEvent pathChanged(final Place place, final Path path, final boolean added) {
+        return new WorldChangeEvent(added ? Kind.PATH_ADDED : Kind.PATH_REMOVED,
+                place, place.getLayer(), path.getPlaces(), null,
+                added ? null : path, added ? path : null);
+    }
+
+    /**
+     * Creates an event for an added or removed child connection, the event
+     * is about the layer of place. If the other place is on another layer
+     * it needs an event on its own
+     * @param place changed place, either the parent or the child
+     * @param parent parent place
+     * @param child child place
+     * @param added true, if the child was connected, else removed
+     * @return event
+     */
+    public static WorldChangeEvent childChanged(final Place place, final Place parent,
+            final Place child, final boolean added) {
+        return new WorldChangeEvent(added ? Kind.CHILD_ADDED : Kind.CHILD_REMOVED,
+                place, place.getLayer(), new Place[]{parent, child}, null,
+                added ? null : child, added ? child : null);
+    }
+
+    /**
+     * Creates an event for a layer that was added to the world
+     * @param layer new layer
+     * @return event
+     */
+    public static WorldChangeEvent layerAdded(final Layer layer) {
+        return new WorldChangeEvent(Kind.LAYER_ADDED, layer, layer, null, null, layer);
+    }
+
+    /**
+     * Creates an event for a layer that was removed from the world, its
+     * source is null
+     * @param layer removed layer
+     * @return event
+     */
+    public static WorldChangeEvent layerRemoved(final Layer layer) {
+        return new WorldChangeEvent(Kind.LAYER_REMOVED, null, layer, null, layer, null);
+    }
+
+    /**
+     * Creates an event for a changed property of a layer
+     * @param layer changed layer
+     * @param property property name or null, if unknown
+     * @param oldValue old value
+     * @param newValue new value
+     * @return event
+     */
+    public static WorldChangeEvent layerChanged(final Layer layer, final String property,
+            final Object oldValue, final Object newValue) {
+        return new WorldChangeEvent(Kind.LAYER_CHANGED, layer, layer, property, oldValue, newValue);
+    }
+
+    /**
+     * Creates an event for changes that aren't restricted to a layer, eg.
+     * world properties, place groups and information colors
+     * @param source changed object
+     * @return event
+     */
+    public static WorldChangeEvent worldChanged(final Object source) {
+        return new WorldChangeEvent(Kind.WORLD_CHANGED, source, null, null, null, null);
+    }
+
+    /**
+     * Creates an event from the changed object of the old listener
+     * interface, the details of the change are unknown
+     * @param source changed object
+     * @return event
+     */
+    public static WorldChangeEvent of(final Object source) {
+        if(source instanceof WorldChangeEvent){
+            return (WorldChangeEvent) source;
+        } else if(source instanceof Place){
+            return placeChanged((Place) source, null, null, null);
+        } else if(source instanceof Layer){
+            return layerChanged((Layer) source, null, null, null);
+        } else {
+            return worldChanged(source);
+        }
+    }
+
+    /**
+     * Creates a batch event
+     * @param events events of the batch
+     * @return batch event
+     */
+    public static WorldChangeEvent batch(final List<WorldChangeEvent> events) {
+        return new WorldChangeEvent(new ArrayList<>(events));
+    }
+
+    /**
+     * Gets the kind of change
+     * @return kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the changed object as passed to WorldChangeListeners: the place
+     * for place, path and child changes, the layer for removed places and
+     * layer changes, null for removed layers and a WorldChangeBatch for
+     * batches with more than one changed object
+     * @return changed object
+     */
+    public Object getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the affected layer
+     * @return layer or null, if the change isn't restricted to a layer
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Checks whether the change is restricted to a region of the layer
+     * @return true, if getXMin() etc. are valid
+     */
+    public boolean hasBounds() {
+        return hasBounds;
+    }
+
+    public int getXMin() {
+        return xMin;
+    }
+
+    public int getYMin() {
+        return yMin;
+    }
+
+    public int getXMax() {
+        return xMax;
+    }
+
+    public int getYMax() {
+        return yMax;
+    }
+
+    /**
+     * Gets the name of the changed property
+     * @return property name or null, if unknown or not a property change
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Checks whether a property might have been changed, this is also true
+     * if the changed property is unknown
+     * @param name property name
+     * @return true, if the property might have been changed
+     */
+    public boolean mayAffect(final String name) {
+        return property == null || property.equals(name);
+    }
+
+    /**
+     * Gets the old value, the removed place / path / child / layer for
+     * removal events
+     * @return old value or null
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * Gets the new value, the added place / path / child / layer for
+     * add events
+     * @return new value or null
+     */
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * Gets the single events, a list with this event if it isn't a batch
+     * @return read-only list of events
+     */
+    public List<WorldChangeEvent> getEvents() {
+        return events;
+    }
+
+    @Override
+    public String toString() {
+        return kind + (property != null ? " " + property : "") + ": " + source;
+    }
+
+}
@@ -17,7 +17,9 @@
 package mudmap2.backend;
 
 /**
- *
+ * Listener that gets the changed object only, see WorldEventListener for
+ * the details of a change. It is wrapped in a WorldChangeListenerAdapter
+ * by World.addChangeListener()
  * @author neop
  */
 public interface WorldChangeListener {
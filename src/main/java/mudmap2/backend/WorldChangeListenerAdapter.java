@@ -0,0 +1,50 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+/**
+ * Passes the changed object of WorldChangeEvents to a WorldChangeListener,
+ * see World.addChangeListener()
+ * @author neop
+ */
+public class WorldChangeListenerAdapter implements WorldEventListener {
+
+    final WorldChangeListener listener;
+
+    /**
+     * Constructs an adapter
+     * @param listener wrapped listener
+     */
+    public WorldChangeListenerAdapter(final WorldChangeListener listener) {
+        if(listener == null) throw new NullPointerException();
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the wrapped listener
+     * @return listener
+     */
+    public WorldChangeListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public void worldChanged(final WorldChangeEvent event) {
+        listener.worldChanged(event.getSource());
+    }
+
+}
@@ -25,6 +25,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -159,6 +160,11 @@ public class WorldFileJSON extends WorldFile {
                 world.setShowPlaceID(World.ShowPlaceID.valueOf(root.getString("showPlaceID")));
             }
 
+            // spatialIndex
+            if(root.has("spatialIndex")){
+                world.setSpatialIndexType(World.SpatialIndexType.valueOf(root.getString("spatialIndex")));
+            }
+
             // tileCenterCol
             if(root.has("tileCenterCol")){
                 world.setTileCenterColor(hexToCol(root.getString("tileCenterCol")));
@@ -273,8 +279,9 @@ public class WorldFileJSON extends WorldFile {
             }
 
             // places
-            HashMap<Integer, Place> places = new HashMap<>();
             HashMap<Place, HashSet<Integer>> childrenMapping = new HashMap<>();
+            // places are added to their layers at once
+            HashMap<Layer, ArrayList<Place>> layerPlaces = new HashMap<>();
 
             if(root.has("places")){
                 JSONArray jPlaces = root.getJSONArray("places");
@@ -302,8 +309,6 @@ public class WorldFileJSON extends WorldFile {
                         // create place
                         Place place = new Place(id, name, x, y, layer);
 
-                        places.put(id, place);
-
                         // area
                         if(jPlace.has("a")){
                             place.setPlaceGroup(areas.get(jPlace.getInt("a")));
@@ -362,16 +367,25 @@ public class WorldFileJSON extends WorldFile {
                             place.setComments(builder.toString());
                         }
 
-                        layer.put(place);
+                        ArrayList<Place> list = layerPlaces.get(layer);
+                        if(list == null){
+                            list = new ArrayList<>();
+                            layerPlaces.put(layer, list);
+                        }
+                        list.add(place);
                     }
                 }
             }
 
+            for(Entry<Layer, ArrayList<Place>> entry: layerPlaces.entrySet()){
+                entry.getKey().putAll(entry.getValue());
+            }
+
             // connect children
             for(Entry<Place, HashSet<Integer>> entry: childrenMapping.entrySet()){
                 Place place = entry.getKey();
                 for(Integer id: entry.getValue()){
-                    place.connectChild(places.get(id));
+                    place.connectChild(world.getPlace(id));
                 }
             }
 
@@ -386,8 +400,8 @@ public class WorldFileJSON extends WorldFile {
                         JSONObject p1 = path.getJSONObject(1);
                         if(p0.has("p") && p0.has("e")
                                 && p1.has("p") && p1.has("e")){
-                            Place pl0 = places.get(p0.getInt("p"));
-                            Place pl1 = places.get(p1.getInt("p"));
+                            Place pl0 = world.getPlace(p0.getInt("p"));
+                            Place pl1 = world.getPlace(p1.getInt("p"));
                             if(pl0 != null && pl1 != null){
                                 Path p = new Path(pl0, p0.getString("e"),
                                         pl1, p1.getString("e"));
@@ -490,6 +504,7 @@ public class WorldFileJSON extends WorldFile {
 
         if(!exportSingleLayer) {
             root.put("showPlaceID", world.getShowPlaceId());
+            root.put("spatialIndex", world.getSpatialIndexType());
 
             // tile center color
             if(world.getTileCenterColor() != null){
@@ -522,7 +537,7 @@ public class WorldFileJSON extends WorldFile {
         // filter colors if single layer is exported
         HashSet<InformationColor> infoColsInUse = new HashSet<>();
         if(exportSingleLayer) {
-            for(Place place: exportLayer.getPlaces()){
+            for(Place place: exportLayer){
                 infoColsInUse.add(place.getInfoRing());
             }
         }
@@ -545,7 +560,7 @@ public class WorldFileJSON extends WorldFile {
         // filter place groups if single layer is exported
         HashSet<PlaceGroup> areasInUse = new HashSet<>();
         if(exportSingleLayer) {
-            for(Place place: exportLayer.getPlaces()){
+            for(Place place: exportLayer){
                 areasInUse.add(place.getPlaceGroup());
             }
         }
@@ -557,7 +572,7 @@ public class WorldFileJSON extends WorldFile {
             Boolean inUse = false;
             // removePlace unused
             for(Layer layer: world.getLayers()){
-                for(Place place: layer.getPlaces()){
+                for(Place place: layer){
                     if(place.getPlaceGroup() == a){
                         inUse = true;
                         break;
@@ -592,7 +607,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            if(!layer.getPlaces().isEmpty()){
+            if(!layer.isEmpty()){
                 JSONObject layerObj = new JSONObject();
 
                 // add layer to id map
@@ -615,7 +630,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            for(Place place: layer.getPlaces()){
+            for(Place place: layer){
                 JSONObject placeObj = new JSONObject();
 
                 placeObj.put("id", place.getId());
@@ -675,7 +690,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            for(Place place: layer.getPlaces()){
+            for(Place place: layer){
                 for(Path path: place.getPaths()){
                     if(!paths.contains(path)){
                         JSONArray pathObj = new JSONArray();
@@ -21,19 +21,26 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Map.Entry;
+import java.util.Set;
 import mudmap2.backend.Layer;
 import mudmap2.backend.Place;
 import mudmap2.backend.PlaceGroup;
 import mudmap2.backend.InformationColor;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldEventListener;
 
 /**
- * This class generates and renders layer legends for image export
+ * This class generates and renders layer legends for image export. The place
+ * groups and information colors in use on the layer are cached until they
+ * are changed, call dispose() if the legend isn't needed anymore
  * @author neop
  */
-public class Legend {
+public class Legend implements WorldEventListener {
 
     public enum Orientation {
         HORIZONTAL, //< fixed width, grows vertically
@@ -84,6 +91,11 @@ public class Legend {
 
     LinkedList<LegendEntry> legendEntries = null;
 
+    // place groups and information colors in use, null if not collected
+    Set<PlaceGroup> usedPlaceGroups = null;
+    Set<InformationColor> usedInformationColors = null;
+    boolean listening = false;
+
     public Legend(Layer layer, Orientation orientation, int size){
         this.layer = layer;
         this.orientation = orientation;
@@ -114,6 +126,22 @@ public class Legend {
         this.includePlaceGroups = includePlaceGroups;
     }
 
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    public void setOrientation(Orientation orientation) {
+        this.orientation = orientation;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
     public Color getBackground() {
         return backgroundColor;
     }
@@ -128,6 +156,75 @@ public class Legend {
         return image;
     }
 
+    /**
+     * Stops listening to world changes and clears the cache
+     */
+    public void dispose(){
+        if(listening){
+            layer.getWorld().removeEventListener(this);
+            listening = false;
+        }
+        usedPlaceGroups = null;
+        usedInformationColors = null;
+    }
+
+    @Override
+    public void worldChanged(WorldChangeEvent event) {
+        if(usedPlaceGroups == null) return;
+
+        for(WorldChangeEvent change: event.getEvents()){
+            if(change.getLayer() != layer) continue;
+            switch(change.getKind()){
+                case PLACE_ADDED:
+                    addUsage((Place) change.getNewValue());
+                    break;
+                case PLACE_REMOVED:
+                    // the removed place might have been the last one
+                    usedPlaceGroups = null;
+                    usedInformationColors = null;
+                    return;
+                case PLACE_CHANGED:
+                    if(change.mayAffect(WorldChangeEvent.PROPERTY_PLACE_GROUP)
+                            || change.mayAffect(WorldChangeEvent.PROPERTY_INFO_RING)){
+                        usedPlaceGroups = null;
+                        usedInformationColors = null;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Collects the place groups and information colors in use on the layer,
+     * if they aren't cached
+     */
+    private void collectUsage(){
+        if(usedPlaceGroups != null) return;
+
+        usedPlaceGroups = Collections.newSetFromMap(new IdentityHashMap<PlaceGroup, Boolean>());
+        usedInformationColors = Collections.newSetFromMap(new IdentityHashMap<InformationColor, Boolean>());
+        for(Place place: layer){
+            addUsage(place);
+        }
+
+        if(!listening && layer.getWorld() != null){
+            layer.getWorld().addEventListener(this);
+            listening = true;
+        }
+    }
+
+    /**
+     * Adds the place group and information color of a place to the cache
+     * @param place place on the layer
+     */
+    private void addUsage(Place place){
+        if(place.getPlaceGroup() != null) usedPlaceGroups.add(place.getPlaceGroup());
+        if(place.getInfoRing() != null) usedInformationColors.add(place.getInfoRing());
+    }
+
     /**
      * Collects data from world to be included in the legend
      */
@@ -172,18 +269,11 @@ public class Legend {
      */
     private void prepareLegendEntriesInformationColors(){
         legendEntries.add(new LegendEntryTitle("Information colors"));
+        collectUsage();
 
         for(InformationColor infoCol: layer.getWorld().getInformationColors()){
             // check if information color is in use on this layer
-            boolean isInUse = false;
-            for(Place place: layer.getPlaces()){
-                if(place.getInfoRing() == infoCol){
-                    isInUse = true;
-                    break;
-                }
-            }
-
-            if(isInUse){
+            if(usedInformationColors.contains(infoCol)){
                 legendEntries.add(new LegendEntryColor(infoCol.getDescription(), infoCol.getColor()));
             }
         }
@@ -196,18 +286,11 @@ public class Legend {
      */
     private void prepareLegendEntriesPlaceGroups(){
         legendEntries.add(new LegendEntryTitle("Place Groups"));
+        collectUsage();
 
         for(PlaceGroup placeGroup: layer.getWorld().getPlaceGroups()){
             // check if group is in use on this layer
-            boolean isInUse = false;
-            for(Place place: layer.getPlaces()){
-                if(place.getPlaceGroup() == placeGroup){
-                    isInUse = true;
-                    break;
-                }
-            }
-
-            if(isInUse){
+            if(usedPlaceGroups.contains(placeGroup)){
                 legendEntries.add(new LegendEntryColor(placeGroup.getName(), placeGroup.getColor()));
             }
         }
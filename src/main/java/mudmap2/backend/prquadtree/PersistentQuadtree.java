@@ -0,0 +1,731 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.prquadtree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import mudmap2.backend.spatialindex.NearestSearch;
+import mudmap2.backend.spatialindex.SpatialIndex;
+
+/**
+ * A point-region quadtree with immutable nodes. A modification copies the
+ * nodes on the path from the root to the changed leaf, all other nodes are
+ * shared with the previous version (path copying). Because of that a
+ * snapshot of the tree takes constant time and isn't affected by later
+ * modifications, it can be read by other threads while this tree is
+ * modified.
+ *
+ * Nodes with a single child are removed, so the tree has the same shape as a
+ * Quadtree with the same center and elements. Elements must not change their
+ * position (as returned by the position functions) while they are in the tree
+ * @author neop
+ * @param <T> element class type
+ */
+public class PersistentQuadtree<T> implements SpatialIndex<T> {
+
+    private static final int DEFAULT_LENGTH = 1 << 30;
+    private static final int ROOT_LEVEL = 30; // DEFAULT_LENGTH == 1 << ROOT_LEVEL
+
+    final ToIntFunction<? super T> xFunction;
+    final ToIntFunction<? super T> yFunction;
+
+    // lower corner of the root node, root is null until the first element
+    // was inserted or a center was set
+    private long baseX, baseY;
+    private Node root = null;
+
+    // snapshots can't be modified
+    private final boolean readOnly;
+
+    /**
+     * Immutable leaf, stores an element
+     */
+    static final class Leaf {
+        final int x, y;
+        final Object data;
+
+        Leaf(Object data, int x, int y){
+            this.data = data;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Immutable node, position is relative to the lower corner of the root.
+     * A node of level d covers 2^(d+1) positions per axis and splits them at
+     * bit d. The number of elements and the bounding box are calculated once
+     */
+    static final class Node {
+        final int u, v, level;
+        // Node, Leaf or null
+        final Object[] children;
+        final int size;
+        final int xMin, yMin, xMax, yMax;
+
+        Node(int u, int v, int level, Object[] children){
+            this.u = u;
+            this.v = v;
+            this.level = level;
+            this.children = children;
+
+            int count = 0;
+            int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE;
+            int x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+            for(Object child: children){
+                if(child instanceof Node){
+                    Node node = (Node) child;
+                    count += node.size;
+                    x1 = Math.min(x1, node.xMin);
+                    y1 = Math.min(y1, node.yMin);
+                    x2 = Math.max(x2, node.xMax);
+                    y2 = Math.max(y2, node.yMax);
+                } else if(child != null){
+                    Leaf leaf = (Leaf) child;
+                    ++count;
+                    x1 = Math.min(x1, leaf.x);
+                    y1 = Math.min(y1, leaf.y);
+                    x2 = Math.max(x2, leaf.x);
+                    y2 = Math.max(y2, leaf.y);
+                }
+            }
+            size = count;
+            if(count == 0){
+                x1 = y1 = x2 = y2 = 0;
+            }
+            xMin = x1;
+            yMin = y1;
+            xMax = x2;
+            yMax = y2;
+        }
+
+        /**
+         * Gets the child slot of a position
+         * @param pu position relative to the root
+         * @param pv position relative to the root
+         * @return slot index
+         */
+        int getSlot(int pu, int pv){
+            return ((pu >>> level) & 1) | (((pv >>> level) & 1) << 1);
+        }
+
+        /**
+         * Checks whether a position is inside of the node
+         * @param pu position relative to the root
+         * @param pv position relative to the root
+         * @return true, if the position is inside
+         */
+        boolean isInside(int pu, int pv){
+            final int shift = level + 1;
+            return (pu >>> shift) == (u >>> shift) && (pv >>> shift) == (v >>> shift);
+        }
+
+        /**
+         * Creates a copy of this node with one child replaced
+         * @param slot child slot
+         * @param child new child
+         * @return new node
+         */
+        Node with(int slot, Object child){
+            Object[] newChildren = children.clone();
+            newChildren[slot] = child;
+            return new Node(u, v, level, newChildren);
+        }
+    }
+
+    /**
+     * Constructs a quadtree, the center will be set by the first element
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     */
+    public PersistentQuadtree(ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction){
+        if(xFunction == null || yFunction == null){
+            throw new NullPointerException();
+        }
+        this.xFunction = xFunction;
+        this.yFunction = yFunction;
+        readOnly = false;
+    }
+
+    /**
+     * Constructs a quadtree with a center position
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     * @param centerX
+     * @param centerY
+     */
+    public PersistentQuadtree(ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction, int centerX, int centerY){
+        this(xFunction, yFunction);
+        createRoot(centerX, centerY);
+    }
+
+    /**
+     * Constructs a read-only snapshot of a quadtree
+     * @param other quadtree
+     */
+    private PersistentQuadtree(PersistentQuadtree<T> other){
+        xFunction = other.xFunction;
+        yFunction = other.yFunction;
+        baseX = other.baseX;
+        baseY = other.baseY;
+        root = other.root;
+        readOnly = true;
+    }
+
+    /**
+     * Creates the root node
+     * @param centerX
+     * @param centerY
+     */
+    private void createRoot(int centerX, int centerY){
+        baseX = (long) centerX - DEFAULT_LENGTH + 1;
+        baseY = (long) centerY - DEFAULT_LENGTH + 1;
+        root = new Node(0, 0, ROOT_LEVEL, new Object[4]);
+    }
+
+    /**
+     * Gets a read-only quadtree with the current elements in constant time.
+     * It shares its nodes with this quadtree and won't change, if this
+     * quadtree is modified later
+     * @return snapshot
+     */
+    public PersistentQuadtree<T> snapshot(){
+        return readOnly ? this : new PersistentQuadtree<>(this);
+    }
+
+    /**
+     * Checks whether this quadtree is a read-only snapshot
+     * @return true, if it can't be modified
+     */
+    public boolean isReadOnly(){
+        return readOnly;
+    }
+
+    /**
+     * Throws an exception, if this quadtree is a snapshot
+     */
+    private void checkModifiable(){
+        if(readOnly){
+            throw new UnsupportedOperationException("Quadtree snapshots can't be modified");
+        }
+    }
+
+    /**
+     * Gets the x position relative to the root
+     * @param x x coordinate
+     * @return position or -1, if it is outside of the root
+     */
+    private int getU(int x){
+        long u = x - baseX;
+        return u >= 0 && u < 2L * DEFAULT_LENGTH ? (int) u : -1;
+    }
+
+    /**
+     * Gets the y position relative to the root
+     * @param y y coordinate
+     * @return position or -1, if it is outside of the root
+     */
+    private int getV(int y){
+        long v = y - baseY;
+        return v >= 0 && v < 2L * DEFAULT_LENGTH ? (int) v : -1;
+    }
+
+    /**
+     * Gets the leaf at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return leaf or null
+     */
+    private Leaf findLeaf(int x, int y){
+        if(root == null){
+            return null;
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            return null;
+        }
+        Node node = root;
+        while(true){
+            Object child = node.children[node.getSlot(u, v)];
+            if(child instanceof Node){
+                node = (Node) child;
+            } else if(child != null){
+                Leaf leaf = (Leaf) child;
+                return leaf.x == x && leaf.y == y ? leaf : null;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    // --------- SpatialIndex --------------------------------------------------
+
+    @Override
+    public T get(int x, int y){
+        Leaf leaf = findLeaf(x, y);
+        return leaf == null ? null : (T) leaf.data;
+    }
+
+    @Override
+    public boolean exist(int x, int y){
+        return findLeaf(x, y) != null;
+    }
+
+    /**
+     * Checks whether the quadtree contains an element, the element is
+     * searched at its current position
+     * @param object element
+     * @return true, if the element was inserted
+     */
+    @Override
+    public boolean contains(T object){
+        return object != null && get(xFunction.applyAsInt(object), yFunction.applyAsInt(object)) == object;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    @Override
+    public int size(){
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public int getXMin(){
+        return root == null ? 0 : root.xMin;
+    }
+
+    @Override
+    public int getXMax(){
+        return root == null ? 0 : root.xMax;
+    }
+
+    @Override
+    public int getYMin(){
+        return root == null ? 0 : root.yMin;
+    }
+
+    @Override
+    public int getYMax(){
+        return root == null ? 0 : root.yMax;
+    }
+
+    /**
+     * Inserts an element
+     * @param obj element
+     * @param x x coordinate, has to be the same as the one of xFunction
+     * @param y y coordinate, has to be the same as the one of yFunction
+     * @throws Exception if the position is occupied, outside of the quadtree
+     * or the element was already inserted
+     */
+    @Override
+    public void insert(T obj, int x, int y) throws Exception {
+        checkModifiable();
+        if(obj == null){
+            throw new NullPointerException();
+        }
+        if(contains(obj)){
+            throw new Exception("Element is already in the quadtree");
+        }
+        if(root == null){
+            createRoot(x, y);
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            throw new Exception("Position " + x + ", " + y + " is outside of the quadtree");
+        }
+        root = insert(root, new Leaf(obj, x, y), u, v);
+    }
+
+    /**
+     * Inserts a leaf into a subtree
+     * @param node subtree root
+     * @param leaf new leaf
+     * @param u leaf position relative to the root
+     * @param v leaf position relative to the root
+     * @return copy of node that contains the leaf
+     * @throws Exception if the position is occupied
+     */
+    private Node insert(Node node, Leaf leaf, int u, int v) throws Exception {
+        final int slot = node.getSlot(u, v);
+        final Object child = node.children[slot];
+        int otherU, otherV;
+        if(child == null){
+            return node.with(slot, leaf);
+        } else if(child instanceof Node){
+            Node childNode = (Node) child;
+            if(childNode.isInside(u, v)){
+                return node.with(slot, insert(childNode, leaf, u, v));
+            }
+            otherU = childNode.u;
+            otherV = childNode.v;
+        } else {
+            Leaf other = (Leaf) child;
+            if(other.x == leaf.x && other.y == leaf.y){
+                throw new Exception("Position " + leaf.x + ", " + leaf.y + " is occupied");
+            }
+            otherU = getU(other.x);
+            otherV = getV(other.y);
+        }
+
+        // split: new node at the highest bit in which the positions differ
+        final int level = 31 - Integer.numberOfLeadingZeros((u ^ otherU) | (v ^ otherV));
+        final int mask = ~((1 << (level + 1)) - 1);
+        Object[] children = new Object[4];
+        children[((otherU >>> level) & 1) | (((otherV >>> level) & 1) << 1)] = child;
+        children[((u >>> level) & 1) | (((v >>> level) & 1) << 1)] = leaf;
+        return node.with(slot, new Node(u & mask, v & mask, level, children));
+    }
+
+    /**
+     * Inserts many elements, nothing will be inserted if one of them can't be
+     * inserted
+     * @param objects elements to insert
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     * @throws Exception if a position is occupied or an element was already
+     * inserted
+     */
+    @Override
+    public void insertAll(Collection<? extends T> objects, ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction) throws Exception {
+        checkModifiable();
+        final Node oldRoot = root;
+        final long oldBaseX = baseX, oldBaseY = baseY;
+        try {
+            for(T obj: objects){
+                insert(obj, xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+            }
+        } catch (Exception ex) {
+            // the previous version is still complete
+            root = oldRoot;
+            baseX = oldBaseX;
+            baseY = oldBaseY;
+            throw ex;
+        }
+    }
+
+    @Override
+    public void remove(int x, int y){
+        checkModifiable();
+        removeLeaf(x, y, null);
+    }
+
+    /**
+     * Removes an element, the element is searched at its current position
+     * @param object element
+     */
+    @Override
+    public void remove(T object){
+        checkModifiable();
+        if(object != null){
+            removeLeaf(xFunction.applyAsInt(object), yFunction.applyAsInt(object), object);
+        }
+    }
+
+    /**
+     * Removes the leaf at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param object only remove the leaf, if it contains this element, null
+     * to remove any element
+     */
+    private void removeLeaf(int x, int y, T object){
+        if(root == null){
+            return;
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            return;
+        }
+        // the root is never replaced by its child
+        root = (Node) removeLeaf(root, x, y, u, v, object);
+    }
+
+    /**
+     * Removes a leaf from a subtree, a node with a single remaining child
+     * will be replaced by that child
+     * @param node subtree root
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param u position relative to the root
+     * @param v position relative to the root
+     * @param object only remove the leaf, if it contains this element, null
+     * to remove any element
+     * @return node, if the leaf wasn't found, else the new subtree (node,
+     * leaf or null)
+     */
+    private Object removeLeaf(Node node, int x, int y, int u, int v, T object){
+        final int slot = node.getSlot(u, v);
+        final Object child = node.children[slot];
+        Object newChild;
+        if(child instanceof Node){
+            newChild = removeLeaf((Node) child, x, y, u, v, object);
+            if(newChild == child){
+                return node;
+            }
+        } else if(child != null){
+            Leaf leaf = (Leaf) child;
+            if(leaf.x != x || leaf.y != y || (object != null && leaf.data != object)){
+                return node;
+            }
+            newChild = null;
+        } else {
+            return node;
+        }
+
+        // replace a node with a single child (not the root)
+        if(newChild == null && node.level != ROOT_LEVEL){
+            Object remaining = null;
+            int count = 0;
+            for(int i = 0; i < 4; ++i){
+                if(i != slot && node.children[i] != null){
+                    remaining = node.children[i];
+                    ++count;
+                }
+            }
+            if(count == 1){
+                return remaining;
+            }
+        }
+        return node.with(slot, newChild);
+    }
+
+    @Override
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
+        checkModifiable();
+        T obj = get(xOld, yOld);
+        if(obj == null){
+            throw new Exception("Couldn't move element, position " + xOld + ", " + yOld + " is empty");
+        }
+        if(exist(xNew, yNew) || getU(xNew) < 0 || getV(yNew) < 0){
+            throw new Exception("Couldn't move element to " + xNew + ", " + yNew);
+        }
+        final Node oldRoot = root;
+        try {
+            remove(xOld, yOld);
+            insert(obj, xNew, yNew);
+        } catch (Exception ex) {
+            root = oldRoot;
+            throw ex;
+        }
+    }
+
+    @Override
+    public HashSet<T> values(){
+        final HashSet<T> ret = new HashSet<>();
+        forEach(new Consumer<T>() {
+            @Override
+            public void accept(T obj) {
+                ret.add(obj);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Visits all elements in tree order
+     * @param visitor will be called for each element
+     */
+    @Override
+    public void forEach(Consumer<? super T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        for(T obj: this){
+            visitor.accept(obj);
+        }
+    }
+
+    /**
+     * Visits all elements inside a rectangular region, nodes with a bounding
+     * box outside of the region will be skipped
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @param visitor will be called for each element in the region
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        if(isEmpty() || xMin > xMax || yMin > yMax){
+            return;
+        }
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while(!stack.isEmpty()){
+            final Node node = stack.pop();
+            for(Object child: node.children){
+                if(child instanceof Node){
+                    Node n = (Node) child;
+                    if(n.xMin <= xMax && n.xMax >= xMin && n.yMin <= yMax && n.yMax >= yMin){
+                        stack.push(n);
+                    }
+                } else if(child != null){
+                    Leaf leaf = (Leaf) child;
+                    if(leaf.x >= xMin && leaf.x <= xMax && leaf.y >= yMin && leaf.y <= yMax){
+                        visitor.accept((T) leaf.data);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the elements closest to a position inside of a rectangular region
+     * (best-first search, nodes are ordered by the distance to their
+     * bounding box)
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin min x coordinate of the region (inclusive)
+     * @param yMin min y coordinate of the region (inclusive)
+     * @param xMax max x coordinate of the region (inclusive)
+     * @param yMax max y coordinate of the region (inclusive)
+     * @param filter elements will be skipped, if it returns false, may be null
+     * @return up to k elements, closest first
+     */
+    @Override
+    public List<T> nearest(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter){
+        NearestSearch<T, Node> search = new NearestSearch<>(x, y, k, xMin, yMin, xMax, yMax, filter);
+        if(!isEmpty()){
+            search.addNode(root, root.xMin, root.yMin, root.xMax, root.yMax);
+        }
+        Node node;
+        while((node = search.next()) != null){
+            for(Object child: node.children){
+                if(child instanceof Node){
+                    Node n = (Node) child;
+                    search.addNode(n, n.xMin, n.yMin, n.xMax, n.yMax);
+                } else if(child != null){
+                    Leaf leaf = (Leaf) child;
+                    search.addElement((T) leaf.data, leaf.x, leaf.y);
+                }
+            }
+        }
+        return search.getResult();
+    }
+
+    /**
+     * Gets an iterator over the elements in tree order. The iterator walks
+     * the version of the tree at the time it was created, so it stays valid
+     * if the quadtree is modified
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        final ArrayDeque<Iterator<Object>> stack = new ArrayDeque<>();
+        if(root != null){
+            stack.push(Arrays.asList(root.children).iterator());
+        }
+
+        return new Iterator<T>() {
+            Leaf next = advance();
+
+            private Leaf advance(){
+                while(!stack.isEmpty()){
+                    Iterator<Object> it = stack.peek();
+                    if(!it.hasNext()){
+                        stack.pop();
+                        continue;
+                    }
+                    Object child = it.next();
+                    if(child instanceof Node){
+                        stack.push(Arrays.asList(((Node) child).children).iterator());
+                    } else if(child != null){
+                        return (Leaf) child;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if(next == null){
+                    throw new NoSuchElementException();
+                }
+                T ret = (T) next.data;
+                next = advance();
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Gets the root node (for tests)
+     * @return root or null
+     */
+    Node getRoot(){
+        return root;
+    }
+
+    /**
+     * Gets a String that represents the tree structure in the format of
+     * Quadtree.toString()
+     * @return
+     */
+    @Override
+    public String toString(){
+        if(root == null){
+            return "root: {null}";
+        }
+        return "root: " + toString(root);
+    }
+
+    /**
+     * Gets a String that represents a node
+     * @param node
+     * @return
+     */
+    private String toString(Node node){
+        final long length = 1L << node.level;
+        StringBuilder builder = new StringBuilder();
+        builder.append("{(").append(baseX + node.u + length - 1).append(", ")
+                .append(baseY + node.v + length - 1).append(", ").append(length).append(")");
+        final String[] names = {"NW", "NE", "SW", "SE"};
+        for(int i = 0; i < 4; ++i){
+            builder.append(", ").append(names[i]).append(": ");
+            Object child = node.children[i];
+            if(child == null){
+                builder.append("null");
+            } else if(child instanceof Node){
+                builder.append(toString((Node) child));
+            } else {
+                builder.append("\"").append(((Leaf) child).data.toString()).append("\"");
+            }
+        }
+        return builder.append("}").toString();
+    }
+
+}
@@ -0,0 +1,738 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.prquadtree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import mudmap2.backend.spatialindex.NearestSearch;
+import mudmap2.backend.spatialindex.SpatialIndex;
+
+/**
+ * A point-region quadtree that stores its nodes and leafs in parallel arrays
+ * instead of objects (struct of arrays). Freed nodes and leafs are reused
+ * (free lists). Nodes with a single child are removed, so the tree has the
+ * same shape as a Quadtree with the same center and elements.
+ *
+ * Positions are relative to the lower corner of the root node (u, v), a node
+ * of level d covers 2^(d+1) positions per axis and splits them at bit d.
+ * Elements must not change their position (as returned by the position
+ * functions) while they are in the tree
+ * @author neop
+ * @param <T> element class type
+ */
+public class PooledQuadtree<T> implements SpatialIndex<T> {
+
+    private static final int DEFAULT_LENGTH = 1 << 30;
+    private static final int ROOT_LEVEL = 30; // DEFAULT_LENGTH == 1 << ROOT_LEVEL
+    private static final int ROOT = 0;
+    private static final int INITIAL_CAPACITY = 16;
+    // end of a free list
+    private static final int NONE = -1;
+    // child slot values: EMPTY, node index + 1 (> 0) or ~leaf index (< 0)
+    private static final int EMPTY = 0;
+
+    final ToIntFunction<? super T> xFunction;
+    final ToIntFunction<? super T> yFunction;
+
+    // lower corner of the root node
+    private boolean hasRoot = false;
+    private long baseX, baseY;
+
+    // nodes: lower corner (relative to the root), level and 4 child slots
+    private int[] nodeU, nodeV;
+    private byte[] nodeLevel;
+    private int[] children;
+    private int nodeCount = 0; // used array length
+    private int nodeFree = NONE; // linked by the first child slot
+
+    // leafs: position and element, a leaf is free, if its element is null
+    private int[] leafX, leafY;
+    private Object[] data;
+    private int leafCount = 0; // used array length
+    private int leafFree = NONE; // linked by leafX
+
+    private int size = 0;
+
+    // bounding box, will be recalculated, if an element on the border was removed
+    private int xMin, xMax, yMin, yMax;
+    private boolean boundsValid = true;
+
+    /**
+     * Constructs a quadtree, the center will be set by the first element
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     */
+    public PooledQuadtree(ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction){
+        if(xFunction == null || yFunction == null){
+            throw new NullPointerException();
+        }
+        this.xFunction = xFunction;
+        this.yFunction = yFunction;
+
+        nodeU = new int[INITIAL_CAPACITY];
+        nodeV = new int[INITIAL_CAPACITY];
+        nodeLevel = new byte[INITIAL_CAPACITY];
+        children = new int[4 * INITIAL_CAPACITY];
+        leafX = new int[INITIAL_CAPACITY];
+        leafY = new int[INITIAL_CAPACITY];
+        data = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Constructs a quadtree with a center position
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     * @param centerX
+     * @param centerY
+     */
+    public PooledQuadtree(ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction, int centerX, int centerY){
+        this(xFunction, yFunction);
+        createRoot(centerX, centerY);
+    }
+
+    /**
+     * Creates the root node
+     * @param centerX
+     * @param centerY
+     */
+    private void createRoot(int centerX, int centerY){
+        baseX = (long) centerX - DEFAULT_LENGTH + 1;
+        baseY = (long) centerY - DEFAULT_LENGTH + 1;
+        int root = allocateNode(0, 0, ROOT_LEVEL);
+        assert root == ROOT;
+        hasRoot = true;
+    }
+
+    // --------- node and leaf pool --------------------------------------------
+
+    /**
+     * Gets a node from the free list or a new one
+     * @param u lower corner
+     * @param v lower corner
+     * @param level node level
+     * @return node index
+     */
+    private int allocateNode(int u, int v, int level){
+        int node;
+        if(nodeFree != NONE){
+            node = nodeFree;
+            nodeFree = children[4 * node];
+        } else {
+            if(nodeCount == nodeU.length){
+                int capacity = nodeCount + (nodeCount >> 1);
+                nodeU = Arrays.copyOf(nodeU, capacity);
+                nodeV = Arrays.copyOf(nodeV, capacity);
+                nodeLevel = Arrays.copyOf(nodeLevel, capacity);
+                children = Arrays.copyOf(children, 4 * capacity);
+            }
+            node = nodeCount++;
+        }
+        nodeU[node] = u;
+        nodeV[node] = v;
+        nodeLevel[node] = (byte) level;
+        Arrays.fill(children, 4 * node, 4 * node + 4, EMPTY);
+        return node;
+    }
+
+    /**
+     * Adds a node to the free list
+     * @param node node index
+     */
+    private void freeNode(int node){
+        children[4 * node] = nodeFree;
+        nodeFree = node;
+    }
+
+    /**
+     * Gets a leaf from the free list or a new one
+     * @param obj element
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return leaf index
+     */
+    private int allocateLeaf(T obj, int x, int y){
+        int leaf;
+        if(leafFree != NONE){
+            leaf = leafFree;
+            leafFree = leafX[leaf];
+        } else {
+            if(leafCount == data.length){
+                int capacity = leafCount + (leafCount >> 1);
+                leafX = Arrays.copyOf(leafX, capacity);
+                leafY = Arrays.copyOf(leafY, capacity);
+                data = Arrays.copyOf(data, capacity);
+            }
+            leaf = leafCount++;
+        }
+        leafX[leaf] = x;
+        leafY[leaf] = y;
+        data[leaf] = obj;
+        return leaf;
+    }
+
+    /**
+     * Adds a leaf to the free list
+     * @param leaf leaf index
+     */
+    private void freeLeaf(int leaf){
+        data[leaf] = null;
+        leafX[leaf] = leafFree;
+        leafFree = leaf;
+    }
+
+    // --------- positions -----------------------------------------------------
+
+    /**
+     * Gets the child slot of a position in a node
+     * @param node node index
+     * @param u position relative to the root
+     * @param v position relative to the root
+     * @return index in children
+     */
+    private int getChildSlot(int node, int u, int v){
+        int level = nodeLevel[node];
+        return 4 * node + (((u >>> level) & 1) | (((v >>> level) & 1) << 1));
+    }
+
+    /**
+     * Checks whether a position is inside of a node
+     * @param node node index
+     * @param u position relative to the root
+     * @param v position relative to the root
+     * @return true, if the position is inside
+     */
+    private boolean isInside(int node, int u, int v){
+        int shift = nodeLevel[node] + 1;
+        return (u >>> shift) == (nodeU[node] >>> shift) && (v >>> shift) == (nodeV[node] >>> shift);
+    }
+
+    /**
+     * Gets the x position relative to the root
+     * @param x x coordinate
+     * @return position or -1, if it is outside of the root
+     */
+    private int getU(int x){
+        long u = x - baseX;
+        return u >= 0 && u < 2L * DEFAULT_LENGTH ? (int) u : -1;
+    }
+
+    /**
+     * Gets the y position relative to the root
+     * @param y y coordinate
+     * @return position or -1, if it is outside of the root
+     */
+    private int getV(int y){
+        long v = y - baseY;
+        return v >= 0 && v < 2L * DEFAULT_LENGTH ? (int) v : -1;
+    }
+
+    /**
+     * Gets the leaf at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return leaf index or NONE
+     */
+    private int findLeaf(int x, int y){
+        if(!hasRoot){
+            return NONE;
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            return NONE;
+        }
+        int node = ROOT;
+        while(true){
+            int child = children[getChildSlot(node, u, v)];
+            if(child == EMPTY){
+                return NONE;
+            } else if(child > 0){
+                node = child - 1;
+            } else {
+                int leaf = ~child;
+                return leafX[leaf] == x && leafY[leaf] == y ? leaf : NONE;
+            }
+        }
+    }
+
+    // --------- SpatialIndex --------------------------------------------------
+
+    @Override
+    public T get(int x, int y){
+        int leaf = findLeaf(x, y);
+        return leaf == NONE ? null : (T) data[leaf];
+    }
+
+    @Override
+    public boolean exist(int x, int y){
+        return findLeaf(x, y) != NONE;
+    }
+
+    /**
+     * Checks whether the quadtree contains an element, the element is
+     * searched at its current position
+     * @param object element
+     * @return true, if the element was inserted
+     */
+    @Override
+    public boolean contains(T object){
+        return object != null && get(xFunction.applyAsInt(object), yFunction.applyAsInt(object)) == object;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public int getXMin(){
+        updateBounds();
+        return xMin;
+    }
+
+    @Override
+    public int getXMax(){
+        updateBounds();
+        return xMax;
+    }
+
+    @Override
+    public int getYMin(){
+        updateBounds();
+        return yMin;
+    }
+
+    @Override
+    public int getYMax(){
+        updateBounds();
+        return yMax;
+    }
+
+    /**
+     * Recalculates the bounding box from the leaf arrays, if necessary
+     */
+    private void updateBounds(){
+        if(boundsValid){
+            return;
+        }
+        xMin = yMin = Integer.MAX_VALUE;
+        xMax = yMax = Integer.MIN_VALUE;
+        for(int i = 0; i < leafCount; ++i){
+            if(data[i] != null){
+                extendBounds(leafX[i], leafY[i]);
+            }
+        }
+        if(size == 0){
+            xMin = xMax = yMin = yMax = 0;
+        }
+        boundsValid = true;
+    }
+
+    /**
+     * Extends the bounding box by a position
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    private void extendBounds(int x, int y){
+        xMin = Math.min(xMin, x);
+        xMax = Math.max(xMax, x);
+        yMin = Math.min(yMin, y);
+        yMax = Math.max(yMax, y);
+    }
+
+    /**
+     * Inserts an element
+     * @param obj element
+     * @param x x coordinate, has to be the same as the one of xFunction
+     * @param y y coordinate, has to be the same as the one of yFunction
+     * @throws Exception if the position is occupied, outside of the quadtree
+     * or the element was already inserted
+     */
+    @Override
+    public void insert(T obj, int x, int y) throws Exception {
+        if(obj == null){
+            throw new NullPointerException();
+        }
+        if(contains(obj)){
+            throw new Exception("Element is already in the quadtree");
+        }
+        if(!hasRoot){
+            createRoot(x, y);
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            throw new Exception("Position " + x + ", " + y + " is outside of the quadtree");
+        }
+
+        int node = ROOT;
+        while(true){
+            final int slot = getChildSlot(node, u, v);
+            final int child = children[slot];
+            int otherU, otherV;
+            if(child == EMPTY){
+                children[slot] = ~allocateLeaf(obj, x, y);
+                break;
+            } else if(child > 0){
+                if(isInside(child - 1, u, v)){
+                    node = child - 1;
+                    continue;
+                }
+                otherU = nodeU[child - 1];
+                otherV = nodeV[child - 1];
+            } else {
+                int leaf = ~child;
+                if(leafX[leaf] == x && leafY[leaf] == y){
+                    throw new Exception("Position " + x + ", " + y + " is occupied");
+                }
+                otherU = getU(leafX[leaf]);
+                otherV = getV(leafY[leaf]);
+            }
+
+            // split: new node at the highest bit in which the positions differ
+            final int level = 31 - Integer.numberOfLeadingZeros((u ^ otherU) | (v ^ otherV));
+            final int mask = ~((1 << (level + 1)) - 1);
+            final int newNode = allocateNode(u & mask, v & mask, level);
+            children[getChildSlot(newNode, otherU, otherV)] = child;
+            children[getChildSlot(newNode, u, v)] = ~allocateLeaf(obj, x, y);
+            children[slot] = newNode + 1;
+            break;
+        }
+
+        if(size == 0){
+            xMin = xMax = x;
+            yMin = yMax = y;
+            boundsValid = true;
+        } else if(boundsValid){
+            extendBounds(x, y);
+        }
+        ++size;
+    }
+
+    @Override
+    public void insertAll(Collection<? extends T> objects, ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction) throws Exception {
+        int inserted = 0;
+        try {
+            for(T obj: objects){
+                insert(obj, xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+                ++inserted;
+            }
+        } catch (Exception ex) {
+            // remove the inserted elements
+            for(T obj: objects){
+                if(inserted-- == 0){
+                    break;
+                }
+                remove(xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void remove(int x, int y){
+        removeLeaf(x, y, null);
+    }
+
+    /**
+     * Removes an element, the element is searched at its current position
+     * @param object element
+     */
+    @Override
+    public void remove(T object){
+        if(object != null){
+            removeLeaf(xFunction.applyAsInt(object), yFunction.applyAsInt(object), object);
+        }
+    }
+
+    /**
+     * Removes the leaf at a position, a node with a single remaining child
+     * will be replaced by that child
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param object only remove the leaf, if it contains this element, null
+     * to remove any element
+     */
+    private void removeLeaf(int x, int y, T object){
+        if(!hasRoot){
+            return;
+        }
+        final int u = getU(x), v = getV(y);
+        if(u < 0 || v < 0){
+            return;
+        }
+
+        int parentSlot = -1; // slot of node in its parent
+        int node = ROOT;
+        while(true){
+            final int slot = getChildSlot(node, u, v);
+            final int child = children[slot];
+            if(child == EMPTY){
+                return;
+            } else if(child > 0){
+                parentSlot = slot;
+                node = child - 1;
+            } else {
+                final int leaf = ~child;
+                if(leafX[leaf] != x || leafY[leaf] != y || (object != null && data[leaf] != object)){
+                    return;
+                }
+                children[slot] = EMPTY;
+                freeLeaf(leaf);
+                break;
+            }
+        }
+
+        // replace a node with a single child (not the root)
+        if(node != ROOT){
+            int remaining = EMPTY, count = 0;
+            for(int i = 4 * node; i < 4 * node + 4; ++i){
+                if(children[i] != EMPTY){
+                    remaining = children[i];
+                    ++count;
+                }
+            }
+            if(count == 1){
+                children[parentSlot] = remaining;
+                freeNode(node);
+            }
+        }
+
+        --size;
+        if(boundsValid && (x == xMin || x == xMax || y == yMin || y == yMax)){
+            boundsValid = false;
+        }
+    }
+
+    @Override
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
+        T obj = get(xOld, yOld);
+        if(obj == null){
+            throw new Exception("Couldn't move element, position " + xOld + ", " + yOld + " is empty");
+        }
+        if(exist(xNew, yNew) || getU(xNew) < 0 || getV(yNew) < 0){
+            throw new Exception("Couldn't move element to " + xNew + ", " + yNew);
+        }
+        remove(xOld, yOld);
+        insert(obj, xNew, yNew);
+    }
+
+    @Override
+    public HashSet<T> values(){
+        HashSet<T> ret = new HashSet<>();
+        for(int i = 0; i < leafCount; ++i){
+            if(data[i] != null){
+                ret.add((T) data[i]);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Visits all elements in the order of the leaf array
+     * @param visitor will be called for each element
+     */
+    @Override
+    public void forEach(Consumer<? super T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        for(int i = 0; i < leafCount; ++i){
+            if(data[i] != null){
+                visitor.accept((T) data[i]);
+            }
+        }
+    }
+
+    /**
+     * Visits all elements inside a rectangular region, nodes outside of the
+     * region will be skipped
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @param visitor will be called for each element in the region
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        if(size == 0 || xMin > xMax || yMin > yMax){
+            return;
+        }
+        // region relative to the root
+        final long uMin = xMin - baseX, uMax = xMax - baseX;
+        final long vMin = yMin - baseY, vMax = yMax - baseY;
+
+        // each node on the path pushes at most 4 children
+        int[] stack = new int[4 * (ROOT_LEVEL + 2)];
+        int top = 0;
+        stack[top++] = ROOT;
+        while(top > 0){
+            final int node = stack[--top];
+            for(int i = 4 * node; i < 4 * node + 4; ++i){
+                final int child = children[i];
+                if(child > 0){
+                    final int n = child - 1;
+                    final long length = 2L << nodeLevel[n];
+                    if(nodeU[n] <= uMax && nodeU[n] + length > uMin
+                            && nodeV[n] <= vMax && nodeV[n] + length > vMin){
+                        stack[top++] = n;
+                    }
+                } else if(child < 0){
+                    final int leaf = ~child;
+                    if(leafX[leaf] >= xMin && leafX[leaf] <= xMax
+                            && leafY[leaf] >= yMin && leafY[leaf] <= yMax){
+                        visitor.accept((T) data[leaf]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the elements closest to a position inside of a rectangular region
+     * (best-first search, nodes are ordered by the distance to their area)
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin min x coordinate of the region (inclusive)
+     * @param yMin min y coordinate of the region (inclusive)
+     * @param xMax max x coordinate of the region (inclusive)
+     * @param yMax max y coordinate of the region (inclusive)
+     * @param filter elements will be skipped, if it returns false, may be null
+     * @return up to k elements, closest first
+     */
+    @Override
+    public List<T> nearest(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter){
+        NearestSearch<T, Integer> search = new NearestSearch<>(x, y, k, xMin, yMin, xMax, yMax, filter);
+        if(size > 0){
+            search.addNode(ROOT, 0);
+        }
+        Integer node;
+        while((node = search.next()) != null){
+            for(int i = 4 * node; i < 4 * node + 4; ++i){
+                final int child = children[i];
+                if(child > 0){
+                    final int n = child - 1;
+                    final long length = 2L << nodeLevel[n];
+                    search.addNode(n, baseX + nodeU[n], baseY + nodeV[n],
+                            baseX + nodeU[n] + length - 1, baseY + nodeV[n] + length - 1);
+                } else if(child < 0){
+                    search.addElement((T) data[~child], leafX[~child], leafY[~child]);
+                }
+            }
+        }
+        return search.getResult();
+    }
+
+    /**
+     * Gets an iterator over the elements in the order of the leaf array.
+     * It must not be used after the quadtree was modified
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            int next = advance(0);
+
+            private int advance(int i){
+                while(i < leafCount && data[i] == null){
+                    ++i;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < leafCount;
+            }
+
+            @Override
+            public T next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                T ret = (T) data[next];
+                next = advance(next + 1);
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Gets the number of nodes in use (for tests)
+     * @return number of nodes
+     */
+    int getNodeCount(){
+        int free = 0;
+        for(int node = nodeFree; node != NONE; node = children[4 * node]){
+            ++free;
+        }
+        return nodeCount - free;
+    }
+
+    /**
+     * Gets a String that represents the tree structure in the format of
+     * Quadtree.toString()
+     * @return
+     */
+    @Override
+    public String toString(){
+        if(!hasRoot){
+            return "root: {null}";
+        }
+        return "root: " + toString(ROOT);
+    }
+
+    /**
+     * Gets a String that represents a node
+     * @param node node index
+     * @return
+     */
+    private String toString(int node){
+        final long length = 1L << nodeLevel[node];
+        StringBuilder builder = new StringBuilder();
+        builder.append("{(").append(baseX + nodeU[node] + length - 1).append(", ")
+                .append(baseY + nodeV[node] + length - 1).append(", ").append(length).append(")");
+        final String[] names = {"NW", "NE", "SW", "SE"};
+        for(int i = 0; i < 4; ++i){
+            builder.append(", ").append(names[i]).append(": ");
+            int child = children[4 * node + i];
+            if(child == EMPTY){
+                builder.append("null");
+            } else if(child > 0){
+                builder.append(toString(child - 1));
+            } else {
+                builder.append("\"").append(data[~child].toString()).append("\"");
+            }
+        }
+        return builder.append("}").toString();
+    }
+
+}
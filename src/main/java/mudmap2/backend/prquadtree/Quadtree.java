@@ -22,20 +22,44 @@
 
 package mudmap2.backend.prquadtree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import mudmap2.backend.spatialindex.NearestSearch;
+import mudmap2.backend.spatialindex.SpatialIndex;
 
 /**
  * A point-region quadtree
  * @author Neop
  * @param <T> element class type
  */
-public class Quadtree<T> {
+public class Quadtree<T> implements SpatialIndex<T> {
 
     /// NOTE: increase the last parameter to support larger maps (is already max for int)
     private static final int DEFAULT_LENGTH = 1 << 30;
+    private static final int DEFAULT_LEVEL = 30; // DEFAULT_LENGTH == 1 << DEFAULT_LEVEL
+
+    // insertAll inserts one by one, if a non-empty quadtree is this many
+    // times larger than the number of new elements
+    private static final int BULK_LOAD_MIN_RATIO = 8;
+    private static final int SORT_RADIX_BITS = 11;
+    private static final int SORT_RADIX_MASK = (1 << SORT_RADIX_BITS) - 1;
 
     private QuadtreeNode root;
 
+    // reverse index: element data -> leaf, for contains and remove by object
+    private final IdentityHashMap<T, QuadtreeLeaf<T>> leafIndex = new IdentityHashMap<>();
+
     /** Constructs a quadtree */
     public Quadtree(){
         root = null;
@@ -56,17 +80,27 @@ public class Quadtree<T> {
      * @param y
      * @return element data or null
      */
+    @Override
     public T get(int x, int y){
-        if(root == null){
+        QuadtreeLeaf<T> leaf = getLeaf(x, y);
+        if(leaf == null){
             return null;
+        } else {
+            return leaf.getData();
         }
+    }
 
-        QuadtreeElement ret = root.get(x, y);
-        if(ret == null){
+    /**
+     * Gets the leaf at position x, y
+     * @param x
+     * @param y
+     * @return leaf or null
+     */
+    private QuadtreeLeaf<T> getLeaf(int x, int y){
+        if(root == null){
             return null;
-        } else {
-            return ((QuadtreeLeaf<T>) ret).getData();
         }
+        return (QuadtreeLeaf<T>) root.get(x, y);
     }
 
     /**
@@ -75,6 +109,7 @@ public class Quadtree<T> {
      * @param y
      * @return
      */
+    @Override
     public boolean exist(int x, int y){
         if(root == null){
             return false;
@@ -82,6 +117,7 @@ public class Quadtree<T> {
         return root.get(x, y) != null;
     }
 
+    @Override
     public boolean isEmpty(){
         if(root == null){
             return true;
@@ -90,27 +126,327 @@ public class Quadtree<T> {
         }
     }
 
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    @Override
+    public int size(){
+        if(root == null){
+            return 0;
+        }
+        return root.getCount();
+    }
+
+    /**
+     * Gets the min x coordinate of all elements
+     * @return min x coordinate or 0 if the quadtree is empty
+     */
+    @Override
+    public int getXMin(){
+        return isEmpty() ? 0 : root.getXMin();
+    }
+
+    /**
+     * Gets the max x coordinate of all elements
+     * @return max x coordinate or 0 if the quadtree is empty
+     */
+    @Override
+    public int getXMax(){
+        return isEmpty() ? 0 : root.getXMax();
+    }
+
+    /**
+     * Gets the min y coordinate of all elements
+     * @return min y coordinate or 0 if the quadtree is empty
+     */
+    @Override
+    public int getYMin(){
+        return isEmpty() ? 0 : root.getYMin();
+    }
+
+    /**
+     * Gets the max y coordinate of all elements
+     * @return max y coordinate or 0 if the quadtree is empty
+     */
+    @Override
+    public int getYMax(){
+        return isEmpty() ? 0 : root.getYMax();
+    }
+
     /**
      * Inserts obj at x, y
      * @param obj
      * @param x
      * @param y
-     * @throws Exception throws an exception, if the element couldn't be inserted
+     * @throws Exception throws an exception, if the element couldn't be
+     * inserted, if the position is occupied or if obj is already in the
+     * quadtree
      */
+    @Override
     public void insert(T obj, int x, int y) throws Exception{
+        if(obj != null && leafIndex.containsKey(obj)){
+            throw new Exception("Element is already in the quadtree");
+        }
         if(root == null){
             root = new QuadtreeNode(null, x, y, DEFAULT_LENGTH);
+        } else if(root.get(x, y) != null){
+            throw new Exception("Position " + x + ", " + y + " is occupied");
+        }
+        QuadtreeLeaf<T> leaf = new QuadtreeLeaf<>(obj, x, y);
+        root.insert(leaf);
+        if(obj != null){
+            leafIndex.put(obj, leaf);
         }
-        root.insert(new QuadtreeLeaf(obj, x, y));
     }
 
     /**
-     * Removes el from the quadtree
-     * @param el
-     * @throws Exception throws an exception, if e couldn't be removed
+     * Inserts many elements at once. Large sets are sorted in Morton order
+     * (Z-order) and the tree is built bottom-up in one pass, which results in
+     * the same tree as inserting the elements one by one. Nothing will be
+     * inserted, if one of the elements can't be inserted
+     * @param objects elements to insert
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     * @throws Exception if a position is occupied, outside of the quadtree
+     * or an element is already in the quadtree
      */
-    private void remove(QuadtreeElement el) throws Exception {
-        el.remove();
+    @Override
+    public void insertAll(Collection<? extends T> objects, ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction) throws Exception {
+        if(objects.isEmpty()){
+            return;
+        }
+
+        // check elements, create their leafs and add them to the index
+        ArrayList<QuadtreeLeaf<T>> newLeafs = new ArrayList<>(objects.size());
+        try {
+            for(T obj: objects){
+                if(obj == null){
+                    throw new NullPointerException();
+                }
+                QuadtreeLeaf<T> leaf = new QuadtreeLeaf<>(obj, xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+                if(leafIndex.putIfAbsent(obj, leaf) != null){
+                    throw new Exception("Element is already in the quadtree");
+                }
+                newLeafs.add(leaf);
+            }
+
+            if(root != null && size() > (BULK_LOAD_MIN_RATIO + 1) * newLeafs.size()){
+                // few new elements: insert one by one, check positions first
+                HashSet<Long> positions = new HashSet<>();
+                for(QuadtreeLeaf<T> leaf: newLeafs){
+                    if(root.get(leaf.getX(), leaf.getY()) != null
+                            || !positions.add(((long) leaf.getX() << 32) | (leaf.getY() & 0xffffffffL))){
+                        throw new Exception("Position " + leaf.getX() + ", " + leaf.getY() + " is occupied");
+                    }
+                }
+                for(QuadtreeLeaf<T> leaf: newLeafs){
+                    root.insert(leaf);
+                }
+            } else {
+                bulkLoad();
+            }
+        } catch (Exception ex) {
+            // remove the new elements from the index
+            for(QuadtreeLeaf<T> leaf: newLeafs){
+                leafIndex.remove(leaf.getData());
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Rebuilds the tree from all leafs in the index, the tree won't be
+     * changed on failure
+     * @throws Exception if a position is occupied or outside of the quadtree
+     */
+    private void bulkLoad() throws Exception {
+        int count = leafIndex.size();
+        QuadtreeLeaf<T>[] leafs = leafIndex.values().toArray(new QuadtreeLeaf[count]);
+
+        // keep the center of an existing root, else use the bounding box center
+        int centerX, centerY;
+        if(root != null){
+            centerX = root.getX();
+            centerY = root.getY();
+        } else {
+            long xMin = Long.MAX_VALUE, xMax = Long.MIN_VALUE, yMin = Long.MAX_VALUE, yMax = Long.MIN_VALUE;
+            for(QuadtreeLeaf<T> leaf: leafs){
+                xMin = Math.min(xMin, leaf.getX());
+                xMax = Math.max(xMax, leaf.getX());
+                yMin = Math.min(yMin, leaf.getY());
+                yMax = Math.max(yMax, leaf.getY());
+            }
+            centerX = (int) ((xMin + xMax) / 2);
+            centerY = (int) ((yMin + yMax) / 2);
+        }
+
+        // position relative to the lower corner of the root node
+        final long baseX = (long) centerX - DEFAULT_LENGTH + 1;
+        final long baseY = (long) centerY - DEFAULT_LENGTH + 1;
+        final long range = 2L * DEFAULT_LENGTH;
+
+        long[] codes = new long[count];
+        for(int i = 0; i < count; ++i){
+            long u = leafs[i].getX() - baseX;
+            long v = leafs[i].getY() - baseY;
+            if(u < 0 || u >= range || v < 0 || v >= range){
+                throw new Exception("Position " + leafs[i].getX() + ", " + leafs[i].getY() + " is outside of the quadtree");
+            }
+            codes[i] = getMortonCode(u, v);
+        }
+        sortByCode(codes, leafs);
+
+        for(int i = 1; i < count; ++i){
+            if(codes[i] == codes[i - 1]){
+                throw new Exception("Position " + leafs[i].getX() + ", " + leafs[i].getY() + " is occupied");
+            }
+        }
+
+        // build the tree along the sorted leafs, the stack contains the
+        // nodes on the path from the root to the previous leaf
+        QuadtreeNode<T> newRoot = new QuadtreeNode<>(null, centerX, centerY, DEFAULT_LENGTH);
+        QuadtreeNode<T>[] stack = new QuadtreeNode[DEFAULT_LEVEL + 2];
+        int[] stackLevels = new int[DEFAULT_LEVEL + 2];
+        int top = 0;
+        stack[0] = newRoot;
+        stackLevels[0] = DEFAULT_LEVEL;
+
+        for(int i = 0; i < count; ++i){
+            QuadtreeLeaf<T> leaf = leafs[i];
+            long u = leaf.getX() - baseX;
+            long v = leaf.getY() - baseY;
+
+            if(i == 0){
+                setChild(newRoot, getChildNum(u, v, DEFAULT_LEVEL), leaf);
+                continue;
+            }
+
+            // level at which the leaf and its predecessor are separated
+            int level = (63 - Long.numberOfLeadingZeros(codes[i] ^ codes[i - 1])) / 2;
+            // close the nodes below that level
+            while(stackLevels[top] < level){
+                --top;
+            }
+
+            QuadtreeNode<T> node = stack[top];
+            if(stackLevels[top] == level){
+                setChild(node, getChildNum(u, v, level), leaf);
+            } else {
+                // create a node between the stack top and the predecessor's subtree
+                long uPrev = leafs[i - 1].getX() - baseX;
+                long vPrev = leafs[i - 1].getY() - baseY;
+                int childnum = getChildNum(u, v, stackLevels[top]);
+                long mask = ~((1L << (level + 1)) - 1);
+                QuadtreeNode<T> newnode = new QuadtreeNode<>(node,
+                        (int) (baseX + (u & mask) + (1L << level) - 1),
+                        (int) (baseY + (v & mask) + (1L << level) - 1),
+                        1 << level);
+                setChild(newnode, getChildNum(uPrev, vPrev, level), node.elements[childnum]);
+                setChild(newnode, getChildNum(u, v, level), leaf);
+                setChild(node, childnum, newnode);
+
+                ++top;
+                stack[top] = newnode;
+                stackLevels[top] = level;
+            }
+        }
+
+        newRoot.updateStatisticsRecursive();
+        root = newRoot;
+    }
+
+    /**
+     * Sets the child of a node
+     * @param node parent node
+     * @param childnum child index
+     * @param child new child
+     */
+    private void setChild(QuadtreeNode<T> node, int childnum, QuadtreeElement<T> child){
+        node.elements[childnum] = child;
+        child.setParent(node);
+    }
+
+    /**
+     * Gets the child index of a position relative to the lower root corner
+     * in a node of a level (length 2^level)
+     * @param u x position relative to the lower root corner
+     * @param v y position relative to the lower root corner
+     * @param level node level
+     * @return child index
+     */
+    private static int getChildNum(long u, long v, int level){
+        return (int) (((u >> level) & 1) | (((v >> level) & 1) << 1));
+    }
+
+    /**
+     * Interleaves the bits of u and v (v on odd bits), so that the children
+     * of each node are ordered like their indices
+     * @param u x position relative to the lower root corner (31 bit)
+     * @param v y position relative to the lower root corner (31 bit)
+     * @return Morton code
+     */
+    private static long getMortonCode(long u, long v){
+        return spreadBits(u) | (spreadBits(v) << 1);
+    }
+
+    /**
+     * Spreads the lower 32 bits of value to the even bits
+     * @param value
+     * @return
+     */
+    private static long spreadBits(long value){
+        value &= 0xffffffffL;
+        value = (value | (value << 16)) & 0x0000ffff0000ffffL;
+        value = (value | (value << 8)) & 0x00ff00ff00ff00ffL;
+        value = (value | (value << 4)) & 0x0f0f0f0f0f0f0f0fL;
+        value = (value | (value << 2)) & 0x3333333333333333L;
+        value = (value | (value << 1)) & 0x5555555555555555L;
+        return value;
+    }
+
+    /**
+     * Sorts codes and leafs by codes (LSD radix sort), only the bits that
+     * differ between the codes are sorted
+     * @param codes sort keys
+     * @param leafs will be sorted like codes
+     */
+    private static void sortByCode(long[] codes, Object[] leafs){
+        final int count = codes.length;
+        long diff = 0;
+        for(int i = 1; i < count; ++i){
+            diff |= codes[i] ^ codes[0];
+        }
+        final int bits = 64 - Long.numberOfLeadingZeros(diff);
+
+        long[] codesTmp = new long[count];
+        Object[] leafsTmp = new Object[count];
+        int[] buckets = new int[1 << SORT_RADIX_BITS];
+        for(int shift = 0; shift < bits; shift += SORT_RADIX_BITS){
+            Arrays.fill(buckets, 0);
+            for(int i = 0; i < count; ++i){
+                ++buckets[(int) (codes[i] >>> shift) & SORT_RADIX_MASK];
+            }
+            int sum = 0;
+            for(int b = 0; b < buckets.length; ++b){
+                int n = buckets[b];
+                buckets[b] = sum;
+                sum += n;
+            }
+            for(int i = 0; i < count; ++i){
+                int pos = buckets[(int) (codes[i] >>> shift) & SORT_RADIX_MASK]++;
+                codesTmp[pos] = codes[i];
+                leafsTmp[pos] = leafs[i];
+            }
+
+            long[] c = codes; codes = codesTmp; codesTmp = c;
+            Object[] l = leafs; leafs = leafsTmp; leafsTmp = l;
+        }
+        // copy back, if the result is in the temporary arrays
+        if(((bits + SORT_RADIX_BITS - 1) / SORT_RADIX_BITS) % 2 == 1){
+            System.arraycopy(codes, 0, codesTmp, 0, count);
+            System.arraycopy(leafs, 0, leafsTmp, 0, count);
+        }
     }
 
     /**
@@ -118,19 +454,24 @@ public class Quadtree<T> {
      * @param x
      * @param y
      */
+    @Override
     public void remove(int x, int y){
-        if(root != null) {
-            root.remove(x, y);
+        QuadtreeLeaf<T> leaf = getLeaf(x, y);
+        if(leaf != null) {
+            leafIndex.remove(leaf.getData());
+            leaf.remove();
         }
     }
 
     /**
-     * Removes all elements that contain object
+     * Removes the element that contains object
      * @param object
      */
+    @Override
     public void remove(T object){
-        if(root != null) {
-            root.remove(object);
+        QuadtreeLeaf<T> leaf = leafIndex.remove(object);
+        if(leaf != null) {
+            leaf.remove();
         }
     }
 
@@ -142,6 +483,7 @@ public class Quadtree<T> {
      * @param yNew new y coordinate
      * @throws Exception Throws an exception, if the element couldn'T be moved
      */
+    @Override
     public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
         if(root == null){
             throw new Exception("Couldn't move element, quadtree is empty");
@@ -155,6 +497,7 @@ public class Quadtree<T> {
      * Gets the data of all elements
      * @return
      */
+    @Override
     public HashSet<T> values(){
         HashSet<T> ret = new HashSet<>();
         if(root != null){
@@ -163,6 +506,94 @@ public class Quadtree<T> {
         return ret;
     }
 
+    /**
+     * Visits the data of all elements (depth-first) without copying them
+     * into a collection. The quadtree must not be modified by the visitor
+     * @param visitor will be called for each element data
+     */
+    @Override
+    public void forEach(Consumer<? super T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        if(root != null){
+            root.forEach(visitor);
+        }
+    }
+
+    /**
+     * Gets a depth-first iterator over the element data. The iterator walks
+     * the live tree, it must not be used after the quadtree was modified
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return new QuadtreeIterator();
+    }
+
+    /**
+     * Gets a spliterator over the live element data
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<T> spliterator(){
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Visits the data of all elements inside a rectangular region, subtrees
+     * outside of the region will be skipped
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @param visitor will be called for each element data in the region
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        if(root != null && xMin <= xMax && yMin <= yMax){
+            root.query(xMin, yMin, xMax, yMax, visitor);
+        }
+    }
+
+    /**
+     * Gets the elements closest to a position inside of a rectangular region
+     * (best-first search, nodes are ordered by the distance to their
+     * bounding box)
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin min x coordinate of the region (inclusive)
+     * @param yMin min y coordinate of the region (inclusive)
+     * @param xMax max x coordinate of the region (inclusive)
+     * @param yMax max y coordinate of the region (inclusive)
+     * @param filter elements will be skipped, if it returns false, may be null
+     * @return up to k elements, closest first
+     */
+    @Override
+    public List<T> nearest(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter){
+        NearestSearch<T, QuadtreeNode<T>> search = new NearestSearch<>(x, y, k, xMin, yMin, xMax, yMax, filter);
+        if(root != null && !root.isEmpty()){
+            search.addNode(root, root.getXMin(), root.getYMin(), root.getXMax(), root.getYMax());
+        }
+        QuadtreeNode<T> node;
+        while((node = search.next()) != null){
+            for(QuadtreeElement<T> child: node.elements){
+                if(child instanceof QuadtreeNode){
+                    if(!child.isEmpty()){
+                        search.addNode((QuadtreeNode<T>) child, child.getXMin(), child.getYMin(), child.getXMax(), child.getYMax());
+                    }
+                } else if(child != null && !child.isEmpty()){
+                    search.addElement(((QuadtreeLeaf<T>) child).getData(), child.getX(), child.getY());
+                }
+            }
+        }
+        return search.getResult();
+    }
+
     /**
      * Gets a String that represents the tree structure
      * @return
@@ -181,8 +612,9 @@ public class Quadtree<T> {
      * @param object
      * @return
      */
+    @Override
     public boolean contains(T object){
-        return (root != null && root.contains(object));
+        return leafIndex.containsKey(object);
     }
 
     /**
@@ -211,19 +643,42 @@ public class Quadtree<T> {
         /** removes the node from the quadtree */
         public void remove();
 
-        public void remove(T object);
-
         /**
          * Gets the element data of each child
          * @param set element data will be inserted in this set
          */
         public void values(HashSet<T> set);
 
+        /**
+         * Visits the element data of each child
+         * @param visitor will be called for each element data
+         */
+        public void forEach(Consumer<? super T> visitor);
+
+        /**
+         * Visits the element data of each child inside a region
+         * @param xMin min x coordinate (inclusive)
+         * @param yMin min y coordinate (inclusive)
+         * @param xMax max x coordinate (inclusive)
+         * @param yMax max y coordinate (inclusive)
+         * @param visitor will be called for each element data in the region
+         */
+        public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor);
+
         /** checks whether the element is empty */
         public boolean isEmpty();
 
-        /** checks whether the element or one of its children contains object*/
-        public boolean contains(T object);
+        /** gets the number of elements with data in this subtree */
+        public int getCount();
+
+        /** gets the min x coordinate of the elements in this subtree */
+        public int getXMin();
+        /** gets the max x coordinate of the elements in this subtree */
+        public int getXMax();
+        /** gets the min y coordinate of the elements in this subtree */
+        public int getYMin();
+        /** gets the max y coordinate of the elements in this subtree */
+        public int getYMax();
     }
 
     /**
@@ -238,6 +693,11 @@ public class Quadtree<T> {
         final int x, y;
         private final QuadtreeElement<T> elements[] = new QuadtreeElement[4];
 
+        // number of elements and bounding box of this subtree
+        int count = 0;
+        int xMin = Integer.MAX_VALUE, xMax = Integer.MIN_VALUE;
+        int yMin = Integer.MAX_VALUE, yMax = Integer.MIN_VALUE;
+
         // fake enum (no not-static enums in Java?)
         private static final int NW = 0, NE = 1, SW = 2, SE = 3;
 
@@ -327,8 +787,20 @@ public class Quadtree<T> {
          */
         public void insert(QuadtreeElement<T> newelement) throws Exception{
             int childnum = getChildNum(newelement.getX(), newelement.getY());
+            if(childnum == -1){
+                throw new Exception("Position is outside of the quadtree node");
+            }
             QuadtreeElement<T> predecessor = elements[childnum];
 
+            // update count and bounding box
+            if(!newelement.isEmpty()){
+                count += newelement.getCount();
+                xMin = Math.min(xMin, newelement.getXMin());
+                xMax = Math.max(xMax, newelement.getXMax());
+                yMin = Math.min(yMin, newelement.getYMin());
+                yMax = Math.max(yMax, newelement.getYMax());
+            }
+
             if(predecessor != null){ // child node exists
                 // child node is a node and newelement's position is in that node
                 if(predecessor instanceof QuadtreeNode &&
@@ -386,32 +858,55 @@ public class Quadtree<T> {
                 ((QuadtreeNode) elements[id]).remove(element);
             }
 
+            updateStatistics();
             if(isEmpty()){
                 remove();
+            } else if(parent != null){
+                ((QuadtreeNode<T>) parent).updateStatisticsUpwards();
             }
         }
 
         /**
-         * Remove elements by reference of wrapped object
-         * @param object wrapped object
+         * Recalculates the count and bounding box from the children
          */
-        @Override
-        public void remove(T object){
+        private void updateStatistics(){
+            count = 0;
+            xMin = yMin = Integer.MAX_VALUE;
+            xMax = yMax = Integer.MIN_VALUE;
             for(int i = 0; i < 4; ++i){
-                if(elements[i] != null){
-                    elements[i].remove(object);
+                if(elements[i] != null && !elements[i].isEmpty()){
+                    count += elements[i].getCount();
+                    xMin = Math.min(xMin, elements[i].getXMin());
+                    xMax = Math.max(xMax, elements[i].getXMax());
+                    yMin = Math.min(yMin, elements[i].getYMin());
+                    yMax = Math.max(yMax, elements[i].getYMax());
                 }
             }
         }
 
         /**
-         * Remove by coordinate
-         * @param x
-         * @param y
+         * Recalculates the count and bounding box of this node and all nodes
+         * below it
          */
-        public void remove(int x, int y){
-            QuadtreeElement el = get(x, y);
-            if(el != null) el.remove();
+        private void updateStatisticsRecursive(){
+            for(int i = 0; i < 4; ++i){
+                if(elements[i] instanceof QuadtreeNode){
+                    ((QuadtreeNode<T>) elements[i]).updateStatisticsRecursive();
+                }
+            }
+            updateStatistics();
+        }
+
+        /**
+         * Recalculates the count and bounding box of this node and its
+         * ancestors
+         */
+        private void updateStatisticsUpwards(){
+            QuadtreeNode<T> node = this;
+            while(node != null){
+                node.updateStatistics();
+                node = (QuadtreeNode<T>) node.parent;
+            }
         }
 
         /**
@@ -469,12 +964,32 @@ public class Quadtree<T> {
          */
         @Override
         public boolean isEmpty() {
-            for(int i = 0; i < 4; ++i){
-                if(elements[i] != null && !elements[i].isEmpty()){
-                    return false;
-                }
-            }
-            return true;
+            return count == 0;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public int getXMin() {
+            return xMin;
+        }
+
+        @Override
+        public int getXMax() {
+            return xMax;
+        }
+
+        @Override
+        public int getYMin() {
+            return yMin;
+        }
+
+        @Override
+        public int getYMax() {
+            return yMax;
         }
 
         /**
@@ -503,17 +1018,43 @@ public class Quadtree<T> {
         }
 
         /**
-         * Checks whether the element or one of its children contains object
-         * @param object
-         * @return
+         * Visits the element data of the children
+         * @param visitor will be called for each element data
          */
         @Override
-        public boolean contains(T object) {
-            if(elements[NE] != null && elements[NE].contains(object)) return true;
-            else if(elements[NW] != null && elements[NW].contains(object)) return true;
-            else if(elements[SE] != null && elements[SE].contains(object)) return true;
-            else if(elements[SW] != null && elements[SW].contains(object)) return true;
-            return false;
+        public void forEach(Consumer<? super T> visitor) {
+            for(int i = 0; i < 4; ++i){
+                if(elements[i] != null){
+                    elements[i].forEach(visitor);
+                }
+            }
+        }
+
+        /**
+         * Visits the element data of the children inside a region, skips
+         * quadrants that don't intersect with the region
+         * @param xMin min x coordinate (inclusive)
+         * @param yMin min y coordinate (inclusive)
+         * @param xMax max x coordinate (inclusive)
+         * @param yMax max y coordinate (inclusive)
+         * @param visitor will be called for each element data in the region
+         */
+        @Override
+        public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor) {
+            // check whether the region intersects with the bounding box
+            // (also skips empty nodes)
+            if(count == 0 || xMax < this.xMin || xMin > this.xMax ||
+               yMax < this.yMin || yMin > this.yMax){
+                return;
+            }
+
+            final boolean west = xMin <= x, east = xMax > x;
+            final boolean north = yMin <= y, south = yMax > y;
+
+            if(west && north && elements[NW] != null) elements[NW].query(xMin, yMin, xMax, yMax, visitor);
+            if(east && north && elements[NE] != null) elements[NE].query(xMin, yMin, xMax, yMax, visitor);
+            if(west && south && elements[SW] != null) elements[SW].query(xMin, yMin, xMax, yMax, visitor);
+            if(east && south && elements[SE] != null) elements[SE].query(xMin, yMin, xMax, yMax, visitor);
         }
     }
 
@@ -576,17 +1117,6 @@ public class Quadtree<T> {
             ((QuadtreeNode<T>) parent).remove(this);
         }
 
-        /**
-         * Removes the element if it wraps object
-         * @param object object to check for
-         */
-        @Override
-        public void remove(T object){
-            if(data == object){
-                remove();
-            }
-        }
-
         /**
          * Gets the parent node
          * @return
@@ -614,6 +1144,31 @@ public class Quadtree<T> {
             return data == null;
         }
 
+        @Override
+        public int getCount() {
+            return data == null ? 0 : 1;
+        }
+
+        @Override
+        public int getXMin() {
+            return x;
+        }
+
+        @Override
+        public int getXMax() {
+            return x;
+        }
+
+        @Override
+        public int getYMin() {
+            return y;
+        }
+
+        @Override
+        public int getYMax() {
+            return y;
+        }
+
         /**
          * Gets the element data as a String
          * @return
@@ -649,13 +1204,115 @@ public class Quadtree<T> {
         }
 
         /**
-         * Checks whether the element contains object
-         * @param object
-         * @return
+         * Visits the element data
+         * @param visitor will be called for the element data
+         */
+        @Override
+        public void forEach(Consumer<? super T> visitor) {
+            if(data != null){
+                visitor.accept(data);
+            }
+        }
+
+        /**
+         * Visits the element data if it is inside the region
+         * @param xMin min x coordinate (inclusive)
+         * @param yMin min y coordinate (inclusive)
+         * @param xMax max x coordinate (inclusive)
+         * @param yMax max y coordinate (inclusive)
+         * @param visitor will be called for the element data
          */
         @Override
-        public boolean contains(T object) {
-            return data == object;
+        public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor) {
+            if(data != null && x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                visitor.accept(data);
+            }
+        }
+    }
+
+    /**
+     * A depth-first iterator that walks the tree by its parent references,
+     * so it doesn't need a stack or a copy of the element data
+     */
+    private class QuadtreeIterator implements Iterator<T> {
+
+        private QuadtreeLeaf<T> next;
+
+        public QuadtreeIterator(){
+            next = (root != null) ? findLeaf(root, false) : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if(next == null){
+                throw new NoSuchElementException();
+            }
+            QuadtreeLeaf<T> ret = next;
+            next = findLeaf(ret, true);
+            return ret.getData();
+        }
+
+        /**
+         * Finds the next leaf with data in depth-first order
+         * @param element element to start from
+         * @param visited true, if element's subtree was visited already
+         * @return next leaf or null
+         */
+        private QuadtreeLeaf<T> findLeaf(QuadtreeElement<T> element, boolean visited){
+            while(element != null){
+                if(!visited){
+                    if(element instanceof QuadtreeLeaf){
+                        if(!element.isEmpty()){
+                            return (QuadtreeLeaf<T>) element;
+                        }
+                    } else {
+                        // descend to the first child
+                        QuadtreeElement<T> child = getChild((QuadtreeNode<T>) element, 0);
+                        if(child != null){
+                            element = child;
+                            continue;
+                        }
+                    }
+                }
+
+                // go to the next sibling or up to the parent
+                QuadtreeNode<T> parent = (QuadtreeNode<T>) element.getParent();
+                if(parent == null){
+                    return null;
+                }
+                int id = 0;
+                while(parent.elements[id] != element) ++id;
+
+                QuadtreeElement<T> sibling = getChild(parent, id + 1);
+                if(sibling != null){
+                    element = sibling;
+                    visited = false;
+                } else {
+                    element = parent;
+                    visited = true;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the first child of node, starting at index start
+         * @param node
+         * @param start first child index to check
+         * @return child or null
+         */
+        private QuadtreeElement<T> getChild(QuadtreeNode<T> node, int start){
+            for(int i = start; i < 4; ++i){
+                if(node.elements[i] != null){
+                    return node.elements[i];
+                }
+            }
+            return null;
         }
     }
 }
@@ -0,0 +1,584 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A hash map from positions to elements with open addressing (linear probing).
+ * The position is packed into a long key, keys and elements are stored in two
+ * arrays, so there is no object per element. Elements must not change their
+ * position (as returned by the position functions) while they are in the grid
+ * @author neop
+ * @param <T> element class type
+ */
+public class HashGrid<T> implements SpatialIndex<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    // the table will be resized, if it is filled more than 1 / 2
+    private static final int MAX_FILL_SHIFT = 1;
+
+    final ToIntFunction<? super T> xFunction;
+    final ToIntFunction<? super T> yFunction;
+
+    // a slot is empty, if its element is null
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+    // 64 - log2(capacity), for the hash function
+    private int shift;
+
+    // bounding box, will be recalculated, if an element on the border was removed
+    private int xMin, xMax, yMin, yMax;
+    private boolean boundsValid = true;
+
+    /**
+     * Constructs a hash grid
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     */
+    public HashGrid(ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction){
+        if(xFunction == null || yFunction == null){
+            throw new NullPointerException();
+        }
+        this.xFunction = xFunction;
+        this.yFunction = yFunction;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Packs a position into a key
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return key
+     */
+    private static long getKey(int x, int y){
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Gets the first slot to probe for a key (Fibonacci hashing)
+     * @param key
+     * @return slot index
+     */
+    private int getSlot(long key){
+        return (int) ((key * 0x9e3779b97f4a7c15L) >>> shift);
+    }
+
+    /**
+     * Gets the slot of a key
+     * @param key
+     * @return slot index or -1, if not found
+     */
+    private int find(long key){
+        final int mask = keys.length - 1;
+        for(int i = getSlot(key); values[i] != null; i = (i + 1) & mask){
+            if(keys[i] == key){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates new empty arrays
+     * @param capacity power of two
+     */
+    private void allocate(int capacity){
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Resizes the arrays, if they can't store count elements
+     * @param count number of elements
+     */
+    private void ensureCapacity(int count){
+        if(count <= (keys.length >> MAX_FILL_SHIFT)){
+            return;
+        }
+        int capacity = keys.length;
+        while(count > (capacity >> MAX_FILL_SHIFT)){
+            capacity <<= 1;
+        }
+
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        final int mask = capacity - 1;
+        for(int i = 0; i < oldKeys.length; ++i){
+            if(oldValues[i] != null){
+                int slot = getSlot(oldKeys[i]);
+                while(values[slot] != null){
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the element at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return element or null
+     */
+    @Override
+    public T get(int x, int y){
+        int slot = find(getKey(x, y));
+        return slot < 0 ? null : (T) values[slot];
+    }
+
+    /**
+     * Checks whether there is an element at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true, if a position is occupied
+     */
+    @Override
+    public boolean exist(int x, int y){
+        return find(getKey(x, y)) >= 0;
+    }
+
+    /**
+     * Checks whether the grid contains an element, the element is searched
+     * at its current position
+     * @param object element
+     * @return true, if the element was inserted
+     */
+    @Override
+    public boolean contains(T object){
+        return object != null && get(xFunction.applyAsInt(object), yFunction.applyAsInt(object)) == object;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public int getXMin(){
+        updateBounds();
+        return xMin;
+    }
+
+    @Override
+    public int getXMax(){
+        updateBounds();
+        return xMax;
+    }
+
+    @Override
+    public int getYMin(){
+        updateBounds();
+        return yMin;
+    }
+
+    @Override
+    public int getYMax(){
+        updateBounds();
+        return yMax;
+    }
+
+    /**
+     * Recalculates the bounding box, if necessary
+     */
+    private void updateBounds(){
+        if(boundsValid){
+            return;
+        }
+        xMin = yMin = Integer.MAX_VALUE;
+        xMax = yMax = Integer.MIN_VALUE;
+        for(int i = 0; i < keys.length; ++i){
+            if(values[i] != null){
+                extendBounds((int) (keys[i] >> 32), (int) keys[i]);
+            }
+        }
+        if(size == 0){
+            xMin = xMax = yMin = yMax = 0;
+        }
+        boundsValid = true;
+    }
+
+    /**
+     * Extends the bounding box by a position
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    private void extendBounds(int x, int y){
+        xMin = Math.min(xMin, x);
+        xMax = Math.max(xMax, x);
+        yMin = Math.min(yMin, y);
+        yMax = Math.max(yMax, y);
+    }
+
+    /**
+     * Inserts an element
+     * @param obj element
+     * @param x x coordinate, has to be the same as the one of xFunction
+     * @param y y coordinate, has to be the same as the one of yFunction
+     * @throws Exception if the position is occupied or the element was
+     * already inserted
+     */
+    @Override
+    public void insert(T obj, int x, int y) throws Exception {
+        if(obj == null){
+            throw new NullPointerException();
+        }
+        if(contains(obj)){
+            throw new Exception("Element is already in the hash grid");
+        }
+        ensureCapacity(size + 1);
+        put(obj, x, y);
+    }
+
+    /**
+     * Puts an element into a free slot, the capacity has to be checked
+     * before
+     * @param obj element
+     * @param x x coordinate
+     * @param y y coordinate
+     * @throws Exception if the position is occupied
+     */
+    private void put(T obj, int x, int y) throws Exception {
+        final long key = getKey(x, y);
+        final int mask = keys.length - 1;
+        int slot = getSlot(key);
+        while(values[slot] != null){
+            if(keys[slot] == key){
+                throw new Exception("Position " + x + ", " + y + " is occupied");
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = obj;
+
+        if(size == 0){
+            xMin = xMax = x;
+            yMin = yMax = y;
+            boundsValid = true;
+        } else if(boundsValid){
+            extendBounds(x, y);
+        }
+        ++size;
+    }
+
+    @Override
+    public void insertAll(Collection<? extends T> objects, ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction) throws Exception {
+        ensureCapacity(size + objects.size());
+        int inserted = 0;
+        try {
+            for(T obj: objects){
+                if(obj == null){
+                    throw new NullPointerException();
+                }
+                if(contains(obj)){
+                    throw new Exception("Element is already in the hash grid");
+                }
+                put(obj, xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+                ++inserted;
+            }
+        } catch (Exception ex) {
+            // remove the inserted elements
+            for(T obj: objects){
+                if(inserted-- == 0){
+                    break;
+                }
+                remove(xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void remove(int x, int y){
+        int slot = find(getKey(x, y));
+        if(slot >= 0){
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * Removes an element, the element is searched at its current position
+     * @param object element
+     */
+    @Override
+    public void remove(T object){
+        if(object == null){
+            return;
+        }
+        int slot = find(getKey(xFunction.applyAsInt(object), yFunction.applyAsInt(object)));
+        if(slot >= 0 && values[slot] == object){
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * Removes the element of a slot, the following elements of the probe
+     * sequence are moved back (no tombstones)
+     * @param slot slot index
+     */
+    private void removeSlot(int slot){
+        final int mask = keys.length - 1;
+        final int x = (int) (keys[slot] >> 32);
+        final int y = (int) keys[slot];
+
+        int gap = slot;
+        values[gap] = null;
+        for(int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask){
+            // move the element to the gap, if its first slot isn't between
+            // the gap and its current slot
+            if(((i - getSlot(keys[i])) & mask) >= ((i - gap) & mask)){
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = null;
+                gap = i;
+            }
+        }
+        --size;
+
+        if(boundsValid && (x == xMin || x == xMax || y == yMin || y == yMax)){
+            boundsValid = false;
+        }
+    }
+
+    @Override
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
+        int slot = find(getKey(xOld, yOld));
+        if(slot < 0){
+            throw new Exception("Couldn't move element, position " + xOld + ", " + yOld + " is empty");
+        }
+        if(exist(xNew, yNew)){
+            throw new Exception("Position " + xNew + ", " + yNew + " is occupied");
+        }
+        T obj = (T) values[slot];
+        removeSlot(slot);
+        put(obj, xNew, yNew);
+    }
+
+    @Override
+    public HashSet<T> values(){
+        HashSet<T> ret = new HashSet<>();
+        forEach(new Consumer<T>() {
+            @Override
+            public void accept(T t) {
+                ret.add(t);
+            }
+        });
+        return ret;
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        for(int i = 0; i < values.length; ++i){
+            if(values[i] != null){
+                visitor.accept((T) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Visits all elements inside a rectangular region. Small regions are
+     * looked up position by position, else all elements are checked
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @param visitor will be called for each element in the region
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor){
+        if(visitor == null){
+            throw new NullPointerException();
+        }
+        if(size == 0 || xMin > xMax || yMin > yMax){
+            return;
+        }
+
+        // clip to the bounding box
+        xMin = Math.max(xMin, getXMin());
+        xMax = Math.min(xMax, getXMax());
+        yMin = Math.max(yMin, getYMin());
+        yMax = Math.min(yMax, getYMax());
+        if(xMin > xMax || yMin > yMax){
+            return;
+        }
+
+        if(((long) xMax - xMin + 1) * ((long) yMax - yMin + 1) <= size){
+            for(int x = xMin; x <= xMax; ++x){
+                for(int y = yMin; y <= yMax; ++y){
+                    T obj = get(x, y);
+                    if(obj != null){
+                        visitor.accept(obj);
+                    }
+                    if(y == Integer.MAX_VALUE) break;
+                }
+                if(x == Integer.MAX_VALUE) break;
+            }
+        } else {
+            for(int i = 0; i < keys.length; ++i){
+                if(values[i] != null){
+                    int x = (int) (keys[i] >> 32);
+                    int y = (int) keys[i];
+                    if(x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                        visitor.accept((T) values[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the elements closest to a position inside of a rectangular region.
+     * Positions are looked up in square rings around the position, if a ring
+     * gets larger than the number of elements, all remaining elements are
+     * checked
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin min x coordinate of the region (inclusive)
+     * @param yMin min y coordinate of the region (inclusive)
+     * @param xMax max x coordinate of the region (inclusive)
+     * @param yMax max y coordinate of the region (inclusive)
+     * @param filter elements will be skipped, if it returns false, may be null
+     * @return up to k elements, closest first
+     */
+    @Override
+    public List<T> nearest(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter){
+        // nodes are ring radii (chebyshev distance to the position)
+        NearestSearch<T, Integer> search = new NearestSearch<>(x, y, k, xMin, yMin, xMax, yMax, filter);
+        if(size == 0){
+            return search.getResult();
+        }
+
+        // part of the region that contains elements
+        final long xLo = Math.max(xMin, getXMin()), xHi = Math.min(xMax, getXMax());
+        final long yLo = Math.max(yMin, getYMin()), yHi = Math.min(yMax, getYMax());
+        if(xLo > xHi || yLo > yHi){
+            return search.getResult();
+        }
+        // largest ring that intersects that part
+        final long rMax = Math.max(Math.max(x - xLo, xHi - x), Math.max(y - yLo, yHi - y));
+
+        search.addNode(0, 0);
+        Integer ring;
+        while((ring = search.next()) != null){
+            final long r = ring;
+            if((2 * r + 1) * (2 * r + 1) > 4L * size){
+                // checking all elements is cheaper than the next rings
+                for(int i = 0; i < keys.length; ++i){
+                    if(values[i] != null){
+                        int ex = (int) (keys[i] >> 32);
+                        int ey = (int) keys[i];
+                        if(Math.max(Math.abs((long) ex - x), Math.abs((long) ey - y)) >= r){
+                            search.addElement((T) values[i], ex, ey);
+                        }
+                    }
+                }
+                continue;
+            }
+
+            // rows above and below, columns left and right without the corners
+            for(long xi = Math.max(x - r, xLo); xi <= Math.min(x + r, xHi); ++xi){
+                if(y - r >= yLo){
+                    addNearestCandidate(search, (int) xi, (int) (y - r));
+                }
+                if(r > 0 && y + r <= yHi){
+                    addNearestCandidate(search, (int) xi, (int) (y + r));
+                }
+            }
+            for(long yi = Math.max(y - r + 1, yLo); yi <= Math.min(y + r - 1, yHi); ++yi){
+                if(x - r >= xLo){
+                    addNearestCandidate(search, (int) (x - r), (int) yi);
+                }
+                if(r > 0 && x + r <= xHi){
+                    addNearestCandidate(search, (int) (x + r), (int) yi);
+                }
+            }
+
+            if(r < rMax){
+                search.addNode((int) r + 1, (r + 1) * (r + 1));
+            }
+        }
+        return search.getResult();
+    }
+
+    /**
+     * Adds the element at a position to a nearest search, if there is one
+     * @param search
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    private void addNearestCandidate(NearestSearch<T, Integer> search, int x, int y){
+        int slot = find(getKey(x, y));
+        if(slot >= 0){
+            search.addElement((T) values[slot], x, y);
+        }
+    }
+
+    /**
+     * Gets an iterator over the elements in slot order. It must not be used
+     * after the grid was modified
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            int next = advance(0);
+
+            private int advance(int i){
+                while(i < values.length && values[i] == null){
+                    ++i;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+
+            @Override
+            public T next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                T ret = (T) values[next];
+                next = advance(next + 1);
+                return ret;
+            }
+        };
+    }
+
+}
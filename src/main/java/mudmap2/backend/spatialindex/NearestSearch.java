@@ -0,0 +1,180 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Best-first search for the k elements closest to a position. A spatial index
+ * adds its root as node, then expands the nodes returned by next() by adding
+ * their children, until next() returns null. Elements are reported by
+ * increasing squared euclidean distance, then by x and y coordinate
+ * @author neop
+ * @param <T> element class type
+ * @param <N> node class type
+ */
+public class NearestSearch<T, N> {
+
+    final int x, y, k;
+    final int xMin, yMin, xMax, yMax;
+    final Predicate<? super T> filter;
+
+    final PriorityQueue<Entry> queue = new PriorityQueue<>(16, new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            if(e1.distance != e2.distance){
+                return Long.compare(e1.distance, e2.distance);
+            }
+            // expand nodes before elements of the same distance
+            if(e1.isElement != e2.isElement){
+                return e1.isElement ? 1 : -1;
+            }
+            if(e1.x != e2.x){
+                return Integer.compare(e1.x, e2.x);
+            }
+            return Integer.compare(e1.y, e2.y);
+        }
+    });
+
+    final ArrayList<T> result = new ArrayList<>();
+
+    /**
+     * Queue entry, a node or an element
+     */
+    final class Entry {
+        final long distance;
+        final boolean isElement;
+        final Object object;
+        final int x, y;
+
+        Entry(long distance, boolean isElement, Object object, int x, int y){
+            this.distance = distance;
+            this.isElement = isElement;
+            this.object = object;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Constructs a search
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin region, elements outside will be skipped
+     * @param yMin region
+     * @param xMax region
+     * @param yMax region
+     * @param filter elements will be skipped, if it returns false, may be null
+     */
+    public NearestSearch(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter){
+        this.x = x;
+        this.y = y;
+        this.k = k;
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.xMax = xMax;
+        this.yMax = yMax;
+        this.filter = filter;
+    }
+
+    /**
+     * Gets the squared distance between the position and a box
+     * @param bxMin box
+     * @param byMin box
+     * @param bxMax box
+     * @param byMax box
+     * @return squared distance, 0 if the position is inside the box
+     */
+    public long getDistance(long bxMin, long byMin, long bxMax, long byMax){
+        long dx = Math.max(0, Math.max(bxMin - x, x - bxMax));
+        long dy = Math.max(0, Math.max(byMin - y, y - byMax));
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Adds a node that covers a box, it will be skipped if the box doesn't
+     * intersect the region
+     * @param node
+     * @param bxMin box
+     * @param byMin box
+     * @param bxMax box
+     * @param byMax box
+     */
+    public void addNode(N node, long bxMin, long byMin, long bxMax, long byMax){
+        if(bxMin <= xMax && bxMax >= xMin && byMin <= yMax && byMax >= yMin){
+            // the part of the box inside of the region might be farther away
+            addNode(node, getDistance(Math.max(bxMin, xMin), Math.max(byMin, yMin),
+                    Math.min(bxMax, xMax), Math.min(byMax, yMax)));
+        }
+    }
+
+    /**
+     * Adds a node
+     * @param node
+     * @param distance lower bound of the squared distance of its elements
+     */
+    public void addNode(N node, long distance){
+        queue.add(new Entry(distance, false, node, 0, 0));
+    }
+
+    /**
+     * Adds an element, it will be skipped if it is outside of the region or
+     * rejected by the filter
+     * @param element
+     * @param ex element x coordinate
+     * @param ey element y coordinate
+     */
+    public void addElement(T element, int ex, int ey){
+        if(ex >= xMin && ex <= xMax && ey >= yMin && ey <= yMax
+                && (filter == null || filter.test(element))){
+            long dx = (long) ex - x;
+            long dy = (long) ey - y;
+            queue.add(new Entry(dx * dx + dy * dy, true, element, ex, ey));
+        }
+    }
+
+    /**
+     * Gets the next node to expand, closer elements will be moved to the
+     * result
+     * @return node or null, if the search is finished
+     */
+    public N next(){
+        while(result.size() < k && !queue.isEmpty()){
+            Entry entry = queue.poll();
+            if(entry.isElement){
+                result.add((T) entry.object);
+            } else {
+                return (N) entry.object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the found elements
+     * @return elements, closest first
+     */
+    public List<T> getResult(){
+        return result;
+    }
+
+}
@@ -0,0 +1,176 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stores elements by their integer position, at most one element per position.
+ * This is what a layer needs from its data structure
+ * @author neop
+ * @param <T> element class type
+ */
+public interface SpatialIndex<T> extends Iterable<T> {
+
+    /**
+     * Gets the element at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return element or null
+     */
+    public T get(int x, int y);
+
+    /**
+     * Checks whether there is an element at a position
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true, if a position is occupied
+     */
+    public boolean exist(int x, int y);
+
+    /**
+     * Checks whether the index contains an element
+     * @param object element
+     * @return true, if the element was inserted
+     */
+    public boolean contains(T object);
+
+    /**
+     * Checks whether the index is empty
+     * @return true, if empty
+     */
+    public boolean isEmpty();
+
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    public int size();
+
+    /**
+     * Gets the min x coordinate of all elements
+     * @return min x coordinate or 0, if empty
+     */
+    public int getXMin();
+
+    /**
+     * Gets the max x coordinate of all elements
+     * @return max x coordinate or 0, if empty
+     */
+    public int getXMax();
+
+    /**
+     * Gets the min y coordinate of all elements
+     * @return min y coordinate or 0, if empty
+     */
+    public int getYMin();
+
+    /**
+     * Gets the max y coordinate of all elements
+     * @return max y coordinate or 0, if empty
+     */
+    public int getYMax();
+
+    /**
+     * Inserts an element
+     * @param obj element
+     * @param x x coordinate
+     * @param y y coordinate
+     * @throws Exception if the position is occupied or the element was
+     * already inserted
+     */
+    public void insert(T obj, int x, int y) throws Exception;
+
+    /**
+     * Inserts many elements at once. Nothing will be inserted, if one of the
+     * elements can't be inserted
+     * @param objects elements to insert
+     * @param xFunction gets the x coordinate of an element
+     * @param yFunction gets the y coordinate of an element
+     * @throws Exception if a position is occupied or an element was already
+     * inserted
+     */
+    public void insertAll(Collection<? extends T> objects, ToIntFunction<? super T> xFunction, ToIntFunction<? super T> yFunction) throws Exception;
+
+    /**
+     * Removes the element at a position, if there is one
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void remove(int x, int y);
+
+    /**
+     * Removes an element, if it was inserted
+     * @param object element
+     */
+    public void remove(T object);
+
+    /**
+     * Moves an element
+     * @param xOld previous x coordinate
+     * @param yOld previous y coordinate
+     * @param xNew new x coordinate
+     * @param yNew new y coordinate
+     * @throws Exception if the element couldn't be moved
+     */
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception;
+
+    /**
+     * Gets all elements
+     * @return new set of all elements
+     */
+    public HashSet<T> values();
+
+    /**
+     * Visits all elements without copying them into a collection. The index
+     * must not be modified by the visitor
+     * @param visitor will be called for each element
+     */
+    @Override
+    public void forEach(Consumer<? super T> visitor);
+
+    /**
+     * Visits all elements inside a rectangular region
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     * @param visitor will be called for each element in the region
+     */
+    public void query(int xMin, int yMin, int xMax, int yMax, Consumer<T> visitor);
+
+    /**
+     * Gets the elements closest to a position inside of a rectangular region,
+     * ordered by euclidean distance, then by x and y coordinate
+     * @param x position
+     * @param y position
+     * @param k max number of elements
+     * @param xMin min x coordinate of the region (inclusive)
+     * @param yMin min y coordinate of the region (inclusive)
+     * @param xMax max x coordinate of the region (inclusive)
+     * @param yMax max y coordinate of the region (inclusive)
+     * @param filter elements will be skipped, if it returns false, may be null
+     * @return up to k elements, closest first
+     */
+    public List<T> nearest(int x, int y, int k, int xMin, int yMin, int xMax, int yMax, Predicate<? super T> filter);
+
+}
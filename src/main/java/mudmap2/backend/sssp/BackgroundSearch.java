@@ -0,0 +1,136 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import mudmap2.backend.Place;
+
+/**
+ * Runs path searches on a worker thread. Only one search of an instance runs
+ * at a time, submitting a new search cancels the old one. Searches should
+ * only read a WorldGraph that was created before submitting them, it won't
+ * change while they run
+ * @author neop
+ */
+public class BackgroundSearch {
+
+    /**
+     * A search that runs on the worker thread
+     */
+    public interface Search {
+        /**
+         * Runs the search
+         * @param monitor monitor that has to be passed to the search
+         * @return places of the path or null
+         */
+        public List<Place> run(SearchMonitor monitor);
+    }
+
+    /**
+     * Receives progress and result of a search, both are called by the worker
+     * thread
+     */
+    public interface Callback extends SearchMonitor.ProgressListener {
+        /**
+         * Called when a search finished without being cancelled
+         * @param path result of the search
+         */
+        public void finished(List<Place> path);
+    }
+
+    // the searches of all instances share one daemon thread
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "path search");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    SearchMonitor current = null;
+
+    /**
+     * Cancels the current search and runs a new one
+     * @param search search to run
+     * @param callback progress and result receiver
+     * @return monitor of the new search
+     */
+    public synchronized SearchMonitor submit(final Search search, final Callback callback){
+        if(search == null || callback == null){
+            throw new NullPointerException();
+        }
+        cancel();
+        final SearchMonitor monitor = new SearchMonitor(callback);
+        current = monitor;
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(monitor.isCancelled()) return;
+                try {
+                    List<Place> path = search.run(monitor);
+                    if(finish(monitor)){
+                        callback.finished(path);
+                    }
+                } catch (CancellationException ex) {
+                    // a newer search was submitted
+                } catch (RuntimeException ex) {
+                    finish(monitor);
+                    Logger.getLogger(BackgroundSearch.class.getName()).log(Level.SEVERE, "Path search failed", ex);
+                }
+            }
+        });
+        return monitor;
+    }
+
+    /**
+     * Removes a finished search
+     * @param monitor monitor of the search
+     * @return true, if the search wasn't cancelled
+     */
+    synchronized boolean finish(final SearchMonitor monitor){
+        if(current == monitor){
+            current = null;
+        }
+        return !monitor.isCancelled();
+    }
+
+    /**
+     * Cancels the current search, its callback won't be called anymore
+     */
+    public synchronized void cancel(){
+        if(current != null){
+            current.cancel();
+            current = null;
+        }
+    }
+
+    /**
+     * Checks whether a search is queued or running
+     * @return true, if a search is running
+     */
+    public synchronized boolean isRunning(){
+        return current != null;
+    }
+
+}
@@ -32,8 +32,13 @@ public interface BreadthSearch {
     void breadthSearchReset();
     BreadthSearchData getBreadthSearchData();
     
+    /**
+     * Result of the last breadth search on the places of the found path, only
+     * written by the deprecated BreadthSearchGraph.breadthSearch()
+     */
     public class BreadthSearchData{
         public Place predecessor;
+        // true, if the place is on the path of a search
         public boolean marked;
         
         public BreadthSearchData(){
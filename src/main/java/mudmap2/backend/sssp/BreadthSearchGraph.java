@@ -22,6 +22,7 @@
 
 package mudmap2.backend.sssp;
 
+import java.util.List;
 import mudmap2.backend.Place;
 
 /**
@@ -29,5 +30,11 @@ import mudmap2.backend.Place;
  * @author Neop
  */
 public interface BreadthSearchGraph {
+    /**
+     * @deprecated stores the result in the places, use breadthSearchPath()
+     */
+    @Deprecated
     Place breadthSearch(Place start, Place end);
+    List<Place> breadthSearchPath(Place start, Place end);
+    List<Place> breadthSearchPath(Place start, Place end, boolean bidirectional);
 }
@@ -0,0 +1,222 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Union-find index of the connected components of places. Places are in the
+ * same component if they are connected by paths, one-way paths count in
+ * both directions. So places of different components can't reach each
+ * other, places of the same component usually can.
+ *
+ * New paths are added by union(), the index can't remove paths. Places that
+ * aren't in the index yet are added with their whole component on the first
+ * query
+ * @author neop
+ */
+public class ComponentIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    final IdentityHashMap<Place, Integer> indices = new IdentityHashMap<>();
+    final ArrayList<Place> places = new ArrayList<>();
+    // parent of each element, roots are their own parent
+    int[] parents = new int[INITIAL_CAPACITY];
+    // component size of the roots
+    int[] sizes = new int[INITIAL_CAPACITY];
+    int componentCount = 0;
+
+    /**
+     * Creates an empty index
+     */
+    public ComponentIndex(){
+    }
+
+    /**
+     * Creates an index of places and their components
+     * @param places places to add
+     */
+    public ComponentIndex(final Iterable<Place> places){
+        for(Place place: places){
+            add(place);
+        }
+    }
+
+    /**
+     * Checks whether a path connects its places, it does if it can be used
+     * in at least one direction
+     * @param path
+     * @return true, if not both exits are "-"
+     */
+    private static boolean isConnection(final Path path){
+        return !path.getExitDirections()[0].equals("-") || !path.getExitDirections()[1].equals("-");
+    }
+
+    /**
+     * Gets the element of a place, adds the place as its own component
+     * @param place
+     * @return element index
+     */
+    private int getOrCreate(final Place place){
+        Integer index = indices.get(place);
+        if(index != null) return index;
+
+        final int i = places.size();
+        if(i == parents.length){
+            parents = Arrays.copyOf(parents, 2 * i);
+            sizes = Arrays.copyOf(sizes, 2 * i);
+        }
+        parents[i] = i;
+        sizes[i] = 1;
+        places.add(place);
+        indices.put(place, i);
+        ++componentCount;
+        return i;
+    }
+
+    /**
+     * Adds a place and all places that are connected to it
+     * @param place
+     * @return element index of the place
+     */
+    private int add(final Place place){
+        Integer index = indices.get(place);
+        if(index != null) return index;
+
+        final int ret = getOrCreate(place);
+        ArrayDeque<Place> stack = new ArrayDeque<>();
+        stack.push(place);
+        while(!stack.isEmpty()){
+            final Place v = stack.pop();
+            for(Path path: v.getPaths()){
+                final Place vi = path.getOtherPlace(v);
+                if(!isConnection(path)) continue;
+                if(!indices.containsKey(vi)){
+                    stack.push(vi);
+                }
+                union(getOrCreate(v), getOrCreate(vi));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the root of an element, halves the path to it
+     * @param i element index
+     * @return root element index
+     */
+    private int find(int i){
+        while(parents[i] != i){
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merges the components of two elements
+     * @param i element index
+     * @param j element index
+     */
+    private void union(int i, int j){
+        i = find(i);
+        j = find(j);
+        if(i == j) return;
+        if(sizes[i] < sizes[j]){
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        parents[j] = i;
+        sizes[i] += sizes[j];
+        --componentCount;
+    }
+
+    /**
+     * Adds a new path
+     * @param path
+     */
+    public void union(final Path path){
+        if(isConnection(path)){
+            union(add(path.getPlaces()[0]), add(path.getPlaces()[1]));
+        }
+    }
+
+    /**
+     * Checks whether two places are in the same component
+     * @param place1
+     * @param place2
+     * @return true, if the places are connected by paths
+     */
+    public boolean isConnected(final Place place1, final Place place2){
+        return place1 == place2 || find(add(place1)) == find(add(place2));
+    }
+
+    /**
+     * Gets the number of places in the component of a place
+     * @param place
+     * @return component size
+     */
+    public int getComponentSize(final Place place){
+        return sizes[find(add(place))];
+    }
+
+    /**
+     * Gets the number of components of the places in the index
+     * @return number of components
+     */
+    public int getComponentCount(){
+        return componentCount;
+    }
+
+    /**
+     * Groups places by their components
+     * @param places places to group
+     * @return components, largest first
+     */
+    public List<List<Place>> getComponents(final Iterable<Place> places){
+        HashMap<Integer, List<Place>> components = new HashMap<>();
+        for(Place place: places){
+            final int root = find(add(place));
+            List<Place> component = components.get(root);
+            if(component == null){
+                component = new ArrayList<>();
+                components.put(root, component);
+            }
+            component.add(place);
+        }
+        ArrayList<List<Place>> ret = new ArrayList<>(components.values());
+        Collections.sort(ret, new Comparator<List<Place>>() {
+            @Override
+            public int compare(List<Place> o1, List<Place> o2) {
+                return Integer.compare(o2.size(), o1.size());
+            }
+        });
+        return ret;
+    }
+
+}
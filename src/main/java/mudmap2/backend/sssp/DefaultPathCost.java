@@ -0,0 +1,140 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.HashMap;
+import java.util.Map;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Configurable path costs: each step costs stepCost, exits (like "swim" or
+ * "door") and place flags (like "aggressive") can add extra costs, places
+ * with a recommended level above the player level cost extra per level.
+ * Paths with a "-" exit can't be used
+ * @author neop
+ */
+public class DefaultPathCost implements PathCost {
+
+    double stepCost = 1.0;
+    // extra cost of an exit of the entered path
+    final HashMap<String, Double> exitCosts = new HashMap<>();
+    // extra cost of entering a place with a flag
+    final HashMap<String, Double> flagCosts = new HashMap<>();
+    // extra cost per level below the recommended min level of a place
+    double levelCost = 0.0;
+    int playerLevel = -1;
+
+    /**
+     * Constructs a cost function where each step costs 1
+     */
+    public DefaultPathCost(){
+    }
+
+    /**
+     * Checks whether a cost is a number >= 0
+     * @param cost
+     * @throws IllegalArgumentException if the cost is negative or NaN
+     */
+    private static void checkCost(double cost){
+        if(!(cost >= 0)){
+            throw new IllegalArgumentException("Invalid cost: " + cost);
+        }
+    }
+
+    /**
+     * Gets the cost of each step
+     * @return
+     */
+    public double getStepCost(){
+        return stepCost;
+    }
+
+    /**
+     * Sets the cost of each step
+     * @param stepCost cost >= 0
+     */
+    public void setStepCost(double stepCost){
+        checkCost(stepCost);
+        this.stepCost = stepCost;
+    }
+
+    /**
+     * Sets the extra cost of paths by the exit they are entered at
+     * @param exit exit name
+     * @param cost extra cost >= 0, Double.POSITIVE_INFINITY to block the
+     * exit, 0 to remove
+     */
+    public void setExitCost(String exit, double cost){
+        checkCost(cost);
+        if(cost == 0) exitCosts.remove(exit);
+        else exitCosts.put(exit, cost);
+    }
+
+    /**
+     * Sets the extra cost of entering places with a flag
+     * @param flag flag name
+     * @param cost extra cost >= 0, Double.POSITIVE_INFINITY to avoid those
+     * places, 0 to remove
+     */
+    public void setFlagCost(String flag, double cost){
+        checkCost(cost);
+        if(cost == 0) flagCosts.remove(flag);
+        else flagCosts.put(flag, cost);
+    }
+
+    /**
+     * Sets the extra cost of places that are too dangerous for a player
+     * @param playerLevel level of the player, -1 to disable
+     * @param levelCost extra cost per level the player is below the
+     * recommended min level of a place
+     */
+    public void setPlayerLevel(int playerLevel, double levelCost){
+        checkCost(levelCost);
+        this.playerLevel = playerLevel;
+        this.levelCost = levelCost;
+    }
+
+    @Override
+    public double getCost(Path path, Place from, Place to){
+        final String exit = path.getExit(from);
+        if(exit.equals("-")){
+            return Double.POSITIVE_INFINITY;
+        }
+        double cost = stepCost;
+        Double exitCost = exitCosts.get(exit);
+        if(exitCost != null){
+            cost += exitCost;
+        }
+        if(!flagCosts.isEmpty()){
+            for(Map.Entry<String, Double> entry: flagCosts.entrySet()){
+                if(to.getFlag(entry.getKey())){
+                    cost += entry.getValue();
+                }
+            }
+        }
+        if(playerLevel >= 0 && to.getRecLevelMin() > playerLevel){
+            cost += levelCost * (to.getRecLevelMin() - playerLevel);
+        }
+        return cost;
+    }
+
+    @Override
+    public double getMinCost(){
+        return stepCost;
+    }
+}
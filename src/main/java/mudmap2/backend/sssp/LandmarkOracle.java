@@ -0,0 +1,341 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.Arrays;
+import java.util.Collection;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Precomputed breadth search distances from and to a few landmark places
+ * (ALT). The triangle inequality gives lower and upper bounds of the number
+ * of steps between any two places from the tables, without a search and
+ * across layers. The landmarks are chosen far from each other: each new
+ * landmark is the place that is farthest from the previous ones.
+ *
+ * The oracle is immutable and belongs to one WorldGraph, the places are
+ * looked up in that graph. After paths were removed the lower bounds are
+ * still valid, since distances only grow. Paths that were connected later
+ * have to be passed to addPaths(): a shorter route has to use one of them,
+ * so the lower bound is also limited by the bound to the nearest new path
+ * plus the bound from the nearest new path to the target. The upper bounds
+ * are only valid for the graph of the tables
+ * @author neop
+ */
+public final class LandmarkOracle {
+
+    /**
+     * Distance of places that can't be reached
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Max number of new path directions, an oracle with more new paths
+     * gives no lower bounds anymore
+     */
+    public static final int MAX_ADDED_PATHS = 16;
+
+    final WorldGraph graph;
+    final int[] landmarks;
+    // distances[i][v]: steps from landmark i to v, v to landmark i
+    final int[][] distancesFrom;
+    final int[][] distancesTo;
+
+    // places of the graph where paths that were connected later start and
+    // end (-1 if a place isn't in the graph), null if there are too many
+    final int[] addedFrom;
+    final int[] addedTo;
+
+    /**
+     * Creates the distance tables
+     * @param graph path graph
+     * @param count max number of landmarks
+     */
+    public LandmarkOracle(final WorldGraph graph, final int count){
+        if(count < 0){
+            throw new IllegalArgumentException("Invalid landmark count: " + count);
+        }
+        this.graph = graph;
+        final int n = graph.getPlaceCount();
+        final int k = Math.min(count, n);
+        final int[] chosen = new int[k];
+        final int[][] from = new int[k][];
+        final int[][] to = new int[k][];
+
+        // min distance of each place to the chosen landmarks (any direction)
+        final int[] closest = new int[n];
+        Arrays.fill(closest, UNREACHABLE);
+        final int[] queue = new int[n];
+
+        int next = 0;
+        int used = 0;
+        while(used < k){
+            final int i = used++;
+            chosen[i] = next;
+            from[i] = breadthSearch(graph, next, true, queue);
+            to[i] = breadthSearch(graph, next, false, queue);
+
+            // the next landmark is the farthest place, unreachable places
+            // of other components first
+            next = -1;
+            int farthest = -1;
+            for(int v = 0; v < n; ++v){
+                closest[v] = Math.min(closest[v], Math.min(from[i][v], to[i][v]));
+                if(closest[v] > farthest){
+                    farthest = closest[v];
+                    next = v;
+                }
+            }
+            // every place is a landmark
+            if(farthest == 0) break;
+        }
+        landmarks = Arrays.copyOf(chosen, used);
+        distancesFrom = Arrays.copyOf(from, used);
+        distancesTo = Arrays.copyOf(to, used);
+        addedFrom = addedTo = new int[0];
+    }
+
+    /**
+     * Creates an oracle that shares the tables of another one
+     * @param other oracle with the tables
+     * @param addedFrom start places of new paths or null
+     * @param addedTo end places of new paths or null
+     */
+    private LandmarkOracle(final LandmarkOracle other, final int[] addedFrom, final int[] addedTo){
+        graph = other.graph;
+        landmarks = other.landmarks;
+        distancesFrom = other.distancesFrom;
+        distancesTo = other.distancesTo;
+        this.addedFrom = addedFrom;
+        this.addedTo = addedTo;
+    }
+
+    /**
+     * Creates an oracle with the same tables for the graph with additional
+     * paths
+     * @param paths paths that were connected after the graph was created
+     * @return new oracle, this if there are no usable paths
+     */
+    public LandmarkOracle addPaths(final Collection<Path> paths){
+        if(addedFrom == null) return this;
+        int[] from = Arrays.copyOf(addedFrom, addedFrom.length + 2 * paths.size());
+        int[] to = Arrays.copyOf(addedTo, from.length);
+        int count = addedFrom.length;
+        for(Path path: paths){
+            final Place[] places = path.getPlaces();
+            if(places[0] == places[1]) continue;
+            for(int i = 0; i < 2; ++i){
+                if(!path.getExit(places[i]).equals("-")){
+                    from[count] = graph.getIndex(places[i]);
+                    to[count] = graph.getIndex(places[1 - i]);
+                    ++count;
+                }
+            }
+        }
+        if(count == addedFrom.length) return this;
+        if(count > MAX_ADDED_PATHS) return new LandmarkOracle(this, null, null);
+        return new LandmarkOracle(this, Arrays.copyOf(from, count), Arrays.copyOf(to, count));
+    }
+
+    /**
+     * Checks whether the oracle gives lower bounds, that is false after too
+     * many paths were added
+     * @return true, if the lower bounds can be used
+     */
+    public boolean hasLowerBounds(){
+        return addedFrom != null;
+    }
+
+    /**
+     * Breadth search over all places
+     * @param graph
+     * @param s start place index
+     * @param forward follow the outgoing edges, else the incoming edges
+     * @param queue buffer with getPlaceCount() elements
+     * @return distance of each place
+     */
+    private static int[] breadthSearch(final WorldGraph graph, final int s, final boolean forward, final int[] queue){
+        final int[] offsets = forward ? graph.offsets : graph.inOffsets;
+        final int[] neighbors = forward ? graph.targets : graph.inSources;
+        final int[] distances = new int[graph.getPlaceCount()];
+        Arrays.fill(distances, UNREACHABLE);
+        distances[s] = 0;
+
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        while(head < tail){
+            final int v = queue[head++];
+            final int d = distances[v] + 1;
+            for(int e = offsets[v]; e < offsets[v + 1]; ++e){
+                final int vi = neighbors[e];
+                if(distances[vi] == UNREACHABLE){
+                    distances[vi] = d;
+                    queue[tail++] = vi;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Gets the graph of the tables
+     * @return path graph
+     */
+    public WorldGraph getGraph(){
+        return graph;
+    }
+
+    /**
+     * Gets the number of landmarks
+     * @return number of landmarks
+     */
+    public int getLandmarkCount(){
+        return landmarks.length;
+    }
+
+    /**
+     * Gets a landmark
+     * @param i landmark number
+     * @return landmark place
+     */
+    public Place getLandmark(final int i){
+        return graph.getPlace(landmarks[i]);
+    }
+
+    /**
+     * Gets a lower bound of the number of steps from u to t
+     * @param u start place index in getGraph()
+     * @param t end place index in getGraph()
+     * @return min number of steps, UNREACHABLE if t can't be reached
+     */
+    public int getLowerBound(final int u, final int t){
+        return getLowerBound(u, t, getEntryBound(t));
+    }
+
+    /**
+     * Gets a lower bound of the number of steps from the end of a new path
+     * to t, including the step of the new path
+     * @param t end place index in getGraph()
+     * @return min number of steps, UNREACHABLE if t can't be reached
+     * through a new path
+     */
+    int getEntryBound(final int t){
+        if(addedFrom == null) return 0;
+        int ret = UNREACHABLE;
+        for(int i = 0; i < addedTo.length; ++i){
+            ret = Math.min(ret, getTableBound(addedTo[i], t));
+        }
+        return ret == UNREACHABLE ? ret : ret + 1;
+    }
+
+    /**
+     * Gets a lower bound of the number of steps from u to t
+     * @param u start place index in getGraph()
+     * @param t end place index in getGraph()
+     * @param entry getEntryBound(t)
+     * @return min number of steps, UNREACHABLE if t can't be reached
+     */
+    int getLowerBound(final int u, final int t, final int entry){
+        if(addedFrom == null) return 0;
+        final int ret = getTableBound(u, t);
+        if(entry == UNREACHABLE || addedFrom.length == 0) return ret;
+        // a shorter route starts with a new path
+        int exit = UNREACHABLE;
+        for(int i = 0; i < addedFrom.length; ++i){
+            exit = Math.min(exit, getTableBound(u, addedFrom[i]));
+        }
+        if(exit == UNREACHABLE) return ret;
+        return (int) Math.min(ret, (long) exit + entry);
+    }
+
+    /**
+     * Gets a lower bound of the number of steps from u to t in the graph of
+     * the tables
+     * @param u start place index or -1
+     * @param t end place index or -1
+     * @return min number of steps, UNREACHABLE if t can't be reached, 0 if a
+     * place isn't in the graph
+     */
+    private int getTableBound(final int u, final int t){
+        if(u < 0 || t < 0) return 0;
+        int ret = 0;
+        for(int i = 0; i < landmarks.length; ++i){
+            // d(L, t) <= d(L, u) + d(u, t)
+            final int[] from = distancesFrom[i];
+            if(from[u] != UNREACHABLE){
+                if(from[t] == UNREACHABLE) return UNREACHABLE;
+                ret = Math.max(ret, from[t] - from[u]);
+            }
+            // d(u, L) <= d(u, t) + d(t, L)
+            final int[] to = distancesTo[i];
+            if(to[t] != UNREACHABLE){
+                if(to[u] == UNREACHABLE) return UNREACHABLE;
+                ret = Math.max(ret, to[u] - to[t]);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets an upper bound of the number of steps from u to t (via a
+     * landmark), only valid for the graph of the tables
+     * @param u start place index in getGraph()
+     * @param t end place index in getGraph()
+     * @return max number of steps or UNREACHABLE, if no landmark connects
+     * the places
+     */
+    public int getUpperBound(final int u, final int t){
+        if(u == t) return 0;
+        long ret = UNREACHABLE;
+        for(int i = 0; i < landmarks.length; ++i){
+            if(distancesTo[i][u] != UNREACHABLE && distancesFrom[i][t] != UNREACHABLE){
+                ret = Math.min(ret, (long) distancesTo[i][u] + distancesFrom[i][t]);
+            }
+        }
+        return (int) ret;
+    }
+
+    /**
+     * Gets a lower bound of the number of steps between two places
+     * @param from start place
+     * @param to end place
+     * @return min number of steps, UNREACHABLE if the places aren't connected
+     * or 0 if a place isn't in the graph
+     */
+    public int getLowerBound(final Place from, final Place to){
+        final int u = graph.getIndex(from);
+        final int t = graph.getIndex(to);
+        if(u < 0 || t < 0) return 0;
+        return getLowerBound(u, t);
+    }
+
+    /**
+     * Gets an upper bound of the number of steps between two places
+     * @param from start place
+     * @param to end place
+     * @return max number of steps or UNREACHABLE, if unknown
+     */
+    public int getUpperBound(final Place from, final Place to){
+        if(from == to) return 0;
+        final int u = graph.getIndex(from);
+        final int t = graph.getIndex(to);
+        if(u < 0 || t < 0) return UNREACHABLE;
+        return getUpperBound(u, t);
+    }
+
+}
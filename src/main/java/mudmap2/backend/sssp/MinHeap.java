@@ -0,0 +1,139 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min heap of elements with double keys, stored in two arrays. An
+ * element can be added multiple times, outdated entries have to be skipped by
+ * the caller (lazy deletion instead of decrease key)
+ * @author neop
+ * @param <T> element class type
+ */
+public class MinHeap<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] keys = new double[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Checks whether the heap is empty
+     * @return true, if empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of entries
+     * @return number of entries
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear(){
+        for(int i = 0; i < size; ++i){
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds an entry
+     * @param value element
+     * @param key priority, smallest first
+     */
+    public void push(T value, double key){
+        if(size == keys.length){
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        // sift up
+        int i = size++;
+        while(i > 0){
+            int parent = (i - 1) >> 1;
+            if(keys[parent] <= key){
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Gets the smallest key
+     * @return key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public double peekKey(){
+        if(size == 0){
+            throw new NoSuchElementException();
+        }
+        return keys[0];
+    }
+
+    /**
+     * Removes the entry with the smallest key
+     * @return element
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public T pop(){
+        if(size == 0){
+            throw new NoSuchElementException();
+        }
+        T ret = (T) values[0];
+        --size;
+        final double key = keys[size];
+        final Object value = values[size];
+        values[size] = null;
+
+        // sift down the last entry
+        int i = 0;
+        while(true){
+            int child = 2 * i + 1;
+            if(child >= size){
+                break;
+            }
+            if(child + 1 < size && keys[child + 1] < keys[child]){
+                ++child;
+            }
+            if(key <= keys[child]){
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        if(size > 0){
+            keys[i] = key;
+            values[i] = value;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,193 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import mudmap2.backend.InformationColor;
+import mudmap2.backend.Place;
+import mudmap2.backend.PlaceGroup;
+
+/**
+ * Breadth search from one place that stops at the first place that matches
+ * a filter, eg. the nearest shop. It costs one breadth search no matter how
+ * many places match. The filters below read the places, a search on another
+ * thread should get a filter from matching() instead
+ * @author neop
+ */
+public final class NearestPlaceSearch {
+
+    private NearestPlaceSearch(){
+    }
+
+    /**
+     * Finds the nearest place that matches a filter
+     * @param graph graph that contains the start place
+     * @param start start place
+     * @param filter target filter
+     * @return places of the shortest path from start to the nearest matching
+     * place (both included) or null, if no matching place can be reached
+     */
+    public static List<Place> findNearest(final WorldGraph graph, final Place start, final Predicate<? super Place> filter){
+        return findNearest(graph, start, filter, null);
+    }
+
+    /**
+     * Finds the nearest place that matches a filter, the search can be
+     * cancelled through the monitor
+     * @param graph graph that contains the start place
+     * @param start start place
+     * @param filter target filter
+     * @param monitor progress and cancellation monitor or null
+     * @return places of the shortest path from start to the nearest matching
+     * place (both included) or null, if no matching place can be reached
+     * @throws java.util.concurrent.CancellationException if the monitor was
+     * cancelled
+     */
+    public static List<Place> findNearest(final WorldGraph graph, final Place start, final Predicate<? super Place> filter, final SearchMonitor monitor){
+        if(start == null || filter == null){
+            throw new NullPointerException();
+        }
+        if(filter.test(start)){
+            ArrayList<Place> path = new ArrayList<>();
+            path.add(start);
+            return path;
+        }
+        final int s = graph.getIndex(start);
+        if(s < 0) return null;
+
+        final WorldGraph.Scratch scratch = graph.acquireScratch();
+        try {
+            final int generation = scratch.generation;
+            final int[] marks = scratch.getMarks();
+            final int[] predecessors = scratch.getPredecessors();
+            marks[s] = generation;
+            predecessors[s] = s;
+            final int[] queue = scratch.getQueue();
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            while(head < tail){
+                if(monitor != null && (head & (SearchMonitor.CHECK_INTERVAL - 1)) == 0){
+                    monitor.update(head, tail - head);
+                }
+                final int v = queue[head++];
+                for(int e = graph.offsets[v]; e < graph.offsets[v + 1]; ++e){
+                    final int vi = graph.targets[e];
+                    if(marks[vi] == generation) continue;
+                    marks[vi] = generation;
+                    predecessors[vi] = v;
+                    if(filter.test(graph.places[vi])){
+                        ArrayList<Place> path = new ArrayList<>();
+                        for(int u = vi; u != s; u = predecessors[u]){
+                            path.add(graph.places[u]);
+                        }
+                        path.add(start);
+                        Collections.reverse(path);
+                        return path;
+                    }
+                    queue[tail++] = vi;
+                }
+            }
+            return null;
+        } finally {
+            graph.releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Tests a filter on all places of a graph now and creates a filter for
+     * the places that matched. Searches on another thread only read the
+     * result, not the places that may be changed in the meantime
+     * @param graph graph with the places to test
+     * @param filter filter to test, called on the current thread
+     * @return filter for the matching places
+     */
+    public static Predicate<Place> matching(final WorldGraph graph, final Predicate<? super Place> filter){
+        final Set<Place> places = Collections.newSetFromMap(new IdentityHashMap<Place, Boolean>());
+        for(int v = 0; v < graph.getPlaceCount(); ++v){
+            if(filter.test(graph.places[v])) places.add(graph.places[v]);
+        }
+        return new Predicate<Place>() {
+            @Override
+            public boolean test(Place place) {
+                return places.contains(place);
+            }
+        };
+    }
+
+    /**
+     * Creates a filter for places whose name contains a text
+     * @param text text to search for, case insensitive
+     * @return place filter
+     */
+    public static Predicate<Place> nameContains(final String text){
+        final String lower = text.toLowerCase();
+        return new Predicate<Place>() {
+            @Override
+            public boolean test(Place place) {
+                return place.getName().toLowerCase().contains(lower);
+            }
+        };
+    }
+
+    /**
+     * Creates a filter for places with a flag
+     * @param flag flag name
+     * @return place filter
+     */
+    public static Predicate<Place> hasFlag(final String flag){
+        return new Predicate<Place>() {
+            @Override
+            public boolean test(Place place) {
+                return place.getFlag(flag);
+            }
+        };
+    }
+
+    /**
+     * Creates a filter for places of a place group
+     * @param placeGroup place group
+     * @return place filter
+     */
+    public static Predicate<Place> inPlaceGroup(final PlaceGroup placeGroup){
+        return new Predicate<Place>() {
+            @Override
+            public boolean test(Place place) {
+                return place.getPlaceGroup() == placeGroup;
+            }
+        };
+    }
+
+    /**
+     * Creates a filter for places with an information color
+     * @param informationColor information color
+     * @return place filter
+     */
+    public static Predicate<Place> hasInformationColor(final InformationColor informationColor){
+        return new Predicate<Place>() {
+            @Override
+            public boolean test(Place place) {
+                return place.getInfoRing() == informationColor;
+            }
+        };
+    }
+
+}
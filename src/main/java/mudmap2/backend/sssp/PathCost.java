@@ -0,0 +1,44 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Cost of walking along a path, for weighted path finding
+ * @author neop
+ */
+public interface PathCost {
+
+    /**
+     * Gets the cost of walking from a place to another one
+     * @param path path between the places
+     * @param from place where the path is entered
+     * @param to place where the path leads to
+     * @return cost, at least getMinCost(), or Double.POSITIVE_INFINITY if
+     * the path can't be used
+     */
+    double getCost(Path path, Place from, Place to);
+
+    /**
+     * Gets a lower bound of all costs, it is used to estimate the remaining
+     * cost of a route
+     * @return min cost, 0 if unknown
+     */
+    double getMinCost();
+}
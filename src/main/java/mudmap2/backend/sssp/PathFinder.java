@@ -0,0 +1,364 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.prquadtree.Quadtree;
+
+/**
+ * Weighted shortest path search (A*, Dijkstra without heuristic). The
+ * heuristic uses the coordinates of the places on the layer of the target:
+ * a path of the target layer covers at most maxJump positions in each
+ * direction and a route through other layers has to leave and enter the
+ * target layer at portal places (places with paths to other layers). Both
+ * are lower bounds, so the heuristic is admissible and consistent, as long
+ * as each step costs at least PathCost.getMinCost(). Landmark distances
+ * (see setLandmarks()) add a lower bound of the number of steps that
+ * doesn't depend on the layers
+ * @author neop
+ */
+public class PathFinder {
+
+    final PathCost cost;
+    boolean useHeuristic = true;
+
+    // number of places visited by the last search
+    int visitedCount = 0;
+
+    // landmark distances for the heuristic
+    LandmarkOracle landmarks = null;
+
+    // heuristic data of the current target
+    LandmarkOracle oracle;
+    // the oracle belongs to another graph, places are looked up by place
+    boolean oracleLookup;
+    int oracleTarget;
+    int oracleEntry;
+    Place target;
+    Layer targetLayer;
+    double minCost;
+    long maxJump;
+    Quadtree<Place> portals;
+    // min number of steps from a portal to the target
+    long portalSteps;
+
+    /**
+     * Constructs a path finder
+     * @param cost cost function
+     */
+    public PathFinder(PathCost cost){
+        if(cost == null){
+            throw new NullPointerException();
+        }
+        this.cost = cost;
+    }
+
+    /**
+     * Enables or disables the heuristic (A* or Dijkstra)
+     * @param useHeuristic
+     */
+    public void setUseHeuristic(boolean useHeuristic){
+        this.useHeuristic = useHeuristic;
+    }
+
+    /**
+     * Sets the landmark distances that improve the heuristic, especially
+     * across layers. They may belong to an older graph, as long as the paths
+     * that were connected since then were passed to LandmarkOracle.addPaths(),
+     * see World.getLandmarks()
+     * @param landmarks landmark oracle or null
+     */
+    public void setLandmarks(LandmarkOracle landmarks){
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Gets the number of places visited by the last search
+     * @return number of places
+     */
+    public int getVisitedCount(){
+        return visitedCount;
+    }
+
+    /**
+     * Finds the cheapest route between two places on the graph of the world
+     * of the start place
+     * @param start start place
+     * @param end target place
+     * @return paths from start to end (empty if start == end) or null, if
+     * end can't be reached
+     */
+    public List<Path> findPath(Place start, Place end){
+        if(start == null || end == null){
+            throw new NullPointerException();
+        }
+        WorldGraph graph;
+        if(start.getLayer() != null && start.getLayer().getWorld() != null){
+            graph = start.getLayer().getWorld().getGraph(start);
+        } else {
+            graph = new WorldGraph(Collections.singletonList(start));
+        }
+        return findPath(graph, start, end);
+    }
+
+    /**
+     * Finds the cheapest route between two places
+     * @param graph graph that contains the places
+     * @param start start place
+     * @param end target place
+     * @return paths from start to end (empty if start == end) or null, if
+     * end can't be reached
+     */
+    public List<Path> findPath(WorldGraph graph, Place start, Place end){
+        if(start == null || end == null){
+            throw new NullPointerException();
+        }
+        visitedCount = 0;
+        if(start == end) return new ArrayList<>();
+        final int s = graph.getIndex(start);
+        final int t = graph.getIndex(end);
+        if(s < 0 || t < 0) return null;
+        prepareHeuristic(graph, end, t);
+
+        final WorldGraph.Scratch scratch = graph.acquireScratch();
+        try {
+            return search(graph, scratch, start, s, t);
+        } finally {
+            graph.releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * A* search on the scratch arrays of the graph. The distance and the
+     * estimate of a place are valid if it is marked with the generation of
+     * the search, it is closed if its other mark is set
+     * @param graph
+     * @param scratch scratch arrays of the search
+     * @param start start place
+     * @param s start place index
+     * @param t end place index, s != t
+     * @return paths from start to end or null
+     */
+    private List<Path> search(WorldGraph graph, WorldGraph.Scratch scratch, Place start, int s, int t){
+        final int generation = scratch.generation;
+        final int[] reached = scratch.getMarks();
+        final int[] closed = scratch.getOtherMarks();
+        final double[] distance = scratch.getCosts();
+        final double[] estimate = scratch.getEstimates();
+        final int[] predecessors = scratch.getPredecessors();
+        final int[] edges = scratch.getEdges(); // edge from the predecessor
+        MinHeap<Integer> heap = new MinHeap<>();
+
+        reached[s] = generation;
+        distance[s] = 0;
+        estimate[s] = getEstimate(s, start);
+        if(estimate[s] == Double.POSITIVE_INFINITY) return null;
+        predecessors[s] = s;
+        heap.push(s, estimate[s]);
+        int visited = 1;
+
+        while(!heap.isEmpty()){
+            final int v = heap.pop();
+            if(closed[v] == generation) continue; // outdated heap entry
+            closed[v] = generation;
+
+            if(v == t){
+                visitedCount = visited;
+                return getRoute(graph, predecessors, edges, s, t);
+            }
+
+            final Place place = graph.places[v];
+            for(int e = graph.offsets[v]; e < graph.offsets[v + 1]; ++e){
+                final int vi = graph.targets[e];
+                if(closed[vi] == generation) continue;
+
+                final double c = cost.getCost(graph.paths[e], place, graph.places[vi]);
+                if(c == Double.POSITIVE_INFINITY) continue;
+                final double d = distance[v] + c;
+
+                if(reached[vi] != generation){
+                    reached[vi] = generation;
+                    distance[vi] = Double.POSITIVE_INFINITY;
+                    estimate[vi] = getEstimate(vi, graph.places[vi]);
+                    ++visited;
+                }
+                // end can't be reached from vi
+                if(estimate[vi] == Double.POSITIVE_INFINITY) continue;
+                if(d < distance[vi]){
+                    distance[vi] = d;
+                    predecessors[vi] = v;
+                    edges[vi] = e;
+                    heap.push(vi, d + estimate[vi]);
+                }
+            }
+        }
+        visitedCount = visited;
+        return null;
+    }
+
+    /**
+     * Gets the cost of a route
+     * @param start start place
+     * @param route paths from start
+     * @return sum of the path costs
+     */
+    public double getCost(Place start, List<Path> route){
+        double sum = 0;
+        Place place = start;
+        for(Path path: route){
+            Place next = path.getOtherPlace(place);
+            sum += cost.getCost(path, place, next);
+            place = next;
+        }
+        return sum;
+    }
+
+    /**
+     * Follows the predecessors from the end to the start
+     * @param graph
+     * @param predecessors predecessor of each place
+     * @param edges edge from the predecessor of each place
+     * @param s start place index
+     * @param t end place index
+     * @return paths from start to end
+     */
+    private static List<Path> getRoute(WorldGraph graph, int[] predecessors, int[] edges, int s, int t){
+        ArrayList<Path> route = new ArrayList<>();
+        for(int v = t; v != s; v = predecessors[v]){
+            route.add(graph.paths[edges[v]]);
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Collects the data of the target layer that is needed by the heuristic
+     * @param graph searched graph
+     * @param end target place
+     * @param t index of the target place
+     */
+    private void prepareHeuristic(WorldGraph graph, Place end, int t){
+        target = end;
+        targetLayer = end.getLayer();
+        minCost = cost.getMinCost();
+        oracle = null;
+        portals = null;
+        if(!useHeuristic || !(minCost > 0)){
+            minCost = 0;
+            return;
+        }
+        if(landmarks != null && landmarks.hasLowerBounds()){
+            oracleLookup = landmarks.getGraph() != graph;
+            oracleTarget = oracleLookup ? landmarks.getGraph().getIndex(end) : t;
+            if(oracleTarget >= 0){
+                oracle = landmarks;
+                oracleEntry = oracle.getEntryBound(oracleTarget);
+            }
+        }
+        if(targetLayer == null) return;
+
+        // the layer data is cached by the portal graph of the world, it is
+        // dropped when paths or places with paths of the layer change
+        final PortalGraph.LayerBounds bounds;
+        if(targetLayer.getWorld() != null){
+            bounds = targetLayer.getWorld().getPortalGraph().getBounds(targetLayer);
+        } else {
+            bounds = new PortalGraph.LayerBounds(targetLayer);
+        }
+        maxJump = bounds.maxJump;
+        portals = bounds.portals;
+        portalSteps = Long.MAX_VALUE;
+        for(Place portal: portals){
+            portalSteps = Math.min(portalSteps, getSteps(getDistance(portal, end)));
+        }
+    }
+
+    /**
+     * Gets the chebyshev distance between two places
+     * @param p1
+     * @param p2
+     * @return max coordinate difference
+     */
+    private static long getDistance(Place p1, Place p2){
+        return Math.max(Math.abs((long) p1.getX() - p2.getX()), Math.abs((long) p1.getY() - p2.getY()));
+    }
+
+    /**
+     * Gets the min number of steps on the target layer to cover a distance
+     * @param distance chebyshev distance
+     * @return number of steps
+     */
+    private long getSteps(long distance){
+        return (distance + maxJump - 1) / maxJump;
+    }
+
+    /**
+     * Estimates the remaining cost from a place to the target, the max of
+     * the landmark and the coordinate estimation
+     * @param v place index
+     * @param place
+     * @return lower bound of the cost, infinity if the target can't be
+     * reached
+     */
+    private double getEstimate(int v, Place place){
+        if(minCost == 0){
+            return 0;
+        }
+        double ret = 0;
+        if(oracle != null){
+            final int u = oracleLookup ? oracle.getGraph().getIndex(place) : v;
+            final int steps = u < 0 ? 0 : oracle.getLowerBound(u, oracleTarget, oracleEntry);
+            if(steps == LandmarkOracle.UNREACHABLE) return Double.POSITIVE_INFINITY;
+            ret = minCost * steps;
+        }
+        if(portals == null) return ret;
+        return Math.max(ret, getCoordinateEstimate(place));
+    }
+
+    /**
+     * Estimates the remaining cost from a place to the target by the
+     * coordinates
+     * @param place
+     * @return lower bound of the cost
+     */
+    private double getCoordinateEstimate(Place place){
+        final boolean hasPortals = !portals.isEmpty();
+        if(place.getLayer() != targetLayer){
+            // at least one step into the target layer
+            return hasPortals ? minCost * (1 + portalSteps) : minCost;
+        }
+
+        long steps = getSteps(getDistance(place, target));
+        if(hasPortals){
+            // leave the layer at a portal and come back at a portal, the
+            // euclidean distance to the nearest portal is converted to a
+            // lower bound of the chebyshev distance
+            Place portal = portals.nearest(place.getX(), place.getY(), 1,
+                    Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null).get(0);
+            double dx = (double) portal.getX() - place.getX();
+            double dy = (double) portal.getY() - place.getY();
+            long portalDistance = (long) Math.floor(Math.sqrt(dx * dx + dy * dy) / Math.sqrt(2));
+            steps = Math.min(steps, getSteps(portalDistance) + 2 + portalSteps);
+        }
+        return minCost * steps;
+    }
+}
@@ -0,0 +1,404 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.prquadtree.Quadtree;
+
+/**
+ * Layer level graph for searches across many layers. Portals are the places
+ * with paths to other layers, the distances between the portals of a layer
+ * are cached per layer. A search first finds the shortest sequence of
+ * portals (paths between layers and cached distances within layers) and
+ * then the paths within the layers between them, so it doesn't flood the
+ * layers on the way. The distances from a portal are computed when a search
+ * reaches it for the first time. Places that aren't on a layer are treated
+ * like a layer of their own.
+ *
+ * The cache of a layer has to be dropped by invalidate() when its paths or
+ * places with paths change. It also keeps the coordinate data of the layers
+ * for the heuristic of PathFinder. The data is created outside of the lock
+ * of the cache, so a search doesn't block other searches
+ * @author neop
+ */
+public class PortalGraph {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Portals of a layer and the distances between them
+     */
+    static final class LayerPortals {
+        final Place[] portals;
+        final IdentityHashMap<Place, Integer> indices;
+        // distances[i][j]: steps from portal i to portal j within the layer,
+        // a row is null until it's needed
+        private final int[][] distances;
+
+        LayerPortals(final Layer layer){
+            ArrayList<Place> list = new ArrayList<>();
+            for(Place place: layer){
+                for(Path path: place.getPaths()){
+                    if(path.getOtherPlace(place).getLayer() != layer){
+                        list.add(place);
+                        break;
+                    }
+                }
+            }
+            portals = list.toArray(new Place[list.size()]);
+            indices = new IdentityHashMap<>(portals.length);
+            for(int i = 0; i < portals.length; ++i){
+                indices.put(portals[i], i);
+            }
+            distances = new int[portals.length][];
+        }
+
+        /**
+         * Gets the distances from a portal to the other portals, the breadth
+         * search runs outside of the lock
+         * @param i portal number
+         * @return steps to each portal or UNREACHABLE
+         */
+        int[] getDistances(final int i){
+            synchronized(this){
+                if(distances[i] != null) return distances[i];
+            }
+            final int[] row = new int[portals.length];
+            final IdentityHashMap<Place, Integer> reached = PortalGraph.getDistances(portals[i], true);
+            for(int j = 0; j < portals.length; ++j){
+                Integer d = reached.get(portals[j]);
+                row[j] = d == null ? UNREACHABLE : d;
+            }
+            synchronized(this){
+                if(distances[i] == null) distances[i] = row;
+                return distances[i];
+            }
+        }
+    }
+
+    /**
+     * Coordinate data of a layer for the heuristic of PathFinder
+     */
+    static final class LayerBounds {
+        // max chebyshev distance covered by a path within the layer
+        final long maxJump;
+        // places with paths to other layers, not modified after construction
+        final Quadtree<Place> portals = new Quadtree<>();
+
+        LayerBounds(final Layer layer){
+            long jump = 1;
+            for(Place place: layer){
+                boolean isPortal = false;
+                for(Path path: place.getPaths()){
+                    Place other = path.getOtherPlace(place);
+                    if(other.getLayer() != layer){
+                        isPortal = true;
+                    } else {
+                        jump = Math.max(jump, Math.max(
+                                Math.abs((long) place.getX() - other.getX()),
+                                Math.abs((long) place.getY() - other.getY())));
+                    }
+                }
+                if(isPortal){
+                    try {
+                        portals.insert(place, place.getX(), place.getY());
+                    } catch (Exception ex) {
+                        // positions are unique in a layer
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+            maxJump = jump;
+        }
+    }
+
+    final IdentityHashMap<Layer, LayerPortals> layers = new IdentityHashMap<>();
+    final IdentityHashMap<Layer, LayerBounds> bounds = new IdentityHashMap<>();
+    // changed by each invalidation, data created before isn't cached
+    int version = 0;
+
+    /**
+     * Drops the cached portals of a layer
+     * @param layer
+     */
+    public synchronized void invalidate(final Layer layer){
+        layers.remove(layer);
+        bounds.remove(layer);
+        ++version;
+    }
+
+    /**
+     * Drops all cached portals
+     */
+    public synchronized void clear(){
+        layers.clear();
+        bounds.clear();
+        ++version;
+    }
+
+    /**
+     * Gets the portals of a layer, creates them if they aren't cached
+     * @param layer
+     * @return portals
+     */
+    LayerPortals getPortals(final Layer layer){
+        final int created;
+        synchronized(this){
+            LayerPortals ret = layers.get(layer);
+            if(ret != null) return ret;
+            created = version;
+        }
+        final LayerPortals ret = new LayerPortals(layer);
+        synchronized(this){
+            if(version != created) return ret;
+            LayerPortals other = layers.get(layer);
+            if(other != null) return other;
+            layers.put(layer, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the coordinate data of a layer, creates it if it isn't cached
+     * @param layer
+     * @return coordinate data
+     */
+    LayerBounds getBounds(final Layer layer){
+        final int created;
+        synchronized(this){
+            LayerBounds ret = bounds.get(layer);
+            if(ret != null) return ret;
+            created = version;
+        }
+        final LayerBounds ret = new LayerBounds(layer);
+        synchronized(this){
+            if(version != created) return ret;
+            LayerBounds other = bounds.get(layer);
+            if(other != null) return other;
+            bounds.put(layer, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the places of a layer that have paths to other layers
+     * @param layer
+     * @return portal places
+     */
+    public List<Place> getPortalPlaces(final Layer layer){
+        ArrayList<Place> ret = new ArrayList<>();
+        Collections.addAll(ret, getPortals(layer).portals);
+        return ret;
+    }
+
+    /**
+     * Checks whether a path can be used from a place
+     * @param path
+     * @param from
+     * @return true, if the exit of from isn't "-"
+     */
+    private static boolean isUsable(final Path path, final Place from){
+        return !path.getExit(from).equals("-");
+    }
+
+    /**
+     * Breadth search within the layer of a place
+     * @param place start place
+     * @param forward distances from the place, else to the place
+     * @return distances of the reached places of the layer
+     */
+    static IdentityHashMap<Place, Integer> getDistances(final Place place, final boolean forward){
+        final Layer layer = place.getLayer();
+        IdentityHashMap<Place, Integer> distances = new IdentityHashMap<>();
+        distances.put(place, 0);
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(place);
+        while(!queue.isEmpty()){
+            final Place v = queue.poll();
+            final int d = distances.get(v) + 1;
+            for(Path path: v.getPaths()){
+                final Place vi = path.getOtherPlace(v);
+                if(vi.getLayer() == layer && !distances.containsKey(vi)
+                        && isUsable(path, forward ? v : vi)){
+                    distances.put(vi, d);
+                    queue.add(vi);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Finds the shortest path within a layer
+     * @param start start place
+     * @param end end place on the same layer
+     * @return places from start to end or null
+     */
+    private static List<Place> getLayerPath(final Place start, final Place end){
+        final Layer layer = start.getLayer();
+        IdentityHashMap<Place, Place> predecessors = new IdentityHashMap<>();
+        predecessors.put(start, start);
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(start);
+        while(!queue.isEmpty() && !predecessors.containsKey(end)){
+            final Place v = queue.poll();
+            for(Path path: v.getPaths()){
+                final Place vi = path.getOtherPlace(v);
+                if(vi.getLayer() == layer && !predecessors.containsKey(vi) && isUsable(path, v)){
+                    predecessors.put(vi, v);
+                    queue.add(vi);
+                }
+            }
+        }
+        if(!predecessors.containsKey(end)) return null;
+        ArrayList<Place> path = new ArrayList<>();
+        for(Place place = end; place != start; place = predecessors.get(place)){
+            path.add(place);
+        }
+        path.add(start);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Finds the shortest path between two places, the result has the same
+     * length as a breadth search on all places
+     * @param start start place
+     * @param end end place
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     */
+    public List<Place> breadthSearchPath(final Place start, final Place end){
+        if(start == end){
+            ArrayList<Place> path = new ArrayList<>();
+            path.add(start);
+            return path;
+        }
+        final Layer endLayer = end.getLayer();
+        final IdentityHashMap<Place, Integer> fromStart = start.getLayer() == null ? null : getDistances(start, true);
+        final IdentityHashMap<Place, Integer> toEnd = endLayer == null ? null : getDistances(end, false);
+
+        // coarse search: start, portals and end
+        IdentityHashMap<Place, Integer> distances = new IdentityHashMap<>();
+        IdentityHashMap<Place, Place> predecessors = new IdentityHashMap<>();
+        MinHeap<Place> heap = new MinHeap<>();
+        distances.put(start, 0);
+        heap.push(start, 0);
+
+        while(!heap.isEmpty()){
+            final int d = (int) heap.peekKey();
+            final Place v = heap.pop();
+            if(d > distances.get(v)) continue; // outdated heap entry
+            if(v == end) break;
+
+            final Layer layer = v.getLayer();
+            if(layer == null){
+                // a place without layer is a layer of its own
+                for(Path path: v.getPaths()){
+                    final Place vi = path.getOtherPlace(v);
+                    if(vi != v && isUsable(path, v)){
+                        relax(distances, predecessors, heap, v, vi, d + 1);
+                    }
+                }
+                continue;
+            }
+            final LayerPortals portals = getPortals(layer);
+            final Integer i = portals.indices.get(v);
+            if(v == start || i == null){
+                // places that aren't cached portals search their layer
+                final IdentityHashMap<Place, Integer> reached = v == start ? fromStart : getDistances(v, true);
+                for(Map.Entry<Place, Integer> entry: reached.entrySet()){
+                    final Place target = entry.getKey();
+                    if(target == end || portals.indices.containsKey(target)){
+                        relax(distances, predecessors, heap, v, target, d + entry.getValue());
+                    }
+                }
+            } else {
+                final int[] portalDistances = portals.getDistances(i);
+                for(int j = 0; j < portals.portals.length; ++j){
+                    if(j != i && portalDistances[j] != UNREACHABLE){
+                        relax(distances, predecessors, heap, v, portals.portals[j], d + portalDistances[j]);
+                    }
+                }
+                final Integer e = layer == endLayer ? toEnd.get(v) : null;
+                if(e != null){
+                    relax(distances, predecessors, heap, v, end, d + e);
+                }
+            }
+
+            // paths to other layers
+            for(Path path: v.getPaths()){
+                final Place vi = path.getOtherPlace(v);
+                if(vi.getLayer() != layer && isUsable(path, v)){
+                    relax(distances, predecessors, heap, v, vi, d + 1);
+                }
+            }
+        }
+        if(!predecessors.containsKey(end)) return null;
+
+        // fine search: paths within the layers between the portals
+        ArrayList<Place> nodes = new ArrayList<>();
+        for(Place place = end; place != start; place = predecessors.get(place)){
+            nodes.add(place);
+        }
+        nodes.add(start);
+        Collections.reverse(nodes);
+
+        ArrayList<Place> path = new ArrayList<>();
+        path.add(start);
+        for(int i = 0; i + 1 < nodes.size(); ++i){
+            final Place from = nodes.get(i), to = nodes.get(i + 1);
+            // places without layer are only connected by direct paths
+            if(from.getLayer() != to.getLayer() || from.getLayer() == null){
+                path.add(to);
+            } else {
+                List<Place> segment = getLayerPath(from, to);
+                path.addAll(segment.subList(1, segment.size()));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Updates the distance of a node of the coarse search
+     * @param distances distance of each node
+     * @param predecessors predecessor of each node
+     * @param heap nodes to visit
+     * @param from predecessor
+     * @param to node
+     * @param d new distance
+     */
+    private static void relax(IdentityHashMap<Place, Integer> distances,
+            IdentityHashMap<Place, Place> predecessors, MinHeap<Place> heap,
+            Place from, Place to, int d){
+        Integer old = distances.get(to);
+        if(old == null || d < old){
+            distances.put(to, d);
+            predecessors.put(to, from);
+            heap.push(to, d);
+        }
+    }
+
+}
@@ -0,0 +1,384 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import mudmap2.backend.Place;
+
+/**
+ * Plans a short route that visits many places, eg. the shops and quest
+ * places of a run. The distances between all places are computed by
+ * breadth searches on the path graph in parallel, the order is found by
+ * the nearest neighbour heuristic and improved by 2-opt and Or-opt moves
+ * (no guarantee for the shortest order). Distances may differ by direction,
+ * because of one-way paths. The planners share one pool of daemon threads,
+ * a plan can be run by BackgroundSearch and cancelled through its monitor
+ * @author neop
+ */
+public class RoutePlanner {
+
+    // cost of a leg that can't be walked, higher than any route
+    static final long UNREACHABLE_COST = (long) Integer.MAX_VALUE;
+
+    static final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // the breadth searches of all planners share these daemon threads
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "route planner");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    final WorldGraph graph;
+    boolean returnToStart = false;
+
+    // result of the last plan
+    List<Place> order = null;
+    int length = -1;
+
+    /**
+     * Constructs a route planner
+     * @param graph path graph
+     */
+    public RoutePlanner(final WorldGraph graph){
+        if(graph == null){
+            throw new NullPointerException();
+        }
+        this.graph = graph;
+    }
+
+    /**
+     * Sets whether the route ends at the start place
+     * @param returnToStart true for a round trip
+     */
+    public void setReturnToStart(final boolean returnToStart){
+        this.returnToStart = returnToStart;
+    }
+
+    /**
+     * Gets the order of the places of the last plan
+     * @return start and waypoints in visiting order or null
+     */
+    public List<Place> getOrder(){
+        return order;
+    }
+
+    /**
+     * Gets the number of steps of the last plan
+     * @return number of steps or -1
+     */
+    public int getLength(){
+        return length;
+    }
+
+    /**
+     * Plans a route
+     * @param start start place
+     * @param waypoints places to visit, in any order
+     * @return places of the route from start through all waypoints (and
+     * back to start, if set) or null, if a waypoint can't be reached
+     */
+    public List<Place> planRoute(final Place start, final Collection<Place> waypoints){
+        return planRoute(start, waypoints, null);
+    }
+
+    /**
+     * Plans a route, the planning can be cancelled through the monitor. The
+     * progress is reported as the number of finished and remaining distance
+     * searches
+     * @param start start place
+     * @param waypoints places to visit, in any order
+     * @param monitor progress and cancellation monitor or null
+     * @return places of the route from start through all waypoints (and
+     * back to start, if set) or null, if a waypoint can't be reached
+     * @throws CancellationException if the monitor was cancelled
+     */
+    public List<Place> planRoute(final Place start, final Collection<Place> waypoints, final SearchMonitor monitor){
+        order = null;
+        length = -1;
+
+        // start first, no duplicates
+        final ArrayList<Place> places = new ArrayList<>();
+        final IdentityHashMap<Place, Boolean> added = new IdentityHashMap<>();
+        places.add(start);
+        added.put(start, true);
+        for(Place place: waypoints){
+            if(added.put(place, true) == null){
+                places.add(place);
+            }
+        }
+
+        final int n = places.size();
+        if(n == 1){
+            order = new ArrayList<>(places);
+            length = 0;
+            return new ArrayList<>(places);
+        }
+        final int[] indices = new int[n];
+        for(int i = 0; i < n; ++i){
+            indices[i] = graph.getIndex(places.get(i));
+            if(indices[i] < 0) return null;
+        }
+
+        final long[][] costs = getCosts(indices, monitor);
+        final int[] tour = getNearestNeighborTour(costs);
+        improve(tour, costs, monitor);
+        if(getCost(tour, costs) >= UNREACHABLE_COST) return null;
+
+        // stitch the paths between the waypoints
+        order = new ArrayList<>();
+        final ArrayList<Place> route = new ArrayList<>();
+        route.add(start);
+        for(int i = 0; i < tour.length; ++i){
+            order.add(places.get(tour[i]));
+        }
+        final int legs = returnToStart && n > 1 ? n : n - 1;
+        for(int i = 0; i < legs; ++i){
+            List<Place> leg = graph.breadthSearchPath(places.get(tour[i]), places.get(tour[(i + 1) % n]), true);
+            route.addAll(leg.subList(1, leg.size()));
+        }
+        length = route.size() - 1;
+        return route;
+    }
+
+    /**
+     * Computes the distances between all places, one breadth search per
+     * place on multiple threads
+     * @param indices graph indices of the places
+     * @param monitor monitor or null
+     * @return costs[i][j] steps from place i to j
+     */
+    private long[][] getCosts(final int[] indices, final SearchMonitor monitor){
+        final int n = indices.length;
+        final long[][] costs = new long[n][];
+        if(Math.min(n, THREAD_COUNT) == 1){
+            for(int i = 0; i < n; ++i){
+                if(monitor != null) monitor.update(i, n - i);
+                costs[i] = getCosts(indices, i);
+            }
+            return costs;
+        }
+
+        ArrayList<Future<long[]>> results = new ArrayList<>(n);
+        try {
+            for(int i = 0; i < n; ++i){
+                final int from = i;
+                results.add(EXECUTOR.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        return getCosts(indices, from);
+                    }
+                }));
+            }
+            for(int i = 0; i < n; ++i){
+                if(monitor != null) monitor.update(i, n - i);
+                costs[i] = results.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            // searches that weren't needed anymore, eg. after cancellation
+            for(Future<long[]> result: results){
+                result.cancel(false);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Computes the distances from one place to all others
+     * @param indices graph indices of the places
+     * @param from place number
+     * @return distance to each place
+     */
+    private long[] getCosts(final int[] indices, final int from){
+        final WorldGraph.Scratch scratch = graph.acquireScratch();
+        try {
+            final int generation = scratch.generation;
+            final int[] reached = scratch.getMarks();
+            final int[] distances = scratch.getDistances();
+            final int s = indices[from];
+            reached[s] = generation;
+            distances[s] = 0;
+
+            // stop when all places were found
+            final int[] wanted = scratch.getOtherMarks();
+            int remaining = 0;
+            for(int index: indices){
+                if(wanted[index] != generation && index != s){
+                    wanted[index] = generation;
+                    ++remaining;
+                }
+            }
+
+            final int[] queue = scratch.getQueue();
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            while(head < tail && remaining > 0){
+                final int v = queue[head++];
+                for(int e = graph.offsets[v]; e < graph.offsets[v + 1]; ++e){
+                    final int vi = graph.targets[e];
+                    if(reached[vi] != generation){
+                        reached[vi] = generation;
+                        distances[vi] = distances[v] + 1;
+                        queue[tail++] = vi;
+                        if(wanted[vi] == generation) --remaining;
+                    }
+                }
+            }
+
+            final long[] ret = new long[indices.length];
+            for(int i = 0; i < indices.length; ++i){
+                ret[i] = reached[indices[i]] != generation ? UNREACHABLE_COST : distances[indices[i]];
+            }
+            return ret;
+        } finally {
+            graph.releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Creates a tour that always goes to the nearest unvisited place
+     * @param costs distances
+     * @return order of the places, starting with 0
+     */
+    private static int[] getNearestNeighborTour(final long[][] costs){
+        final int n = costs.length;
+        final int[] tour = new int[n];
+        final boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for(int i = 1; i < n; ++i){
+            final int last = tour[i - 1];
+            int best = -1;
+            for(int j = 1; j < n; ++j){
+                if(!visited[j] && (best < 0 || costs[last][j] < costs[last][best])){
+                    best = j;
+                }
+            }
+            tour[i] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    /**
+     * Gets the cost of a tour
+     * @param tour order of the places
+     * @param costs distances
+     * @return sum of the distances
+     */
+    private long getCost(final int[] tour, final long[][] costs){
+        long ret = 0;
+        for(int i = 0; i + 1 < tour.length; ++i){
+            ret += costs[tour[i]][tour[i + 1]];
+        }
+        if(returnToStart && tour.length > 1){
+            ret += costs[tour[tour.length - 1]][tour[0]];
+        }
+        return ret;
+    }
+
+    /**
+     * Improves a tour by 2-opt (reverse a part) and Or-opt (move up to
+     * three places) moves until no move makes it shorter. The start stays
+     * at the beginning
+     * @param tour order of the places, will be modified
+     * @param costs distances
+     * @param monitor monitor or null
+     */
+    private void improve(final int[] tour, final long[][] costs, final SearchMonitor monitor){
+        final int n = tour.length;
+        long best = getCost(tour, costs);
+        final int[] candidate = new int[n];
+        boolean improved = true;
+        while(improved){
+            improved = false;
+
+            // 2-opt, the whole tour is evaluated because of one-way paths
+            for(int i = 1; i < n - 1; ++i){
+                if(monitor != null) monitor.update(n, 0);
+                for(int j = i + 1; j < n; ++j){
+                    System.arraycopy(tour, 0, candidate, 0, n);
+                    for(int a = i, b = j; a < b; ++a, --b){
+                        candidate[a] = tour[b];
+                        candidate[b] = tour[a];
+                    }
+                    final long cost = getCost(candidate, costs);
+                    if(cost < best){
+                        best = cost;
+                        System.arraycopy(candidate, 0, tour, 0, n);
+                        improved = true;
+                    }
+                }
+            }
+
+            // Or-opt: move a segment of 1 to 3 places to another position
+            for(int length = 1; length <= 3; ++length){
+                for(int i = 1; i + length <= n; ++i){
+                    if(monitor != null) monitor.update(n, 0);
+                    for(int j = 1; j + length <= n; ++j){
+                        if(j == i) continue;
+                        moveSegment(tour, candidate, i, length, j);
+                        final long cost = getCost(candidate, costs);
+                        if(cost < best){
+                            best = cost;
+                            System.arraycopy(candidate, 0, tour, 0, n);
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a segment of a tour
+     * @param tour source tour
+     * @param result result tour
+     * @param from first position of the segment
+     * @param length segment length
+     * @param to first position of the segment in the result
+     */
+    private static void moveSegment(final int[] tour, final int[] result, final int from, final int length, final int to){
+        final int n = tour.length;
+        // tour without the segment
+        final int[] rest = new int[n - length];
+        System.arraycopy(tour, 0, rest, 0, from);
+        System.arraycopy(tour, from + length, rest, from, n - from - length);
+        // insert it at the new position
+        System.arraycopy(rest, 0, result, 0, to);
+        System.arraycopy(tour, from, result, to, length);
+        System.arraycopy(rest, to, result, to + length, n - length - to);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation token and progress reporter of a search. Searches call
+ * update() every CHECK_INTERVAL expanded places, it throws a
+ * CancellationException if the search was cancelled and passes the progress
+ * to the listener at most every REPORT_INTERVAL ms
+ * @author neop
+ */
+public class SearchMonitor {
+
+    /**
+     * Receives the progress of a search, it's called by the search thread
+     */
+    public interface ProgressListener {
+        /**
+         * Progress of a search
+         * @param expanded number of expanded places
+         * @param frontier number of places in the frontier
+         */
+        public void progress(int expanded, int frontier);
+    }
+
+    // number of expanded places between two calls of update(), power of two
+    public static final int CHECK_INTERVAL = 1 << 12;
+    public static final long REPORT_INTERVAL = 100;
+
+    final ProgressListener listener;
+    volatile boolean cancelled = false;
+    long lastReport;
+
+    /**
+     * Constructs a monitor without progress listener
+     */
+    public SearchMonitor(){
+        this(null);
+    }
+
+    /**
+     * Constructs a monitor
+     * @param listener progress listener or null
+     */
+    public SearchMonitor(final ProgressListener listener){
+        this.listener = listener;
+        lastReport = System.currentTimeMillis();
+    }
+
+    /**
+     * Cancels the search, it stops at the next call of update()
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the search was cancelled
+     * @return true, if cancelled
+     */
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    /**
+     * Checks for cancellation and reports the progress, called by the
+     * search thread
+     * @param expanded number of expanded places
+     * @param frontier number of places in the frontier
+     * @throws CancellationException if the search was cancelled
+     */
+    public void update(final int expanded, final int frontier){
+        if(cancelled){
+            throw new CancellationException();
+        }
+        if(listener != null){
+            final long now = System.currentTimeMillis();
+            if(now - lastReport >= REPORT_INTERVAL){
+                lastReport = now;
+                listener.progress(expanded, frontier);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.List;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Builds speedwalk commands for MUD clients from routes, eg. "3n2e". Steps
+ * are added one at a time, so long routes don't need intermediate lists.
+ * Repeated single character directions are compressed according to the
+ * dialect. Other exits (like "ne" or "enter portal") are written as commands
+ * of their own, since clients would read "2ne" as "n;n;e"
+ * @author neop
+ */
+public class Speedwalk {
+
+    /**
+     * Speedwalk formats of MUD clients
+     */
+    public enum Dialect {
+        // 3n2e(enter portal)
+        COMPACT("", true, false),
+        // .3n2e(enter portal), eg. zMUD / CMUD
+        ZMUD(".", true, false),
+        // 3n2e;enter portal, eg. TinTin++
+        TINTIN("", true, true),
+        // n;n;n;e;e;enter portal, one command per step
+        PLAIN("", false, true);
+
+        final String prefix;
+        final boolean compress;
+        final boolean separateCommands;
+
+        private Dialect(String prefix, boolean compress, boolean separateCommands){
+            this.prefix = prefix;
+            this.compress = compress;
+            this.separateCommands = separateCommands;
+        }
+    }
+
+    final Dialect dialect;
+    final String separator;
+    final StringBuilder builder = new StringBuilder();
+
+    // current run of equal steps
+    String runExit = null;
+    int runLength = 0;
+    // whether the last written part was a direction run
+    boolean lastWasRun = false;
+    int steps = 0;
+
+    // last place of the route, for add(Place)
+    Place place = null;
+
+    /**
+     * Constructs an empty compact speedwalk
+     */
+    public Speedwalk(){
+        this(Dialect.COMPACT, ";");
+    }
+
+    /**
+     * Constructs an empty speedwalk
+     * @param dialect output format
+     * @param separator separator of commands (TINTIN and PLAIN)
+     */
+    public Speedwalk(final Dialect dialect, final String separator){
+        if(dialect == null || separator == null){
+            throw new NullPointerException();
+        }
+        this.dialect = dialect;
+        this.separator = separator;
+    }
+
+    /**
+     * Checks whether an exit is a direction
+     * @param exit exit name
+     * @return true, if the exit is in Path.directions
+     */
+    private static boolean isDirection(final String exit){
+        return !exit.equals("-") && WorldGraph.getDirectionCode(exit) != WorldGraph.DIRECTION_OTHER;
+    }
+
+    /**
+     * Checks whether an exit can be written without separator and repeat
+     * count, only single character directions can be
+     * @param exit exit name
+     * @return true, if the exit is a single character direction
+     */
+    private static boolean isCompressible(final String exit){
+        return exit.length() == 1 && isDirection(exit);
+    }
+
+    /**
+     * Adds a step
+     * @param exit exit name
+     * @return this
+     */
+    public Speedwalk addExit(final String exit){
+        if(exit == null || exit.isEmpty() || exit.equals("-")){
+            throw new IllegalArgumentException("Invalid exit: " + exit);
+        }
+        ++steps;
+        if(dialect.compress && isCompressible(exit) && exit.equals(runExit)){
+            ++runLength;
+        } else {
+            flush();
+            runExit = exit;
+            runLength = 1;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a step along a path
+     * @param path path
+     * @param from place the path is entered from
+     * @return this
+     */
+    public Speedwalk addPath(final Path path, final Place from){
+        place = path.getOtherPlace(from);
+        return addExit(path.getExit(from));
+    }
+
+    /**
+     * Adds the next place of a route. The first place is the start, each
+     * other place adds a step along a path from the previous place
+     * @param next next place
+     * @return this
+     * @throws IllegalArgumentException if there is no path to the place
+     */
+    public Speedwalk add(final Place next){
+        if(place != null && next != place){
+            Path path = getPath(place, next);
+            if(path == null){
+                throw new IllegalArgumentException("No path from " + place + " to " + next);
+            }
+            addExit(path.getExit(place));
+        }
+        place = next;
+        return this;
+    }
+
+    /**
+     * Adds all places of a route, see add(Place)
+     * @param places places of a route, eg. from a breadth search
+     * @return this
+     */
+    public Speedwalk addAll(final Iterable<Place> places){
+        for(Place next: places){
+            add(next);
+        }
+        return this;
+    }
+
+    /**
+     * Adds all paths of a route, eg. from PathFinder
+     * @param start start place
+     * @param paths paths from the start
+     * @return this
+     */
+    public Speedwalk addAll(final Place start, final Iterable<Path> paths){
+        place = start;
+        for(Path path: paths){
+            addPath(path, place);
+        }
+        return this;
+    }
+
+    /**
+     * Gets a path that can be used from one place to another, single
+     * character directions are preferred, because they can be compressed
+     * @param from
+     * @param to
+     * @return path or null
+     */
+    private static Path getPath(final Place from, final Place to){
+        Path ret = null;
+        for(Path path: from.getPaths(to)){
+            if(path.getOtherPlace(from) == to && !path.getExit(from).equals("-")){
+                if(isCompressible(path.getExit(from))) return path;
+                if(ret == null) ret = path;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the current run
+     */
+    private void flush(){
+        if(runExit == null) return;
+
+        final boolean run = isCompressible(runExit) && dialect.compress;
+        if(builder.length() == 0){
+            builder.append(dialect.prefix);
+        } else if(dialect.separateCommands && (!run || !lastWasRun || !dialect.compress)){
+            builder.append(separator);
+        }
+
+        if(run){
+            if(runLength > 1) builder.append(runLength);
+            builder.append(runExit);
+        } else if(dialect.separateCommands){
+            builder.append(runExit);
+        } else {
+            builder.append('(').append(runExit).append(')');
+        }
+        lastWasRun = run;
+        runExit = null;
+        runLength = 0;
+    }
+
+    /**
+     * Gets the number of steps
+     * @return number of added steps
+     */
+    public int getStepCount(){
+        return steps;
+    }
+
+    /**
+     * Gets the speedwalk command
+     * @return speedwalk
+     */
+    @Override
+    public String toString(){
+        // write the current run without ending it, more steps may follow
+        final int length = builder.length();
+        final String exit = runExit;
+        final int count = runLength;
+        final boolean wasRun = lastWasRun;
+        flush();
+        final String ret = builder.toString();
+        builder.setLength(length);
+        runExit = exit;
+        runLength = count;
+        lastWasRun = wasRun;
+        return ret;
+    }
+
+    /**
+     * Creates the compact speedwalk of a route
+     * @param places places of a route, eg. from a breadth search
+     * @return speedwalk
+     */
+    public static String of(final List<Place> places){
+        return new Speedwalk().addAll(places).toString();
+    }
+
+}
@@ -0,0 +1,648 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Immutable compressed sparse row representation of the paths of a world.
+ * The places are numbered from 0 to getPlaceCount() - 1, the usable
+ * directions of the paths (no "-" exits, no paths from a place to itself)
+ * are stored as edges. The outgoing edges of place v are
+ * getEdgeBegin(v) ... getEdgeEnd(v) - 1, the incoming edges are stored in the
+ * same way for backward searches. Searches on the graph only touch int
+ * arrays instead of hash sets and exit strings. The per place state of a
+ * search is kept in scratch arrays of the graph that are reused by later
+ * searches, so a search only touches the places it reaches.
+ *
+ * The graph doesn't follow changes of the world, World.getGraph() creates a
+ * new one after paths were changed
+ * @author neop
+ */
+public final class WorldGraph {
+
+    /**
+     * Direction code of exits that aren't in Path.directions
+     */
+    public static final byte DIRECTION_OTHER = -1;
+
+    final Place[] places;
+    final IdentityHashMap<Place, Integer> indices;
+
+    // outgoing edges
+    final int[] offsets;
+    final int[] targets;
+    final byte[] directions;
+    final Path[] paths;
+
+    // incoming edges, inSources[i] is the start place of edge inEdges[i]
+    final int[] inOffsets;
+    final int[] inSources;
+
+    // unused scratch arrays, one is needed for each concurrent search
+    private final ArrayDeque<Scratch> scratchPool = new ArrayDeque<>();
+
+    /**
+     * Per place state of a search. The arrays aren't cleared between
+     * searches: an entry is only valid if the mark of its place equals the
+     * generation of the current search. The arrays are created when a
+     * search needs them for the first time
+     */
+    static final class Scratch {
+        private final int size;
+        int generation = 0;
+
+        private int[] marks, otherMarks;
+        private int[] predecessors, successors;
+        private int[] distances, otherDistances, edges, queue;
+        private double[] costs, estimates;
+
+        Scratch(final int size){
+            this.size = size;
+        }
+
+        /**
+         * Starts a new search, all entries become invalid
+         */
+        void begin(){
+            if(generation == Integer.MAX_VALUE){
+                if(marks != null) Arrays.fill(marks, 0);
+                if(otherMarks != null) Arrays.fill(otherMarks, 0);
+                generation = 0;
+            }
+            ++generation;
+        }
+
+        int[] getMarks(){
+            if(marks == null) marks = new int[size];
+            return marks;
+        }
+
+        int[] getOtherMarks(){
+            if(otherMarks == null) otherMarks = new int[size];
+            return otherMarks;
+        }
+
+        int[] getPredecessors(){
+            if(predecessors == null) predecessors = new int[size];
+            return predecessors;
+        }
+
+        int[] getSuccessors(){
+            if(successors == null) successors = new int[size];
+            return successors;
+        }
+
+        int[] getDistances(){
+            if(distances == null) distances = new int[size];
+            return distances;
+        }
+
+        int[] getOtherDistances(){
+            if(otherDistances == null) otherDistances = new int[size];
+            return otherDistances;
+        }
+
+        int[] getEdges(){
+            if(edges == null) edges = new int[size];
+            return edges;
+        }
+
+        /**
+         * Gets the queue array, the bidirectional search stores both
+         * frontiers in it
+         * @return array of length 2 * size
+         */
+        int[] getQueue(){
+            if(queue == null) queue = new int[2 * size];
+            return queue;
+        }
+
+        double[] getCosts(){
+            if(costs == null) costs = new double[size];
+            return costs;
+        }
+
+        double[] getEstimates(){
+            if(estimates == null) estimates = new double[size];
+            return estimates;
+        }
+    }
+
+    /**
+     * Creates a graph of all places of the layers and all places that can
+     * be reached from them
+     * @param layers
+     */
+    public WorldGraph(final Collection<Layer> layers) {
+        this(getPlaces(layers));
+    }
+
+    /**
+     * Creates a graph of the places and all places that are connected to them
+     * @param seeds places
+     */
+    public WorldGraph(final List<Place> seeds) {
+        ArrayList<Place> placeList = new ArrayList<>(seeds.size());
+        indices = new IdentityHashMap<>(seeds.size());
+        for(Place place: seeds){
+            if(!indices.containsKey(place)){
+                indices.put(place, placeList.size());
+                placeList.add(place);
+            }
+        }
+
+        // count the edges and add the places that aren't on a layer
+        int edgeCount = 0;
+        for(int v = 0; v < placeList.size(); ++v){
+            Place place = placeList.get(v);
+            for(Path path: place.getPaths()){
+                Place other = path.getOtherPlace(place);
+                if(!indices.containsKey(other)){
+                    indices.put(other, placeList.size());
+                    placeList.add(other);
+                }
+                if(isUsable(path, place, other)) ++edgeCount;
+            }
+        }
+
+        places = placeList.toArray(new Place[placeList.size()]);
+        offsets = new int[places.length + 1];
+        targets = new int[edgeCount];
+        directions = new byte[edgeCount];
+        paths = new Path[edgeCount];
+        inOffsets = new int[places.length + 1];
+        inSources = new int[edgeCount];
+
+        int e = 0;
+        for(int v = 0; v < places.length; ++v){
+            offsets[v] = e;
+            for(Path path: places[v].getPaths()){
+                Place other = path.getOtherPlace(places[v]);
+                if(isUsable(path, places[v], other)){
+                    targets[e] = indices.get(other);
+                    directions[e] = getDirectionCode(path.getExit(places[v]));
+                    paths[e] = path;
+                    ++inOffsets[targets[e] + 1];
+                    ++e;
+                }
+            }
+        }
+        offsets[places.length] = e;
+
+        // counting sort of the edges by target
+        for(int v = 0; v < places.length; ++v){
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] position = Arrays.copyOf(inOffsets, places.length);
+        for(int v = 0; v < places.length; ++v){
+            for(int i = offsets[v]; i < offsets[v + 1]; ++i){
+                inSources[position[targets[i]]++] = v;
+            }
+        }
+    }
+
+    /**
+     * Collects the places of the layers
+     * @param layers
+     * @return places
+     */
+    private static List<Place> getPlaces(final Collection<Layer> layers){
+        ArrayList<Place> ret = new ArrayList<>();
+        for(Layer layer: layers){
+            for(Place place: layer){
+                ret.add(place);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether a path can be used from a place
+     * @param path
+     * @param from
+     * @param to
+     * @return true, if the path isn't a loop and its exit isn't "-"
+     */
+    private static boolean isUsable(final Path path, final Place from, final Place to){
+        return from != to && !path.getExit(from).equals("-");
+    }
+
+    /**
+     * Gets the direction code of an exit
+     * @param exit exit name
+     * @return index in Path.directions or DIRECTION_OTHER
+     */
+    public static byte getDirectionCode(final String exit){
+        for(byte i = 0; i < Path.directions.length; ++i){
+            if(Path.directions[i].equals(exit)) return i;
+        }
+        return DIRECTION_OTHER;
+    }
+
+    /**
+     * Gets the number of places
+     * @return number of places
+     */
+    public int getPlaceCount(){
+        return places.length;
+    }
+
+    /**
+     * Gets the number of edges
+     * @return number of usable path directions
+     */
+    public int getEdgeCount(){
+        return targets.length;
+    }
+
+    /**
+     * Gets the index of a place
+     * @param place
+     * @return index or -1, if the place isn't in the graph
+     */
+    public int getIndex(final Place place){
+        Integer index = indices.get(place);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets a place by its index
+     * @param v index
+     * @return place
+     */
+    public Place getPlace(final int v){
+        return places[v];
+    }
+
+    /**
+     * Gets the first outgoing edge of a place
+     * @param v place index
+     * @return edge index
+     */
+    public int getEdgeBegin(final int v){
+        return offsets[v];
+    }
+
+    /**
+     * Gets the end of the outgoing edges of a place
+     * @param v place index
+     * @return edge index after the last edge of v
+     */
+    public int getEdgeEnd(final int v){
+        return offsets[v + 1];
+    }
+
+    /**
+     * Gets the target place of an edge
+     * @param e edge index
+     * @return place index
+     */
+    public int getTarget(final int e){
+        return targets[e];
+    }
+
+    /**
+     * Gets the direction code of an edge
+     * @param e edge index
+     * @return index in Path.directions or DIRECTION_OTHER
+     */
+    public byte getDirection(final int e){
+        return directions[e];
+    }
+
+    /**
+     * Gets the path of an edge
+     * @param e edge index
+     * @return path
+     */
+    public Path getPath(final int e){
+        return paths[e];
+    }
+
+    /**
+     * Gets the first incoming edge of a place
+     * @param v place index
+     * @return incoming edge index
+     */
+    public int getInEdgeBegin(final int v){
+        return inOffsets[v];
+    }
+
+    /**
+     * Gets the end of the incoming edges of a place
+     * @param v place index
+     * @return incoming edge index after the last edge of v
+     */
+    public int getInEdgeEnd(final int v){
+        return inOffsets[v + 1];
+    }
+
+    /**
+     * Gets the start place of an incoming edge
+     * @param i incoming edge index
+     * @return place index
+     */
+    public int getSource(final int i){
+        return inSources[i];
+    }
+
+    /**
+     * Gets the number of outgoing edges of a place
+     * @param v place index
+     * @return out degree
+     */
+    public int getOutDegree(final int v){
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Gets the number of incoming edges of a place
+     * @param v place index
+     * @return in degree
+     */
+    public int getInDegree(final int v){
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    /**
+     * Takes scratch arrays for a search and starts a new generation, they
+     * have to be returned with releaseScratch() after the search
+     * @return scratch arrays
+     */
+    Scratch acquireScratch(){
+        Scratch ret;
+        synchronized(scratchPool){
+            ret = scratchPool.poll();
+        }
+        if(ret == null) ret = new Scratch(places.length);
+        ret.begin();
+        return ret;
+    }
+
+    /**
+     * Returns scratch arrays for later searches
+     * @param scratch
+     */
+    void releaseScratch(final Scratch scratch){
+        synchronized(scratchPool){
+            scratchPool.push(scratch);
+        }
+    }
+
+    /**
+     * Does a breadth search
+     * @param start start place
+     * @param end end place
+     * @param bidirectional search from start and end at the same time, see
+     * World.breadthSearchPath()
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     */
+    public List<Place> breadthSearchPath(final Place start, final Place end, final boolean bidirectional){
+        return breadthSearchPath(start, end, bidirectional, null);
+    }
+
+    /**
+     * Does a cancellable breadth search
+     * @param start start place
+     * @param end end place
+     * @param bidirectional search from start and end at the same time
+     * @param monitor progress and cancellation monitor or null
+     * @return places of the shortest path from start to end (both included)
+     * or null, if end can't be reached
+     * @throws java.util.concurrent.CancellationException if the monitor was
+     * cancelled
+     */
+    public List<Place> breadthSearchPath(final Place start, final Place end, final boolean bidirectional, final SearchMonitor monitor){
+        if(start == end){
+            ArrayList<Place> path = new ArrayList<>();
+            path.add(start);
+            return path;
+        }
+        final int s = getIndex(start);
+        final int t = getIndex(end);
+        if(s < 0 || t < 0) return null;
+        final Scratch scratch = acquireScratch();
+        try {
+            return bidirectional ? bidirectionalSearch(s, t, scratch, monitor) : breadthSearch(s, t, scratch, monitor);
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Breadth search from s to t
+     * @param s start place index
+     * @param t end place index, s != t
+     * @param scratch scratch arrays of the search
+     * @param monitor monitor or null
+     * @return places of the path or null
+     */
+    private List<Place> breadthSearch(final int s, final int t, final Scratch scratch, final SearchMonitor monitor){
+        final int generation = scratch.generation;
+        final int[] marks = scratch.getMarks();
+        final int[] predecessors = scratch.getPredecessors();
+        marks[s] = generation;
+        predecessors[s] = s;
+
+        // the queue never holds a place twice
+        final int[] queue = scratch.getQueue();
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        while(head < tail){
+            if(monitor != null && (head & (SearchMonitor.CHECK_INTERVAL - 1)) == 0){
+                monitor.update(head, tail - head);
+            }
+            final int v = queue[head++];
+            for(int e = offsets[v]; e < offsets[v + 1]; ++e){
+                final int vi = targets[e];
+                if(marks[vi] != generation){
+                    marks[vi] = generation;
+                    predecessors[vi] = v;
+                    if(vi == t) return getPath(predecessors, s, t, null);
+                    queue[tail++] = vi;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bidirectional breadth search, the smaller frontier is expanded by one
+     * level at a time. After a level in which the searches met, the shortest
+     * connection is used
+     * @param s start place index
+     * @param t end place index, s != t
+     * @param scratch scratch arrays of the search
+     * @param monitor monitor or null
+     * @return places of the path or null
+     */
+    private List<Place> bidirectionalSearch(final int s, final int t, final Scratch scratch, final SearchMonitor monitor){
+        // places reached by the forward / backward search
+        final int generation = scratch.generation;
+        final int[] forwardMarks = scratch.getMarks();
+        final int[] backwardMarks = scratch.getOtherMarks();
+        // predecessors of the forward search, successors of the backward one
+        final int[] forward = scratch.getPredecessors();
+        final int[] backward = scratch.getSuccessors();
+        // distance to start / end
+        final int[] forwardDist = scratch.getDistances();
+        final int[] backwardDist = scratch.getOtherDistances();
+        forwardMarks[s] = generation;
+        backwardMarks[t] = generation;
+        forward[s] = s;
+        backward[t] = t;
+        forwardDist[s] = 0;
+        backwardDist[t] = 0;
+
+        // both frontiers are stored in one array, from the front and back
+        final int[] frontiers = scratch.getQueue();
+        int forwardBegin = 0, forwardEnd = 1;
+        int backwardBegin = places.length, backwardEnd = places.length + 1;
+        frontiers[forwardBegin] = s;
+        frontiers[backwardBegin] = t;
+        int forwardTail = forwardEnd, backwardTail = backwardEnd;
+
+        int meeting = -1;
+        int best = Integer.MAX_VALUE;
+        int expanded = 0;
+
+        while(meeting < 0 && forwardBegin < forwardEnd && backwardBegin < backwardEnd){
+            if(forwardEnd - forwardBegin <= backwardEnd - backwardBegin){
+                for(int i = forwardBegin; i < forwardEnd; ++i){
+                    if(monitor != null && (++expanded & (SearchMonitor.CHECK_INTERVAL - 1)) == 0){
+                        monitor.update(expanded, (forwardTail - i) + (backwardTail - backwardBegin));
+                    }
+                    final int v = frontiers[i];
+                    final int d = forwardDist[v] + 1;
+                    for(int e = offsets[v]; e < offsets[v + 1]; ++e){
+                        final int vi = targets[e];
+                        if(forwardMarks[vi] == generation) continue;
+                        forwardMarks[vi] = generation;
+                        forward[vi] = v;
+                        forwardDist[vi] = d;
+                        frontiers[forwardTail++] = vi;
+                        if(backwardMarks[vi] == generation && d + backwardDist[vi] < best){
+                            best = d + backwardDist[vi];
+                            meeting = vi;
+                        }
+                    }
+                }
+                forwardBegin = forwardEnd;
+                forwardEnd = forwardTail;
+            } else {
+                for(int i = backwardBegin; i < backwardEnd; ++i){
+                    if(monitor != null && (++expanded & (SearchMonitor.CHECK_INTERVAL - 1)) == 0){
+                        monitor.update(expanded, (forwardTail - forwardBegin) + (backwardTail - i));
+                    }
+                    final int v = frontiers[i];
+                    final int d = backwardDist[v] + 1;
+                    for(int e = inOffsets[v]; e < inOffsets[v + 1]; ++e){
+                        final int vi = inSources[e];
+                        if(backwardMarks[vi] == generation) continue;
+                        backwardMarks[vi] = generation;
+                        backward[vi] = v;
+                        backwardDist[vi] = d;
+                        frontiers[backwardTail++] = vi;
+                        if(forwardMarks[vi] == generation && d + forwardDist[vi] < best){
+                            best = d + forwardDist[vi];
+                            meeting = vi;
+                        }
+                    }
+                }
+                backwardBegin = backwardEnd;
+                backwardEnd = backwardTail;
+            }
+        }
+
+        if(meeting < 0) return null;
+        return getPath(forward, s, meeting, backward);
+    }
+
+    /**
+     * Follows the predecessors from end to start and the successors from end
+     * @param predecessors predecessor of each visited place
+     * @param s start place index
+     * @param m last place index of the predecessor chain
+     * @param successors successors from m to the end (their own successor)
+     * or null
+     * @return places from s to the end
+     */
+    private List<Place> getPath(final int[] predecessors, final int s, final int m, final int[] successors){
+        ArrayList<Place> path = new ArrayList<>();
+        for(int v = m; v != s; v = predecessors[v]){
+            path.add(places[v]);
+        }
+        path.add(places[s]);
+        Collections.reverse(path);
+        if(successors != null){
+            for(int v = m; successors[v] != v; ){
+                v = successors[v];
+                path.add(places[v]);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Labels the weakly connected components (paths in any direction)
+     * @param components array of length getPlaceCount() for the component
+     * label of each place (0 ... count - 1) or null
+     * @return number of components
+     */
+    public int getComponents(int[] components){
+        if(components == null) components = new int[places.length];
+        Arrays.fill(components, -1);
+
+        final int[] stack = new int[places.length];
+        int count = 0;
+        for(int root = 0; root < places.length; ++root){
+            if(components[root] >= 0) continue;
+            int size = 0;
+            stack[size++] = root;
+            components[root] = count;
+            while(size > 0){
+                final int v = stack[--size];
+                for(int e = offsets[v]; e < offsets[v + 1]; ++e){
+                    if(components[targets[e]] < 0){
+                        components[targets[e]] = count;
+                        stack[size++] = targets[e];
+                    }
+                }
+                for(int e = inOffsets[v]; e < inOffsets[v + 1]; ++e){
+                    if(components[inSources[e]] < 0){
+                        components[inSources[e]] = count;
+                        stack[size++] = inSources[e];
+                    }
+                }
+            }
+            ++count;
+        }
+        return count;
+    }
+
+}
@@ -1,11 +1,16 @@
 package mudmap2.frontend.GUIElement.WorldPanel;
 
 import java.awt.Component;
+import java.awt.HeadlessException;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Predicate;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -13,14 +18,21 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JSeparator;
+import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 
 import mudmap2.CopyPaste;
+import mudmap2.backend.InformationColor;
 import mudmap2.backend.Layer;
-import mudmap2.backend.LayerElement;
 import mudmap2.backend.Path;
 import mudmap2.backend.Place;
+import mudmap2.backend.PlaceGroup;
+import mudmap2.backend.sssp.BackgroundSearch;
+import mudmap2.backend.sssp.NearestPlaceSearch;
+import mudmap2.backend.sssp.RoutePlanner;
+import mudmap2.backend.sssp.SearchMonitor;
+import mudmap2.backend.sssp.WorldGraph;
 import mudmap2.frontend.dialog.PathConnectDialog;
 import mudmap2.frontend.dialog.PathConnectNeighborsDialog;
 import mudmap2.frontend.dialog.PathConnectUnknownDialog;
@@ -39,12 +51,19 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
 
     private static final long serialVersionUID = 1L;
     private static final String ACTION_FIND_PATH = "find_path";
+    private static final String ACTION_FIND_NEAREST_NAME = "find_nearest_name";
+    private static final String ACTION_FIND_NEAREST_FLAG = "find_nearest_flag";
+    private static final String ACTION_FIND_NEAREST_PLACE_GROUP = "find_nearest_place_group";
+    private static final String ACTION_FIND_NEAREST_INFORMATION_COLOR = "find_nearest_information_color";
+    private static final String ACTION_PLAN_ROUTE_SELECTION = "plan_route_selection";
+    private static final String ACTION_PLAN_ROUTE_PLACE_GROUP = "plan_route_place_group";
     private static final String ACTION_PASTE = "paste";
     private static final String ACTION_CUT = "cut";
     private static final String ACTION_COPY = "copy";
     private static final String ACTION_CONNECT_CHILD = "connect_child";
     private static final String ACTION_CREATE_CHILD_NEW_LAYER = "create_child_new_layer";
     private static final String ACTION_CREATE_PLACEHOLDER = "create_placeholder";
+    private static final String ACTION_EXPAND_PREFIX = "expand_";
     private static final String ACTION_EXPAND_ALL = "expand_all";
     private static final String ACTION_EXPAND_NORTH = "expand_north";
     private static final String ACTION_EXPAND_NORTHEAST = "expand_northeast";
@@ -109,39 +128,26 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
                 MenuHelper.addMenuItem(mPathConnect, "Unknown...", new PathConnectUnknownDialog(rootFrame, place), "Mark exits to unknown target");
 
                 // create the connect-neighbor menu items:
-                final LinkedList<Place> places = layer.getNeighbors(posX, posY, 1);
-                if (!places.isEmpty()) {
-                    mPathConnect.addSeparator();
-
-                    for (final LayerElement neighbor : places) {
-                        // only show, if no connection exists, yet
-                        if (place.getPaths((Place) neighbor).isEmpty()) {
-                            String dir1 = "", dir2 = "";
-
-                            if (neighbor.getY() > place.getY()) {
-                                dir1 = "n";
-                                dir2 = "s";
-                            } else if (neighbor.getY() < place.getY()) {
-                                dir1 = "s";
-                                dir2 = "n";
+                boolean separatorAdded = false;
+                for (final String dir1 : Path.planeDirections) {
+                    // closest place in that direction, there may be gaps
+                    final Place neighbor = layer.nearestInDirection(posX, posY, dir1);
+                    // only show, if no connection exists, yet
+                    if (neighbor != null && place.getPaths(neighbor).isEmpty()) {
+                        final String dir2 = Path.getOppositeDir(dir1);
+
+                        // if exits aren't occupied yet -> add menu item
+                        if (place.getPathsTo(dir1).isEmpty() && neighbor.getPathsTo(dir2).isEmpty()) {
+                            if (!separatorAdded) {
+                                mPathConnect.addSeparator();
+                                separatorAdded = true;
                             }
-                            if (neighbor.getX() > place.getX()) {
-                                dir1 = StringHelper.join(dir1, "e");
-                                dir2 = StringHelper.join(dir2, "w");
-                            } else if (neighbor.getX() < place.getX()) {
-                                dir1 = StringHelper.join(dir1, "w");
-                                dir2 = StringHelper.join(dir2, "e");
-                            }
-
-                            // if exits aren't occupied yet -> add menu item
-                            if (place.getPathsTo(dir1).isEmpty() && ((Place) neighbor).getPathsTo(dir2).isEmpty()) {
-                                final JMenuItem mi_path_connect = MenuHelper.addMenuItem(mPathConnect, StringHelper.join("[", dir1, "] ", ((Place) neighbor).getName()), new ConnectPathActionListener(place, (Place) neighbor, dir1, dir2));
+                            final JMenuItem mi_path_connect = MenuHelper.addMenuItem(mPathConnect, StringHelper.join("[", dir1, "] ", neighbor.getName()), new ConnectPathActionListener(place, neighbor, dir1, dir2));
 
-                                // add accelerator
-                                final int dirnum = Path.getDirNum(dir1);
-                                if (dirnum > 0 & dirnum <= 9) {
-                                    mi_path_connect.setAccelerator(KeystrokeHelper.ctrl(KeyEvent.VK_NUMPAD0 + dirnum));
-                                }
+                            // add accelerator
+                            final int dirnum = Path.getDirNum(dir1);
+                            if (dirnum > 0 & dirnum <= 9) {
+                                mi_path_connect.setAccelerator(KeystrokeHelper.ctrl(KeyEvent.VK_NUMPAD0 + dirnum));
                             }
                         }
                     }
@@ -181,6 +187,23 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
                 if (!parent.isPassive()) {
                     mPaths.addSeparator();
                     MenuHelper.addMenuItem(mPaths, "Find shortest path", ContextMenu.ACTION_FIND_PATH, this);
+
+                    final JMenu mFindNearest = MenuHelper.addMenu(mPaths, "Find nearest", "Find the path to the nearest matching place");
+                    MenuHelper.addMenuItem(mFindNearest, "Place by name", ContextMenu.ACTION_FIND_NEAREST_NAME, this, "Nearest place whose name contains a text");
+                    MenuHelper.addMenuItem(mFindNearest, "Place with flag", ContextMenu.ACTION_FIND_NEAREST_FLAG, this, "Nearest place with a flag, eg. shop");
+                    if (!parent.getWorld().getPlaceGroups().isEmpty()) {
+                        MenuHelper.addMenuItem(mFindNearest, "Place in place group", ContextMenu.ACTION_FIND_NEAREST_PLACE_GROUP, this);
+                    }
+                    if (!parent.getWorld().getInformationColors().isEmpty()) {
+                        MenuHelper.addMenuItem(mFindNearest, "Place with information color", ContextMenu.ACTION_FIND_NEAREST_INFORMATION_COLOR, this);
+                    }
+
+                    final JMenu mPlanRoute = MenuHelper.addMenu(mPaths, "Plan route", "Find a short route from this place through many places");
+                    final JMenuItem miPlanRouteSelection = MenuHelper.addMenuItem(mPlanRoute, "Through selected places", ContextMenu.ACTION_PLAN_ROUTE_SELECTION, this);
+                    miPlanRouteSelection.setEnabled(parent.placeGroupHasSelection());
+                    if (!parent.getWorld().getPlaceGroups().isEmpty()) {
+                        MenuHelper.addMenuItem(mPlanRoute, "Through place group", ContextMenu.ACTION_PLAN_ROUTE_PLACE_GROUP, this);
+                    }
                 }
             }
 
@@ -256,6 +279,24 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
 
     @Override
     public void actionPerformed(final ActionEvent e) {
+        if (e.getActionCommand().startsWith(ACTION_EXPAND_PREFIX)) {
+            // expansions move many places, the world listeners are called once
+            parent.getWorld().batch(new Runnable() {
+                @Override
+                public void run() {
+                    performAction(e);
+                }
+            });
+        } else {
+            performAction(e);
+        }
+    }
+
+    /**
+     * Runs the action of a menu item
+     * @param e action event
+     */
+    private void performAction(final ActionEvent e) {
         final JFrame rootFrame = (JFrame) SwingUtilities.getRoot((Component) e.getSource());
 
         switch (e.getActionCommand()) {
@@ -317,23 +358,54 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
                 psdlg2.setVisible(true);
                 final Place end = psdlg2.getSelection();
                 if (end != null) {
-                    parent.placeGroupReset();
-                    Place place_it = parent.getWorld().breadthSearch(place, end);
-                    if (place_it == null) {
-                        parent.callMessageListeners("No Path found");
-                        JOptionPane.showMessageDialog(this, StringHelper.join("Could not find path to ", end.getName()));
+                    if (parent.getWorld().isReachable(place, end)) {
+                        final WorldGraph graph = parent.getWorld().getGraph(place);
+                        searchPath(new BackgroundSearch.Search() {
+                            @Override
+                            public List<Place> run(final SearchMonitor monitor) {
+                                return graph.breadthSearchPath(place, end, true, monitor);
+                            }
+                        }, end.getName());
                     } else {
-                        int path_length = 0;
-                        while (place_it != null) {
-                            parent.getPlaceGroup().add(place_it);
-                            place_it = place_it.getBreadthSearchData().predecessor;
-                            ++path_length;
-                        }
-                        //repaint();
-                        parent.worldChanged(place); // workaround: why doesn't repaint work?
-                        parent.callMessageListeners(StringHelper.join("Path found, length: ", path_length - 1));
+                        parent.getPathSearch().cancel();
+                        showPath(null, end.getName());
                     }
-
+                }
+                break;
+            case ContextMenu.ACTION_FIND_NEAREST_NAME:
+                final String name = JOptionPane.showInputDialog(rootFrame, "Place name contains:", "Find nearest place", JOptionPane.QUESTION_MESSAGE);
+                if (name != null && !name.isEmpty()) {
+                    searchNearest(NearestPlaceSearch.nameContains(name), StringHelper.join("a place named \"", name, "\""));
+                }
+                break;
+            case ContextMenu.ACTION_FIND_NEAREST_FLAG:
+                final String flag = JOptionPane.showInputDialog(rootFrame, "Flag:", "Find nearest place", JOptionPane.QUESTION_MESSAGE);
+                if (flag != null && !flag.isEmpty()) {
+                    searchNearest(NearestPlaceSearch.hasFlag(flag), StringHelper.join("a place with flag \"", flag, "\""));
+                }
+                break;
+            case ContextMenu.ACTION_FIND_NEAREST_PLACE_GROUP:
+                final Object[] placeGroups = parent.getWorld().getPlaceGroups().toArray();
+                final PlaceGroup placeGroup = (PlaceGroup) JOptionPane.showInputDialog(rootFrame, "Place group:", "Find nearest place", JOptionPane.QUESTION_MESSAGE, null, placeGroups, null);
+                if (placeGroup != null) {
+                    searchNearest(NearestPlaceSearch.inPlaceGroup(placeGroup), placeGroup.getName());
+                }
+                break;
+            case ContextMenu.ACTION_FIND_NEAREST_INFORMATION_COLOR:
+                final Object[] colors = parent.getWorld().getInformationColors().toArray();
+                final InformationColor color = (InformationColor) JOptionPane.showInputDialog(rootFrame, "Information color:", "Find nearest place", JOptionPane.QUESTION_MESSAGE, null, colors, null);
+                if (color != null) {
+                    searchNearest(NearestPlaceSearch.hasInformationColor(color), StringHelper.join("a place marked \"", color.toString(), "\""));
+                }
+                break;
+            case ContextMenu.ACTION_PLAN_ROUTE_SELECTION:
+                planRoute(new ArrayList<>(parent.placeGroupGetSelection()));
+                break;
+            case ContextMenu.ACTION_PLAN_ROUTE_PLACE_GROUP:
+                final Object[] routePlaceGroups = parent.getWorld().getPlaceGroups().toArray();
+                final PlaceGroup routePlaceGroup = (PlaceGroup) JOptionPane.showInputDialog(rootFrame, "Place group:", "Plan route", JOptionPane.QUESTION_MESSAGE, null, routePlaceGroups, null);
+                if (routePlaceGroup != null) {
+                    planRoute(parent.getWorld().getPlaces(routePlaceGroup));
                 }
                 break;
             case ContextMenu.ACTION_EXPAND_ALL:
@@ -453,7 +525,7 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
     }
 
     private void addExpansionMenu() {
-        if (layer != null && layer.getPlaces().size() > 0) {
+        if (layer != null && !layer.isEmpty()) {
             final int componentCount = getComponentCount();
             if (componentCount > 0 && getComponent(componentCount - 1) instanceof JSeparator == false) {
                 addSeparator();
@@ -471,4 +543,160 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
         }
     }
 
+    /**
+     * Runs a path search in the background and shows the path when it's
+     * finished, a running search of the world panel gets cancelled. The
+     * progress is shown in the status bar
+     * @param search search on a graph snapshot
+     * @param target description of the target
+     */
+    private void searchPath(final BackgroundSearch.Search search, final String target) {
+        parent.placeGroupReset();
+        parent.repaint();
+        parent.callMessageListeners(StringHelper.join("Searching path to ", target, "..."));
+        parent.getPathSearch().submit(search, new BackgroundSearch.Callback() {
+            @Override
+            public void progress(final int expanded, final int frontier) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        // don't overwrite the result of a finished search
+                        if (parent.getPathSearch().isRunning()) {
+                            parent.callMessageListeners(StringHelper.join("Searching path to ", target, ", places expanded: ", expanded, ", frontier: ", frontier));
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void finished(final List<Place> path) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        showPath(path, target);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Plans a route through the waypoints in the background and shows it
+     * when it's finished, a running search of the world panel gets cancelled
+     * @param waypoints places to visit, not modified afterwards
+     */
+    private void planRoute(final List<Place> waypoints) {
+        final WorldGraph graph = parent.getWorld().getGraph(place);
+        final int count = waypoints.size();
+        parent.placeGroupReset();
+        parent.repaint();
+        parent.callMessageListeners(StringHelper.join("Planning route through ", count, " places..."));
+        parent.getPathSearch().submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(final SearchMonitor monitor) {
+                return new RoutePlanner(graph).planRoute(place, waypoints, monitor);
+            }
+        }, new BackgroundSearch.Callback() {
+            @Override
+            public void progress(final int finished, final int remaining) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        // don't overwrite the result of a finished search
+                        if (parent.getPathSearch().isRunning()) {
+                            parent.callMessageListeners(StringHelper.join("Planning route through ", count, " places, distances computed: ", finished, ", remaining: ", remaining));
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void finished(final List<Place> route) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        showRoute(route, count);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Searches the nearest place that matches a filter in the background.
+     * The filter is tested here, the search only reads the matching places
+     * @param filter target filter
+     * @param target description of the target
+     */
+    private void searchNearest(final Predicate<Place> filter, final String target) {
+        final WorldGraph graph = parent.getWorld().getGraph(place);
+        final Predicate<Place> targets = NearestPlaceSearch.matching(graph, filter);
+        searchPath(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(final SearchMonitor monitor) {
+                return NearestPlaceSearch.findNearest(graph, place, targets, monitor);
+            }
+        }, target);
+    }
+
+    /**
+     * Selects the places of a path or shows a message if there is none
+     * @param path places of the path or null
+     * @param target description of the target
+     */
+    private void showPath(final List<Place> path, final String target) {
+        parent.placeGroupReset();
+        if (path == null) {
+            parent.callMessageListeners("No Path found");
+            JOptionPane.showMessageDialog(this, StringHelper.join("Could not find path to ", target));
+        } else {
+            parent.getPlaceGroup().addAll(path);
+            parent.repaint();
+            parent.callMessageListeners(StringHelper.join("Path found, length: ", path.size() - 1));
+            showSpeedwalk(path, "Path found");
+        }
+    }
+
+    /**
+     * Selects the places of a planned route or shows a message if there is
+     * none
+     * @param route places of the route or null
+     * @param count number of waypoints
+     */
+    private void showRoute(final List<Place> route, final int count) {
+        parent.placeGroupReset();
+        if (route == null) {
+            parent.callMessageListeners("No route found");
+            JOptionPane.showMessageDialog(this, "Could not find a route through all places");
+        } else {
+            parent.getPlaceGroup().addAll(route);
+            parent.repaint();
+            parent.callMessageListeners(StringHelper.join("Route through ", count, " places found, length: ", route.size() - 1));
+            showSpeedwalk(route, "Route found");
+        }
+    }
+
+    /**
+     * Shows the speedwalk of a path, it's copied to the clipboard if the user
+     * clicks the copy button
+     * @param path places of the path
+     * @param title dialog title
+     */
+    private void showSpeedwalk(final List<Place> path, final String title) {
+        final String speedwalk = parent.getWorld().getSpeedwalk().addAll(path).toString();
+        final JTextField textField = new JTextField(speedwalk);
+        textField.setEditable(false);
+        final Object[] options = {"Copy speedwalk", "Close"};
+        final int ret = JOptionPane.showOptionDialog(this, new Object[]{"Speedwalk:", textField}, title,
+                JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[1]);
+        if (ret == 0) {
+            try {
+                Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(speedwalk), null);
+                parent.callMessageListeners(StringHelper.join("Speedwalk copied: ", speedwalk));
+            } catch (HeadlessException | IllegalStateException ex) {
+                // no clipboard or it's used by another application
+                JOptionPane.showMessageDialog(this, "Could not copy the speedwalk to the clipboard", title, JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
 }
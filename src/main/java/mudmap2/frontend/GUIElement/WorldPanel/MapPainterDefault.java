@@ -584,295 +584,299 @@ public class MapPainterDefault implements MapPainter {
         }
 
         // ------------------ draw the tiles / places ----------------------
-        for(int tileX = (g.getClipBounds().x / tileSize) - 1; tileX < graphicsWidth / tileSize + 1; ++tileX){
-            for(int tileY = (g.getClipBounds().y / tileSize) - 1; tileY < graphicsHeight / tileSize + 1; ++tileY){
+        // visible tile range (tileXEnd and tileYEnd are exclusive)
+        final int tileXStart = (g.getClipBounds().x / tileSize) - 1;
+        final int tileYStart = (g.getClipBounds().y / tileSize) - 1;
+        final int tileXEnd = (int) Math.ceil(graphicsWidth / tileSize + 1);
+        final int tileYEnd = (int) Math.ceil(graphicsHeight / tileSize + 1);
+        final int tileYConst = (int)(graphicsHeight / tileSize) + placeYOffset;
+
+        // visible region in place coordinates
+        final int placeXMin = tileXStart + placeXOffset;
+        final int placeXMax = tileXEnd - 1 + placeXOffset;
+        final int placeYMin = tileYConst - (tileYEnd - 1);
+        final int placeYMax = tileYConst - tileYStart;
+
+        // only visit places inside the visible region
+        for(Place curPlace: layer.getPlacesInRect(placeXMin, placeYMin, placeXMax, placeYMax)){
+            // tile position on the screen
+            final int tileX = curPlace.getX() - placeXOffset;
+            final int tileY = tileYConst - curPlace.getY();
+
+            // place position in pixel on the screen
+            final int placeXpx = (int) Math.round((tileX + placeXpxConst) * tileSize);
+            final int placeYpx = (int) Math.round((tileY + placeYpxConst) * tileSize);
+
+            tilePositions.add(new Pair<>(placeXpx, placeYpx));
+
+            // draw place group color
+            if(curPlace.getPlaceGroup() != null){
+                g.setColor(curPlace.getPlaceGroup().getColor());
+                g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
+            }
 
-                // place position on the map
-                final int placeX = tileX + placeXOffset;
-                final int placeY = (int)(graphicsHeight / tileSize) - tileY + placeYOffset;
+            // draw tile center color
+            if(drawText){
+                g.setColor(layer.getWorld().getTileCenterColor());
+                g.fillRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
+                        tileSize - 2 * tileBorderWidthScaled, tileSize - 2 * tileBorderWidthScaled);
+            }
 
-                if(layer != null && layer.exist(placeX, placeY)){
-                    Place curPlace = layer.get(placeX, placeY);
+            // draw information color border
+            if(curPlace.getInfoRing() != null){
+                g.setColor(curPlace.getInfoRing().getColor());
+                ((Graphics2D)g).setStroke(new BasicStroke(getInformationColorStrokeWidth()));
+                g.drawRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
+                        tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()),
+                        tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()));
+            }
 
-                    // place position in pixel on the screen
-                    final int placeXpx = (int) Math.round((tileX + placeXpxConst) * tileSize);
-                    final int placeYpx = (int) Math.round((tileY + placeYpxConst) * tileSize);
+            LinkedList<String> text = new LinkedList<>();
+            String flags = "", exits = "";
+
+            // draw text, if tiles are large enough
+            if(drawText){
+                g.setColor(Color.BLACK);
+
+                // place name
+                // gets place name if unique, else place name with ID
+                String placeName;
+                switch(layer.getWorld().getShowPlaceId()){
+                    default:
+                    case UNIQUE:
+                        placeName = curPlace.getName();
+                        if(!layer.isPlaceNameUnique(placeName)){
+                            placeName = curPlace.toString();
+                        }
+                        break;
+                    case NONE:
+                        placeName = curPlace.getName(); // name only
+                        break;
+                    case ALL:
+                        placeName = curPlace.toString(); // name and id
+                        break;
+                }
+                text.add(placeName);
 
-                    tilePositions.add(new Pair<>(placeXpx, placeYpx));
+                int reclvlmin = curPlace.getRecLevelMin(), reclvlmax = curPlace.getRecLevelMax();
+                if(reclvlmin > -1 || reclvlmax > -1){
+                    String levelString = STR_INFO_LEVEL + (reclvlmin > -1 ? reclvlmin : "?") + " - " + (reclvlmax > -1 ? reclvlmax : "?");
+                    text.add(levelString);
+                }
 
-                    // draw place group color
-                    if(curPlace.getPlaceGroup() != null){
-                        g.setColor(curPlace.getPlaceGroup().getColor());
-                        g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
-                    }
+                // TODO: I wish I could use bold/italic formatting for the info strings...
+                // parents
+                if(!curPlace.getParents().isEmpty()){
+                    int parentsNum = curPlace.getParents().size();
+                    String paStr = STR_INFO_MAP_LINK;
 
-                    // draw tile center color
-                    if(drawText){
-                        g.setColor(layer.getWorld().getTileCenterColor());
-                        g.fillRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
-                                tileSize - 2 * tileBorderWidthScaled, tileSize - 2 * tileBorderWidthScaled);
+                    boolean firstParent = true;
+                    for(Place parent: curPlace.getParents()){
+                        paStr += (firstParent ? "" : ", ") + parent.getName();
+                        firstParent = false;
                     }
+                    text.add(paStr);
+                }
 
-                    // draw information color border
-                    if(curPlace.getInfoRing() != null){
-                        g.setColor(curPlace.getInfoRing().getColor());
-                        ((Graphics2D)g).setStroke(new BasicStroke(getInformationColorStrokeWidth()));
-                        g.drawRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
-                                tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()),
-                                tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()));
-                    }
+                // children
+                if(!curPlace.getChildren().isEmpty()){
+                    int childrenNum = curPlace.getChildren().size();
+                    String chStr = STR_INFO_MAP_LINK;
 
-                    LinkedList<String> text = new LinkedList<>();
-                    String flags = "", exits = "";
+                    boolean firstChild = true;
+                    for(Place child: curPlace.getChildren()){
+                        chStr += (firstChild ? "" : ", ") + child.getName();
+                        firstChild = false;
+                    }
+                    text.add(chStr);
+                }
+                        
+                // comments
+                if(!curPlace.getComments().isEmpty()){
+                    text.add(STR_INFO_COMMENT + curPlace.getComments());
+                }
 
-                    // draw text, if tiles are large enough
-                    if(drawText){
-                        g.setColor(Color.BLACK);
+                // flags
+                // place has comments
+                if(!curPlace.getComments().isEmpty()) flags += STR_FLAG_COMMENT;
+                if(!curPlace.getChildren().isEmpty() || !curPlace.getParents().isEmpty()) flags += STR_FLAG_MAP_LINK;
 
-                        // place name
-                        // gets place name if unique, else place name with ID
-                        String placeName;
-                        switch(layer.getWorld().getShowPlaceId()){
-                            default:
-                            case UNIQUE:
-                                placeName = curPlace.getName();
-                                if(!layer.isPlaceNameUnique(placeName)){
-                                    placeName = curPlace.toString();
-                                }
-                                break;
-                            case NONE:
-                                placeName = curPlace.getName(); // name only
-                                break;
-                            case ALL:
-                                placeName = curPlace.toString(); // name and id
-                                break;
-                        }
-                        text.add(placeName);
+                // other flags
+                for(Map.Entry<String, Boolean> flag: curPlace.getFlags().entrySet()){
+                    if(flag.getValue()) flags += flag.getKey().toUpperCase();
+                    if(fm.stringWidth(flags) >= tileSize - 2 * tileBorderWidthScaled) break;
+                }
+            }
 
-                        int reclvlmin = curPlace.getRecLevelMin(), reclvlmax = curPlace.getRecLevelMax();
-                        if(reclvlmin > -1 || reclvlmax > -1){
-                            String levelString = STR_INFO_LEVEL + (reclvlmin > -1 ? reclvlmin : "?") + " - " + (reclvlmax > -1 ? reclvlmax : "?");
-                            text.add(levelString);
-                        }
+            // mark place group selection
+            if(showPlaceSelection && (isSelected(curPlace) || (mudmap2.CopyPaste.isCut() && mudmap2.CopyPaste.isMarked(curPlace)))){
+                g.setColor(new Color(255, 255, 255, 128));
+                g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
+            }
 
-                        // TODO: I wish I could use bold/italic formatting for the info strings...
-                        // parents
-                        if(!curPlace.getParents().isEmpty()){
-                            int parentsNum = curPlace.getParents().size();
-                            String paStr = STR_INFO_MAP_LINK;
+            // draw path lines here
+            boolean exitUp = false, exitDown = false, exitnstd = false;
+            if(getShowPaths()){
+                for(Path path: curPlace.getPaths()){
+                    Place otherPlace = path.getOtherPlace(curPlace);
+
+                    String localExit = path.getExit(curPlace);
+                    String remoteExit;
+                    boolean connectedToSamePlace = false;
+                    if(curPlace != otherPlace) {
+                        remoteExit = path.getExit(otherPlace);
+                    } else { // if place is connected to itself
+                        remoteExit = path.getExitDirections()[1];
+                        connectedToSamePlace = true;
+                    }
 
-                            boolean firstParent = true;
-                            for(Place parent: curPlace.getParents()){
-                                paStr += (firstParent ? "" : ", ") + parent.getName();
-                                firstParent = false;
-                            }
-                            text.add(paStr);
+                    Color colorPlace1 = layer.getWorld().getPathColor(path.getExitDirections()[0]);
+                    Color colorPlace2 = layer.getWorld().getPathColor(path.getExitDirections()[1]);
+                    if(path.getPlaces()[0] != curPlace) {
+                        Color tmp = colorPlace1;
+                        colorPlace1 = colorPlace2;
+                        colorPlace2 = tmp;
+                    }
+                            
+                    // Draw paths
+                    // if both places of a path are on the same layer and at least one of the two places is on the screen
+                    // usually the main place (path.getPlaces()[0]) draws the path. If it isn't on screen, the other place draws it
+                    if(Objects.equals(otherPlace.getLayer().getId(), layer.getId())
+                            && (path.getPlaces()[0] == curPlace || !isOnScreen(otherPlace))
+                            && !path.isTargetUnknown()){
+                        Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
+                        Pair<Integer, Integer> exitOffsetOther = getExitOffset(remoteExit, tileBorderWidthScaled);
+
+                        boolean drawCurves = getPathsCurved();
+
+                        // exit positions on the map
+                        final double exit1x = placeXpx + exitOffset.first;
+                        final double exit1y = placeYpx + exitOffset.second;
+                        final double exit2x = placeXpx + (otherPlace.getX() - curPlace.getX()) * tileSize + exitOffsetOther.first;
+                        final double exit2y = placeYpx - (otherPlace.getY() - curPlace.getY()) * tileSize + exitOffsetOther.second;
+
+                        if(colorPlace1.equals(colorPlace2)){ // same color
+                            ((Graphics2D) graphicPath).setPaint(colorPlace1);
+                        } else { // draw gradient
+                            GradientPaint gp = new GradientPaint((float) exit1x, (float) exit1y, colorPlace1,
+                                                                 (float) exit2x, (float) exit2y, colorPlace2);
+                            ((Graphics2D) graphicPath).setPaint(gp);
                         }
 
-                        // children
-                        if(!curPlace.getChildren().isEmpty()){
-                            int childrenNum = curPlace.getChildren().size();
-                            String chStr = STR_INFO_MAP_LINK;
-
-                            boolean firstChild = true;
-                            for(Place child: curPlace.getChildren()){
-                                chStr += (firstChild ? "" : ", ") + child.getName();
-                                firstChild = false;
+                        if(drawCurves){
+                            Pair<Double, Double> normal1 = getExitNormal(localExit);
+                            Pair<Double, Double> normal2 = getExitNormal(remoteExit);
+
+                            double dx = exit2x - exit1x;
+                            double dy = exit2y - exit1y;
+
+                            drawCurves = Math.sqrt(dx * dx + dy * dy) >= 1.5 * tileSize;
+                            if(drawCurves || connectedToSamePlace){
+                                CubicCurve2D c = new CubicCurve2D.Double();
+                                c.setCurve(// point 1
+                                        exit1x, exit1y,
+                                        // point 2
+                                        exit1x + normal1.first * tileSize, exit1y - normal1.second * tileSize,
+                                        // point 3
+                                        exit2x + normal2.first * tileSize, exit2y - normal2.second * tileSize,
+                                        // point 4
+                                        exit2x, exit2y);
+                                ((Graphics2D) graphicPath).draw(c);
                             }
-                            text.add(chStr);
-                        }
-                        
-                        // comments
-                        if(!curPlace.getComments().isEmpty()){
-                            text.add(STR_INFO_COMMENT + curPlace.getComments());
                         }
 
-                        // flags
-                        // place has comments
-                        if(!curPlace.getComments().isEmpty()) flags += STR_FLAG_COMMENT;
-                        if(!curPlace.getChildren().isEmpty() || !curPlace.getParents().isEmpty()) flags += STR_FLAG_MAP_LINK;
-
-                        // other flags
-                        for(Map.Entry<String, Boolean> flag: curPlace.getFlags().entrySet()){
-                            if(flag.getValue()) flags += flag.getKey().toUpperCase();
-                            if(fm.stringWidth(flags) >= tileSize - 2 * tileBorderWidthScaled) break;
+                        if(!drawCurves) {
+                            graphicPath.drawLine((int) exit1x, (int) exit1y, (int) exit2x, (int) exit2y);
                         }
                     }
 
-                    // mark place group selection
-                    if(showPlaceSelection && (isSelected(curPlace) || (mudmap2.CopyPaste.isCut() && mudmap2.CopyPaste.isMarked(curPlace)))){
-                        g.setColor(new Color(255, 255, 255, 128));
-                        g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
-                    }
-
-                    // draw path lines here
-                    boolean exitUp = false, exitDown = false, exitnstd = false;
-                    if(getShowPaths()){
-                        for(Path path: curPlace.getPaths()){
-                            Place otherPlace = path.getOtherPlace(curPlace);
-
-                            String localExit = path.getExit(curPlace);
-                            String remoteExit;
-                            boolean connectedToSamePlace = false;
-                            if(curPlace != otherPlace) {
-                                remoteExit = path.getExit(otherPlace);
-                            } else { // if place is connected to itself
-                                remoteExit = path.getExitDirections()[1];
-                                connectedToSamePlace = true;
-                            }
-
-                            Color colorPlace1 = layer.getWorld().getPathColor(path.getExitDirections()[0]);
-                            Color colorPlace2 = layer.getWorld().getPathColor(path.getExitDirections()[1]);
-                            if(path.getPlaces()[0] != curPlace) {
-                                Color tmp = colorPlace1;
-                                colorPlace1 = colorPlace2;
-                                colorPlace2 = tmp;
-                            }
-                            
-                            // Draw paths
-                            // if both places of a path are on the same layer and at least one of the two places is on the screen
-                            // usually the main place (path.getPlaces()[0]) draws the path. If it isn't on screen, the other place draws it
-                            if(Objects.equals(otherPlace.getLayer().getId(), layer.getId())
-                                    && (path.getPlaces()[0] == curPlace || !isOnScreen(otherPlace))
-                                    && !path.isTargetUnknown()){
+                    // draw exit dots, if tiles are larger than 20
+                    if(tileSize >= 20){
+                        if(path.isTargetUnknown())
+                            g.setColor(layer.getWorld().getPathColorUnknown());
+                        else
+                            g.setColor(colorPlace1);
+                        switch (localExit) {
+                            case "u":
+                                exitUp = true;
+                                break;
+                            case "d":
+                                exitDown = true;
+                                break;
+                            case "unknown":
+                                break;
+                            default:
                                 Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
-                                Pair<Integer, Integer> exitOffsetOther = getExitOffset(remoteExit, tileBorderWidthScaled);
-
-                                boolean drawCurves = getPathsCurved();
-
-                                // exit positions on the map
-                                final double exit1x = placeXpx + exitOffset.first;
-                                final double exit1y = placeYpx + exitOffset.second;
-                                final double exit2x = placeXpx + (otherPlace.getX() - curPlace.getX()) * tileSize + exitOffsetOther.first;
-                                final double exit2y = placeYpx - (otherPlace.getY() - curPlace.getY()) * tileSize + exitOffsetOther.second;
-
-                                if(colorPlace1.equals(colorPlace2)){ // same color
-                                    ((Graphics2D) graphicPath).setPaint(colorPlace1);
-                                } else { // draw gradient
-                                    GradientPaint gp = new GradientPaint((float) exit1x, (float) exit1y, colorPlace1,
-                                                                         (float) exit2x, (float) exit2y, colorPlace2);
-                                    ((Graphics2D) graphicPath).setPaint(gp);
-                                }
-
-                                if(drawCurves){
-                                    Pair<Double, Double> normal1 = getExitNormal(localExit);
-                                    Pair<Double, Double> normal2 = getExitNormal(remoteExit);
-
-                                    double dx = exit2x - exit1x;
-                                    double dy = exit2y - exit1y;
-
-                                    drawCurves = Math.sqrt(dx * dx + dy * dy) >= 1.5 * tileSize;
-                                    if(drawCurves || connectedToSamePlace){
-                                        CubicCurve2D c = new CubicCurve2D.Double();
-                                        c.setCurve(// point 1
-                                                exit1x, exit1y,
-                                                // point 2
-                                                exit1x + normal1.first * tileSize, exit1y - normal1.second * tileSize,
-                                                // point 3
-                                                exit2x + normal2.first * tileSize, exit2y - normal2.second * tileSize,
-                                                // point 4
-                                                exit2x, exit2y);
-                                        ((Graphics2D) graphicPath).draw(c);
-                                    }
-                                }
-
-                                if(!drawCurves) {
-                                    graphicPath.drawLine((int) exit1x, (int) exit1y, (int) exit2x, (int) exit2y);
-                                }
-                            }
-
-                            // draw exit dots, if tiles are larger than 20
-                            if(tileSize >= 20){
-                                if(path.isTargetUnknown())
-                                    g.setColor(layer.getWorld().getPathColorUnknown());
-                                else
-                                    g.setColor(colorPlace1);
-                                switch (localExit) {
-                                    case "u":
-                                        exitUp = true;
-                                        break;
-                                    case "d":
-                                        exitDown = true;
-                                        break;
-                                    case "unknown":
-                                        break;
-                                    default:
-                                        Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
-                                        if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
-                                            int exitCircleRadius2 = getExitCircleRadius();
-                                            g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
-                                        } else { // non-standard exit
-                                            exitnstd = true;
-                                        }
-                                        break;
+                                if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
+                                    int exitCircleRadius2 = getExitCircleRadius();
+                                    g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
+                                } else { // non-standard exit
+                                    exitnstd = true;
                                 }
+                                break;
+                        }
                                 
-                                // if place is connected to itself
-                                if(path.getPlaces()[0] == path.getPlaces()[1]){
-                                    switch (remoteExit) {
-                                        case "u":
-                                            exitUp = true;
-                                            break;
-                                        case "d":
-                                            exitDown = true;
-                                            break;
-                                        case "unknown":
-                                            break;
-                                        default:
-                                            Pair<Integer, Integer> exitOffset = getExitOffset(remoteExit, tileBorderWidthScaled);
-                                            if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
-                                                int exitCircleRadius2 = getExitCircleRadius();
-                                                g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
-                                            } else { // non-standard exit
-                                                exitnstd = true;
-                                            }
-                                            break;
+                        // if place is connected to itself
+                        if(path.getPlaces()[0] == path.getPlaces()[1]){
+                            switch (remoteExit) {
+                                case "u":
+                                    exitUp = true;
+                                    break;
+                                case "d":
+                                    exitDown = true;
+                                    break;
+                                case "unknown":
+                                    break;
+                                default:
+                                    Pair<Integer, Integer> exitOffset = getExitOffset(remoteExit, tileBorderWidthScaled);
+                                    if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
+                                        int exitCircleRadius2 = getExitCircleRadius();
+                                        g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
+                                    } else { // non-standard exit
+                                        exitnstd = true;
                                     }
-                                }
+                                    break;
                             }
                         }
                     }
-
-                    // draw exits
-                    if(tileSize >= 20 && (exitnstd || exitUp || exitDown) && drawText){
-                        // have some arrows: ⬆⬇ ↑↓
-                        exits = "" + (exitnstd ? "+" : "") + (exitUp ? "↑" : "") + (exitDown ? "↓" : "");
-                    }
-
-                    g.setColor(Color.BLACK);
-                    final int border = (int) (tileBorderWidthScaled + getInformationColorStrokeWidth());
-                    drawText(g, placeXpx + border, placeYpx + border, tileSize - 2 * border, tileSize - 2 * border, text, flags, exits);
                 }
+            }
 
-                //TODO: extract from parent loop
-                if(showPlaceSelection && copiedPlaceLocations != null){
-                    boolean locationFound = false;
-                    for(Pair<Integer, Integer> location: copiedPlaceLocations){
-
-                        if(location.first == placeX - placeSelectedX && location.second == placeY - placeSelectedY){
-                            locationFound = true;
-                            break;
-                        }
-                    }
+            // draw exits
+            if(tileSize >= 20 && (exitnstd || exitUp || exitDown) && drawText){
+                // have some arrows: ⬆⬇ ↑↓
+                exits = "" + (exitnstd ? "+" : "") + (exitUp ? "↑" : "") + (exitDown ? "↓" : "");
+            }
 
-                    if(locationFound){
-                        int placeXpx = (int)((tileX + placeXpxConst) * tileSize);
-                        int placeYpx = (int)((tileY + placeYpxConst) * tileSize);
+            g.setColor(Color.BLACK);
+            final int border = (int) (tileBorderWidthScaled + getInformationColorStrokeWidth());
+            drawText(g, placeXpx + border, placeYpx + border, tileSize - 2 * border, tileSize - 2 * border, text, flags, exits);
+        }
 
-                        drawCursor(g, Color.BLUE, placeXpx, placeYpx, selectionStrokeWidth);
-                    }
-                }
+        // mark copied place locations
+        if(showPlaceSelection && copiedPlaceLocations != null){
+            for(Pair<Integer, Integer> location: copiedPlaceLocations){
+                final int placeX = location.first + placeSelectedX;
+                final int placeY = location.second + placeSelectedY;
 
-                // draw cursor / place selection
-                if(showPlaceCursor && placeX == placeSelectedX && placeY == placeSelectedY){
-                    int placeXpx = (int)((tileX + placeXpxConst) * tileSize);
-                    int placeYpx = (int)((tileY + placeYpxConst) * tileSize);
+                if(placeX >= placeXMin && placeX <= placeXMax && placeY >= placeYMin && placeY <= placeYMax){
+                    int placeXpx = (int)((placeX - placeXOffset + placeXpxConst) * tileSize);
+                    int placeYpx = (int)((tileYConst - placeY + placeYpxConst) * tileSize);
 
-                    drawCursor(g, TILE_SELECTION_COLOR, placeXpx, placeYpx, selectionStrokeWidth);
+                    drawCursor(g, Color.BLUE, placeXpx, placeYpx, selectionStrokeWidth);
                 }
             }
         }
 
+        // draw cursor / place selection
+        if(showPlaceCursor && placeSelectedX >= placeXMin && placeSelectedX <= placeXMax
+                && placeSelectedY >= placeYMin && placeSelectedY <= placeYMax){
+            int placeXpx = (int)((placeSelectedX - placeXOffset + placeXpxConst) * tileSize);
+            int placeYpx = (int)((tileYConst - placeSelectedY + placeYpxConst) * tileSize);
+
+            drawCursor(g, TILE_SELECTION_COLOR, placeXpx, placeYpx, selectionStrokeWidth);
+        }
+
         // mask out tile positions on graphicPath
         ((Graphics2D) graphicPath).setBackground(new Color(0,0,0,0));
         int clearTileSize = tileSize - 2 * tileBorderWidthScaled;
@@ -36,6 +36,11 @@ public class TabKeyListener implements KeyListener {
 
     @Override
     public void keyPressed(final KeyEvent e) {
+        // ctrl + shift: cursor jumps, see TabKeyPassiveListener
+        if (e.isControlDown() && e.isShiftDown()) {
+            return;
+        }
+
         final JFrame rootFrame = (JFrame) SwingUtilities.getRoot(parent);
         if (e.isControlDown()) { // ctrl key pressed
             Place place, other;
@@ -406,4 +411,22 @@ public class TabKeyListener implements KeyListener {
     @Override
     public void keyReleased(final KeyEvent arg0) {
     }
+
+    /**
+     * Moves the cursor to the closest place in a direction, the cursor stays
+     * where it is, if there is no place in that direction
+     * @param dir cardinal direction (n, ne, e, se, s, sw, w, nw)
+     */
+    protected void moveCursorToNearest(final String dir) {
+        if (parent.getPosition() == null) {
+            return;
+        }
+        final Layer layer = parent.getWorld().getLayer(parent.getPosition().getLayer());
+        if (layer != null) {
+            final Place place = layer.nearestInDirection(parent.getCursorX(), parent.getCursorY(), dir);
+            if (place != null) {
+                parent.moveCursor(place.getX() - parent.getCursorX(), place.getY() - parent.getCursorY());
+            }
+        }
+    }
 }
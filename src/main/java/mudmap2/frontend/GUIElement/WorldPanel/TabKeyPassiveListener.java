@@ -108,6 +108,40 @@ public class TabKeyPassiveListener extends TabKeyListener {
                     parent.placeGroupBoxSelectionToList();
                 }
             }
+        } else if (e.isShiftDown() && e.isControlDown() && !e.isAltDown() && !e.isAltGraphDown()) { // ctrl + shift pressed
+            if (parent.isCursorEnabled()) {
+                switch (e.getKeyCode()) {
+                    // jump to the next place in a direction
+                    case KeyEvent.VK_NUMPAD8:
+                    case KeyEvent.VK_UP:
+                        moveCursorToNearest("n");
+                        break;
+                    case KeyEvent.VK_NUMPAD9:
+                        moveCursorToNearest("ne");
+                        break;
+                    case KeyEvent.VK_NUMPAD6:
+                    case KeyEvent.VK_RIGHT:
+                        moveCursorToNearest("e");
+                        break;
+                    case KeyEvent.VK_NUMPAD3:
+                        moveCursorToNearest("se");
+                        break;
+                    case KeyEvent.VK_NUMPAD2:
+                    case KeyEvent.VK_DOWN:
+                        moveCursorToNearest("s");
+                        break;
+                    case KeyEvent.VK_NUMPAD1:
+                        moveCursorToNearest("sw");
+                        break;
+                    case KeyEvent.VK_NUMPAD4:
+                    case KeyEvent.VK_LEFT:
+                        moveCursorToNearest("w");
+                        break;
+                    case KeyEvent.VK_NUMPAD7:
+                        moveCursorToNearest("nw");
+                        break;
+                }
+            }
         }
     }
 }
@@ -31,14 +31,16 @@ import javax.swing.JPanel;
 import mudmap2.backend.Layer;
 import mudmap2.backend.Place;
 import mudmap2.backend.World;
-import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldEventListener;
 import mudmap2.backend.WorldCoordinate;
+import mudmap2.backend.sssp.BackgroundSearch;
 
 /**
  *
  * @author neop
  */
-public class WorldPanel extends JPanel implements WorldChangeListener {
+public class WorldPanel extends JPanel implements WorldEventListener {
     private static final long serialVersionUID = 1L;
 
     // tile size in pixel
@@ -67,6 +69,9 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
     private final HashSet<StatusListener> statusListeners;
     private final HashSet<WorldPanelListener> tileSizeListeners;
 
+    // path searches of this panel, a new search cancels the running one
+    private final BackgroundSearch pathSearch;
+
     /**
      * positionsTail contains all previously visited positions up to the current
      * position, positionsHead contains all positions visited after the current
@@ -110,6 +115,8 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
         tileSizeListeners = new HashSet<>();
         statusListeners = new HashSet<>();
 
+        pathSearch = new BackgroundSearch();
+
         positionsHead = new LinkedList<>();
         positionsTail = new LinkedList<>();
 
@@ -162,7 +169,7 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
         addMouseMotionListener(new TabMouseMotionListener(this));
 
         if (!passive) {
-            world.addChangeListener(this);
+            world.addEventListener(this);
         }
     }
 
@@ -763,17 +770,74 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
         }
     }
 
+    /**
+     * Gets the background path search of this panel
+     * @return path search
+     */
+    public BackgroundSearch getPathSearch() {
+        return pathSearch;
+    }
+
     @Override
-    public void worldChanged(final Object source) {
-        Layer layer = world.getLayer(getPosition().getLayer());
-        
-        if(source instanceof Place && (layer == null || layer.isEmpty())){ // if place got added and current layer is empty or doesn't exist
-            pushPosition(((Place) source).getCoordinate());
+    public void worldChanged(final WorldChangeEvent event) {
+        final Layer layer = world.getLayer(getPosition().getLayer());
+
+        // the first added place of a batch stands for all changes
+        Place added = null;
+        for(WorldChangeEvent change: event.getEvents()){
+            if(change.getKind() == WorldChangeEvent.Kind.PLACE_ADDED){
+                added = (Place) change.getNewValue();
+                break;
+            }
+        }
+
+        if(added != null && added.getLayer() != null && (layer == null || layer.isEmpty())){ // if place got added and current layer is empty or doesn't exist
+            pushPosition(added.getCoordinate());
+            repaint();
         } else if(layer == null) { // if layer got removed
             gotoHome();
+            repaint();
+        } else if(event.getLayer() == layer && event.hasBounds() && !affectsOtherPlaces(event)){
+            repaintPlaces(event.getXMin(), event.getYMin(), event.getXMax(), event.getYMax());
+        } else if(event.getLayer() == null || event.getLayer() == layer || affectsOtherPlaces(event)){
+            repaint();
+        } // changes on other layers aren't visible
+    }
+
+    /**
+     * Checks whether a change is visible on other places than the changed
+     * ones, eg. the name of a parent place is shown on its children
+     * @param event change event
+     * @return true, if other places might be affected
+     */
+    private boolean affectsOtherPlaces(final WorldChangeEvent event){
+        for(WorldChangeEvent change: event.getEvents()){
+            if(change.getKind() == WorldChangeEvent.Kind.PLACE_CHANGED
+                    && change.mayAffect(WorldChangeEvent.PROPERTY_NAME)
+                    && change.getSource() instanceof Place){
+                final Place place = (Place) change.getSource();
+                if(!place.getParents().isEmpty() || !place.getChildren().isEmpty()) return true;
+            }
         }
-        
-        repaint();
+        return false;
+    }
+
+    /**
+     * Repaints the tiles of a region with a margin of one tile, for paths
+     * and markers that reach into neighboring tiles
+     * @param xMin min x coordinate (inclusive)
+     * @param yMin min y coordinate (inclusive)
+     * @param xMax max x coordinate (inclusive)
+     * @param yMax max y coordinate (inclusive)
+     */
+    void repaintPlaces(final int xMin, final int yMin, final int xMax, final int yMax){
+        final int left = getScreenPosX(xMin - 1);
+        final int right = getScreenPosX(xMax + 2);
+        // the y axis points up on the map and down on the screen, tile y
+        // starts at getScreenPosY(y) and ends at getScreenPosY(y - 1)
+        final int top = getScreenPosY(yMax + 1);
+        final int bottom = getScreenPosY(yMin - 2);
+        repaint(left, top, right - left, bottom - top);
     }
 
     public WorldCoordinate getPlaceGroupBoxStart() {
@@ -29,6 +29,7 @@ import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -89,6 +90,7 @@ public class ExportImageDialog extends ActionDialog {
 
     // state
     WorldCoordinate centerPosition = null;
+    final HashMap<Layer, Legend> legends = new HashMap<>();
 
     int imageWidth, imageHeight;
 
@@ -724,6 +726,15 @@ public class ExportImageDialog extends ActionDialog {
         return image;
     }
 
+    @Override
+    public void dispose() {
+        for(Legend legend: legends.values()){
+            legend.dispose();
+        }
+        legends.clear();
+        super.dispose();
+    }
+
     /**
      * Draws legend
      * @param layer layer
@@ -746,7 +757,15 @@ public class ExportImageDialog extends ActionDialog {
             size = mapGraphicsHeight;
         }
 
-        Legend legend = new Legend(layer, orientation, size);
+        // legends are kept until the dialog is disposed
+        Legend legend = legends.get(layer);
+        if(legend == null){
+            legend = new Legend(layer, orientation, size);
+            legends.put(layer, legend);
+        } else {
+            legend.setOrientation(orientation);
+            legend.setSize(size);
+        }
         legend.setBackgroundColor(ccbLegendBackground.getColor());
         legend.setIncludePathColors(drawLegendPathColors);
         legend.setIncludePlaceGroups(drawLegendPlaceGroups);
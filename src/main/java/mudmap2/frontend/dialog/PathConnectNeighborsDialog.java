@@ -48,6 +48,8 @@ public class PathConnectNeighborsDialog extends ActionDialog{
     Place place;
 
     HashMap<Place, JCheckBox> neighbor_checkboxes;
+    // direction of the neighbor places relative to place
+    HashMap<Place, String> neighbor_directions;
 
     public PathConnectNeighborsDialog(JFrame parent, Place place) {
         super(parent, "Connect neighbor paths to " + place, true);
@@ -58,6 +60,7 @@ public class PathConnectNeighborsDialog extends ActionDialog{
     @Override
     protected void create(){
         neighbor_checkboxes = new HashMap<>();
+        neighbor_directions = new HashMap<>();
 
         setLayout(new GridBagLayout());
 
@@ -67,24 +70,19 @@ public class PathConnectNeighborsDialog extends ActionDialog{
         constraints.gridwidth = 2;
 
         Layer layer = place.getLayer();
-        for(int x = -1; x <= 1; ++x){
-            for(int y = -1; y <= 1; ++y){
-                if(x != 0 || y != 0){
-                    // diretion of the neighbor place relative to _place
-                    String dir = Path.getDir(x, y);
-
-                    // if exit of _place available
-                    if(place.getExit(dir).isEmpty()){
-                        Place neighbor = layer.get(place.getX() + x, place.getY() + y);
-
-                        // if exit of neighbor available
-                        if(neighbor != null && neighbor.getExit(Path.getOppositeDir(dir)).isEmpty()){
-                            JCheckBox checkbox = new JCheckBox("[" + dir + "] " + neighbor);
-                            constraints.gridy++;
-                            add(checkbox, constraints);
-                            neighbor_checkboxes.put(neighbor, checkbox);
-                        }
-                    }
+        for(String dir: Path.planeDirections){
+            // if exit of _place available
+            if(place.getExit(dir).isEmpty()){
+                // closest place in that direction, there may be gaps
+                Place neighbor = layer.nearestInDirection(place.getX(), place.getY(), dir);
+
+                // if exit of neighbor available
+                if(neighbor != null && neighbor.getExit(Path.getOppositeDir(dir)).isEmpty()){
+                    JCheckBox checkbox = new JCheckBox("[" + dir + "] " + neighbor);
+                    constraints.gridy++;
+                    add(checkbox, constraints);
+                    neighbor_checkboxes.put(neighbor, checkbox);
+                    neighbor_directions.put(neighbor, dir);
                 }
             }
         }
@@ -120,10 +118,8 @@ public class PathConnectNeighborsDialog extends ActionDialog{
     private void save(){
         for(Entry<Place, JCheckBox> entry: neighbor_checkboxes.entrySet()){
             if(entry.getValue().isSelected()){
-                int dx = entry.getKey().getX() - place.getX();
-                int dy = entry.getKey().getY() - place.getY();
                 // get direction
-                String dir = Path.getDir(dx, dy);
+                String dir = neighbor_directions.get(entry.getKey());
                 // connect path
                 place.connectPath(new Path(place, dir, entry.getKey(), Path.getOppositeDir(dir)));
             }
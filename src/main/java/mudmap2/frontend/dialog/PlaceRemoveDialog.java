@@ -68,10 +68,17 @@ public class PlaceRemoveDialog implements ActionListener {
                 if(place != null){ // removePlace single place
                     place.removeConnections();
                     place.getLayer().remove(place);
-                } else if(places != null){ // removePlace multiple places
-                    for(Place pl: places){
-                        pl.removeConnections();
-                        place.getLayer().remove(place);
+                } else if(places != null && !places.isEmpty()){ // removePlace multiple places
+                    // the world listeners are called once for all places
+                    final World world = places.iterator().next().getLayer().getWorld();
+                    world.beginUpdate();
+                    try {
+                        for(Place pl: places){
+                            pl.removeConnections();
+                            pl.getLayer().remove(pl);
+                        }
+                    } finally {
+                        world.endUpdate();
                     }
                 }
                 parent.repaint();
@@ -40,7 +40,8 @@ import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import mudmap2.backend.Layer;
 import mudmap2.backend.World;
-import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldEventListener;
 import mudmap2.frontend.GUIElement.LayerPreviewPanel;
 import mudmap2.utils.AlphanumComparator;
 import mudmap2.utils.MenuHelper;
@@ -50,7 +51,7 @@ import mudmap2.utils.MenuHelper;
  * @author neop
  */
 public class LayerPanel extends JPanel
-        implements ActionListener, KeyListener, WorldChangeListener {
+        implements ActionListener, KeyListener, WorldEventListener {
     private static final long serialVersionUID = 1L;
 
     static final String ACTION_CREATE_LAYER = "create_layer";
@@ -282,13 +283,30 @@ public class LayerPanel extends JPanel
     }
 
     @Override
-    public void worldChanged(Object source) {
+    public void worldChanged(WorldChangeEvent event) {
         // only recreate panel on layer change
-        if(source == null || source instanceof Layer){
-            update();
-        } else {
-            revalidate();
-            repaint();
+        final HashSet<Layer> changedLayers = new HashSet<>();
+        for(WorldChangeEvent change: event.getEvents()){
+            switch(change.getKind()){
+                case LAYER_ADDED:
+                case LAYER_REMOVED:
+                case LAYER_CHANGED:
+                    update();
+                    return;
+                case WORLD_CHANGED: // eg. colors
+                    changedLayers.addAll(panels.values());
+                    break;
+                default:
+                    if(change.getLayer() != null) changedLayers.add(change.getLayer());
+                    break;
+            }
+        }
+
+        // repaint the previews of changed layers only
+        for(Map.Entry<JPanel, Layer> entry : panels.entrySet()){
+            if(changedLayers.contains(entry.getValue())){
+                entry.getKey().getComponent(0).repaint();
+            }
         }
     }
 
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
@@ -36,7 +37,8 @@ import javax.swing.tree.DefaultTreeModel;
 import mudmap2.backend.Layer;
 import mudmap2.backend.Place;
 import mudmap2.backend.World;
-import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldEventListener;
 import mudmap2.utils.AlphanumComparator;
 
 /**
@@ -44,7 +46,7 @@ import mudmap2.utils.AlphanumComparator;
  * @author neop
  */
 public class PlacePanel extends JPanel
-        implements KeyListener, TreeSelectionListener, WorldChangeListener {
+        implements KeyListener, TreeSelectionListener, WorldEventListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -128,9 +130,7 @@ public class PlacePanel extends JPanel
             root.add(layerNode);
             layerNodes.put(layer, layerNode);
 
-            HashSet<Place> places = layer.getPlaces();
-            ArrayList<Place> placeList = new ArrayList<>(places);
-            Collections.sort(placeList, new AlphanumComparator<>());
+            List<Place> placeList = layer.getPlacesList(new AlphanumComparator<>());
 
             for(Place place: placeList){
                 if(!useKeywords || place.matchKeywords(keywords)){
@@ -201,9 +201,78 @@ public class PlacePanel extends JPanel
     }
 
     @Override
-    public void worldChanged(Object source) {
-        if(!useKeywords){ // don't update when keywords/search is in use
-            update();
+    public void worldChanged(WorldChangeEvent event) {
+        if(useKeywords) return; // don't update when keywords/search is in use
+
+        for(WorldChangeEvent change: event.getEvents()){
+            switch(change.getKind()){
+                case PLACE_ADDED:
+                    if(!insertPlaceNode((Place) change.getNewValue())){
+                        update();
+                        return;
+                    }
+                    break;
+                case PLACE_REMOVED:
+                    removePlaceNode((Place) change.getOldValue());
+                    break;
+                case PLACE_CHANGED:
+                    // the tree shows the names only
+                    if(change.mayAffect(WorldChangeEvent.PROPERTY_NAME)){
+                        final Place place = (Place) change.getSource();
+                        if(placeNodes.containsKey(place) && !insertPlaceNode(place)){
+                            update();
+                            return;
+                        }
+                    }
+                    break;
+                case LAYER_ADDED:
+                case LAYER_REMOVED:
+                case LAYER_CHANGED:
+                    update();
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Inserts a place node at its sorted position, an existing node of the
+     * place will be replaced
+     * @param place new or renamed place
+     * @return false, if there is no node of the layer
+     */
+    private boolean insertPlaceNode(Place place){
+        final LayerTreeNode layerNode = layerNodes.get(place.getLayer());
+        if(layerNode == null) return false;
+        removePlaceNode(place);
+
+        // binary search for the position
+        final AlphanumComparator<Place> comparator = new AlphanumComparator<>();
+        int low = 0, high = layerNode.getChildCount();
+        while(low < high){
+            final int mid = (low + high) >>> 1;
+            if(comparator.compare(((PlaceTreeNode) layerNode.getChildAt(mid)).getPlace(), place) <= 0){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        final PlaceTreeNode placeNode = new PlaceTreeNode(place);
+        placeNodes.put(place, placeNode);
+        ((DefaultTreeModel) tree.getModel()).insertNodeInto(placeNode, layerNode, low);
+        return true;
+    }
+
+    /**
+     * Removes the node of a place
+     * @param place removed place
+     */
+    private void removePlaceNode(Place place){
+        final PlaceTreeNode placeNode = placeNodes.remove(place);
+        if(placeNode != null && placeNode.getParent() != null){
+            ((DefaultTreeModel) tree.getModel()).removeNodeFromParent(placeNode);
         }
     }
 
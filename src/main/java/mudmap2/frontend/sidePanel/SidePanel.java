@@ -53,8 +53,8 @@ public class SidePanel extends JPanel {
         tabbedPane.addKeyListener(layerPanel);
         tabbedPane.addKeyListener(placePanel);
 
-        world.addChangeListener(layerPanel);
-        world.addChangeListener(placePanel);
+        world.addEventListener(layerPanel);
+        world.addEventListener(placePanel);
     }
 
     public void update() {
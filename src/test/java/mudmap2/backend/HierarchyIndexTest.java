@@ -0,0 +1,195 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class HierarchyIndexTest {
+
+    public HierarchyIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Follows the child or parent connections, without index
+     * @param place start place
+     * @param down children, else parents
+     * @return reachable places
+     */
+    private static HashSet<Place> getClosure(Place place, boolean down){
+        HashSet<Place> ret = new HashSet<>();
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(place);
+        while(!queue.isEmpty()){
+            for(Place next: down ? queue.poll().getChildren() : queue.poll().getParents()){
+                if(ret.add(next)) queue.add(next);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the distance to the nearest place without parents, without index
+     * @param place start place
+     * @return depth or 0
+     */
+    private static int getDepth(Place place){
+        HashMap<Place, Integer> distances = new HashMap<>();
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        distances.put(place, 0);
+        queue.add(place);
+        while(!queue.isEmpty()){
+            Place v = queue.poll();
+            if(v.getParents().isEmpty()) return distances.get(v);
+            for(Place parent: v.getParents()){
+                if(!distances.containsKey(parent)){
+                    distances.put(parent, distances.get(v) + 1);
+                    queue.add(parent);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Test of getDescendants, getAncestors, isDescendant and getDepth
+     * methods, of class HierarchyIndex.
+     */
+    @Test
+    public void testHierarchy() {
+        System.out.println("hierarchy");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int i = 0; i < 60; ++i){
+                Place place = new Place("", i, 0, layer);
+                layer.put(place);
+                places.add(place);
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        HierarchyIndex instance = world.getHierarchy();
+        assertSame(instance, world.getHierarchy());
+
+        // mostly downwards connections with some cycles, queries between
+        // the changes keep cached closures that have to be updated
+        Random random = new Random(1);
+        for(int step = 0; step < 400; ++step){
+            Place a = places.get(random.nextInt(places.size()));
+            Place b = places.get(random.nextInt(places.size()));
+            final int op = random.nextInt(10);
+            if(op < 6){
+                if(a.getId() < b.getId() || op == 0){
+                    a.connectChild(b);
+                } else {
+                    b.connectChild(a);
+                }
+            } else if(op < 8 && !a.getChildren().isEmpty()){
+                a.removeChild(a.getChildren().iterator().next());
+            } else if(op == 8){
+                a.removeConnections();
+            }
+
+            for(int q = 0; q < 5; ++q){
+                Place place = places.get(random.nextInt(places.size()));
+                Place other = places.get(random.nextInt(places.size()));
+                Set<Place> descendants = getClosure(place, true);
+                assertEquals(descendants, instance.getDescendants(place));
+                assertEquals(getClosure(place, false), instance.getAncestors(place));
+                assertEquals(descendants.contains(other), instance.isDescendant(other, place));
+                assertEquals(getDepth(place), instance.getDepth(place));
+            }
+        }
+
+        // the sets are read-only
+        try {
+            instance.getDescendants(places.get(0)).add(places.get(1));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of getDepth method, of class HierarchyIndex.
+     */
+    @Test
+    public void testGetDepth() {
+        System.out.println("getDepth");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place root = new Place("root", 0, 0, layer);
+        Place zone = new Place("zone", 1, 0, layer);
+        Place room = new Place("room", 2, 0, layer);
+        root.connectChild(zone);
+        zone.connectChild(room);
+
+        HierarchyIndex instance = world.getHierarchy();
+        assertEquals(0, instance.getDepth(root));
+        assertEquals(1, instance.getDepth(zone));
+        assertEquals(2, instance.getDepth(room));
+        assertTrue(instance.isDescendant(room, root));
+        assertFalse(instance.isDescendant(root, room));
+
+        // shortcut to the root
+        root.connectChild(room);
+        assertEquals(1, instance.getDepth(room));
+        root.removeChild(room);
+        assertEquals(2, instance.getDepth(room));
+
+        // cycle without root
+        room.connectChild(root);
+        assertEquals(0, instance.getDepth(room));
+        assertTrue(instance.isDescendant(root, root));
+        assertTrue(instance.getAncestors(zone).contains(zone));
+    }
+
+}
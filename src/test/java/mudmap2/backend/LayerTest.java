@@ -17,10 +17,14 @@
 package mudmap2.backend;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.StreamSupport;
 import mudmap2.backend.prquadtree.Quadtree;
 import mudmap2.utils.Pair;
 import org.junit.After;
@@ -371,6 +375,44 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of the coordinate bounds of empty layers on each spatial index,
+     * of class Layer.
+     */
+    @Test
+    public void testBoundsEmpty() throws Exception {
+        System.out.println("boundsEmpty");
+
+        for(World.SpatialIndexType type: World.SpatialIndexType.values()){
+            World w = new World();
+            w.setSpatialIndexType(type);
+            Layer instance = w.getNewLayer();
+
+            // empty layers report 0, like before the spatial indexes
+            assertEquals(0, instance.getXMin());
+            assertEquals(0, instance.getXMax());
+            assertEquals(0, instance.getYMin());
+            assertEquals(0, instance.getYMax());
+
+            Place place = new Place("MyPlace", 7, -3, instance);
+            try {
+                instance.put(place);
+            } catch (Layer.PlaceNotInsertedException ex) {
+                fail(ex.getMessage());
+            }
+            assertEquals(7, instance.getXMin());
+            assertEquals(-3, instance.getYMax());
+
+            // the bounds are updated after the last place was removed
+            instance.remove(place);
+            assertTrue(instance.isEmpty());
+            assertEquals(0, instance.getXMin());
+            assertEquals(0, instance.getXMax());
+            assertEquals(0, instance.getYMin());
+            assertEquals(0, instance.getYMax());
+        }
+    }
+
     /**
      * Test of putPlace method, of class Layer.
      */
@@ -520,6 +562,143 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of putAll method, of class Layer.
+     */
+    @Test
+    public void testPutAll() {
+        System.out.println("putAll");
+
+        Layer instance = new Layer(world);
+        Layer other = world.getNewLayer();
+
+        LinkedList<Place> places = new LinkedList<>();
+        for(int x = -5; x <= 5; ++x){
+            for(int y = -5; y <= 5; y += 2){
+                places.add(new Place("MyPlace", x, y, instance));
+            }
+        }
+
+        try {
+            instance.putAll(places);
+            assertEquals(places.size(), instance.size());
+            for(Place place: places){
+                assertEquals(place, instance.get(place.getX(), place.getY()));
+            }
+
+            // move places onto positions of other moved places
+            instance.putAll(places, 1, 0);
+            assertEquals(places.size(), instance.size());
+            assertNull(instance.get(-5, -5));
+            assertEquals(places.getFirst(), instance.get(-4, -5));
+            assertEquals(places.getLast(), instance.get(6, 5));
+
+            // move places to another layer
+            other.putAll(places.subList(0, 6), 0, 100);
+            assertEquals(places.size() - 6, instance.size());
+            assertEquals(6, other.size());
+            assertEquals(other, places.getFirst().getLayer());
+            assertEquals(places.getFirst(), other.get(-4, 95));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            Logger.getLogger(LayerTest.class.getName()).log(Level.SEVERE, null, ex);
+            fail(ex.getMessage());
+        }
+
+        // try to put places to an occupied position, nothing will be changed
+        LinkedList<Place> collision = new LinkedList<>();
+        collision.add(new Place("MyPlace", 50, 50, null));
+        collision.add(new Place("MyPlace", 0, 5, null));
+        try {
+            instance.putAll(collision);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+        assertNull(instance.get(50, 50));
+        assertNull(collision.getFirst().getLayer());
+
+        // moved places must not collide with other places
+        try {
+            other.putAll(places.subList(0, 1), 0, 2);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+        assertEquals(places.getFirst(), other.get(-4, 95));
+
+        // overflowing positions, nothing will be changed
+        Place edge = places.getLast();
+        try {
+            instance.putAll(places.subList(places.size() - 2, places.size()), Integer.MAX_VALUE, 0);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            assertEquals(edge.getX(), ex.x);
+        }
+        assertEquals(instance, edge.getLayer());
+        assertEquals(edge, instance.get(6, 5));
+    }
+
+    /**
+     * Test of putAll method, of class Layer, with positions the spatial
+     * index rejects
+     */
+    @Test
+    public void testPutAllRollback() throws Exception {
+        System.out.println("putAllRollback");
+
+        World persistentWorld = new World();
+        persistentWorld.setSpatialIndexType(World.SpatialIndexType.PERSISTENT_QUADTREE);
+        Layer instance = persistentWorld.getNewLayer();
+        instance.setQuadtree(0, 0);
+        Layer other = persistentWorld.getNewLayer();
+        other.setQuadtree(0, 0);
+
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int x = 0; x < 4; ++x){
+                Place place = new Place("MyPlace", x, 0, instance);
+                instance.put(place);
+                places.add(place);
+            }
+            places.get(0).connectPath(new Path(places.get(0), "e", places.get(1), "w"));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        final ArrayList<Object> events = new ArrayList<>();
+        persistentWorld.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                events.add(source);
+            }
+        });
+
+        // the last place is moved out of the quadtree
+        Place outside = new Place("MyPlace", Integer.MAX_VALUE - 1, 0, null);
+        ArrayList<Place> moved = new ArrayList<>(places);
+        moved.add(outside);
+        try {
+            other.putAll(moved, 0, 0);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            assertEquals(Integer.MAX_VALUE - 1, ex.x);
+            assertEquals(0, ex.y);
+        }
+
+        assertTrue(events.isEmpty());
+        assertTrue(other.isEmpty());
+        assertEquals(4, instance.size());
+        for(int x = 0; x < 4; ++x){
+            Place place = places.get(x);
+            assertEquals(instance, place.getLayer());
+            assertEquals(x, place.getX());
+            assertEquals(place, instance.get(x, 0));
+            assertEquals(place, persistentWorld.getPlace(place.getId()));
+        }
+        assertNull(outside.getLayer());
+        assertEquals(Integer.MAX_VALUE - 1, outside.getX());
+    }
+
     /**
      * Test of getPlace method, of class Layer.
      */
@@ -639,6 +818,209 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of nearest method, of class Layer.
+     */
+    @Test
+    public void testNearest() {
+        System.out.println("nearest");
+
+        Layer instance = new Layer(world);
+        assertTrue(instance.nearest(0, 0, 5).isEmpty());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 3, 0, instance);
+        Place el3 = new Place("Place3", -3, 0, instance);
+        Place el4 = new Place("Place4", 1, 1, instance);
+        Place el5 = new Place("Place5", 500, -300, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            instance.put(el3);
+            instance.put(el4);
+            instance.put(el5);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // the place at the position is included, same distance ordered by x
+        List<Place> result = instance.nearest(0, 0, 4);
+        assertEquals(4, result.size());
+        assertSame(el1, result.get(0));
+        assertSame(el4, result.get(1));
+        assertSame(el3, result.get(2));
+        assertSame(el2, result.get(3));
+
+        // places far away are found
+        result = instance.nearest(1000, 1000, 1);
+        assertEquals(1, result.size());
+        assertSame(el5, result.get(0));
+
+        assertEquals(5, instance.nearest(0, 0, 10).size());
+        assertTrue(instance.nearest(0, 0, 0).isEmpty());
+    }
+
+    /**
+     * Test of nearestInDirection method, of class Layer.
+     */
+    @Test
+    public void testNearestInDirection() {
+        System.out.println("nearestInDirection");
+
+        Layer instance = new Layer(world);
+        assertNull(instance.nearestInDirection(0, 0, "n"));
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 2, 1, instance);
+        Place el3 = new Place("Place3", 1, 2, instance);
+        Place el4 = new Place("Place4", 5, 5, instance);
+        Place el5 = new Place("Place5", -100, 3, instance);
+        Place el6 = new Place("Place6", 0, -10, instance);
+        Place el7 = new Place("Place7", 4, 0, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            instance.put(el3);
+            instance.put(el4);
+            instance.put(el5);
+            instance.put(el6);
+            instance.put(el7);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // positions on the sector border belong to the straight direction
+        assertSame(el2, instance.nearestInDirection(0, 0, "e"));
+        assertSame(el3, instance.nearestInDirection(0, 0, "n"));
+        assertSame(el4, instance.nearestInDirection(0, 0, "ne"));
+        // gaps are skipped
+        assertSame(el5, instance.nearestInDirection(0, 0, "w"));
+        assertSame(el6, instance.nearestInDirection(0, 0, "s"));
+        assertNull(instance.nearestInDirection(0, 0, "nw"));
+        assertNull(instance.nearestInDirection(0, 0, "se"));
+        assertNull(instance.nearestInDirection(0, 0, "sw"));
+
+        // the place at the position is not included
+        assertSame(el7, instance.nearestInDirection(2, 1, "e"));
+        assertSame(el1, instance.nearestInDirection(2, 1, "w"));
+        assertSame(el2, instance.nearestInDirection(2, 0, "n"));
+
+        // invalid directions
+        assertNull(instance.nearestInDirection(0, 0, "u"));
+        assertNull(instance.nearestInDirection(0, 0, "foo"));
+
+        // borders of the coordinate range
+        assertNull(instance.nearestInDirection(Integer.MAX_VALUE, 0, "e"));
+        assertSame(el4, instance.nearestInDirection(Integer.MAX_VALUE, 0, "w"));
+    }
+
+    /**
+     * Test of snapshot method, of class Layer.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        System.out.println("snapshot");
+
+        for(World.SpatialIndexType type: World.SpatialIndexType.values()){
+            World world1 = new World();
+            world1.setSpatialIndexType(type);
+            Layer instance = world1.getNewLayer();
+
+            LayerSnapshot empty = instance.snapshot();
+            assertTrue(empty.isEmpty());
+            assertSame(instance, empty.getLayer());
+
+            Place el1 = new Place("Place1", 0, 0, instance);
+            Place el2 = new Place("Place2", 3, -1, instance);
+            Place el3 = new Place("Place3", -4, 8, instance);
+            try {
+                instance.put(el1);
+                instance.put(el2);
+            } catch (Layer.PlaceNotInsertedException ex) {
+                fail(ex.getMessage());
+            }
+            LayerSnapshot snapshot = instance.snapshot();
+
+            // modify the layer
+            try {
+                instance.put(el3);
+                instance.remove(el1);
+                instance.put(el2, 10, 10);
+            } catch (Exception ex) {
+                fail(ex.getMessage());
+            }
+            assertTrue(empty.isEmpty());
+            assertEquals(2, instance.size());
+
+            // the snapshot still has the previous positions
+            assertEquals(2, snapshot.size());
+            assertSame(el1, snapshot.get(0, 0));
+            assertSame(el2, snapshot.get(3, -1));
+            assertNull(snapshot.get(-4, 8));
+            assertNull(snapshot.get(10, 10));
+            assertFalse(snapshot.exist(10, 10));
+            assertEquals(0, snapshot.getXMin());
+            assertEquals(3, snapshot.getXMax());
+            assertEquals(-1, snapshot.getYMin());
+            assertEquals(0, snapshot.getYMax());
+
+            HashSet<Place> places = snapshot.getPlaces();
+            assertEquals(2, places.size());
+            assertTrue(places.contains(el1));
+            assertTrue(places.contains(el2));
+            assertEquals(1, snapshot.getPlacesInRect(1, -5, 5, 5).size());
+            assertSame(el1, snapshot.nearest(-1, -1, 1).get(0));
+
+            // a new snapshot has the current positions
+            LayerSnapshot snapshot2 = instance.snapshot();
+            assertSame(el2, snapshot2.get(10, 10));
+            assertSame(el3, snapshot2.get(-4, 8));
+            assertNull(snapshot2.get(0, 0));
+        }
+    }
+
+    /**
+     * Test of getPlacesInRect method, of class Layer.
+     */
+    @Test
+    public void testGetPlacesInRect() {
+        System.out.println("getPlacesInRect");
+
+        Layer instance = new Layer(world);
+
+        List<Place> result = instance.getPlacesInRect(-5, -5, 5, 5);
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 5, -5, instance);
+        Place el3 = new Place("Place3", 6, 0, instance);
+        Place el4 = new Place("Place4", -20, 30, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            instance.put(el3);
+            instance.put(el4);
+
+            result = instance.getPlacesInRect(-5, -5, 5, 5);
+            assertEquals(2, result.size());
+            assertTrue(result.contains(el1));
+            assertTrue(result.contains(el2));
+
+            result = instance.getPlacesInRect(1, -1, 6, 1);
+            assertEquals(1, result.size());
+            assertTrue(result.contains(el3));
+
+            result = instance.getPlacesInRect(-100, -100, 100, 100);
+            assertEquals(4, result.size());
+
+            result = instance.getPlacesInRect(-19, 29, -10, 40);
+            assertTrue(result.isEmpty());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
     /**
      * Test of getId method, of class Layer.
      */
@@ -782,6 +1164,33 @@ public class LayerTest {
 
     }
 
+    /**
+     * Test of size method, of class Layer.
+     */
+    @Test
+    public void testSize() {
+        System.out.println("size");
+
+        Layer instance = new Layer(world);
+        assertEquals(0, instance.size());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", -1, 2, instance);
+        try {
+            instance.put(el1);
+            assertEquals(1, instance.size());
+            instance.put(el2);
+            assertEquals(2, instance.size());
+
+            instance.remove(el1);
+            assertEquals(1, instance.size());
+            assertEquals(-1, instance.getXMin());
+            assertEquals(2, instance.getYMax());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
     /**
      * Test of getPlaces method, of class Layer.
      */
@@ -810,6 +1219,53 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of forEachPlace and iterator methods, of class Layer.
+     */
+    @Test
+    public void testForEachPlace() {
+        System.out.println("forEachPlace");
+
+        Layer instance = new Layer(world);
+
+        final HashSet<Place> result = new HashSet<>();
+        Consumer<Place> visitor = new Consumer<Place>() {
+            @Override
+            public void accept(Place place) {
+                assertTrue(result.add(place));
+            }
+        };
+
+        instance.forEachPlace(visitor);
+        assertTrue(result.isEmpty());
+        assertFalse(instance.iterator().hasNext());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", -1, 2, instance);
+        Place el3 = new Place("Place3", 7, -4, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            instance.put(el3);
+
+            instance.forEachPlace(visitor);
+            assertEquals(3, result.size());
+            assertTrue(result.contains(el1));
+            assertTrue(result.contains(el2));
+            assertTrue(result.contains(el3));
+
+            result.clear();
+            for(Place place: instance){
+                assertTrue(result.add(place));
+            }
+            assertEquals(instance.getPlaces(), result);
+
+            assertEquals(3, StreamSupport.stream(instance.spliterator(), false).count());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
     /**
      * Test of toString method, of class Layer.
      */
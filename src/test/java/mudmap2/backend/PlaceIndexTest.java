@@ -0,0 +1,100 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PlaceIndexTest {
+
+    public PlaceIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of put, get and remove methods, of class PlaceIndex.
+     */
+    @Test
+    public void testPutRemove() {
+        System.out.println("putRemove");
+
+        PlaceIndex instance = new PlaceIndex();
+        HashMap<Integer, Place> expected = new HashMap<>();
+        ArrayList<Place> places = new ArrayList<>();
+        Random random = new Random(1);
+
+        // ids close together and far apart collide in the table
+        for(int i = 0; i < 20000; ++i){
+            final int id = random.nextBoolean() ? random.nextInt(3000) : random.nextInt(1000) * 4096;
+            final Place place = new Place(id, "", 0, 0, null);
+            if(random.nextInt(3) == 0 && !places.isEmpty()){
+                Place removed = places.get(random.nextInt(places.size()));
+                assertEquals(expected.get(removed.getId()) == removed, instance.remove(removed));
+                if(expected.get(removed.getId()) == removed){
+                    expected.remove(removed.getId());
+                }
+            } else {
+                instance.put(place);
+                expected.put(id, place);
+                places.add(place);
+            }
+            assertEquals(expected.size(), instance.size());
+        }
+
+        for(Entry<Integer, Place> entry: expected.entrySet()){
+            assertSame(entry.getValue(), instance.get(entry.getKey()));
+        }
+        for(int id = 0; id < 3000; ++id){
+            assertSame(expected.get(id), instance.get(id));
+        }
+        assertNull(instance.get(-1));
+
+        instance.clear();
+        assertEquals(0, instance.size());
+        for(Place place: places){
+            assertNull(instance.get(place.getId()));
+        }
+    }
+
+}
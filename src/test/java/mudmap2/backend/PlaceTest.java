@@ -616,6 +616,83 @@ public class PlaceTest {
         assertTrue(result.contains(p2));
     }
 
+    /**
+     * Test of the exit and neighbor index of class Place.
+     */
+    @Test
+    public void testExitIndex() {
+        System.out.println("exitIndex");
+
+        Place instance = new Place("MyPlace", 1, 1, layer);
+        Place place = new Place("Another place", 1, 2, layer);
+
+        // standard, custom and self exits
+        Path p1 = new Path(instance, "n", place, "s");
+        Path p2 = new Path(instance, "u", place, "d");
+        Path p3 = new Path(instance, "enter portal", place, "-");
+        Path p4 = new Path(instance, "ne", instance, "sw");
+        instance.connectPath(p1);
+        instance.connectPath(p2);
+        place.connectPath(p3);
+        instance.connectPath(p4);
+
+        assertEquals(4, instance.getPaths().size());
+        assertEquals(3, place.getPaths().size());
+        assertTrue(instance.getExit("u").contains(p2));
+        assertTrue(place.getExit("d").contains(p2));
+        assertTrue(instance.getExit("enter portal").contains(p3));
+        assertTrue(place.getExit("-").contains(p3));
+        assertTrue(instance.getExit("ne").contains(p4));
+        assertTrue(instance.getExit("sw").contains(p4));
+        assertTrue(instance.getExit(null).isEmpty());
+        assertTrue(instance.getExit("d").isEmpty());
+        assertEquals(3, instance.getPaths(place).size());
+        assertEquals(3, place.getPaths(instance).size());
+        assertEquals(1, instance.getPaths(instance).size());
+        assertTrue(place.getPaths(place).isEmpty());
+
+        // the sets are read-only
+        try {
+            instance.getExit("n").add(p2);
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            instance.getPaths(place).clear();
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            instance.getExit("n").iterator().next();
+            instance.getExit("n").iterator().remove();
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        HashSet<Path> copy = (HashSet<Path>) instance.getExit("n").clone();
+        copy.add(p2);
+        assertEquals(1, instance.getExit("n").size());
+
+        // removing an exit updates both places
+        instance.removePaths(instance.getPathsTo("n"));
+        assertTrue(instance.getExit("n").isEmpty());
+        assertTrue(place.getExit("s").isEmpty());
+        assertEquals(2, place.getPaths(instance).size());
+
+        instance.removePath(p4);
+        assertTrue(instance.getExit("ne").isEmpty());
+        assertTrue(instance.getExit("sw").isEmpty());
+        assertTrue(instance.getPaths(instance).isEmpty());
+
+        p3.remove();
+        assertTrue(instance.getExit("enter portal").isEmpty());
+        assertTrue(place.getExit("-").isEmpty());
+        assertEquals(1, instance.getPaths(place).size());
+        assertEquals(1, instance.getPaths().size());
+    }
+
     /**
      * Test of getFlag method, of class Place.
      */
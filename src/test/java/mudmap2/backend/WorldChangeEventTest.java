@@ -0,0 +1,275 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class WorldChangeEventTest {
+
+    World world;
+    Layer layer;
+    ArrayList<WorldChangeEvent> events;
+
+    public WorldChangeEventTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        world = new World();
+        layer = world.getNewLayer();
+        events = new ArrayList<>();
+        world.addEventListener(new WorldEventListener() {
+            @Override
+            public void worldChanged(WorldChangeEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the place events
+     */
+    @Test
+    public void testPlaceEvents() throws Exception {
+        System.out.println("placeEvents");
+
+        Place place = new Place("a", 3, -4, layer);
+        layer.put(place);
+        assertEquals(1, events.size());
+        WorldChangeEvent event = events.get(0);
+        assertEquals(WorldChangeEvent.Kind.PLACE_ADDED, event.getKind());
+        assertSame(place, event.getSource());
+        assertSame(place, event.getNewValue());
+        assertSame(layer, event.getLayer());
+        assertTrue(event.hasBounds());
+        assertEquals(3, event.getXMin());
+        assertEquals(3, event.getXMax());
+        assertEquals(-4, event.getYMin());
+        assertEquals(-4, event.getYMax());
+
+        events.clear();
+        place.setName("b");
+        assertEquals(1, events.size());
+        event = events.get(0);
+        assertEquals(WorldChangeEvent.Kind.PLACE_CHANGED, event.getKind());
+        assertEquals(WorldChangeEvent.PROPERTY_NAME, event.getProperty());
+        assertEquals("a", event.getOldValue());
+        assertEquals("b", event.getNewValue());
+        assertTrue(event.mayAffect(WorldChangeEvent.PROPERTY_NAME));
+        assertFalse(event.mayAffect(WorldChangeEvent.PROPERTY_INFO_RING));
+
+        events.clear();
+        place.setRecLevelMin(5);
+        assertEquals(WorldChangeEvent.PROPERTY_REC_LEVEL_MIN, events.get(0).getProperty());
+        assertEquals(5, events.get(0).getNewValue());
+
+        // the event has the position before the removal
+        events.clear();
+        layer.remove(place);
+        assertEquals(1, events.size());
+        event = events.get(0);
+        assertEquals(WorldChangeEvent.Kind.PLACE_REMOVED, event.getKind());
+        assertSame(layer, event.getSource());
+        assertSame(place, event.getOldValue());
+        assertTrue(event.hasBounds());
+        assertEquals(3, event.getXMin());
+        assertEquals(-4, event.getYMin());
+    }
+
+    /**
+     * Test of the path and child events
+     */
+    @Test
+    public void testConnectionEvents() throws Exception {
+        System.out.println("connectionEvents");
+
+        Place place1 = new Place("a", 0, 0, layer);
+        Place place2 = new Place("b", 2, 5, layer);
+        layer.put(place1);
+        layer.put(place2);
+        Layer other = world.getNewLayer();
+        Place place3 = new Place("c", 100, 100, other);
+        other.put(place3);
+
+        // same layer: one event over both places
+        events.clear();
+        Path path = new Path(place1, "n", place2, "s");
+        place1.connectPath(path);
+        assertEquals(1, events.size());
+        WorldChangeEvent event = events.get(0);
+        assertEquals(WorldChangeEvent.Kind.PATH_ADDED, event.getKind());
+        assertSame(path, event.getNewValue());
+        assertEquals(0, event.getXMin());
+        assertEquals(2, event.getXMax());
+        assertEquals(0, event.getYMin());
+        assertEquals(5, event.getYMax());
+
+        events.clear();
+        path.remove();
+        assertEquals(1, events.size());
+        assertEquals(WorldChangeEvent.Kind.PATH_REMOVED, events.get(0).getKind());
+        assertSame(path, events.get(0).getOldValue());
+
+        // other layer: one event per layer
+        events.clear();
+        place1.connectChild(place3);
+        assertEquals(2, events.size());
+        assertEquals(WorldChangeEvent.Kind.CHILD_ADDED, events.get(0).getKind());
+        assertSame(layer, events.get(0).getLayer());
+        assertEquals(0, events.get(0).getXMax());
+        assertSame(other, events.get(1).getLayer());
+        assertEquals(100, events.get(1).getXMin());
+        assertSame(place3, events.get(1).getNewValue());
+
+        // nothing removed, no event
+        events.clear();
+        place2.removeChild(place3);
+        assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Test of batch events
+     */
+    @Test
+    public void testBatch() throws Exception {
+        System.out.println("batch");
+
+        final Place place1 = new Place("a", -2, 1, layer);
+        final Place place2 = new Place("b", 4, 7, layer);
+        layer.put(place1);
+        layer.put(place2);
+
+        events.clear();
+        world.beginUpdate();
+        place1.setName("c");
+        place2.setName("d");
+        world.endUpdate();
+        assertEquals(1, events.size());
+        WorldChangeEvent event = events.get(0);
+        assertEquals(WorldChangeEvent.Kind.BATCH, event.getKind());
+        assertEquals(2, event.getEvents().size());
+        assertTrue(event.getSource() instanceof WorldChangeBatch);
+        assertSame(layer, event.getLayer());
+        assertTrue(event.hasBounds());
+        assertEquals(-2, event.getXMin());
+        assertEquals(4, event.getXMax());
+        assertEquals(1, event.getYMin());
+        assertEquals(7, event.getYMax());
+
+        // changes on several layers
+        events.clear();
+        world.beginUpdate();
+        place1.setName("e");
+        world.getNewLayer("new layer");
+        world.endUpdate();
+        event = events.get(0);
+        assertEquals(3, event.getEvents().size());
+        assertNull(event.getLayer());
+        assertFalse(event.hasBounds());
+    }
+
+    /**
+     * Test of the listener adapter
+     */
+    @Test
+    public void testAdapter() throws Exception {
+        System.out.println("adapter");
+
+        final ArrayList<Object> sources = new ArrayList<>();
+        WorldChangeListener listener = new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                sources.add(source);
+            }
+        };
+        world.addChangeListener(listener);
+        world.addChangeListener(listener);
+
+        Place place = new Place("a", 0, 0, layer);
+        layer.put(place);
+        place.setName("b");
+        layer.remove(place);
+        world.deleteLayer(layer);
+        world.callListeners(world);
+
+        assertEquals(5, sources.size());
+        assertSame(place, sources.get(0));
+        assertSame(place, sources.get(1));
+        assertSame(layer, sources.get(2));
+        assertNull(sources.get(3));
+        assertSame(world, sources.get(4));
+        assertEquals(WorldChangeEvent.Kind.LAYER_REMOVED, events.get(3).getKind());
+        assertEquals(WorldChangeEvent.Kind.WORLD_CHANGED, events.get(4).getKind());
+
+        sources.clear();
+        world.removeChangeListener(listener);
+        world.callListeners(world);
+        assertTrue(sources.isEmpty());
+    }
+
+    /**
+     * Test of the place name cache of Layer
+     */
+    @Test
+    public void testPlaceNameCache() throws Exception {
+        System.out.println("placeNameCache");
+
+        Place place1 = new Place("a", 0, 0, layer);
+        Place place2 = new Place("b", 1, 0, layer);
+        layer.put(place1);
+        layer.put(place2);
+        assertTrue(layer.isPlaceNameUnique("a"));
+        assertFalse(layer.placeNameCacheNeedsUpdate);
+
+        // other properties keep the cache
+        place1.setRecLevelMax(10);
+        place1.setFlag("flag", true);
+        assertFalse(layer.placeNameCacheNeedsUpdate);
+
+        place2.setName("a");
+        assertTrue(layer.placeNameCacheNeedsUpdate);
+        assertFalse(layer.isPlaceNameUnique("a"));
+
+        // changes on other layers keep the cache
+        Layer other = world.getNewLayer();
+        other.put(new Place("a", 0, 0, other));
+        assertFalse(layer.placeNameCacheNeedsUpdate);
+    }
+
+}
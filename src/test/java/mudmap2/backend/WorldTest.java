@@ -18,8 +18,11 @@ package mudmap2.backend;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
 import mudmap2.backend.WorldFileReader.current.WorldFileDefault;
 import mudmap2.backend.sssp.BreadthSearch;
 import org.json.JSONObject;
@@ -610,6 +613,138 @@ public class WorldTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of setSpatialIndexType method, of class World.
+     */
+    @Test
+    public void testSetSpatialIndexType() throws Exception {
+        System.out.println("setSpatialIndexType");
+
+        World instance = new World("MyWorld");
+        assertEquals(World.SpatialIndexType.QUADTREE, instance.getSpatialIndexType());
+
+        Layer layer = instance.getNewLayer();
+        Place place1 = new Place("Place1", 2, 3, layer);
+        Place place2 = new Place("Place2", -7, 12, layer);
+        try {
+            layer.put(place1);
+            layer.put(place2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // existing places will be moved to the new data structure
+        instance.setSpatialIndexType(World.SpatialIndexType.HASH_GRID);
+        assertEquals(World.SpatialIndexType.HASH_GRID, instance.getSpatialIndexType());
+        assertEquals(place1, layer.get(2, 3));
+        assertEquals(place2, layer.get(-7, 12));
+        assertEquals(2, layer.size());
+        assertEquals(-7, layer.getXMin());
+        assertEquals(12, layer.getYMax());
+
+        // new layers use the selected data structure
+        Layer layer2 = instance.getNewLayer();
+        try {
+            layer2.put(place1, 5, 5);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(place1, layer2.get(5, 5));
+        assertNull(layer.get(2, 3));
+        assertEquals(1, layer.size());
+
+        instance.setSpatialIndexType(World.SpatialIndexType.POOLED_QUADTREE);
+        assertEquals(place1, layer2.get(5, 5));
+        assertEquals(place2, layer.get(-7, 12));
+        layer.remove(place2);
+        assertTrue(layer.isEmpty());
+        try {
+            layer.put(place2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        instance.setSpatialIndexType(World.SpatialIndexType.PERSISTENT_QUADTREE);
+        assertEquals(place1, layer2.get(5, 5));
+        assertEquals(place2, layer.get(-7, 12));
+        layer.remove(place2);
+        assertTrue(layer.isEmpty());
+        try {
+            layer.put(place2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        instance.setSpatialIndexType(World.SpatialIndexType.QUADTREE);
+        assertEquals(place1, layer2.get(5, 5));
+        assertEquals(place2, layer.get(-7, 12));
+
+        try {
+            instance.setSpatialIndexType(null);
+            fail();
+        } catch (NullPointerException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of setSpatialIndexType method, of class World, with places the
+     * new data structure rejects
+     */
+    @Test
+    public void testSetSpatialIndexTypeFailure() throws Exception {
+        System.out.println("setSpatialIndexTypeFailure");
+
+        World instance = new World("MyWorld");
+        instance.setSpatialIndexType(World.SpatialIndexType.HASH_GRID);
+        Layer layer1 = instance.getNewLayer();
+        Layer layer2 = instance.getNewLayer();
+        Place place1 = new Place("Place1", 2, 3, layer1);
+        Place place2 = new Place("Place2", -(Integer.MAX_VALUE - 1), 0, layer2);
+        Place place3 = new Place("Place3", Integer.MAX_VALUE - 1, 0, layer2);
+        try {
+            layer1.put(place1);
+            layer2.put(place2);
+            layer2.put(place3);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        final ArrayList<Object> events = new ArrayList<>();
+        instance.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                events.add(source);
+            }
+        });
+
+        // the places of layer2 don't fit into one persistent quadtree
+        try {
+            instance.setSpatialIndexType(World.SpatialIndexType.PERSISTENT_QUADTREE);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+
+        // no layer was switched
+        assertEquals(World.SpatialIndexType.HASH_GRID, instance.getSpatialIndexType());
+        assertTrue(events.isEmpty());
+        assertEquals(place1, layer1.get(2, 3));
+        assertEquals(place2, layer2.get(-(Integer.MAX_VALUE - 1), 0));
+        assertEquals(place3, layer2.get(Integer.MAX_VALUE - 1, 0));
+        assertEquals(2, layer2.size());
+        assertEquals(-(Integer.MAX_VALUE - 1), layer2.getXMin());
+        assertEquals(Integer.MAX_VALUE - 1, layer2.getXMax());
+
+        // new places still use the old data structure
+        try {
+            layer1.put(new Place("Place4", Integer.MAX_VALUE - 1, 5, layer1));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(2, layer1.size());
+    }
+
     /**
      * Test of getShowPlaceId method, of class World.
      */
@@ -918,4 +1053,336 @@ public class WorldTest {
 
     }
 
+    /**
+     * Test of breadthSearchPath method, of class World.
+     */
+    @Test
+    public void testBreadthSearchPath() {
+        try {
+            System.out.println("breadthSearchPath");
+
+            World instance = new World();
+            Layer layer1 = instance.getNewLayer();
+            Layer layer2 = instance.getNewLayer();
+
+            Place place11 = new Place("", 0, 0, layer1);
+            Place place12 = new Place("", 1, 0, layer1);
+            Place place13 = new Place("", 2, 0, layer1);
+            Place place21 = new Place("", 0, 0, layer2);
+            // inaccessible place
+            Place place22 = new Place("", 5, 5, layer2);
+            layer1.put(place11);
+            layer1.put(place12);
+            layer1.put(place13);
+            layer2.put(place21);
+            layer2.put(place22);
+
+            place11.connectPath(new Path(place11, "e", place12, "w"));
+            place12.connectPath(new Path(place12, "e", place13, "w"));
+            place13.connectPath(new Path(place13, "d", place21, "u"));
+            // shortcut that can only be used from place21
+            place21.connectPath(new Path(place21, "n", place11, "-"));
+
+            List<Place> path = instance.breadthSearchPath(place11, place21);
+            assertEquals(Arrays.asList(place11, place12, place13, place21), path);
+
+            path = instance.breadthSearchPath(place21, place11);
+            assertEquals(Arrays.asList(place21, place11), path);
+
+            path = instance.breadthSearchPath(place12, place12);
+            assertEquals(Arrays.asList(place12), path);
+
+            assertNull(instance.breadthSearchPath(place11, place22));
+            assertNull(instance.breadthSearchPath(place11, null));
+
+            // the places aren't modified
+            assertNull(place11.breadthSearchData);
+            assertNull(place13.breadthSearchData);
+
+            // breadthSearch only marks the places on the path
+            assertSame(place13, instance.breadthSearch(place11, place13));
+            assertTrue(place11.getBreadthSearchData().marked);
+            assertTrue(place13.getBreadthSearchData().marked);
+            assertFalse(place21.getBreadthSearchData().marked);
+            assertSame(place12, place13.getBreadthSearchData().predecessor);
+
+            // the next search clears the marks of the previous one
+            assertSame(place12, instance.breadthSearch(place12, place12));
+            assertTrue(place12.getBreadthSearchData().marked);
+            assertNull(place12.getBreadthSearchData().predecessor);
+            assertFalse(place11.getBreadthSearchData().marked);
+            assertFalse(place13.getBreadthSearchData().marked);
+            assertNull(place13.getBreadthSearchData().predecessor);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares the bidirectional breadth search to the one-sided search on a
+     * random world with one-way paths
+     */
+    @Test
+    public void testBreadthSearchPathBidirectional() {
+        System.out.println("breadthSearchPath bidirectional");
+
+        World instance = new World();
+        Random random = new Random(11);
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int l = 0; l < 3; ++l){
+                Layer layer = instance.getNewLayer();
+                for(int i = 0; i < 100; ++i){
+                    Place place = new Place("", i % 10, i / 10, layer);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 450; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            // every third path is a one-way path
+            Path path = new Path(place1, "exit" + i, place2, i % 3 == 0 ? "-" : "back" + i);
+            place1.connectPath(path);
+        }
+
+        int pathCount = 0;
+        for(int i = 0; i < 300; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            Place end = places.get(random.nextInt(places.size()));
+            List<Place> expected = instance.breadthSearchPath(start, end, false);
+            List<Place> result = instance.breadthSearchPath(start, end, true);
+            if(expected == null){
+                assertNull(result);
+                continue;
+            }
+            assertNotNull(result);
+            assertEquals(expected.size(), result.size());
+            assertSame(start, result.get(0));
+            ++pathCount;
+            assertSame(end, result.get(result.size() - 1));
+
+            // each step follows a path in its direction
+            for(int j = 0; j + 1 < result.size(); ++j){
+                Place from = result.get(j), to = result.get(j + 1);
+                boolean found = false;
+                for(Path path: from.getPaths()){
+                    if(path.getOtherPlace(from) == to && !path.getExit(from).equals("-")){
+                        found = true;
+                    }
+                }
+                assertTrue(found);
+            }
+        }
+        assertTrue(pathCount > 100);
+    }
+
+    /**
+     * Test of getPlace method, of class World.
+     */
+    @Test
+    public void testGetPlace() {
+        System.out.println("getPlace");
+
+        World instance = new World();
+        Layer layer = instance.getNewLayer();
+        assertNull(instance.getPlace(0));
+        assertEquals(0, instance.getPlaceCount());
+
+        // ids are allocated per world
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int i = 0; i < 1000; ++i){
+                Place place = new Place("", i % 40, i / 40, layer);
+                assertEquals(i, place.getId());
+                layer.put(place);
+                places.add(place);
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(1000, instance.getPlaceCount());
+        for(Place place: places){
+            assertSame(place, instance.getPlace(place.getId()));
+        }
+        World other = new World();
+        assertEquals(0, new Place("", 0, 0, other.getNewLayer()).getId());
+
+        // places without id and duplicate ids get new ones
+        Place noId = new Place("", 100, 100, null);
+        assertEquals(Place.NO_ID, noId.getId());
+        Place duplicate = new Place(5, "", 101, 100, layer);
+        Place reserved = new Place(5000, "", 102, 100, layer);
+        try {
+            layer.put(noId);
+            layer.put(duplicate);
+            layer.put(reserved);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertSame(places.get(5), instance.getPlace(5));
+        assertSame(noId, instance.getPlace(noId.getId()));
+        assertSame(duplicate, instance.getPlace(duplicate.getId()));
+        assertNotEquals(5, duplicate.getId());
+        assertSame(reserved, instance.getPlace(5000));
+        assertTrue(new Place("", 103, 100, layer).getId() > 5000);
+
+        // removed and moved places
+        layer.remove(places.get(7));
+        assertNull(instance.getPlace(7));
+        Layer layer2 = instance.getNewLayer();
+        try {
+            layer2.putAll(places.subList(10, 20));
+            layer2.put(places.get(7));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(Place place: places){
+            assertSame(place, instance.getPlace(place.getId()));
+        }
+        assertEquals(1003, instance.getPlaceCount());
+        instance.deleteLayer(layer2);
+        assertNull(instance.getPlace(15));
+        assertEquals(992, instance.getPlaceCount());
+    }
+
+    /**
+     * Test of batch, beginUpdate and endUpdate methods, of class World.
+     */
+    @Test
+    public void testBatch() {
+        System.out.println("batch");
+
+        final World instance = new World();
+        final Layer layer = instance.getNewLayer();
+        final ArrayList<Object> events = new ArrayList<>();
+        instance.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                events.add(source);
+            }
+        });
+
+        // one event for many changes
+        final ArrayList<Place> places = new ArrayList<>();
+        assertFalse(instance.isUpdating());
+        instance.batch(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(instance.isUpdating());
+                try {
+                    for(int i = 0; i < 100; ++i){
+                        Place place = new Place("", i, 0, layer);
+                        layer.put(place);
+                        place.setName("place " + i);
+                        places.add(place);
+                    }
+                } catch (Layer.PlaceNotInsertedException ex) {
+                    fail(ex.getMessage());
+                }
+                assertTrue(events.isEmpty());
+            }
+        });
+        assertFalse(instance.isUpdating());
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) instanceof WorldChangeBatch);
+        WorldChangeBatch batch = (WorldChangeBatch) events.get(0);
+        assertEquals(100, batch.size());
+        for(Place place: places){
+            assertTrue(batch.contains(place));
+        }
+        assertTrue(batch.containsInstanceOf(Place.class));
+        assertFalse(batch.containsInstanceOf(PlaceGroup.class));
+
+        // nested updates, a single change is passed as it is
+        events.clear();
+        instance.beginUpdate();
+        instance.beginUpdate();
+        places.get(0).setName("a");
+        places.get(0).setName("b");
+        instance.endUpdate();
+        assertTrue(events.isEmpty());
+        instance.endUpdate();
+        assertEquals(1, events.size());
+        assertSame(places.get(0), events.get(0));
+
+        // no changes, no event
+        events.clear();
+        instance.beginUpdate();
+        instance.endUpdate();
+        assertTrue(events.isEmpty());
+
+        // the update ends on exceptions
+        try {
+            instance.batch(new Runnable() {
+                @Override
+                public void run() {
+                    places.get(1).setName("c");
+                    throw new IllegalArgumentException();
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertFalse(instance.isUpdating());
+        assertEquals(1, events.size());
+
+        try {
+            instance.endUpdate();
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of the landmark rebuild after path changes, of class World.
+     */
+    @Test
+    public void testLandmarkRebuild() throws Exception {
+        System.out.println("landmarkRebuild");
+
+        World instance = new World();
+        Layer layer = instance.getNewLayer();
+        Place[] places = new Place[20];
+        for(int i = 0; i < places.length; ++i){
+            places[i] = new Place("", i, 0, layer);
+            layer.put(places[i]);
+            if(i > 0) places[i].connectPath(new Path(places[i - 1], "e", places[i], "w"));
+        }
+
+        // no distances are built before they are used
+        assertNull(instance.landmarks);
+        mudmap2.backend.sssp.LandmarkOracle first = instance.getLandmarks();
+        assertEquals(19, first.getLowerBound(places[0], places[19]));
+
+        // a new path starts the build without a query, meanwhile the old
+        // distances take the path into account
+        places[0].connectPath(new Path(places[0], "portal", places[19], "portal"));
+        mudmap2.backend.sssp.LandmarkOracle current = instance.landmarks;
+        assertTrue(current.getLowerBound(places[0], places[19]) <= 1);
+        for(int i = 0; i < 500 && current.getGraph() == first.getGraph(); ++i){
+            Thread.sleep(10);
+            current = instance.landmarks;
+        }
+        assertNotSame(first.getGraph(), current.getGraph());
+        assertEquals(1, current.getLowerBound(places[0], places[19]));
+
+        // removed paths keep the old distances usable
+        Path portal = places[0].getPaths().iterator().next();
+        for(Path path: places[0].getPaths()){
+            if(path.getOtherPlace(places[0]) == places[19]) portal = path;
+        }
+        places[0].removePath(portal);
+        assertTrue(instance.landmarks.getLowerBound(places[0], places[19]) <= 19);
+        for(int i = 0; i < 500 && instance.landmarks.getLowerBound(places[0], places[19]) < 19; ++i){
+            Thread.sleep(10);
+        }
+        assertEquals(19, instance.landmarks.getLowerBound(places[0], places[19]));
+    }
+
 }
@@ -0,0 +1,361 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.prquadtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PersistentQuadtreeTest {
+
+    // test elements are "x,y" strings
+    static final ToIntFunction<String> X_FUNCTION = new ToIntFunction<String>() {
+        @Override
+        public int applyAsInt(String value) {
+            return Integer.parseInt(value.split(",")[0]);
+        }
+    };
+
+    static final ToIntFunction<String> Y_FUNCTION = new ToIntFunction<String>() {
+        @Override
+        public int applyAsInt(String value) {
+            return Integer.parseInt(value.split(",")[1]);
+        }
+    };
+
+    public PersistentQuadtreeTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates random, unique elements
+     * @param count number of elements
+     * @param seed random seed
+     * @return elements
+     */
+    private static ArrayList<String> createElements(int count, long seed){
+        Random random = new Random(seed);
+        HashSet<String> positions = new HashSet<>();
+        while(positions.size() < count){
+            positions.add((random.nextInt(300) - 150) + "," + (random.nextInt(300) - 150));
+        }
+        return new ArrayList<>(positions);
+    }
+
+    /**
+     * Test of insert and get methods, of class PersistentQuadtree.
+     */
+    @Test
+    public void testInsert() {
+        System.out.println("insert");
+
+        ArrayList<String> elements = createElements(1000, 1);
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, 3, -8);
+        Quadtree<String> expected = new Quadtree<>(3, -8);
+        try {
+            for(String element: elements){
+                instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+                expected.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // same structure as the object quadtree
+        assertEquals(expected.toString(), instance.toString());
+        assertEquals(elements.size(), instance.size());
+        for(String element: elements){
+            assertSame(element, instance.get(X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element)));
+            assertTrue(instance.contains(element));
+        }
+        assertFalse(instance.contains(new String(elements.get(0))));
+        assertEquals(expected.getXMin(), instance.getXMin());
+        assertEquals(expected.getXMax(), instance.getXMax());
+        assertEquals(expected.getYMin(), instance.getYMin());
+        assertEquals(expected.getYMax(), instance.getYMax());
+
+        // occupied position
+        try {
+            String element = new String(elements.get(5));
+            instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertEquals(elements.size(), instance.size());
+    }
+
+    /**
+     * Test of remove method, of class PersistentQuadtree.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        ArrayList<String> elements = createElements(2000, 2);
+        // the center is the position of the first element
+        final int centerX = X_FUNCTION.applyAsInt(elements.get(0));
+        final int centerY = Y_FUNCTION.applyAsInt(elements.get(0));
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // remove half of the elements
+        Collections.shuffle(elements, new Random(3));
+        for(int i = 0; i < 1000; ++i){
+            String element = elements.get(i);
+            if(i % 2 == 0){
+                instance.remove(element);
+            } else {
+                instance.remove(X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+            assertFalse(instance.contains(element));
+        }
+        assertEquals(1000, instance.size());
+
+        // the tree has the shape of a new tree with the remaining elements
+        Quadtree<String> expected = new Quadtree<>(centerX, centerY);
+        try {
+            for(String element: elements.subList(1000, 2000)){
+                expected.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        PersistentQuadtree<String> fresh = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, centerX, centerY);
+        try {
+            fresh.insertAll(elements.subList(1000, 2000), X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(fresh.toString(), instance.toString());
+        assertEquals(expected.getXMin(), instance.getXMin());
+        assertEquals(expected.getXMax(), instance.getXMax());
+        assertEquals(expected.getYMin(), instance.getYMin());
+        assertEquals(expected.getYMax(), instance.getYMax());
+
+        // elements that aren't in the tree
+        instance.remove(elements.get(0));
+        instance.remove(new String(elements.get(1500)));
+        instance.remove(1000, 1000);
+        assertEquals(1000, instance.size());
+
+        // remove everything
+        for(String element: elements){
+            instance.remove(element);
+        }
+        assertTrue(instance.isEmpty());
+        assertFalse(instance.iterator().hasNext());
+        assertEquals(0, instance.getXMax());
+    }
+
+    /**
+     * Test of snapshot method, of class PersistentQuadtree.
+     */
+    @Test
+    public void testSnapshot() {
+        System.out.println("snapshot");
+
+        ArrayList<String> elements = createElements(1000, 4);
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION, 0, 0);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        PersistentQuadtree<String> snapshot = instance.snapshot();
+        final String before = instance.toString();
+        assertTrue(snapshot.isReadOnly());
+        assertFalse(instance.isReadOnly());
+        assertSame(snapshot, snapshot.snapshot());
+        assertSame(instance.getRoot(), snapshot.getRoot());
+
+        // modify the tree in the north east only
+        try {
+            instance.insert("500,500", 500, 500);
+            instance.remove(elements.get(0));
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(before, snapshot.toString());
+        assertEquals(1000, snapshot.size());
+        assertTrue(snapshot.contains(elements.get(0)));
+        assertFalse(instance.contains(elements.get(0)));
+        assertNull(snapshot.get(500, 500));
+        assertEquals("500,500", instance.get(500, 500));
+        assertEquals(500, instance.getXMax());
+        assertTrue(snapshot.getXMax() < 500);
+
+        // unchanged subtrees are shared
+        int shared = 0;
+        for(int i = 0; i < 4; ++i){
+            if(instance.getRoot().children[i] == snapshot.getRoot().children[i]){
+                ++shared;
+            }
+        }
+        assertTrue(shared >= 2);
+
+        // snapshots can't be modified
+        try {
+            snapshot.insert("600,600", 600, 600);
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        try {
+            snapshot.remove(elements.get(1));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        assertEquals(before, snapshot.toString());
+    }
+
+    /**
+     * Test of insertAll method, of class PersistentQuadtree.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        ArrayList<String> collision = new ArrayList<>();
+        collision.add("1,1");
+        collision.add("2,2");
+        collision.add(new String("1,1"));
+        try {
+            instance.insertAll(collision, X_FUNCTION, Y_FUNCTION);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(1, 1));
+        assertNull(instance.get(2, 2));
+        assertEquals("root: {null}", instance.toString());
+    }
+
+    /**
+     * Test of query method, of class PersistentQuadtree.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        ArrayList<String> elements = createElements(3000, 4);
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        Random random = new Random(5);
+        for(int i = 0; i < 100; ++i){
+            final int xMin = random.nextInt(400) - 200;
+            final int yMin = random.nextInt(400) - 200;
+            final int xMax = xMin + random.nextInt(100);
+            final int yMax = yMin + random.nextInt(100);
+
+            HashSet<String> expected = new HashSet<>();
+            for(String element: elements){
+                int x = X_FUNCTION.applyAsInt(element);
+                int y = Y_FUNCTION.applyAsInt(element);
+                if(x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                    expected.add(element);
+                }
+            }
+
+            final HashSet<String> found = new HashSet<>();
+            instance.query(xMin, yMin, xMax, yMax, new Consumer<String>() {
+                @Override
+                public void accept(String element) {
+                    assertTrue(found.add(element));
+                }
+            });
+            assertEquals(expected, found);
+        }
+
+        // nearest uses the same nodes
+        assertEquals(1, instance.nearest(1000, 1000, 1, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null).size());
+    }
+
+    /**
+     * Test of iterator method, of class PersistentQuadtree.
+     */
+    @Test
+    public void testIterator() {
+        System.out.println("iterator");
+
+        ArrayList<String> elements = createElements(500, 6);
+        PersistentQuadtree<String> instance = new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        assertFalse(instance.iterator().hasNext());
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // the iterator walks the version at its creation
+        Iterator<String> iterator = instance.iterator();
+        for(String element: elements.subList(0, 100)){
+            instance.remove(element);
+        }
+        HashSet<String> found = new HashSet<>();
+        while(iterator.hasNext()){
+            assertTrue(found.add(iterator.next()));
+        }
+        assertEquals(new HashSet<>(elements), found);
+        assertEquals(new HashSet<>(elements.subList(100, 500)), instance.values());
+    }
+
+}
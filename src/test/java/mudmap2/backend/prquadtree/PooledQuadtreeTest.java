@@ -0,0 +1,366 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.prquadtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PooledQuadtreeTest {
+
+    // test elements are "x,y" strings
+    static final ToIntFunction<String> X_FUNCTION = new ToIntFunction<String>() {
+        @Override
+        public int applyAsInt(String value) {
+            return Integer.parseInt(value.split(",")[0]);
+        }
+    };
+
+    static final ToIntFunction<String> Y_FUNCTION = new ToIntFunction<String>() {
+        @Override
+        public int applyAsInt(String value) {
+            return Integer.parseInt(value.split(",")[1]);
+        }
+    };
+
+    public PooledQuadtreeTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates random, unique elements
+     * @param count number of elements
+     * @param seed random seed
+     * @return elements
+     */
+    private static ArrayList<String> createElements(int count, long seed){
+        Random random = new Random(seed);
+        HashSet<String> positions = new HashSet<>();
+        while(positions.size() < count){
+            positions.add((random.nextInt(300) - 150) + "," + (random.nextInt(300) - 150));
+        }
+        return new ArrayList<>(positions);
+    }
+
+    /**
+     * Test of insert and get methods, of class PooledQuadtree.
+     */
+    @Test
+    public void testInsert() {
+        System.out.println("insert");
+
+        ArrayList<String> elements = createElements(1000, 1);
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION, 3, -8);
+        Quadtree<String> expected = new Quadtree<>(3, -8);
+        try {
+            for(String element: elements){
+                instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+                expected.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // same structure as the object quadtree
+        assertEquals(expected.toString(), instance.toString());
+        assertEquals(elements.size(), instance.size());
+        for(String element: elements){
+            assertSame(element, instance.get(X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element)));
+            assertTrue(instance.contains(element));
+        }
+        assertFalse(instance.contains(new String(elements.get(0))));
+        assertEquals(expected.getXMin(), instance.getXMin());
+        assertEquals(expected.getXMax(), instance.getXMax());
+        assertEquals(expected.getYMin(), instance.getYMin());
+        assertEquals(expected.getYMax(), instance.getYMax());
+
+        // occupied position
+        try {
+            String element = new String(elements.get(5));
+            instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        // element was already inserted
+        try {
+            String element = elements.get(5);
+            instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertEquals(elements.size(), instance.size());
+    }
+
+    /**
+     * Test of remove method, of class PooledQuadtree.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        ArrayList<String> elements = createElements(2000, 2);
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        int nodes = instance.getNodeCount();
+        // the center is the position of the first element
+        final int centerX = X_FUNCTION.applyAsInt(elements.get(0));
+        final int centerY = Y_FUNCTION.applyAsInt(elements.get(0));
+
+        // remove half of the elements
+        Collections.shuffle(elements, new Random(3));
+        for(int i = 0; i < 1000; ++i){
+            String element = elements.get(i);
+            if(i % 2 == 0){
+                instance.remove(element);
+            } else {
+                instance.remove(X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+            assertFalse(instance.contains(element));
+        }
+        assertEquals(1000, instance.size());
+        assertTrue(instance.getNodeCount() < nodes);
+
+        // the tree has the shape of a new tree with the remaining elements
+        Quadtree<String> expected = new Quadtree<>(centerX, centerY);
+        PooledQuadtree<String> fresh = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION, centerX, centerY);
+        try {
+            for(String element: elements.subList(1000, 2000)){
+                expected.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+                fresh.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(expected.toString(), fresh.toString());
+        assertEquals(fresh.getNodeCount(), instance.getNodeCount());
+        assertEquals(expected.getXMin(), instance.getXMin());
+        assertEquals(expected.getYMax(), instance.getYMax());
+
+        // freed nodes and leafs are reused
+        for(String element: elements.subList(0, 1000)){
+            try {
+                instance.insert(element, X_FUNCTION.applyAsInt(element), Y_FUNCTION.applyAsInt(element));
+            } catch (Exception ex) {
+                fail(ex.getMessage());
+            }
+        }
+        assertEquals(nodes, instance.getNodeCount());
+        assertEquals(2000, instance.size());
+
+        // remove everything
+        for(String element: elements){
+            instance.remove(element);
+        }
+        assertTrue(instance.isEmpty());
+        assertEquals(1, instance.getNodeCount());
+        assertFalse(instance.iterator().hasNext());
+        assertEquals(0, instance.getXMax());
+    }
+
+    /**
+     * Test of insertAll method, of class PooledQuadtree.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        ArrayList<String> collision = new ArrayList<>();
+        collision.add("1,1");
+        collision.add("2,2");
+        collision.add(new String("1,1"));
+        try {
+            instance.insertAll(collision, X_FUNCTION, Y_FUNCTION);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(1, 1));
+        assertNull(instance.get(2, 2));
+    }
+
+    /**
+     * Test of query method, of class PooledQuadtree.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        ArrayList<String> elements = createElements(3000, 4);
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        Random random = new Random(5);
+        for(int i = 0; i < 100; ++i){
+            final int xMin = random.nextInt(400) - 200;
+            final int yMin = random.nextInt(400) - 200;
+            final int xMax = xMin + random.nextInt(100);
+            final int yMax = yMin + random.nextInt(100);
+
+            HashSet<String> expected = new HashSet<>();
+            for(String element: elements){
+                int x = X_FUNCTION.applyAsInt(element);
+                int y = Y_FUNCTION.applyAsInt(element);
+                if(x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                    expected.add(element);
+                }
+            }
+
+            final HashSet<String> found = new HashSet<>();
+            instance.query(xMin, yMin, xMax, yMax, new Consumer<String>() {
+                @Override
+                public void accept(String element) {
+                    assertTrue(found.add(element));
+                }
+            });
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Test of nearest method, of class PooledQuadtree.
+     */
+    @Test
+    public void testNearest() {
+        System.out.println("nearest");
+
+        ArrayList<String> elements = createElements(2000, 6);
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        assertTrue(instance.nearest(0, 0, 3, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null).isEmpty());
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+            // removed elements are not found
+            for(int i = 0; i < 500; ++i){
+                instance.remove(elements.remove(elements.size() - 1));
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        Random random = new Random(7);
+        for(int i = 0; i < 200; ++i){
+            final int x = random.nextInt(400) - 200;
+            final int y = random.nextInt(400) - 200;
+            final int k = random.nextInt(20);
+            final int xMin = i % 2 == 0 ? Integer.MIN_VALUE : x - random.nextInt(50);
+            final int yMin = i % 2 == 0 ? Integer.MIN_VALUE : y - random.nextInt(50);
+            final int xMax = i % 2 == 0 ? Integer.MAX_VALUE : x + random.nextInt(50);
+            final int yMax = i % 2 == 0 ? Integer.MAX_VALUE : y + random.nextInt(50);
+
+            ArrayList<String> expected = new ArrayList<>();
+            for(String element: elements){
+                int ex = X_FUNCTION.applyAsInt(element);
+                int ey = Y_FUNCTION.applyAsInt(element);
+                if(ex >= xMin && ex <= xMax && ey >= yMin && ey <= yMax){
+                    expected.add(element);
+                }
+            }
+            Collections.sort(expected, new Comparator<String>() {
+                @Override
+                public int compare(String e1, String e2) {
+                    long dx1 = X_FUNCTION.applyAsInt(e1) - x, dy1 = Y_FUNCTION.applyAsInt(e1) - y;
+                    long dx2 = X_FUNCTION.applyAsInt(e2) - x, dy2 = Y_FUNCTION.applyAsInt(e2) - y;
+                    if(dx1 * dx1 + dy1 * dy1 != dx2 * dx2 + dy2 * dy2){
+                        return Long.compare(dx1 * dx1 + dy1 * dy1, dx2 * dx2 + dy2 * dy2);
+                    }
+                    if(dx1 != dx2){
+                        return Long.compare(dx1, dx2);
+                    }
+                    return Long.compare(dy1, dy2);
+                }
+            });
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), instance.nearest(x, y, k, xMin, yMin, xMax, yMax, null));
+        }
+    }
+
+    /**
+     * Test of iterator and forEach methods, of class PooledQuadtree.
+     */
+    @Test
+    public void testIterator() {
+        System.out.println("iterator");
+
+        ArrayList<String> elements = createElements(500, 6);
+        PooledQuadtree<String> instance = new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        instance.remove(elements.get(0));
+
+        HashSet<String> found = new HashSet<>();
+        Iterator<String> iterator = instance.iterator();
+        while(iterator.hasNext()){
+            assertTrue(found.add(iterator.next()));
+        }
+        assertEquals(new HashSet<>(elements.subList(1, 500)), found);
+        assertEquals(found, instance.values());
+
+        final HashMap<String, Integer> visited = new HashMap<>();
+        instance.forEach(new Consumer<String>() {
+            @Override
+            public void accept(String element) {
+                assertNull(visited.put(element, 1));
+            }
+        });
+        assertEquals(found, visited.keySet());
+    }
+
+}
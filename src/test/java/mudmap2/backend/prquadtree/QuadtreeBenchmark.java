@@ -0,0 +1,139 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.prquadtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Simple timing benchmark for the quadtree, not run by the unit tests.
+ * Run with: mvn test-compile &amp;&amp; java -cp target/classes:target/test-classes
+ * mudmap2.backend.prquadtree.QuadtreeBenchmark [places]
+ * @author neop
+ */
+public class QuadtreeBenchmark {
+
+    static final int ROUNDS = 5;
+    static final int LOOKUPS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        System.out.println("Quadtree benchmark with " + size + " places");
+        for(int round = 0; round < ROUNDS; ++round){
+            System.out.println("round " + (round + 1) + ":");
+            run(size);
+        }
+    }
+
+    /**
+     * Creates a quadtree with size elements on a square grid, positions are
+     * shuffled
+     * @param size number of elements
+     * @param objects will be filled with the inserted objects
+     * @return quadtree
+     * @throws Exception
+     */
+    static Quadtree<Object> createQuadtree(int size, ArrayList<Object> objects) throws Exception {
+        int width = (int) Math.ceil(Math.sqrt(size));
+        ArrayList<Integer> positions = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i){
+            positions.add(i);
+        }
+        Collections.shuffle(positions, new Random(42));
+
+        Quadtree<Object> quadtree = new Quadtree<>();
+        for(Integer pos: positions){
+            // the object stores its position for insertAll
+            int[] object = new int[]{pos % width - width / 2, pos / width - width / 2};
+            quadtree.insert(object, object[0], object[1]);
+            objects.add(object);
+        }
+        return quadtree;
+    }
+
+    static void run(int size) throws Exception {
+        ArrayList<Object> objects = new ArrayList<>(size);
+
+        long start = System.nanoTime();
+        Quadtree<Object> quadtree = createQuadtree(size, objects);
+        report("insert", System.nanoTime() - start, size);
+
+        // bulk load of the same elements
+        start = System.nanoTime();
+        Quadtree<Object> bulk = new Quadtree<>();
+        bulk.insertAll(objects, new ToIntFunction<Object>() {
+            @Override
+            public int applyAsInt(Object object) {
+                return ((int[]) object)[0];
+            }
+        }, new ToIntFunction<Object>() {
+            @Override
+            public int applyAsInt(Object object) {
+                return ((int[]) object)[1];
+            }
+        });
+        report("insertAll", System.nanoTime() - start, size);
+        if(bulk.size() != size){
+            throw new RuntimeException("Bulk load failed");
+        }
+
+        Random random = new Random(1);
+
+        // contains() by reverse index
+        int found = 0;
+        start = System.nanoTime();
+        for(int i = 0; i < LOOKUPS; ++i){
+            if(quadtree.contains(objects.get(random.nextInt(size)))) ++found;
+        }
+        report("contains", System.nanoTime() - start, LOOKUPS);
+
+        // full scan for comparison (what contains() did before)
+        final int scans = Math.max(1, 10 * LOOKUPS / size);
+        start = System.nanoTime();
+        for(int i = 0; i < scans; ++i){
+            Object object = objects.get(random.nextInt(size));
+            for(Object o: quadtree){
+                if(o == object){
+                    ++found;
+                    break;
+                }
+            }
+        }
+        report("contains (full scan)", System.nanoTime() - start, scans);
+
+        // remove(T) by reverse index
+        final int removals = Math.min(LOOKUPS, size);
+        start = System.nanoTime();
+        for(int i = 0; i < removals; ++i){
+            quadtree.remove(objects.get(i));
+        }
+        report("remove(T)", System.nanoTime() - start, removals);
+
+        if(found < LOOKUPS){
+            throw new RuntimeException("Lookup failed");
+        }
+    }
+
+    static void report(String name, long nanos, int operations){
+        System.out.println(String.format("  %-22s %10.1f ns/op (%d ops, %.1f ms)",
+                name, (double) nanos / operations, operations, nanos / 1e6));
+    }
+
+}
@@ -16,7 +16,17 @@
  */
 package mudmap2.backend.prquadtree;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -387,6 +397,101 @@ public class QuadtreeTest {
         } catch (Exception ex) {}
     }
 
+    /**
+     * Test of insertAll method, of class Quadtree.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        ToIntFunction<String> xFunction = new ToIntFunction<String>() {
+            @Override
+            public int applyAsInt(String value) {
+                return Integer.parseInt(value.split(",")[0]);
+            }
+        };
+        ToIntFunction<String> yFunction = new ToIntFunction<String>() {
+            @Override
+            public int applyAsInt(String value) {
+                return Integer.parseInt(value.split(",")[1]);
+            }
+        };
+
+        Random random = new Random(3);
+        HashSet<String> positions = new HashSet<>();
+        while(positions.size() < 500){
+            positions.add((random.nextInt(200) - 100) + "," + (random.nextInt(2000) - 1000));
+        }
+        positions.add("-1,-1");
+        positions.add("1000000,-5");
+        ArrayList<String> objects = new ArrayList<>(positions);
+
+        try {
+            // bulk loaded tree is the same as an incrementally built tree
+            Quadtree<String> expected = new Quadtree<>(7, -3);
+            for(String obj: objects){
+                expected.insert(obj, xFunction.applyAsInt(obj), yFunction.applyAsInt(obj));
+            }
+            Quadtree<String> instance = new Quadtree<>(7, -3);
+            instance.insertAll(objects, xFunction, yFunction);
+            assertEquals(expected.toString(), instance.toString());
+            assertEquals(objects.size(), instance.size());
+            assertEquals(expected.getXMin(), instance.getXMin());
+            assertEquals(expected.getYMax(), instance.getYMax());
+            for(String obj: objects){
+                assertTrue(instance.contains(obj));
+                assertSame(obj, instance.get(xFunction.applyAsInt(obj), yFunction.applyAsInt(obj)));
+            }
+
+            // insert into a non-empty tree
+            instance = new Quadtree<>(7, -3);
+            instance.insertAll(objects.subList(0, 250), xFunction, yFunction);
+            instance.insertAll(objects.subList(250, objects.size()), xFunction, yFunction);
+            assertEquals(expected.toString(), instance.toString());
+
+            // few elements are inserted one by one
+            ArrayList<String> more = new ArrayList<>();
+            more.add("5000,5000");
+            more.add("-5000,5000");
+            instance.insertAll(more, xFunction, yFunction);
+            expected.insert(more.get(0), 5000, 5000);
+            expected.insert(more.get(1), -5000, 5000);
+            assertEquals(expected.toString(), instance.toString());
+
+            // empty quadtree
+            instance = new Quadtree<>();
+            instance.insertAll(objects, xFunction, yFunction);
+            assertEquals(objects.size(), instance.size());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // occupied positions, nothing will be inserted
+        Quadtree<String> instance = new Quadtree<>();
+        ArrayList<String> collision = new ArrayList<>();
+        collision.add("1,1");
+        collision.add("2,2");
+        collision.add(new String("1,1"));
+        try {
+            instance.insertAll(collision, xFunction, yFunction);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertTrue(instance.isEmpty());
+
+        // an object can only be inserted once
+        collision.remove(2);
+        collision.add(collision.get(0));
+        try {
+            instance.insertAll(collision, xFunction, yFunction);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertTrue(instance.isEmpty());
+    }
+
     /**
      * Test of remove method, of class Quadtree.
      */
@@ -396,6 +501,78 @@ public class QuadtreeTest {
         //testIsEmpty(); // also tests remove
     }
 
+    /**
+     * Test of remove method by object, of class Quadtree.
+     */
+    @Test
+    public void testRemove_Object() {
+        System.out.println("remove(T)");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object1 = null, object2 = null;
+        try {
+            object1 = createAndInsertTestObject(3, 4, instance);
+            object2 = createAndInsertTestObject(-3, 4, instance);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // object not in quadtree
+        instance.remove(new Object());
+        assertEquals(2, instance.values().size());
+
+        instance.remove(object1);
+        assertFalse(instance.exist(3, 4));
+        assertFalse(instance.contains(object1));
+        assertEquals(object2, instance.get(-3, 4));
+
+        instance.remove(object2);
+        assertTrue(instance.isEmpty());
+
+        // object can be inserted again after removal
+        try {
+            instance.insert(object1, 0, 0);
+            assertTrue(instance.contains(object1));
+        } catch (Exception ex) {
+            fail();
+        }
+    }
+
+    /**
+     * Test of contains method, of class Quadtree.
+     */
+    @Test
+    public void testContains() {
+        System.out.println("contains");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object = new Object();
+        assertFalse(instance.contains(object));
+
+        try {
+            instance.insert(object, 1, 2);
+            assertTrue(instance.contains(object));
+            assertFalse(instance.contains(new Object()));
+
+            // an object can only be inserted once
+            try {
+                instance.insert(object, 5, 5);
+                fail();
+            } catch (Exception ex) {
+                // expected
+            }
+            assertFalse(instance.exist(5, 5));
+
+            instance.move(1, 2, 3, 3);
+            assertTrue(instance.contains(object));
+
+            instance.remove(3, 3);
+            assertFalse(instance.contains(object));
+        } catch (Exception ex) {
+            fail();
+        }
+    }
+
     /**
      * Test of move method, of class Quadtree.
      */
@@ -468,4 +645,305 @@ public class QuadtreeTest {
         assertTrue(result.contains(object2));
     }
 
+    /**
+     * Test of query method, of class Quadtree.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        final HashSet<Object> result = new HashSet<>();
+        Consumer<Object> visitor = new Consumer<Object>() {
+            @Override
+            public void accept(Object object) {
+                assertTrue(result.add(object));
+            }
+        };
+
+        instance.query(-10, -10, 10, 10, visitor);
+        assertTrue(result.isEmpty());
+
+        Object object1 = null, object2 = null, object3 = null, object4 = null;
+        try {
+            object1 = createAndInsertTestObject(0, 0, instance);
+            object2 = createAndInsertTestObject(3, -2, instance);
+            object3 = createAndInsertTestObject(-5, 7, instance);
+            object4 = createAndInsertTestObject(1000, 1000, instance);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.query(-10, -10, 10, 10, visitor);
+        assertEquals(3, result.size());
+        assertTrue(result.contains(object1));
+        assertTrue(result.contains(object2));
+        assertTrue(result.contains(object3));
+
+        // borders are inclusive
+        result.clear();
+        instance.query(0, -2, 3, 0, visitor);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(object1));
+        assertTrue(result.contains(object2));
+
+        result.clear();
+        instance.query(1000, 1000, 1000, 1000, visitor);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(object4));
+
+        // empty region
+        result.clear();
+        instance.query(1, 1, 999, 999, visitor);
+        assertTrue(result.isEmpty());
+
+        // invalid region
+        instance.query(10, 10, -10, -10, visitor);
+        assertTrue(result.isEmpty());
+
+        // whole int range
+        instance.query(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+        assertEquals(instance.values(), result);
+    }
+
+    /**
+     * Test of nearest method, of class Quadtree.
+     */
+    @Test
+    public void testNearest() {
+        System.out.println("nearest");
+
+        Quadtree<int[]> instance = new Quadtree<>();
+        assertTrue(instance.nearest(0, 0, 3, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null).isEmpty());
+
+        Random random = new Random(7);
+        final ArrayList<int[]> elements = new ArrayList<>();
+        try {
+            while(elements.size() < 1000){
+                int[] element = {random.nextInt(400) - 200, random.nextInt(400) - 200};
+                if(!instance.exist(element[0], element[1])){
+                    instance.insert(element, element[0], element[1]);
+                    elements.add(element);
+                }
+            }
+            // far away from the others
+            int[] element = {100000, -100000};
+            instance.insert(element, element[0], element[1]);
+            elements.add(element);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // only elements with an even x coordinate
+        Predicate<int[]> filter = new Predicate<int[]>() {
+            @Override
+            public boolean test(int[] element) {
+                return element[0] % 2 == 0;
+            }
+        };
+
+        for(int i = 0; i < 200; ++i){
+            final int x = random.nextInt(600) - 300;
+            final int y = random.nextInt(600) - 300;
+            final int k = random.nextInt(20);
+            int xMin = Integer.MIN_VALUE, yMin = Integer.MIN_VALUE, xMax = Integer.MAX_VALUE, yMax = Integer.MAX_VALUE;
+            if(i % 2 == 1){
+                xMin = x + random.nextInt(100) - 50;
+                yMin = y + random.nextInt(100) - 50;
+                xMax = xMin + random.nextInt(100);
+                yMax = yMin + random.nextInt(100);
+            }
+            Predicate<int[]> f = i % 3 == 0 ? filter : null;
+
+            ArrayList<int[]> expected = new ArrayList<>();
+            for(int[] element: elements){
+                if(element[0] >= xMin && element[0] <= xMax && element[1] >= yMin && element[1] <= yMax
+                        && (f == null || f.test(element))){
+                    expected.add(element);
+                }
+            }
+            Collections.sort(expected, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] e1, int[] e2) {
+                    long d1 = ((long) e1[0] - x) * ((long) e1[0] - x) + ((long) e1[1] - y) * ((long) e1[1] - y);
+                    long d2 = ((long) e2[0] - x) * ((long) e2[0] - x) + ((long) e2[1] - y) * ((long) e2[1] - y);
+                    if(d1 != d2){
+                        return Long.compare(d1, d2);
+                    }
+                    if(e1[0] != e2[0]){
+                        return Integer.compare(e1[0], e2[0]);
+                    }
+                    return Integer.compare(e1[1], e2[1]);
+                }
+            });
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), instance.nearest(x, y, k, xMin, yMin, xMax, yMax, f));
+        }
+
+        // the far away element is found
+        List<int[]> result = instance.nearest(100000, -99000, 1, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        assertEquals(1, result.size());
+        assertSame(elements.get(elements.size() - 1), result.get(0));
+    }
+
+    /**
+     * Test of iterator method, of class Quadtree.
+     */
+    @Test
+    public void testIterator() {
+        System.out.println("iterator");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        assertFalse(instance.iterator().hasNext());
+
+        try {
+            for(int x = -10; x <= 10; x += 3){
+                for(int y = -7; y <= 20; y += 2){
+                    createAndInsertTestObject(x, y, instance);
+                }
+            }
+            // remove some elements to get empty quadrants
+            instance.remove(-10, -7);
+            instance.remove(2, 3);
+        } catch (Exception ex) {
+            fail();
+        }
+        HashSet<Object> expResult = instance.values();
+        assertEquals(7 * 14 - 2, expResult.size());
+
+        HashSet<Object> result = new HashSet<>();
+        Iterator<Object> iterator = instance.iterator();
+        while(iterator.hasNext()){
+            assertTrue(result.add(iterator.next()));
+        }
+        assertEquals(expResult, result);
+
+        try {
+            iterator.next();
+            fail();
+        } catch(NoSuchElementException ex){
+            // expected
+        }
+
+        // remove all elements
+        for(int x = -10; x <= 10; x += 3){
+            for(int y = -7; y <= 20; y += 2){
+                instance.remove(x, y);
+            }
+        }
+        assertFalse(instance.iterator().hasNext());
+    }
+
+    /**
+     * Test of forEach method, of class Quadtree.
+     */
+    @Test
+    public void testForEach() {
+        System.out.println("forEach");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        final HashSet<Object> result = new HashSet<>();
+        Consumer<Object> visitor = new Consumer<Object>() {
+            @Override
+            public void accept(Object object) {
+                assertTrue(result.add(object));
+            }
+        };
+
+        instance.forEach(visitor);
+        assertTrue(result.isEmpty());
+
+        try {
+            createAndInsertTestObject(0, 0, instance);
+            createAndInsertTestObject(-4, 8, instance);
+            createAndInsertTestObject(100, -3, instance);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.forEach(visitor);
+        assertEquals(instance.values(), result);
+    }
+
+    /**
+     * Test of size method, of class Quadtree.
+     */
+    @Test
+    public void testSize() {
+        System.out.println("size");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        assertEquals(0, instance.size());
+
+        try {
+            for(int i = 0; i < 20; ++i){
+                createAndInsertTestObject(i * 7 - 50, 30 - i * i, instance);
+                assertEquals(i + 1, instance.size());
+            }
+
+            // failed insert doesn't change the size
+            try {
+                createAndInsertTestObject(-50, 30, instance);
+                fail();
+            } catch (Exception ex) {
+                // expected
+            }
+            assertEquals(20, instance.size());
+
+            instance.move(-50, 30, 1000, 1000);
+            assertEquals(20, instance.size());
+
+            for(int i = 1; i < 20; ++i){
+                instance.remove(i * 7 - 50, 30 - i * i);
+                assertEquals(20 - i, instance.size());
+            }
+            instance.remove(1000, 1000);
+            assertEquals(0, instance.size());
+            assertTrue(instance.isEmpty());
+        } catch (Exception ex) {
+            fail();
+        }
+    }
+
+    /**
+     * Test of getXMin, getXMax, getYMin and getYMax methods, of class Quadtree.
+     */
+    @Test
+    public void testBoundingBox() {
+        System.out.println("getXMin, getXMax, getYMin, getYMax");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        assertEquals(0, instance.getXMin());
+        assertEquals(0, instance.getXMax());
+        assertEquals(0, instance.getYMin());
+        assertEquals(0, instance.getYMax());
+
+        try {
+            createAndInsertTestObject(3, 4, instance);
+            assertEquals(3, instance.getXMin());
+            assertEquals(3, instance.getXMax());
+            assertEquals(4, instance.getYMin());
+            assertEquals(4, instance.getYMax());
+
+            createAndInsertTestObject(-7, 10, instance);
+            createAndInsertTestObject(5, -2, instance);
+            createAndInsertTestObject(4, 3, instance);
+            assertEquals(-7, instance.getXMin());
+            assertEquals(5, instance.getXMax());
+            assertEquals(-2, instance.getYMin());
+            assertEquals(10, instance.getYMax());
+
+            // bounding box shrinks on removal
+            instance.remove(-7, 10);
+            assertEquals(3, instance.getXMin());
+            assertEquals(4, instance.getYMax());
+
+            instance.move(5, -2, 20, 30);
+            assertEquals(20, instance.getXMax());
+            assertEquals(30, instance.getYMax());
+            assertEquals(3, instance.getYMin());
+        } catch (Exception ex) {
+            fail();
+        }
+    }
+
 }
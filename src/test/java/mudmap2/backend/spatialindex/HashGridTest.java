@@ -0,0 +1,429 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class HashGridTest {
+
+    // test elements store their position
+    static class Element {
+        int x, y;
+
+        Element(int x, int y){
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final ToIntFunction<Element> X_FUNCTION = new ToIntFunction<Element>() {
+        @Override
+        public int applyAsInt(Element element) {
+            return element.x;
+        }
+    };
+
+    static final ToIntFunction<Element> Y_FUNCTION = new ToIntFunction<Element>() {
+        @Override
+        public int applyAsInt(Element element) {
+            return element.y;
+        }
+    };
+
+    public HashGridTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of get, exist and insert methods, of class HashGrid.
+     */
+    @Test
+    public void testInsert() {
+        System.out.println("insert");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(0, 0));
+
+        try {
+            for(int x = -20; x <= 20; ++x){
+                for(int y = -20; y <= 20; y += 4){
+                    Element element = new Element(x, y);
+                    instance.insert(element, x, y);
+                    assertSame(element, instance.get(x, y));
+                }
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(41 * 11, instance.size());
+        assertTrue(instance.exist(-20, -20));
+        assertTrue(instance.exist(3, 0));
+        assertFalse(instance.exist(3, 1));
+        assertFalse(instance.exist(21, 0));
+
+        // occupied position
+        try {
+            instance.insert(new Element(0, 0), 0, 0);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        // element was already inserted
+        try {
+            instance.insert(instance.get(1, 0), 1, 0);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertEquals(41 * 11, instance.size());
+    }
+
+    /**
+     * Test of remove and contains methods, of class HashGrid.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        Element element1 = new Element(1, 2);
+        Element element2 = new Element(-1, 5);
+        try {
+            instance.insert(element1, 1, 2);
+            instance.insert(element2, -1, 5);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertTrue(instance.contains(element1));
+        assertFalse(instance.contains(new Element(1, 2)));
+
+        instance.remove(new Element(1, 2));
+        assertTrue(instance.contains(element1));
+
+        instance.remove(element1);
+        assertFalse(instance.contains(element1));
+        assertNull(instance.get(1, 2));
+        assertEquals(1, instance.size());
+
+        instance.remove(-1, 5);
+        assertFalse(instance.contains(element2));
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Compares the hash grid to a HashMap after random operations
+     */
+    @Test
+    public void testRandom() {
+        System.out.println("random");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        HashMap<Long, Element> expected = new HashMap<>();
+        Random random = new Random(5);
+
+        for(int i = 0; i < 20000; ++i){
+            int x = random.nextInt(60) - 30;
+            int y = random.nextInt(60) - 30;
+            Long key = ((long) x << 32) | (y & 0xffffffffL);
+            if(random.nextInt(3) == 0){
+                instance.remove(x, y);
+                expected.remove(key);
+            } else if(!expected.containsKey(key)){
+                Element element = new Element(x, y);
+                try {
+                    instance.insert(element, x, y);
+                } catch (Exception ex) {
+                    fail(ex.getMessage());
+                }
+                expected.put(key, element);
+            }
+        }
+
+        assertEquals(expected.size(), instance.size());
+        int xMin = Integer.MAX_VALUE, xMax = Integer.MIN_VALUE, yMin = Integer.MAX_VALUE, yMax = Integer.MIN_VALUE;
+        for(Map.Entry<Long, Element> entry: expected.entrySet()){
+            Element element = entry.getValue();
+            assertSame(element, instance.get(element.x, element.y));
+            assertTrue(instance.contains(element));
+            xMin = Math.min(xMin, element.x);
+            xMax = Math.max(xMax, element.x);
+            yMin = Math.min(yMin, element.y);
+            yMax = Math.max(yMax, element.y);
+        }
+        assertEquals(xMin, instance.getXMin());
+        assertEquals(xMax, instance.getXMax());
+        assertEquals(yMin, instance.getYMin());
+        assertEquals(yMax, instance.getYMax());
+        assertEquals(new HashSet<>(expected.values()), instance.values());
+    }
+
+    /**
+     * Test of insertAll method, of class HashGrid.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        ArrayList<Element> elements = new ArrayList<>();
+        for(int i = 0; i < 100; ++i){
+            elements.add(new Element(i % 10, i / 10));
+        }
+        try {
+            instance.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(100, instance.size());
+        assertSame(elements.get(23), instance.get(3, 2));
+
+        // nothing will be inserted on collision
+        ArrayList<Element> collision = new ArrayList<>();
+        collision.add(new Element(50, 50));
+        collision.add(new Element(-50, 50));
+        collision.add(new Element(5, 5));
+        try {
+            instance.insertAll(collision, X_FUNCTION, Y_FUNCTION);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        assertEquals(100, instance.size());
+        assertNull(instance.get(50, 50));
+        assertEquals(0, instance.getXMin());
+        assertEquals(9, instance.getYMax());
+    }
+
+    /**
+     * Test of move method, of class HashGrid.
+     */
+    @Test
+    public void testMove() {
+        System.out.println("move");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        Element element = new Element(1, 1);
+        try {
+            instance.insert(element, 1, 1);
+            instance.insert(new Element(2, 2), 2, 2);
+            instance.move(1, 1, 4, 4);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        assertSame(element, instance.get(4, 4));
+        assertNull(instance.get(1, 1));
+
+        try {
+            instance.move(4, 4, 2, 2);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+        try {
+            instance.move(1, 1, 0, 0);
+            fail();
+        } catch (Exception ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of query method, of class HashGrid.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        try {
+            for(int x = -10; x <= 10; ++x){
+                for(int y = -10; y <= 10; ++y){
+                    instance.insert(new Element(x, y), x, y);
+                }
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        final HashSet<Element> found = new HashSet<>();
+        Consumer<Element> visitor = new Consumer<Element>() {
+            @Override
+            public void accept(Element element) {
+                assertTrue(found.add(element));
+            }
+        };
+
+        // small region, looked up by position
+        instance.query(-2, 3, 1, 4, visitor);
+        assertEquals(8, found.size());
+        for(Element element: found){
+            assertTrue(element.x >= -2 && element.x <= 1 && element.y >= 3 && element.y <= 4);
+        }
+
+        // large region, scan
+        found.clear();
+        instance.query(0, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+        assertEquals(11 * 21, found.size());
+
+        found.clear();
+        instance.query(5, 5, 4, 4, visitor);
+        instance.query(11, 0, 20, 20, visitor);
+        assertTrue(found.isEmpty());
+    }
+
+    /**
+     * Test of nearest method, of class HashGrid.
+     */
+    @Test
+    public void testNearest() {
+        System.out.println("nearest");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        assertTrue(instance.nearest(0, 0, 3, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null).isEmpty());
+
+        Random random = new Random(7);
+        ArrayList<Element> elements = new ArrayList<>();
+        try {
+            while(elements.size() < 500){
+                Element element = new Element(random.nextInt(200) - 100, random.nextInt(200) - 100);
+                if(!instance.exist(element.x, element.y)){
+                    instance.insert(element, element.x, element.y);
+                    elements.add(element);
+                }
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // only elements with an odd y coordinate
+        Predicate<Element> filter = new Predicate<Element>() {
+            @Override
+            public boolean test(Element element) {
+                return element.y % 2 != 0;
+            }
+        };
+
+        for(int i = 0; i < 200; ++i){
+            // positions inside and far outside of the occupied area
+            final int x = random.nextInt(300) - 150 + (i % 10 == 0 ? 100000 : 0);
+            final int y = random.nextInt(300) - 150;
+            final int k = random.nextInt(20);
+            final int xMin = i % 2 == 0 ? Integer.MIN_VALUE : x - random.nextInt(30);
+            final int yMin = i % 2 == 0 ? Integer.MIN_VALUE : y - random.nextInt(30);
+            final int xMax = i % 2 == 0 ? Integer.MAX_VALUE : x + random.nextInt(30);
+            final int yMax = i % 2 == 0 ? Integer.MAX_VALUE : y + random.nextInt(30);
+            Predicate<Element> f = i % 3 == 0 ? filter : null;
+
+            ArrayList<Element> expected = new ArrayList<>();
+            for(Element element: elements){
+                if(element.x >= xMin && element.x <= xMax && element.y >= yMin && element.y <= yMax
+                        && (f == null || f.test(element))){
+                    expected.add(element);
+                }
+            }
+            Collections.sort(expected, new Comparator<Element>() {
+                @Override
+                public int compare(Element e1, Element e2) {
+                    long d1 = (long) (e1.x - x) * (e1.x - x) + (long) (e1.y - y) * (e1.y - y);
+                    long d2 = (long) (e2.x - x) * (e2.x - x) + (long) (e2.y - y) * (e2.y - y);
+                    if(d1 != d2){
+                        return Long.compare(d1, d2);
+                    }
+                    if(e1.x != e2.x){
+                        return Integer.compare(e1.x, e2.x);
+                    }
+                    return Integer.compare(e1.y, e2.y);
+                }
+            });
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), instance.nearest(x, y, k, xMin, yMin, xMax, yMax, f));
+        }
+    }
+
+    /**
+     * Test of iterator method, of class HashGrid.
+     */
+    @Test
+    public void testIterator() {
+        System.out.println("iterator");
+
+        HashGrid<Element> instance = new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+        assertFalse(instance.iterator().hasNext());
+
+        HashSet<Element> expected = new HashSet<>();
+        try {
+            for(int i = 0; i < 50; ++i){
+                Element element = new Element(i * 7, -i);
+                instance.insert(element, element.x, element.y);
+                expected.add(element);
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        HashSet<Element> found = new HashSet<>();
+        Iterator<Element> iterator = instance.iterator();
+        while(iterator.hasNext()){
+            assertTrue(found.add(iterator.next()));
+        }
+        assertEquals(expected, found);
+
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+import mudmap2.backend.prquadtree.PersistentQuadtree;
+import mudmap2.backend.prquadtree.PooledQuadtree;
+import mudmap2.backend.prquadtree.Quadtree;
+
+/**
+ * Compares the spatial index implementations (lookup, insert, memory per
+ * place), not run by the unit tests.
+ * Run with: mvn test-compile &amp;&amp; java -cp target/classes:target/test-classes
+ * mudmap2.backend.spatialindex.SpatialIndexBenchmark [places]
+ * @author neop
+ */
+public class SpatialIndexBenchmark {
+
+    static final int ROUNDS = 5;
+    static final int LOOKUPS = 1000000;
+
+    static final ToIntFunction<int[]> X_FUNCTION = new ToIntFunction<int[]>() {
+        @Override
+        public int applyAsInt(int[] position) {
+            return position[0];
+        }
+    };
+
+    static final ToIntFunction<int[]> Y_FUNCTION = new ToIntFunction<int[]>() {
+        @Override
+        public int applyAsInt(int[] position) {
+            return position[1];
+        }
+    };
+
+    interface Factory {
+        SpatialIndex<int[]> create();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        // dense square map, elements store their position
+        int width = (int) Math.ceil(Math.sqrt(size));
+        ArrayList<int[]> elements = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i){
+            elements.add(new int[]{i % width - width / 2, i / width - width / 2});
+        }
+        Collections.shuffle(elements, new Random(42));
+
+        Factory quadtree = new Factory() {
+            @Override
+            public SpatialIndex<int[]> create() {
+                return new Quadtree<>();
+            }
+        };
+        Factory pooledQuadtree = new Factory() {
+            @Override
+            public SpatialIndex<int[]> create() {
+                return new PooledQuadtree<>(X_FUNCTION, Y_FUNCTION);
+            }
+        };
+        Factory persistentQuadtree = new Factory() {
+            @Override
+            public SpatialIndex<int[]> create() {
+                return new PersistentQuadtree<>(X_FUNCTION, Y_FUNCTION);
+            }
+        };
+        Factory hashGrid = new Factory() {
+            @Override
+            public SpatialIndex<int[]> create() {
+                return new HashGrid<>(X_FUNCTION, Y_FUNCTION);
+            }
+        };
+
+        System.out.println("Spatial index benchmark with " + size + " places");
+        for(int round = 0; round < ROUNDS; ++round){
+            System.out.println("round " + (round + 1) + ":");
+            run("Quadtree", quadtree, elements, width);
+            run("PooledQuadtree", pooledQuadtree, elements, width);
+            run("PersistentQuadtree", persistentQuadtree, elements, width);
+            run("HashGrid", hashGrid, elements, width);
+        }
+    }
+
+    static void run(String name, Factory factory, ArrayList<int[]> elements, int width) throws Exception {
+        final int size = elements.size();
+        System.out.println(" " + name + ":");
+
+        long memStart = usedMemory();
+        long start = System.nanoTime();
+        SpatialIndex<int[]> index = factory.create();
+        for(int[] element: elements){
+            index.insert(element, element[0], element[1]);
+        }
+        report("insert", System.nanoTime() - start, size);
+        long memory = usedMemory() - memStart;
+        // keep the index reachable until it was measured
+        if(index.size() != size){
+            throw new RuntimeException("Insert failed");
+        }
+        System.out.println(String.format("  %-22s %10.1f bytes/place", "memory", (double) memory / size));
+
+        start = System.nanoTime();
+        index = factory.create();
+        index.insertAll(elements, X_FUNCTION, Y_FUNCTION);
+        report("insertAll", System.nanoTime() - start, size);
+
+        // lookups of existing positions
+        Random random = new Random(1);
+        int found = 0;
+        start = System.nanoTime();
+        for(int i = 0; i < LOOKUPS; ++i){
+            int[] element = elements.get(random.nextInt(size));
+            if(index.get(element[0], element[1]) == element) ++found;
+        }
+        report("get", System.nanoTime() - start, LOOKUPS);
+
+        // lookups of random positions around the map (includes misses)
+        start = System.nanoTime();
+        for(int i = 0; i < LOOKUPS; ++i){
+            if(index.exist(random.nextInt(2 * width) - width, random.nextInt(2 * width) - width)) ++found;
+        }
+        report("exist", System.nanoTime() - start, LOOKUPS);
+
+        if(found < LOOKUPS){
+            throw new RuntimeException("Lookup failed");
+        }
+    }
+
+    /**
+     * Gets the used heap memory after garbage collection
+     * @return used memory in bytes
+     */
+    static long usedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; ++i){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static void report(String name, long nanos, int operations){
+        System.out.println(String.format("  %-22s %10.1f ns/op (%d ops, %.1f ms)",
+                name, (double) nanos / operations, operations, nanos / 1e6));
+    }
+
+}
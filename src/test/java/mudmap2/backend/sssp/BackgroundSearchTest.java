@@ -0,0 +1,279 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class BackgroundSearchTest {
+
+    public BackgroundSearchTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a row of places, connected from west to east
+     * @param places list to add the places to
+     * @param count number of places
+     * @return world
+     */
+    private static World createRow(ArrayList<Place> places, int count){
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        try {
+            for(int i = 0; i < count; ++i){
+                Place place = new Place("", i, 0, layer);
+                layer.put(place);
+                places.add(place);
+                if(i > 0){
+                    Place west = places.get(i - 1);
+                    west.connectPath(new Path(west, "e", place, "w"));
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        return world;
+    }
+
+    /**
+     * Callback that stores the result
+     */
+    private static class ResultCallback implements BackgroundSearch.Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<List<Place>> path = new AtomicReference<>();
+
+        @Override
+        public void finished(List<Place> path) {
+            this.path.set(path);
+            done.countDown();
+        }
+
+        @Override
+        public void progress(int expanded, int frontier) {
+        }
+    }
+
+    /**
+     * Test of submit method, of class BackgroundSearch.
+     */
+    @Test
+    public void testSubmit() throws InterruptedException {
+        System.out.println("submit");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createRow(places, 10000);
+        final WorldGraph graph = world.getGraph();
+        final Place start = places.get(0);
+        final Place end = places.get(9999);
+
+        BackgroundSearch instance = new BackgroundSearch();
+        ResultCallback callback = new ResultCallback();
+        instance.submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(SearchMonitor monitor) {
+                return graph.breadthSearchPath(start, end, true, monitor);
+            }
+        }, callback);
+        assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        assertEquals(places, callback.path.get());
+        assertFalse(instance.isRunning());
+
+        try {
+            instance.submit(null, callback);
+            fail();
+        } catch (NullPointerException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of submit and cancel methods, of class BackgroundSearch.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        System.out.println("cancel");
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean oldFinished = new AtomicBoolean(false);
+        BackgroundSearch instance = new BackgroundSearch();
+
+        // runs until it gets cancelled
+        SearchMonitor monitor = instance.submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(SearchMonitor monitor) {
+                started.countDown();
+                while(true){
+                    monitor.update(0, 0);
+                    Thread.yield();
+                }
+            }
+        }, new ResultCallback() {
+            @Override
+            public void finished(List<Place> path) {
+                oldFinished.set(true);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(instance.isRunning());
+        assertFalse(monitor.isCancelled());
+
+        // the new search cancels the old one
+        ResultCallback callback = new ResultCallback();
+        final ArrayList<Place> result = new ArrayList<>();
+        instance.submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(SearchMonitor monitor) {
+                return result;
+            }
+        }, callback);
+        assertTrue(monitor.isCancelled());
+        assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        assertSame(result, callback.path.get());
+        assertFalse(oldFinished.get());
+
+        // cancelled before it started, the worker thread is kept busy by
+        // another instance until the search is cancelled
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        BackgroundSearch blocker = new BackgroundSearch();
+        ResultCallback blockerCallback = new ResultCallback();
+        blocker.submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(SearchMonitor monitor) {
+                blockerStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+        }, blockerCallback);
+        assertTrue(blockerStarted.await(10, TimeUnit.SECONDS));
+
+        ResultCallback cancelled = new ResultCallback();
+        instance.submit(new BackgroundSearch.Search() {
+            @Override
+            public List<Place> run(SearchMonitor monitor) {
+                return result;
+            }
+        }, cancelled);
+        assertTrue(instance.isRunning());
+        instance.cancel();
+        assertFalse(instance.isRunning());
+        release.countDown();
+
+        assertTrue(blockerCallback.done.await(10, TimeUnit.SECONDS));
+        assertFalse(cancelled.done.await(200, TimeUnit.MILLISECONDS));
+        assertNull(cancelled.path.get());
+    }
+
+    /**
+     * Test of update method, of class SearchMonitor.
+     */
+    @Test
+    public void testMonitor() {
+        System.out.println("monitor");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createRow(places, 3 * SearchMonitor.CHECK_INTERVAL);
+        WorldGraph graph = world.getGraph();
+        Place start = places.get(0);
+        Place end = places.get(places.size() - 1);
+
+        // progress is reported during the search
+        final ArrayList<Integer> expanded = new ArrayList<>();
+        SearchMonitor monitor = new SearchMonitor(new SearchMonitor.ProgressListener() {
+            @Override
+            public void progress(int e, int frontier) {
+                assertTrue(frontier >= 0);
+                expanded.add(e);
+            }
+        }) {
+            @Override
+            public void update(int e, int frontier) {
+                // report every time
+                lastReport = 0;
+                super.update(e, frontier);
+            }
+        };
+        assertEquals(places, graph.breadthSearchPath(start, end, false, monitor));
+        assertEquals(3, expanded.size());
+        assertEquals(SearchMonitor.CHECK_INTERVAL, (int) expanded.get(1));
+        expanded.clear();
+        assertEquals(places, graph.breadthSearchPath(start, end, true, monitor));
+        assertFalse(expanded.isEmpty());
+
+        // cancelled searches stop
+        monitor.cancel();
+        assertTrue(monitor.isCancelled());
+        try {
+            graph.breadthSearchPath(start, end, false, monitor);
+            fail();
+        } catch (CancellationException ex) {
+            // expected
+        }
+        try {
+            graph.breadthSearchPath(start, end, true, monitor);
+            fail();
+        } catch (CancellationException ex) {
+            // expected
+        }
+        try {
+            NearestPlaceSearch.findNearest(graph, start, NearestPlaceSearch.nameContains("x"), monitor);
+            fail();
+        } catch (CancellationException ex) {
+            // expected
+        }
+    }
+
+}
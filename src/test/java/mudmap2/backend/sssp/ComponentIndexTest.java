@@ -0,0 +1,206 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class ComponentIndexTest {
+
+    public ComponentIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world with random places on two layers
+     * @param places list to add the places to
+     * @return world
+     */
+    private static World createWorld(ArrayList<Place> places){
+        World world = new World();
+        try {
+            for(int l = 0; l < 2; ++l){
+                Layer layer = world.getNewLayer();
+                for(int i = 0; i < 150; ++i){
+                    Place place = new Place("", i % 15, i / 15, layer);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        return world;
+    }
+
+    /**
+     * Adds random paths
+     * @param places
+     * @param count number of paths
+     * @param random
+     * @return new paths
+     */
+    private static ArrayList<Path> connect(ArrayList<Place> places, int count, Random random){
+        ArrayList<Path> paths = new ArrayList<>();
+        for(int i = 0; i < count; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1 == place2) continue;
+            Path path = new Path(place1, "exit" + paths.size(), place2, i % 3 == 0 ? "-" : "back" + paths.size());
+            place1.connectPath(path);
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * Labels the places by their components
+     * @param places
+     * @return label of each place
+     */
+    private static IdentityHashMap<Place, Place> getRoots(ArrayList<Place> places){
+        IdentityHashMap<Place, Place> roots = new IdentityHashMap<>();
+        for(Place place: places){
+            if(roots.containsKey(place)) continue;
+            roots.put(place, place);
+            ArrayDeque<Place> queue = new ArrayDeque<>();
+            queue.add(place);
+            while(!queue.isEmpty()){
+                Place v = queue.poll();
+                for(Path path: v.getPaths()){
+                    Place vi = path.getOtherPlace(v);
+                    if(!roots.containsKey(vi)){
+                        roots.put(vi, place);
+                        queue.add(vi);
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Compares the components of the world with a breadth search
+     * @param world
+     * @param places
+     * @param random
+     */
+    private static void check(World world, ArrayList<Place> places, Random random){
+        IdentityHashMap<Place, Place> roots = getRoots(places);
+        for(int i = 0; i < 2000; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            assertEquals(roots.get(place1) == roots.get(place2), world.isReachable(place1, place2));
+        }
+
+        List<List<Place>> components = world.getComponents();
+        int sum = 0;
+        for(int i = 0; i < components.size(); ++i){
+            List<Place> component = components.get(i);
+            if(i > 0) assertTrue(components.get(i - 1).size() >= component.size());
+            for(Place place: component){
+                assertSame(roots.get(component.get(0)), roots.get(place));
+            }
+            assertEquals(component.size(), world.getComponentIndex().getComponentSize(component.get(0)));
+            sum += component.size();
+        }
+        assertEquals(places.size(), sum);
+        assertEquals(components.size(), world.getComponentIndex().getComponentCount());
+    }
+
+    /**
+     * Test of isConnected and getComponents methods, of class ComponentIndex.
+     */
+    @Test
+    public void testComponents() {
+        System.out.println("components");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places);
+        Random random = new Random(1);
+        connect(places, 150, random);
+        ComponentIndex index = world.getComponentIndex();
+        check(world, places, random);
+
+        // new paths update the index
+        connect(places, 60, random);
+        assertSame(index, world.getComponentIndex());
+        check(world, places, random);
+
+        // removed paths rebuild it
+        ArrayList<Path> paths = connect(places, 20, random);
+        for(Path path: paths){
+            path.remove();
+        }
+        assertNotSame(index, world.getComponentIndex());
+        check(world, places, random);
+    }
+
+    /**
+     * Test of places that aren't in the index, of class ComponentIndex.
+     */
+    @Test
+    public void testUnknownPlaces() {
+        System.out.println("unknownPlaces");
+
+        ComponentIndex instance = new ComponentIndex();
+        Place place1 = new Place("", 0, 0, null);
+        Place place2 = new Place("", 1, 0, null);
+        Place place3 = new Place("", 2, 0, null);
+        place1.connectPath(new Path(place1, "e", place2, "-"));
+        place2.connectPath(new Path(place2, "-", place3, "-"));
+
+        assertEquals(0, instance.getComponentCount());
+        assertTrue(instance.isConnected(place2, place1));
+        assertFalse(instance.isConnected(place1, place3));
+        assertEquals(2, instance.getComponentSize(place1));
+        assertEquals(2, instance.getComponentCount());
+    }
+
+}
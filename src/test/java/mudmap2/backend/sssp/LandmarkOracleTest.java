@@ -0,0 +1,280 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class LandmarkOracleTest {
+
+    public LandmarkOracleTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world with random places and paths on three layers
+     * @param places list to add the places to
+     * @param seed random seed
+     * @return world
+     */
+    private static World createWorld(ArrayList<Place> places, long seed){
+        World world = new World();
+        Random random = new Random(seed);
+        try {
+            for(int l = 0; l < 3; ++l){
+                Layer layer = world.getNewLayer();
+                for(int i = 0; i < 100; ++i){
+                    Place place = new Place("", i % 10, i / 10, layer);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 350; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1 == place2) continue;
+            place1.connectPath(new Path(place1, "exit" + i, place2, i % 3 == 0 ? "-" : "back" + i));
+        }
+        return world;
+    }
+
+    /**
+     * Breadth search on the places, without graph
+     * @param start
+     * @return distance of each reachable place
+     */
+    private static IdentityHashMap<Place, Integer> getDistances(Place start){
+        IdentityHashMap<Place, Integer> distances = new IdentityHashMap<>();
+        distances.put(start, 0);
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(start);
+        while(!queue.isEmpty()){
+            Place v = queue.poll();
+            for(Path path: v.getPaths()){
+                Place vi = path.getOtherPlace(v);
+                if(!path.getExit(v).equals("-") && !distances.containsKey(vi)){
+                    distances.put(vi, distances.get(v) + 1);
+                    queue.add(vi);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Test of getLowerBound and getUpperBound methods, of class LandmarkOracle.
+     */
+    @Test
+    public void testBounds() {
+        System.out.println("bounds");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 1);
+        LandmarkOracle instance = new LandmarkOracle(world.getGraph(), 8);
+        assertSame(world.getGraph(), instance.getGraph());
+        assertEquals(8, instance.getLandmarkCount());
+
+        HashSet<Place> landmarks = new HashSet<>();
+        for(int i = 0; i < instance.getLandmarkCount(); ++i){
+            assertTrue(landmarks.add(instance.getLandmark(i)));
+        }
+
+        Random random = new Random(2);
+        int exact = 0;
+        for(int i = 0; i < 40; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            IdentityHashMap<Place, Integer> distances = getDistances(start);
+            for(Place end: places){
+                int lower = instance.getLowerBound(start, end);
+                int upper = instance.getUpperBound(start, end);
+                Integer distance = distances.get(end);
+                if(distance == null){
+                    assertEquals(LandmarkOracle.UNREACHABLE, upper);
+                } else {
+                    assertTrue(lower <= distance);
+                    assertTrue(upper >= distance);
+                    if(lower == upper) ++exact;
+                }
+            }
+        }
+        assertTrue(exact > 0);
+
+        // places that aren't in the graph
+        Place other = new Place("", 0, 0, null);
+        assertEquals(0, instance.getLowerBound(other, places.get(0)));
+        assertEquals(LandmarkOracle.UNREACHABLE, instance.getUpperBound(other, places.get(0)));
+        assertEquals(0, instance.getUpperBound(other, other));
+
+        // all places are landmarks
+        World small = new World();
+        Layer layer = small.getNewLayer();
+        try {
+            layer.put(new Place("", 0, 0, layer));
+            layer.put(new Place("", 1, 0, layer));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(2, new LandmarkOracle(small.getGraph(), 5).getLandmarkCount());
+    }
+
+    /**
+     * Test of getLandmarks method, of class World.
+     */
+    @Test
+    public void testRebuild() throws InterruptedException {
+        System.out.println("rebuild");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 3);
+        LandmarkOracle first = world.getLandmarks();
+        assertSame(world.getGraph(), first.getGraph());
+        assertSame(first, world.getLandmarks());
+
+        // the old distances and the new path are used until the new
+        // distances are ready
+        Place place1 = places.get(0), place2 = places.get(1);
+        place1.connectPath(new Path(place1, "portal", place2, "portal"));
+        LandmarkOracle stale = world.getLandmarks();
+        if(stale.getGraph() == first.getGraph()){
+            assertNotSame(first, stale);
+            assertTrue(stale.getLowerBound(place1, place2) <= 1);
+        }
+
+        LandmarkOracle rebuilt = stale;
+        for(int i = 0; i < 500 && rebuilt.getGraph() != world.getGraph(); ++i){
+            Thread.sleep(10);
+            rebuilt = world.getLandmarks();
+        }
+        assertNotSame(first.getGraph(), rebuilt.getGraph());
+        assertSame(world.getGraph(), rebuilt.getGraph());
+        assertTrue(rebuilt.getLowerBound(place1, place2) <= 1);
+        assertTrue(rebuilt.getUpperBound(place1, place2) != LandmarkOracle.UNREACHABLE);
+
+        // synchronous rebuild
+        place2.connectPath(new Path(place2, "door", place1, "door"));
+        LandmarkOracle current = world.getLandmarks(true);
+        assertSame(world.getGraph(), current.getGraph());
+    }
+
+    /**
+     * Test of addPaths method, of class LandmarkOracle.
+     */
+    @Test
+    public void testAddPaths() {
+        System.out.println("addPaths");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 4);
+        LandmarkOracle instance = new LandmarkOracle(world.getGraph(), 8);
+        assertTrue(instance.hasLowerBounds());
+        assertSame(instance, instance.addPaths(new ArrayList<Path>()));
+
+        // remove some paths and connect a few new ones
+        Random random = new Random(5);
+        for(int i = 0; i < 60; ++i){
+            Place place = places.get(random.nextInt(places.size()));
+            if(!place.getPaths().isEmpty()){
+                place.removePath(place.getPaths().iterator().next());
+            }
+        }
+        ArrayList<Path> added = new ArrayList<>();
+        for(int i = 0; i < 4; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1 == place2) continue;
+            Path path = new Path(place1, "new" + i, place2, i % 2 == 0 ? "-" : "old" + i);
+            place1.connectPath(path);
+            added.add(path);
+        }
+        LandmarkOracle stale = instance.addPaths(added);
+        assertSame(instance.getGraph(), stale.getGraph());
+
+        // the lower bounds are still valid
+        for(int i = 0; i < 40; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            IdentityHashMap<Place, Integer> distances = getDistances(start);
+            for(Place end: places){
+                int lower = stale.getLowerBound(start, end);
+                if(distances.containsKey(end)){
+                    assertTrue(lower <= distances.get(end));
+                }
+            }
+        }
+
+        // and can be used by a search on the new graph
+        DefaultPathCost cost = new DefaultPathCost();
+        PathFinder finder = new PathFinder(cost);
+        finder.setLandmarks(stale);
+        PathFinder reference = new PathFinder(cost);
+        reference.setUseHeuristic(false);
+        WorldGraph graph = world.getGraph();
+        for(int i = 0; i < 100; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            Place end = places.get(random.nextInt(places.size()));
+            List<Path> route = finder.findPath(graph, start, end);
+            List<Path> expected = reference.findPath(graph, start, end);
+            assertEquals(expected == null, route == null);
+            if(route != null) assertEquals(reference.getCost(start, expected), finder.getCost(start, route), 1e-9);
+        }
+
+        // too many new paths
+        ArrayList<Path> many = new ArrayList<>();
+        for(int i = 0; i < LandmarkOracle.MAX_ADDED_PATHS; ++i){
+            many.add(new Path(places.get(i), "a" + i, places.get(i + 1), "b" + i));
+        }
+        LandmarkOracle exhausted = stale.addPaths(many);
+        assertFalse(exhausted.hasLowerBounds());
+        assertEquals(0, exhausted.getLowerBound(places.get(0), places.get(50)));
+    }
+
+}
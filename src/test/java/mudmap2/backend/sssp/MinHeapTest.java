@@ -0,0 +1,98 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class MinHeapTest {
+
+    public MinHeapTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of push and pop methods, of class MinHeap.
+     */
+    @Test
+    public void testPushPop() {
+        System.out.println("pushPop");
+
+        MinHeap<Integer> instance = new MinHeap<>();
+        assertTrue(instance.isEmpty());
+
+        Random random = new Random(1);
+        ArrayList<Integer> keys = new ArrayList<>();
+        for(int i = 0; i < 1000; ++i){
+            int key = random.nextInt(500);
+            keys.add(key);
+            instance.push(key, key);
+        }
+        assertEquals(1000, instance.size());
+
+        Collections.sort(keys);
+        for(Integer key: keys){
+            assertEquals(key, instance.peekKey(), 0);
+            assertEquals(key, instance.pop());
+        }
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of clear method, of class MinHeap.
+     */
+    @Test
+    public void testClear() {
+        System.out.println("clear");
+
+        MinHeap<String> instance = new MinHeap<>();
+        instance.push("b", 2.0);
+        instance.push("a", 1.0);
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        assertEquals(0, instance.size());
+        instance.push("c", 3.0);
+        assertEquals("c", instance.pop());
+    }
+
+}
@@ -0,0 +1,199 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import mudmap2.backend.InformationColor;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.PlaceGroup;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class NearestPlaceSearchTest {
+
+    public NearestPlaceSearchTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Breadth search on the places, without graph
+     * @param start
+     * @return distance of each reachable place
+     */
+    private static IdentityHashMap<Place, Integer> getDistances(Place start){
+        IdentityHashMap<Place, Integer> distances = new IdentityHashMap<>();
+        distances.put(start, 0);
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(start);
+        while(!queue.isEmpty()){
+            Place v = queue.poll();
+            for(Path path: v.getPaths()){
+                Place vi = path.getOtherPlace(v);
+                if(!path.getExit(v).equals("-") && !distances.containsKey(vi)){
+                    distances.put(vi, distances.get(v) + 1);
+                    queue.add(vi);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Test of findNearest method, of class NearestPlaceSearch.
+     */
+    @Test
+    public void testFindNearest() {
+        System.out.println("findNearest");
+
+        World world = new World();
+        PlaceGroup group = new PlaceGroup("Forest");
+        world.addPlaceGroup(group);
+        InformationColor color = world.getInformationColor(4);
+        Random random = new Random(1);
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int l = 0; l < 2; ++l){
+                Layer layer = world.getNewLayer();
+                for(int i = 0; i < 200; ++i){
+                    int type = random.nextInt(20);
+                    Place place = new Place(type == 0 ? "Town Bank" : "Road", i % 20, i / 20, layer);
+                    place.setFlag("shop", type == 1);
+                    if(type == 2) place.setPlaceGroup(group);
+                    if(type == 3) place.setInfoRing(color);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 500; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1 == place2) continue;
+            place1.connectPath(new Path(place1, "exit" + i, place2, i % 3 == 0 ? "-" : "back" + i));
+        }
+
+        ArrayList<Predicate<Place>> filters = new ArrayList<>();
+        filters.add(NearestPlaceSearch.nameContains("bank"));
+        filters.add(NearestPlaceSearch.hasFlag("shop"));
+        filters.add(NearestPlaceSearch.inPlaceGroup(group));
+        filters.add(NearestPlaceSearch.hasInformationColor(color));
+
+        int found = 0;
+        for(int i = 0; i < 50; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            IdentityHashMap<Place, Integer> distances = getDistances(start);
+            for(Predicate<Place> filter: filters){
+                Integer expected = null;
+                for(Place place: places){
+                    if(filter.test(place) && distances.containsKey(place)
+                            && (expected == null || distances.get(place) < expected)){
+                        expected = distances.get(place);
+                    }
+                }
+                List<Place> path = world.breadthSearchNearest(start, filter);
+                if(expected == null){
+                    assertNull(path);
+                    continue;
+                }
+                assertNotNull(path);
+                assertEquals(expected + 1, path.size());
+                assertSame(start, path.get(0));
+                assertTrue(filter.test(path.get(path.size() - 1)));
+                ++found;
+            }
+        }
+        assertTrue(found > 100);
+
+        // the start place matches
+        Place bank = null;
+        for(Place place: places){
+            if(place.getName().equals("Town Bank")) bank = place;
+        }
+        assertEquals(1, world.breadthSearchNearest(bank, NearestPlaceSearch.nameContains("BANK")).size());
+    }
+
+    /**
+     * Test of matching method, of class NearestPlaceSearch.
+     */
+    @Test
+    public void testMatching() {
+        System.out.println("matching");
+
+        World world = new World();
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            Layer layer = world.getNewLayer();
+            for(int i = 0; i < 5; ++i){
+                Place place = new Place(i == 3 ? "Shop" : "Road", i, 0, layer);
+                layer.put(place);
+                places.add(place);
+                if(i > 0) place.connectPath(new Path(places.get(i - 1), "e", place, "w"));
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        WorldGraph graph = world.getGraph();
+        Predicate<Place> instance = NearestPlaceSearch.matching(graph, NearestPlaceSearch.nameContains("shop"));
+        for(int i = 0; i < places.size(); ++i){
+            assertEquals(i == 3, instance.test(places.get(i)));
+        }
+
+        // later changes of the places don't change the result
+        places.get(1).setName("Shop");
+        places.get(3).setName("Road");
+        assertTrue(instance.test(places.get(3)));
+        assertFalse(instance.test(places.get(1)));
+        List<Place> path = NearestPlaceSearch.findNearest(graph, places.get(0), instance);
+        assertEquals(4, path.size());
+        assertSame(places.get(3), path.get(3));
+    }
+
+}
@@ -0,0 +1,231 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PathFinderTest {
+
+    public PathFinderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world with random places and paths on three layers
+     * @param places list to add the places to
+     * @param seed random seed
+     * @return world
+     */
+    private static World createWorld(ArrayList<Place> places, long seed){
+        World world = new World();
+        Random random = new Random(seed);
+        try {
+            for(int l = 0; l < 3; ++l){
+                Layer layer = world.getNewLayer();
+                for(int i = 0; i < 100; ++i){
+                    Place place = new Place("", i % 10, i / 10, layer);
+                    place.setRecLevelMin(random.nextInt(20));
+                    place.setFlag("water", random.nextInt(5) == 0);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        final String[] exits = {"n", "e", "s", "w", "u", "d", "swim"};
+        for(int i = 0; i < 500; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            // mostly short paths on the same layer
+            Place place2;
+            if(random.nextInt(4) == 0){
+                place2 = places.get(random.nextInt(places.size()));
+            } else {
+                Layer layer = place1.getLayer();
+                int x = Math.min(9, Math.max(0, place1.getX() + random.nextInt(3) - 1));
+                int y = Math.min(9, Math.max(0, place1.getY() + random.nextInt(3) - 1));
+                place2 = layer.get(x, y);
+            }
+            String exit1 = exits[random.nextInt(exits.length)] + (i % 3 == 0 ? "" : i);
+            String exit2 = i % 4 == 0 ? "-" : "back" + i;
+            place1.connectPath(new Path(place1, exit1, place2, exit2));
+        }
+        return world;
+    }
+
+    /**
+     * Computes the costs from start to all places (Bellman-Ford)
+     * @param places all places
+     * @param start start place
+     * @param cost cost function
+     * @return costs
+     */
+    private static IdentityHashMap<Place, Double> getCosts(ArrayList<Place> places, Place start, PathCost cost){
+        IdentityHashMap<Place, Double> costs = new IdentityHashMap<>();
+        for(Place place: places){
+            costs.put(place, Double.POSITIVE_INFINITY);
+        }
+        costs.put(start, 0.0);
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(Place place: places){
+                for(Path path: place.getPaths()){
+                    Place other = path.getOtherPlace(place);
+                    double c = costs.get(place) + cost.getCost(path, place, other);
+                    if(other != place && c < costs.get(other)){
+                        costs.put(other, c);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Test of findPath method, of class PathFinder.
+     */
+    @Test
+    public void testFindPath() {
+        System.out.println("findPath");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 12);
+
+        DefaultPathCost cost = new DefaultPathCost();
+        cost.setStepCost(2.0);
+        cost.setExitCost("swim", 5.0);
+        cost.setFlagCost("water", 3.0);
+        cost.setPlayerLevel(10, 0.5);
+
+        PathFinder aStar = new PathFinder(cost);
+        PathFinder dijkstra = new PathFinder(cost);
+        dijkstra.setUseHeuristic(false);
+        PathFinder alt = new PathFinder(cost);
+        alt.setLandmarks(world.getLandmarks(true));
+
+        Random random = new Random(13);
+        int pathCount = 0;
+        for(int i = 0; i < 30; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            IdentityHashMap<Place, Double> expected = getCosts(places, start, cost);
+            for(int j = 0; j < 10; ++j){
+                Place end = places.get(random.nextInt(places.size()));
+                List<Path> route = aStar.findPath(start, end);
+                List<Path> reference = dijkstra.findPath(start, end);
+                List<Path> landmarkRoute = alt.findPath(start, end);
+                if(expected.get(end) == Double.POSITIVE_INFINITY){
+                    assertNull(route);
+                    assertNull(reference);
+                    assertNull(landmarkRoute);
+                    continue;
+                }
+                assertNotNull(route);
+                assertNotNull(reference);
+                assertNotNull(landmarkRoute);
+                ++pathCount;
+                assertEquals(expected.get(end), aStar.getCost(start, route), 1e-9);
+                assertEquals(expected.get(end), dijkstra.getCost(start, reference), 1e-9);
+                assertEquals(expected.get(end), alt.getCost(start, landmarkRoute), 1e-9);
+                assertTrue(aStar.getVisitedCount() <= dijkstra.getVisitedCount());
+
+                // each hop starts where the last one ended
+                Place place = start;
+                for(Path path: route){
+                    assertTrue(place.getPaths().contains(path));
+                    assertFalse(path.getExit(place).equals("-"));
+                    place = path.getOtherPlace(place);
+                }
+                assertSame(end, place);
+            }
+        }
+        assertTrue(pathCount > 100);
+
+        // same place
+        assertTrue(world.findPath(places.get(0), places.get(0), cost).isEmpty());
+    }
+
+    /**
+     * Test of getCost method, of class DefaultPathCost.
+     */
+    @Test
+    public void testDefaultPathCost() {
+        System.out.println("defaultPathCost");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place place1 = new Place("", 0, 0, layer);
+        Place place2 = new Place("", 1, 0, layer);
+        place2.setFlag("shop", true);
+        place2.setRecLevelMin(8);
+        Path path = new Path(place1, "door", place2, "-");
+        place1.connectPath(path);
+
+        DefaultPathCost instance = new DefaultPathCost();
+        assertEquals(1.0, instance.getCost(path, place1, place2), 0);
+        assertEquals(Double.POSITIVE_INFINITY, instance.getCost(path, place2, place1), 0);
+
+        instance.setExitCost("door", 2.0);
+        instance.setFlagCost("shop", 4.0);
+        instance.setPlayerLevel(5, 1.5);
+        assertEquals(1.0 + 2.0 + 4.0 + 3 * 1.5, instance.getCost(path, place1, place2), 0);
+
+        instance.setExitCost("door", Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, instance.getCost(path, place1, place2), 0);
+
+        try {
+            instance.setStepCost(-1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+}
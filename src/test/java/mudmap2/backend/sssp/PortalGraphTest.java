@@ -0,0 +1,274 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PortalGraphTest {
+
+    public PortalGraphTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world of small grid layers with a few paths between layers
+     * @param places list to add the places to
+     * @param seed random seed
+     * @return world
+     */
+    private static World createWorld(ArrayList<Place> places, long seed){
+        World world = new World();
+        Random random = new Random(seed);
+        try {
+            for(int l = 0; l < 20; ++l){
+                Layer layer = world.getNewLayer();
+                Place[][] grid = new Place[6][6];
+                for(int x = 0; x < 6; ++x){
+                    for(int y = 0; y < 6; ++y){
+                        Place place = new Place("", x, y, layer);
+                        layer.put(place);
+                        places.add(place);
+                        grid[x][y] = place;
+                        // some one-way paths and gaps in the grid
+                        if(x > 0 && random.nextInt(5) > 0){
+                            place.connectPath(new Path(grid[x - 1][y], "e", place, random.nextInt(4) == 0 ? "-" : "w"));
+                        }
+                        if(y > 0 && random.nextInt(5) > 0){
+                            place.connectPath(new Path(grid[x][y - 1], "n", place, random.nextInt(4) == 0 ? "-" : "s"));
+                        }
+                    }
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 40; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1.getLayer() == place2.getLayer()) continue;
+            place1.connectPath(new Path(place1, "portal" + i, place2, random.nextInt(3) == 0 ? "-" : "back" + i));
+        }
+        return world;
+    }
+
+    /**
+     * Checks that each step of a path follows a path in its direction
+     * @param path places
+     */
+    private static void checkSteps(List<Place> path){
+        for(int j = 0; j + 1 < path.size(); ++j){
+            Place from = path.get(j), to = path.get(j + 1);
+            boolean found = false;
+            for(Path pa: from.getPaths()){
+                if(pa.getOtherPlace(from) == to && !pa.getExit(from).equals("-")){
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
+    /**
+     * Test of breadthSearchPath method, of class PortalGraph.
+     */
+    @Test
+    public void testBreadthSearchPath() {
+        System.out.println("breadthSearchPath");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 1);
+        PortalGraph instance = new PortalGraph();
+
+        Random random = new Random(2);
+        int pathCount = 0;
+        for(int i = 0; i < 300; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            Place end = places.get(random.nextInt(places.size()));
+            List<Place> expected = world.breadthSearchPath(start, end, false);
+            List<Place> result = instance.breadthSearchPath(start, end);
+            if(expected == null){
+                assertNull(result);
+                continue;
+            }
+            assertNotNull(result);
+            assertEquals(expected.size(), result.size());
+            assertSame(start, result.get(0));
+            assertSame(end, result.get(result.size() - 1));
+            checkSteps(result);
+            if(start.getLayer() != end.getLayer()) ++pathCount;
+
+            // world uses the portal graph between layers
+            List<Place> worldResult = world.breadthSearchPath(start, end);
+            assertEquals(expected.size(), worldResult.size());
+        }
+        assertTrue(pathCount > 50);
+    }
+
+    /**
+     * Test of breadthSearchPath method with places without layer, of class
+     * PortalGraph.
+     */
+    @Test
+    public void testBreadthSearchPathLayerless() {
+        System.out.println("breadthSearchPathLayerless");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 6);
+        PortalGraph instance = new PortalGraph();
+
+        // two layers connected through two places without layer
+        Place place1 = places.get(0), place2 = places.get(36 * 19 + 35);
+        Place free1 = new Place("", 0, 0, null), free2 = new Place("", 1, 0, null);
+        place1.connectPath(new Path(place1, "up", free1, "down"));
+        free1.connectPath(new Path(free1, "e", free2, "w"));
+        free2.connectPath(new Path(free2, "down", place2, "up"));
+
+        List<Place> result = instance.breadthSearchPath(place1, place2);
+        assertNotNull(result);
+        assertEquals(world.breadthSearchPath(place1, place2, false).size(), result.size());
+        checkSteps(result);
+
+        // from and to a place without layer
+        result = instance.breadthSearchPath(free1, places.get(35));
+        assertNotNull(result);
+        assertEquals(world.breadthSearchPath(free1, places.get(35), false).size(), result.size());
+        checkSteps(result);
+        result = instance.breadthSearchPath(places.get(35), free2);
+        List<Place> expected = world.breadthSearchPath(places.get(35), free2, false);
+        assertEquals(expected == null, result == null);
+        if(result != null){
+            assertEquals(expected.size(), result.size());
+            checkSteps(result);
+        }
+    }
+
+    /**
+     * Test of invalidate method, of class PortalGraph.
+     */
+    @Test
+    public void testInvalidate() {
+        System.out.println("invalidate");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 3);
+        PortalGraph instance = world.getPortalGraph();
+
+        // fill the cache
+        Random random = new Random(4);
+        for(int i = 0; i < 50; ++i){
+            world.breadthSearchPathLayers(places.get(random.nextInt(places.size())), places.get(random.nextInt(places.size())));
+        }
+
+        // a new path between two layers drops their caches only
+        Place place1 = places.get(0), place2 = places.get(places.size() - 1);
+        Layer layer1 = place1.getLayer(), layer2 = place2.getLayer();
+        Layer other = places.get(36 * 5).getLayer();
+        PortalGraph.LayerPortals otherPortals = instance.getPortals(other);
+        assertFalse(instance.getPortalPlaces(layer1).contains(place1));
+        place1.connectPath(new Path(place1, "stairs", place2, "stairs"));
+        assertFalse(instance.layers.containsKey(layer1));
+        assertFalse(instance.layers.containsKey(layer2));
+        assertSame(otherPortals, instance.getPortals(other));
+        assertTrue(instance.getPortalPlaces(layer1).contains(place1));
+        assertTrue(instance.getPortalPlaces(layer2).contains(place2));
+        assertEquals(2, world.breadthSearchPath(place1, place2).size());
+
+        // paths within a layer
+        instance.getPortals(layer1);
+        Place place3 = places.get(35);
+        place1.connectPath(new Path(place1, "jump", place3, "-"));
+        assertFalse(instance.layers.containsKey(layer1));
+        assertSame(otherPortals, instance.getPortals(other));
+
+        for(int i = 0; i < 100; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            Place end = places.get(random.nextInt(places.size()));
+            List<Place> expected = world.breadthSearchPath(start, end, false);
+            List<Place> result = world.breadthSearchPathLayers(start, end);
+            assertEquals(expected == null, result == null);
+            if(expected != null) assertEquals(expected.size(), result.size());
+        }
+    }
+
+    /**
+     * Test of getBounds method, of class PortalGraph.
+     */
+    @Test
+    public void testGetBounds() {
+        System.out.println("getBounds");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 5);
+        PortalGraph instance = world.getPortalGraph();
+
+        Place place1 = places.get(0), place2 = places.get(35);
+        Layer layer = place1.getLayer();
+        Layer other = places.get(36 * 5).getLayer();
+
+        // path finding reuses the cached data
+        PortalGraph.LayerBounds bounds = instance.getBounds(layer);
+        PortalGraph.LayerBounds otherBounds = instance.getBounds(other);
+        assertEquals(1, bounds.maxJump);
+        PathFinder finder = new PathFinder(new DefaultPathCost());
+        finder.findPath(places.get(36 * 5), place1);
+        finder.findPath(place2, place1);
+        assertSame(bounds, instance.getBounds(layer));
+        assertSame(otherBounds, instance.getBounds(other));
+
+        // a longer path within the layer drops the data of this layer only
+        place1.connectPath(new Path(place1, "jump", place2, "-"));
+        assertFalse(instance.bounds.containsKey(layer));
+        assertSame(otherBounds, instance.getBounds(other));
+        assertEquals(5, instance.getBounds(layer).maxJump);
+
+        List<Path> route = finder.findPath(place1, place2);
+        assertNotNull(route);
+        assertEquals(1, route.size());
+    }
+
+}
@@ -0,0 +1,244 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class RoutePlannerTest {
+
+    public RoutePlannerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a grid of places with paths between neighbors
+     * @param world
+     * @param size width and height
+     * @return places, index x * size + y
+     */
+    private static ArrayList<Place> createGrid(World world, int size){
+        Layer layer = world.getNewLayer();
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int x = 0; x < size; ++x){
+                for(int y = 0; y < size; ++y){
+                    Place place = new Place("", x, y, layer);
+                    layer.put(place);
+                    places.add(place);
+                    if(x > 0){
+                        Place west = places.get((x - 1) * size + y);
+                        place.connectPath(new Path(west, "e", place, "w"));
+                    }
+                    if(y > 0){
+                        Place south = places.get(x * size + y - 1);
+                        place.connectPath(new Path(south, "n", place, "s"));
+                    }
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        return places;
+    }
+
+    /**
+     * Gets the length of the shortest order by trying all orders
+     * @param graph
+     * @param start
+     * @param waypoints
+     * @param index next waypoint to place
+     * @return min number of steps
+     */
+    private static int getOptimum(WorldGraph graph, Place start, ArrayList<Place> waypoints, int index){
+        if(index == waypoints.size()){
+            int length = 0;
+            Place last = start;
+            for(Place place: waypoints){
+                length += graph.breadthSearchPath(last, place, false).size() - 1;
+                last = place;
+            }
+            return length;
+        }
+        int best = Integer.MAX_VALUE;
+        for(int i = index; i < waypoints.size(); ++i){
+            Collections.swap(waypoints, index, i);
+            best = Math.min(best, getOptimum(graph, start, waypoints, index + 1));
+            Collections.swap(waypoints, index, i);
+        }
+        return best;
+    }
+
+    /**
+     * Test of planRoute method, of class RoutePlanner.
+     */
+    @Test
+    public void testPlanRoute() {
+        System.out.println("planRoute");
+
+        World world = new World();
+        ArrayList<Place> places = createGrid(world, 30);
+        // some walls
+        Random random = new Random(1);
+        for(int i = 0; i < 300; ++i){
+            Place place = places.get(random.nextInt(places.size()));
+            if(!place.getPaths().isEmpty()){
+                Path path = place.getPaths().iterator().next();
+                if(path.getOtherPlace(place).getPaths().size() > 1 && place.getPaths().size() > 1){
+                    path.remove();
+                }
+            }
+        }
+        WorldGraph graph = world.getGraph();
+
+        for(int i = 0; i < 10; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            ArrayList<Place> waypoints = new ArrayList<>();
+            for(int j = 0; j < 6; ++j){
+                Place place = places.get(random.nextInt(places.size()));
+                if(world.isReachable(start, place)) waypoints.add(place);
+            }
+
+            RoutePlanner instance = new RoutePlanner(graph);
+            List<Place> route = instance.planRoute(start, waypoints);
+            assertNotNull(route);
+            assertSame(start, route.get(0));
+            assertEquals(route.size() - 1, instance.getLength());
+            assertTrue(route.containsAll(waypoints));
+            assertEquals(new HashSet<>(instance.getOrder()).size(), instance.getOrder().size());
+
+            // each step follows a path
+            for(int j = 0; j + 1 < route.size(); ++j){
+                boolean found = false;
+                for(Path path: route.get(j).getPaths()){
+                    if(path.getOtherPlace(route.get(j)) == route.get(j + 1)) found = true;
+                }
+                assertTrue(found);
+            }
+
+            int optimum = getOptimum(graph, start, new ArrayList<>(new HashSet<>(waypoints)), 0);
+            assertTrue(instance.getLength() >= optimum);
+            assertTrue(instance.getLength() <= optimum * 5 / 4);
+        }
+    }
+
+    /**
+     * Test of planRoute method with return to the start, of class RoutePlanner.
+     */
+    @Test
+    public void testPlanRouteReturn() {
+        System.out.println("planRouteReturn");
+
+        World world = new World();
+        ArrayList<Place> places = createGrid(world, 10);
+        Place start = places.get(0);
+
+        // the corners of the grid
+        ArrayList<Place> waypoints = new ArrayList<>();
+        waypoints.add(places.get(99));
+        waypoints.add(places.get(9));
+        waypoints.add(places.get(90));
+        waypoints.add(start);
+
+        List<Place> route = world.planRoute(start, waypoints, true);
+        assertNotNull(route);
+        assertEquals(36, route.size() - 1);
+        assertSame(start, route.get(route.size() - 1));
+
+        // one waypoint can't be reached
+        Layer layer = start.getLayer();
+        Place island = new Place("", 50, 50, layer);
+        try {
+            layer.put(island);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        waypoints.add(island);
+        assertNull(world.planRoute(start, waypoints, false));
+
+        // only the start place
+        assertEquals(1, world.planRoute(start, new ArrayList<Place>(), false).size());
+    }
+
+    /**
+     * Test of planRoute method with a monitor, of class RoutePlanner.
+     */
+    @Test
+    public void testPlanRouteMonitor() {
+        System.out.println("planRouteMonitor");
+
+        World world = new World();
+        ArrayList<Place> places = createGrid(world, 10);
+        Place start = places.get(0);
+        ArrayList<Place> waypoints = new ArrayList<>();
+        waypoints.add(places.get(99));
+        waypoints.add(places.get(9));
+        waypoints.add(places.get(90));
+
+        RoutePlanner instance = new RoutePlanner(world.getGraph());
+        List<Place> route = instance.planRoute(start, waypoints, new SearchMonitor());
+        assertNotNull(route);
+        assertEquals(27, instance.getLength());
+
+        // the shared threads are kept for the next plan
+        assertFalse(RoutePlanner.EXECUTOR.isShutdown());
+
+        SearchMonitor monitor = new SearchMonitor();
+        monitor.cancel();
+        try {
+            instance.planRoute(start, waypoints, monitor);
+            fail();
+        } catch (CancellationException ex) {
+            assertNull(instance.getOrder());
+            assertEquals(-1, instance.getLength());
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.List;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class SpeedwalkTest {
+
+    public SpeedwalkTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Adds n n n e e (enter portal) (enter portal) s u
+     * @param instance
+     * @return instance
+     */
+    private static Speedwalk addSteps(Speedwalk instance){
+        return instance.addExit("n").addExit("n").addExit("n").addExit("e").addExit("e")
+                .addExit("enter portal").addExit("enter portal").addExit("s").addExit("u");
+    }
+
+    /**
+     * Test of addExit method, of class Speedwalk.
+     */
+    @Test
+    public void testDialects() {
+        System.out.println("dialects");
+
+        assertEquals("3n2e(enter portal)(enter portal)su", addSteps(new Speedwalk()).toString());
+        assertEquals(".3n2e(enter portal)(enter portal)su", addSteps(new Speedwalk(Speedwalk.Dialect.ZMUD, ";")).toString());
+        assertEquals("3n2e;enter portal;enter portal;su", addSteps(new Speedwalk(Speedwalk.Dialect.TINTIN, ";")).toString());
+        assertEquals("n,n,n,e,e,enter portal,enter portal,s,u", addSteps(new Speedwalk(Speedwalk.Dialect.PLAIN, ",")).toString());
+        assertEquals(9, addSteps(new Speedwalk()).getStepCount());
+        assertEquals("", new Speedwalk().toString());
+
+        // toString doesn't end the current run
+        Speedwalk instance = new Speedwalk();
+        instance.addExit("w");
+        assertEquals("w", instance.toString());
+        instance.addExit("w");
+        assertEquals("2w", instance.toString());
+
+        // diagonals aren't compressed, "2ne" would be read as "n;n;e"
+        String[] diagonal = {"ne", "ne", "e", "sw", "n"};
+        Speedwalk compact = new Speedwalk();
+        Speedwalk zmud = new Speedwalk(Speedwalk.Dialect.ZMUD, ";");
+        Speedwalk tintin = new Speedwalk(Speedwalk.Dialect.TINTIN, ";");
+        Speedwalk plain = new Speedwalk(Speedwalk.Dialect.PLAIN, ",");
+        for(String exit: diagonal){
+            compact.addExit(exit);
+            zmud.addExit(exit);
+            tintin.addExit(exit);
+            plain.addExit(exit);
+        }
+        assertEquals("(ne)(ne)e(sw)n", compact.toString());
+        assertEquals(".(ne)(ne)e(sw)n", zmud.toString());
+        assertEquals("ne;ne;e;sw;n", tintin.toString());
+        assertEquals("ne,ne,e,sw,n", plain.toString());
+
+        try {
+            new Speedwalk().addExit("-");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of addAll methods, of class Speedwalk.
+     */
+    @Test
+    public void testAddAll() {
+        System.out.println("addAll");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        ArrayList<Place> places = new ArrayList<>();
+        try {
+            for(int i = 0; i < 5; ++i){
+                Place place = new Place("", 0, i, layer);
+                layer.put(place);
+                places.add(place);
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 3; ++i){
+            places.get(i).connectPath(new Path(places.get(i), "n", places.get(i + 1), "s"));
+        }
+        // a custom exit and a direction to the same place
+        places.get(3).connectPath(new Path(places.get(3), "climb", places.get(4), "-"));
+        places.get(3).connectPath(new Path(places.get(3), "n", places.get(4), "s"));
+
+        List<Place> path = world.breadthSearchPath(places.get(0), places.get(4));
+        assertEquals("4n", Speedwalk.of(path));
+        assertEquals("4s", Speedwalk.of(world.breadthSearchPath(places.get(4), places.get(0))));
+
+        List<Path> paths = world.findPath(places.get(4), places.get(1), new DefaultPathCost());
+        assertEquals("3s", new Speedwalk().addAll(places.get(4), paths).toString());
+
+        // format of the world preferences
+        world.setSpeedwalk(Speedwalk.Dialect.PLAIN, ";");
+        assertEquals("n;n;n;n", world.getSpeedwalk().addAll(path).toString());
+
+        try {
+            new Speedwalk().add(places.get(4)).add(places.get(0));
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+}
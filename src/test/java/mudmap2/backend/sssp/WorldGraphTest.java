@@ -0,0 +1,295 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class WorldGraphTest {
+
+    public WorldGraphTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world with random places and paths on two layers
+     * @param places list to add the places to
+     * @param seed random seed
+     * @return world
+     */
+    private static World createWorld(ArrayList<Place> places, long seed){
+        World world = new World();
+        Random random = new Random(seed);
+        try {
+            for(int l = 0; l < 2; ++l){
+                Layer layer = world.getNewLayer();
+                for(int i = 0; i < 150; ++i){
+                    Place place = new Place("", i % 15, i / 15, layer);
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        for(int i = 0; i < 200; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            String exit1 = Path.directions[random.nextInt(Path.directions.length - 1)] + (i % 2 == 0 ? "" : "x");
+            if(place1 == place2) exit1 = "loop" + i;
+            place1.connectPath(new Path(place1, exit1, place2, i % 3 == 0 ? "-" : "back" + i));
+        }
+        return world;
+    }
+
+    /**
+     * Breadth search on the places, without graph
+     * @param start
+     * @return distance of each reachable place
+     */
+    private static IdentityHashMap<Place, Integer> getDistances(Place start){
+        IdentityHashMap<Place, Integer> distances = new IdentityHashMap<>();
+        distances.put(start, 0);
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(start);
+        while(!queue.isEmpty()){
+            Place v = queue.poll();
+            for(Path path: v.getPaths()){
+                Place vi = path.getOtherPlace(v);
+                if(!path.getExit(v).equals("-") && !distances.containsKey(vi)){
+                    distances.put(vi, distances.get(v) + 1);
+                    queue.add(vi);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Test of the edge arrays, of class WorldGraph.
+     */
+    @Test
+    public void testEdges() {
+        System.out.println("edges");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 1);
+        WorldGraph instance = world.getGraph();
+        assertSame(instance, world.getGraph());
+        assertEquals(places.size(), instance.getPlaceCount());
+
+        int edgeCount = 0, inEdgeCount = 0;
+        for(Place place: places){
+            int v = instance.getIndex(place);
+            assertSame(place, instance.getPlace(v));
+
+            int count = 0;
+            for(Path path: place.getPaths()){
+                if(path.getOtherPlace(place) != place && !path.getExit(place).equals("-")) ++count;
+            }
+            assertEquals(count, instance.getOutDegree(v));
+            for(int e = instance.getEdgeBegin(v); e < instance.getEdgeEnd(v); ++e){
+                Path path = instance.getPath(e);
+                assertSame(path.getOtherPlace(place), instance.getPlace(instance.getTarget(e)));
+                assertEquals(WorldGraph.getDirectionCode(path.getExit(place)), instance.getDirection(e));
+                ++edgeCount;
+            }
+            for(int i = instance.getInEdgeBegin(v); i < instance.getInEdgeEnd(v); ++i){
+                Place source = instance.getPlace(instance.getSource(i));
+                boolean found = false;
+                for(Path path: source.getPaths()){
+                    if(path.getOtherPlace(source) == place && !path.getExit(source).equals("-")) found = true;
+                }
+                assertTrue(found);
+                ++inEdgeCount;
+            }
+        }
+        assertEquals(instance.getEdgeCount(), edgeCount);
+        assertEquals(edgeCount, inEdgeCount);
+        assertEquals(-1, instance.getIndex(new Place("", 0, 0, null)));
+        assertEquals(0, WorldGraph.getDirectionCode("n"));
+        assertEquals(WorldGraph.DIRECTION_OTHER, WorldGraph.getDirectionCode("enter"));
+
+        // path changes create a new graph
+        Place place1 = places.get(0), place2 = places.get(1);
+        Path path = new Path(place1, "portal", place2, "portal");
+        place1.connectPath(path);
+        WorldGraph changed = world.getGraph();
+        assertNotSame(instance, changed);
+        assertEquals(instance.getEdgeCount() + 2, changed.getEdgeCount());
+        path.remove();
+        assertEquals(instance.getEdgeCount(), world.getGraph().getEdgeCount());
+
+        // other changes keep the graph
+        instance = world.getGraph();
+        place1.setName("renamed");
+        place1.setFlag("shop", true);
+        assertSame(instance, world.getGraph());
+    }
+
+    /**
+     * Test of breadthSearchPath method, of class WorldGraph.
+     */
+    @Test
+    public void testBreadthSearchPath() {
+        System.out.println("breadthSearchPath");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 2);
+        WorldGraph instance = world.getGraph();
+
+        Random random = new Random(3);
+        int pathCount = 0;
+        for(int i = 0; i < 30; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            IdentityHashMap<Place, Integer> distances = getDistances(start);
+            for(int j = 0; j < 20; ++j){
+                Place end = places.get(random.nextInt(places.size()));
+                for(boolean bidirectional: new boolean[]{false, true}){
+                    List<Place> path = instance.breadthSearchPath(start, end, bidirectional);
+                    if(!distances.containsKey(end)){
+                        assertNull(path);
+                        continue;
+                    }
+                    assertNotNull(path);
+                    assertEquals(distances.get(end) + 1, path.size());
+                    assertSame(start, path.get(0));
+                    assertSame(end, path.get(path.size() - 1));
+                    ++pathCount;
+                }
+            }
+        }
+        assertTrue(pathCount > 100);
+    }
+
+    /**
+     * Test of the scratch arrays, of class WorldGraph.
+     */
+    @Test
+    public void testScratch() {
+        System.out.println("scratch");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 4);
+        WorldGraph instance = world.getGraph();
+
+        // released arrays are reused with a new generation
+        WorldGraph.Scratch scratch = instance.acquireScratch();
+        int generation = scratch.generation;
+        WorldGraph.Scratch other = instance.acquireScratch();
+        assertNotSame(scratch, other);
+        instance.releaseScratch(other);
+        instance.releaseScratch(scratch);
+        assertSame(scratch, instance.acquireScratch());
+        assertEquals(generation + 1, scratch.generation);
+
+        // marks of the old generations are dropped when the counter wraps
+        scratch.getMarks()[0] = 1;
+        scratch.generation = Integer.MAX_VALUE;
+        scratch.begin();
+        assertEquals(1, scratch.generation);
+        assertEquals(0, scratch.getMarks()[0]);
+        instance.releaseScratch(scratch);
+
+        Random random = new Random(5);
+        for(int i = 0; i < 100; ++i){
+            Place start = places.get(random.nextInt(places.size()));
+            Place end = places.get(random.nextInt(places.size()));
+            Integer distance = getDistances(start).get(end);
+            for(boolean bidirectional: new boolean[]{false, true}){
+                if(i == 50) scratch.generation = Integer.MAX_VALUE - 1;
+                List<Place> path = instance.breadthSearchPath(start, end, bidirectional);
+                assertEquals(distance == null, path == null);
+                if(path != null) assertEquals(distance + 1, path.size());
+            }
+        }
+    }
+
+    /**
+     * Test of getComponents method, of class WorldGraph.
+     */
+    @Test
+    public void testGetComponents() {
+        System.out.println("getComponents");
+
+        ArrayList<Place> places = new ArrayList<>();
+        World world = createWorld(places, 4);
+        WorldGraph instance = world.getGraph();
+
+        int[] components = new int[instance.getPlaceCount()];
+        int count = instance.getComponents(components);
+
+        // places are in the same component, if they are connected by a path
+        ArrayList<Place> roots = new ArrayList<>();
+        IdentityHashMap<Place, Place> root = new IdentityHashMap<>();
+        for(Place place: places){
+            if(root.containsKey(place)) continue;
+            roots.add(place);
+            ArrayDeque<Place> queue = new ArrayDeque<>();
+            queue.add(place);
+            root.put(place, place);
+            while(!queue.isEmpty()){
+                Place v = queue.poll();
+                for(Path path: v.getPaths()){
+                    Place vi = path.getOtherPlace(v);
+                    boolean usable = !path.getExit(v).equals("-") || !path.getExit(vi).equals("-");
+                    if(usable && !root.containsKey(vi)){
+                        root.put(vi, place);
+                        queue.add(vi);
+                    }
+                }
+            }
+        }
+        assertEquals(roots.size(), count);
+        for(Place place: places){
+            assertEquals(components[instance.getIndex(root.get(place))], components[instance.getIndex(place)]);
+        }
+    }
+
+}